@@ -0,0 +1,184 @@
+(ns clojure.lang.collections-bench
+  (:require [clojure.next       :as next]
+            [clojure.edn        :as edn]
+            [clojure.pprint     :as pprint]
+            [clojure.java.io    :as io])
+  (:import  [java.lang.management ManagementFactory]))
+
+; Compares the clojure.next persistent collections with the clojure.lang
+; originals in clojure.core. Each case times a run with a warmup phase
+; followed by a fixed number of samples (as Criterium does) and measures
+; the bytes allocated per run on the benchmarking thread.
+;
+;   lein bench-collections
+;   lein bench-collections "{:sizes [8 1024] :colls #{:vector} :ops #{:nth}}"
+
+(def ^:private default-options
+  {:sizes       [8 1024 131072 1048576 10485760]
+   :colls       #{:hash-map :champ-hash-map :vector :sorted-map :array-map}
+   :ops         #{:assoc :dissoc :lookup :conj :nth :seq-walk :transient-build}
+   :batch       1024
+   :warmup-ns   2000000000
+   :samples     10
+   :output      "target/collections-bench.edn"})
+
+(def ^:private thread-bean (ManagementFactory/getThreadMXBean))
+
+(defn- allocated-bytes []
+  (.getThreadAllocatedBytes ^com.sun.management.ThreadMXBean thread-bean
+                            (.getId (Thread/currentThread))))
+
+(def ^:private sink (atom nil))
+
+(defn- time-run [f]
+  (let [start (System/nanoTime)]
+    (reset! sink (f))
+    (- (System/nanoTime) start)))
+
+(defn- measure [f {:keys [warmup-ns samples]}]
+  (let [warmup-end (+ (System/nanoTime) warmup-ns)]
+    (loop []
+      (time-run f)
+      (when (< (System/nanoTime) warmup-end)
+        (recur))))
+  (let [times (vec (repeatedly samples #(time-run f)))
+        allocs (vec (repeatedly 3 #(let [before (allocated-bytes)]
+                                     (reset! sink (f))
+                                     (- (allocated-bytes) before))))
+        mean (/ (reduce + times) (double samples))
+        variance (/ (reduce + (map #(let [d (- % mean)] (* d d)) times)) (double samples))]
+    {:mean-ns   mean
+     :stddev-ns (Math/sqrt variance)
+     :bytes     (apply min allocs)}))
+
+; ---------------------------------------------------------------------------
+; implementations
+
+(defn- build-next-map [empty-map n]
+  (next/persistent!
+    (reduce #(next/assoc! %1 %2 %2) (next/transient empty-map) (range n))))
+
+(defn- build-core-map [empty-map n]
+  (persistent! (reduce #(assoc! %1 %2 %2) (transient empty-map) (range n))))
+
+(def ^:private implementations
+  {:next {:hash-map       {:build #(build-next-map (next/hash-map) %)}
+          :champ-hash-map {:build #(build-next-map (next/champ-hash-map) %)}
+          :array-map      {:build #(reduce (fn [m i] (next/assoc m i i)) (next/array-map) (range %))}
+          :sorted-map     {:build #(build-next-map (next/sorted-map) %)}
+          :vector         {:build #(next/persistent! (reduce next/conj! (next/transient (next/vector)) (range %)))}
+          :assoc      next/assoc
+          :dissoc     next/dissoc
+          :get        next/get
+          :conj       next/conj
+          :nth        next/nth
+          :seq        next/seq
+          :next       next/next
+          :first      next/first}
+   :core {:hash-map       {:build #(build-core-map (hash-map) %)}
+          :champ-hash-map {:build #(build-core-map (hash-map) %)}
+          :array-map      {:build #(reduce (fn [m i] (assoc m i i)) (array-map) (range %))}
+          :sorted-map     {:build #(reduce (fn [m i] (assoc m i i)) (sorted-map) (range %))}
+          :vector         {:build #(persistent! (reduce conj! (transient []) (range %)))}
+          :assoc      assoc
+          :dissoc     dissoc
+          :get        get
+          :conj       conj
+          :nth        nth
+          :seq        seq
+          :next       next
+          :first      first}})
+
+(def ^:private coll-ops
+  {:hash-map       [:assoc :dissoc :lookup :seq-walk :transient-build]
+   :champ-hash-map [:assoc :dissoc :lookup :seq-walk :transient-build]
+   :array-map      [:assoc :dissoc :lookup :seq-walk]
+   :sorted-map     [:assoc :dissoc :lookup :seq-walk :transient-build]
+   :vector         [:conj :nth :assoc :lookup :seq-walk :transient-build]})
+
+; array maps promote themselves to hash maps past 8 entries. The core CHAMP
+; counterpart is the core hash map, and core sorted maps have no transient,
+; so their transient-build is a persistent assoc loop.
+(def ^:private max-size {:array-map 8})
+
+; Returns [run-fn ops-per-run]. Point operations are applied batch times to
+; the same collection with precomputed random keys, so each op sees size n.
+(defn- make-case [impl coll op n batch]
+  (let [{:keys [assoc dissoc get conj nth seq next first]} impl
+        build (:build (impl coll))
+        c (build n)
+        ^longs ks (long-array (repeatedly batch #(long (rand-int (max n 1)))))
+        ^longs new-ks (long-array (range n (+ n batch)))
+        batched (fn [f ^longs keys]
+                  [(fn []
+                     (loop [i 0 r nil]
+                       (if (< i (alength keys))
+                         (recur (unchecked-inc i) (f c (aget keys i)))
+                         r)))
+                   (alength keys)])]
+    (case op
+      :assoc   (batched #(assoc %1 %2 %2) (if (= coll :vector) ks new-ks))
+      :dissoc  (batched dissoc ks)
+      :lookup  (batched get ks)
+      :conj    (batched conj new-ks)
+      :nth     (batched nth ks)
+      :seq-walk [(fn []
+                   (loop [s (seq c) x nil]
+                     (if s (recur (next s) (first s)) x)))
+                 (max n 1)]
+      :transient-build [#(build n) (max n 1)])))
+
+(defn- run-case [options coll op n]
+  (let [results (into {}
+                  (for [[impl-name impl] implementations]
+                    (let [[f ops] (make-case impl coll op n (:batch options))
+                          {:keys [mean-ns stddev-ns bytes]} (measure f options)]
+                      [impl-name {:ns-per-op    (/ mean-ns ops)
+                                  :stddev-ns    (/ stddev-ns ops)
+                                  :ops-per-sec  (/ (* 1e9 ops) mean-ns)
+                                  :bytes-per-op (/ (double bytes) ops)}])))]
+    {:coll  coll
+     :op    op
+     :size  n
+     :next  (:next results)
+     :core  (:core results)
+     :ratio (/ (get-in results [:next :ns-per-op])
+               (get-in results [:core :ns-per-op]))}))
+
+(def ^:private report-columns
+  ["coll" "op" "size" "next ns/op" "core ns/op" "next ops/s" "next B/op" "core B/op" "next/core"])
+
+(defn- report-row [{:keys [coll op size next core ratio]}]
+  {"coll"          (name coll)
+   "op"            (name op)
+   "size"          size
+   "next ns/op"    (format "%.1f" (:ns-per-op next))
+   "core ns/op"    (format "%.1f" (:ns-per-op core))
+   "next ops/s"    (format "%.3g" (:ops-per-sec next))
+   "next B/op"     (format "%.1f" (:bytes-per-op next))
+   "core B/op"     (format "%.1f" (:bytes-per-op core))
+   "next/core"     (format "%.2f" ratio)})
+
+(defn run [options]
+  (let [options (merge default-options options)
+        cases (for [coll (keys coll-ops)
+                    :when ((:colls options) coll)
+                    op (coll-ops coll)
+                    :when ((:ops options) op)
+                    n (:sizes options)
+                    :when (<= n (get max-size coll Long/MAX_VALUE))]
+                [coll op n])
+        results (doall
+                  (for [[coll op n] cases]
+                    (let [result (run-case options coll op n)]
+                      (pprint/print-table report-columns [(report-row result)])
+                      result)))]
+    (pprint/print-table report-columns (map report-row results))
+    (when-let [output (:output options)]
+      (io/make-parents output)
+      (spit output (pr-str (vec results))))
+    results))
+
+(defn -main [& args]
+  (run (if-let [arg (first args)] (edn/read-string arg) {}))
+  (shutdown-agents))
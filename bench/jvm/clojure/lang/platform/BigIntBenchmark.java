@@ -0,0 +1,90 @@
+package clojure.lang.platform;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BigIntBenchmark {
+
+  // small stays in the long part, spill crosses 64 bits, big starts past them
+  @Param({"small", "spill", "big"})
+  public String magnitude;
+
+  private BigInt x;
+  private BigInt y;
+
+  @Setup
+  public void setup() {
+    if (magnitude.equals("small")) {
+      x = BigInt.fromLong(123456789L);
+      y = BigInt.fromLong(987L);
+    } else if (magnitude.equals("spill")) {
+      x = BigInt.fromLong(Long.MAX_VALUE - 1);
+      y = BigInt.fromLong(Long.MAX_VALUE - 1);
+    } else {
+      x = BigInt.fromBigInteger(BigInteger.valueOf(Long.MAX_VALUE).pow(2));
+      y = BigInt.fromLong(987L);
+    }
+  }
+
+  @Benchmark
+  public BigInt add() {
+    return x.add(y);
+  }
+
+  @Benchmark
+  public BigInt multiply() {
+    return x.multiply(y);
+  }
+
+  @Benchmark
+  public BigInt quotient() {
+    return x.quotient(y);
+  }
+
+  @Benchmark
+  public BigInt remainder() {
+    return x.remainder(y);
+  }
+
+  @Benchmark
+  public boolean lt() {
+    return x.lt(y);
+  }
+
+  @Benchmark
+  public BigInt subtract() {
+    return x.subtract(y);
+  }
+
+  @Benchmark
+  public int compareTo() {
+    return x.compareTo(y);
+  }
+
+  // 25! spills past 64 bits part way through
+  @Benchmark
+  public BigInt factorial() {
+    BigInt acc = BigInt.ONE;
+    for (long i = 2; i <= 25; i++) {
+      acc = acc.multiply(BigInt.valueOf(i));
+    }
+    return acc;
+  }
+
+  @Benchmark
+  public BigInt valueOf() {
+    return BigInt.valueOf(y.longValue());
+  }
+
+}
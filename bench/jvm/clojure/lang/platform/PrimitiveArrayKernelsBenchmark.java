@@ -0,0 +1,97 @@
+package clojure.lang.platform;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// The naive* cases are the single-accumulator loops the kernels replace
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrimitiveArrayKernelsBenchmark {
+
+  @Param({"16", "1024", "65536"})
+  public int size;
+
+  private long[] longs;
+  private double[] doubles;
+  private double[] otherDoubles;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    longs = new long[size];
+    doubles = new double[size];
+    otherDoubles = new double[size];
+    for (int i = 0; i < size; i++) {
+      longs[i] = random.nextInt();
+      doubles[i] = random.nextDouble();
+      otherDoubles[i] = random.nextDouble();
+    }
+  }
+
+  @Benchmark
+  public long sumLongs() {
+    return PrimitiveArrayKernels.sum(longs);
+  }
+
+  @Benchmark
+  public long naiveSumLongs() {
+    long s = 0;
+    for (int i = 0; i < longs.length; i++) {
+      s += longs[i];
+    }
+    return s;
+  }
+
+  @Benchmark
+  public double sumDoubles() {
+    return PrimitiveArrayKernels.sum(doubles);
+  }
+
+  @Benchmark
+  public double naiveSumDoubles() {
+    double s = 0;
+    for (int i = 0; i < doubles.length; i++) {
+      s += doubles[i];
+    }
+    return s;
+  }
+
+  @Benchmark
+  public double dotDoubles() {
+    return PrimitiveArrayKernels.dot(doubles, otherDoubles);
+  }
+
+  @Benchmark
+  public double naiveDotDoubles() {
+    double s = 0;
+    for (int i = 0; i < doubles.length; i++) {
+      s += doubles[i] * otherDoubles[i];
+    }
+    return s;
+  }
+
+  @Benchmark
+  public long maxLongs() {
+    return PrimitiveArrayKernels.max(longs);
+  }
+
+  @Benchmark
+  public double[] addDoubles() {
+    return PrimitiveArrayKernels.add(doubles, otherDoubles);
+  }
+
+  @Benchmark
+  public Number untypedSum() {
+    return PrimitiveArrayKernels.sum((Object) doubles);
+  }
+
+}
@@ -0,0 +1,62 @@
+package clojure.lang.platform;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import clojure.lang.platform.numbers.Addition;
+import clojure.lang.platform.numbers.Comparison;
+import clojure.lang.platform.numbers.Division;
+import clojure.lang.platform.numbers.Multiplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RatioBenchmark {
+
+  // small fits numerator and denominator in a long, big does not
+  @Param({"small", "big"})
+  public String magnitude;
+
+  private Ratio x;
+  private Ratio y;
+
+  @Setup
+  public void setup() {
+    BigInteger scale = magnitude.equals("small") ? BigInteger.ONE : BigInteger.valueOf(Long.MAX_VALUE);
+    x = (Ratio) Division.bigIntegerDivide(BigInteger.ONE.multiply(scale), BigInteger.valueOf(3).multiply(scale).add(BigInteger.ONE));
+    y = (Ratio) Division.bigIntegerDivide(BigInteger.ONE, BigInteger.valueOf(6));
+  }
+
+  @Benchmark
+  public Number add() {
+    return Addition.numberAdd(x, y);
+  }
+
+  @Benchmark
+  public Number multiply() {
+    return Multiplication.numberMultiply(x, y);
+  }
+
+  @Benchmark
+  public Number divide() {
+    return Division.numberDivide(x, y);
+  }
+
+  @Benchmark
+  public boolean lessThan() {
+    return Comparison.lessThan(x, y);
+  }
+
+  @Benchmark
+  public double doubleValue() {
+    return x.doubleValue();
+  }
+
+}
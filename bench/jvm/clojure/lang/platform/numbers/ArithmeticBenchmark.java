@@ -0,0 +1,74 @@
+package clojure.lang.platform.numbers;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// every op class across every pair of Ops operand types
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArithmeticBenchmark {
+
+  @Param({"long", "bigint", "ratio", "bigdecimal", "double"})
+  public String xType;
+
+  @Param({"long", "bigint", "ratio", "bigdecimal", "double"})
+  public String yType;
+
+  private Number x;
+  private Number y;
+
+  @Setup
+  public void setup() {
+    x = Operands.forOpType(xType, 7);
+    y = Operands.forOpType(yType, 5);
+  }
+
+  @Benchmark
+  public Number add() {
+    return Addition.numberAdd(x, y);
+  }
+
+  @Benchmark
+  public Number subtract() {
+    return Subtraction.numberSubtract(x, y);
+  }
+
+  @Benchmark
+  public Number multiply() {
+    return Multiplication.numberMultiply(x, y);
+  }
+
+  @Benchmark
+  public Number divide() {
+    return Division.numberDivide(x, y);
+  }
+
+  @Benchmark
+  public Number quotient() {
+    return Quotient.numberQuotient(x, y);
+  }
+
+  @Benchmark
+  public Number remainder() {
+    return Remainder.numberRemainder(x, y);
+  }
+
+  @Benchmark
+  public boolean lessThan() {
+    return Comparison.lessThan(x, y);
+  }
+
+  @Benchmark
+  public boolean equivalent() {
+    return Equivalence.numbersEquivalent(x, y);
+  }
+
+}
@@ -0,0 +1,39 @@
+package clojure.lang.platform.numbers;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CastBenchmark {
+
+  @Param({"byte", "short", "int", "long", "float", "double", "char",
+          "bigint", "biginteger", "ratio", "bigdecimal"})
+  public String type;
+
+  private Object x;
+
+  @Setup
+  public void setup() {
+    x = Operands.forBoxedType(type, 42);
+  }
+
+  @Benchmark
+  public int castToInt() {
+    return Cast.castToInt(x);
+  }
+
+  @Benchmark
+  public long castToLong() {
+    return Cast.castToLong(x);
+  }
+
+}
@@ -0,0 +1,54 @@
+package clojure.lang.platform.numbers;
+
+import java.math.BigInteger;
+import java.math.BigDecimal;
+import clojure.lang.platform.BigInt;
+import clojure.lang.platform.Ratio;
+
+final class Operands {
+
+  static Number forOpType(String type, long n) {
+    if (type.equals("long")) {
+      return Long.valueOf(n);
+    } else if (type.equals("double")) {
+      return Double.valueOf(n + 0.5);
+    } else if (type.equals("bigint")) {
+      return BigInt.fromLong(n);
+    } else if (type.equals("ratio")) {
+      return new Ratio(BigInteger.valueOf(n), BigInteger.valueOf(3));
+    } else if (type.equals("bigdecimal")) {
+      return BigDecimal.valueOf(n + 0.5);
+    } else {
+      throw new IllegalArgumentException("Unknown operand type: " + type);
+    }
+  }
+
+  static Object forBoxedType(String type, long n) {
+    if (type.equals("byte")) {
+      return Byte.valueOf((byte) n);
+    } else if (type.equals("short")) {
+      return Short.valueOf((short) n);
+    } else if (type.equals("int")) {
+      return Integer.valueOf((int) n);
+    } else if (type.equals("long")) {
+      return Long.valueOf(n);
+    } else if (type.equals("float")) {
+      return Float.valueOf(n);
+    } else if (type.equals("double")) {
+      return Double.valueOf(n);
+    } else if (type.equals("char")) {
+      return Character.valueOf((char) n);
+    } else if (type.equals("bigint")) {
+      return BigInt.fromLong(n);
+    } else if (type.equals("biginteger")) {
+      return BigInteger.valueOf(n);
+    } else if (type.equals("ratio")) {
+      return new Ratio(BigInteger.valueOf(n * 2), BigInteger.valueOf(2));
+    } else if (type.equals("bigdecimal")) {
+      return BigDecimal.valueOf(n);
+    } else {
+      throw new IllegalArgumentException("Unknown boxed type: " + type);
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+package clojure.lang.platform.numbers;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// long arithmetic that stays in range versus arithmetic that spills into BigInt
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OverflowBenchmark {
+
+  @Param({"false", "true"})
+  public boolean overflow;
+
+  private Number x;
+  private Number y;
+
+  @Setup
+  public void setup() {
+    x = overflow ? Long.MAX_VALUE - 1 : 12345L;
+    y = overflow ? 3L : 678L;
+  }
+
+  @Benchmark
+  public Number precisionAdd() {
+    return Addition.numberPrecisionAdd(x, y);
+  }
+
+  @Benchmark
+  public Number precisionMultiply() {
+    return Multiplication.numberPrecisionMultiply(x, y);
+  }
+
+  @Benchmark
+  public Number precisionIncrement() {
+    return Increment.numberPrecisionIncrement(x);
+  }
+
+  @Benchmark
+  public Number bigIntAdd() {
+    return Addition.numberAdd(Coercion.toBigInt(x), y);
+  }
+
+  @Benchmark
+  public Number bigIntMultiply() {
+    return Multiplication.numberMultiply(Coercion.toBigInt(x), y);
+  }
+
+}
@@ -10,4 +10,17 @@
   :java-source-paths ["src/jvm" "test/jvm"]
   :test-paths   ["test/clj" "test/jvm"]
 
+  ; keep exception messages once the JIT has compiled a throwing path,
+  ; the tests match on them
+  :jvm-opts ["-XX:-OmitStackTraceInFastThrow"]
+
+  :profiles {:bench {:source-paths ["bench/clj"]
+                     :java-source-paths ["bench/jvm"]
+                     :dependencies [[org.openjdk.jmh/jmh-core "1.21"]
+                                    [org.openjdk.jmh/jmh-generator-annprocess "1.21"]]}}
+
+  :aliases {"bench" ["with-profile" "+bench" "run" "-m" "org.openjdk.jmh.Main"
+                     "-rf" "json" "-rff" "target/jmh-result.json"]
+            "bench-collections" ["with-profile" "+bench" "run" "-m" "clojure.lang.collections-bench"]}
+
   )
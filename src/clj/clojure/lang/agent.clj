@@ -1,15 +1,17 @@
 (ns clojure.lang.agent
-  (:refer-clojure :only [apply declare defmacro defn defn- defprotocol deftype let loop vec])
+  (:refer-clojure :only [apply declare defmacro defn defn- defprotocol deftype let loop when-let])
   (:require [clojure.next                   :refer :all]
             [clojure.lang.atomic-ref        :refer :all]
             [clojure.lang.persistent-queue  :as    queue]
             [clojure.lang.persistent-vector :refer [EMPTY-VECTOR]]
             [clojure.lang.protocols         :refer [IAgent IDeref IMeta IReference IValidatable IWatchable
-                                                    -action-queue -cons -error-handler -set-error-handler -error-mode -enqueue -notify-watches -peek -reset-meta! -set-state -restart]]
+                                                    -action-queue -batch-size -cons -error-handler -set-error-handler -error-mode -enqueue -notify-watches -peek -reset-meta!
+                                                    -send-executor -send-off-executor -set-state -restart -time-slice]]
             [clojure.lang.runnable          :refer :all]
             [clojure.lang.thread            :refer [create-fixed-thread-pool-executor
                                                     create-cached-thread-pool-executor
-                                                    local-state get-local-state set-local-state]]
+                                                    create-virtual-thread-executor virtual-threads-requested?
+                                                    local-state get-local-state set-local-state nano-time]]
             [clojure.lang.exceptions        :refer [new-runtime-exception platform-try]]))
 
 ; This allows us to avoid implementing LockingTransaction right
@@ -24,7 +26,17 @@
 (def ^{:private true} pooled-counter (new-atomic-long 0))
 (def pooled-executor (create-fixed-thread-pool-executor pooled-counter))
 (def ^{:private true} solo-counter (new-atomic-long 0))
-(def solo-executor (create-cached-thread-pool-executor solo-counter))
+
+; Starting the JVM with -Dclojure.agent.solo-executor=virtual runs send-off
+; actions and futures on virtual threads, where the JDK has them. Virtual
+; threads are always daemon threads, so unlike the cached pool they do not
+; keep the JVM alive until shutdown-agents, and send-off actions or futures
+; still pending when main returns are dropped.
+(def solo-executor
+  (if (virtual-threads-requested?)
+    (or (create-virtual-thread-executor solo-counter)
+        (create-cached-thread-pool-executor solo-counter))
+    (create-cached-thread-pool-executor solo-counter)))
 
 (defprotocol ^{:private true} IActionQueue
   (-stack [this])
@@ -71,7 +83,7 @@
                       next-popped (ref-compare-and-set! (-action-queue agnt) prior next-nxt)]
                   (recur next-popped next-nxt))))]
     (if (and (nil? error) (pos? (count (-stack nxt))))
-      (-execute (-peek (-stack nxt))))))
+      (-peek (-stack nxt)))))
 
 (defn- do-action-run [action error]
   (let [agnt (-agent action)]
@@ -90,8 +102,37 @@
             (do-action-run2 action agnt nil)
             (do-action-run2 action agnt error)))))))
 
-(defmacro ^{:private true} apply-to [f args]
-  `(apply ~f (vec ~args)))
+(defn- run-action [action]
+  (let [agnt (-agent action)]
+    (try
+      (set-local-state nested EMPTY-VECTOR)
+      (platform-try
+        (let [old-val (deref agnt)
+              new-val (apply (-fn action) old-val (-args action))]
+          (-set-state agnt new-val)
+          (-notify-watches agnt old-val new-val)
+          (do-action-run action nil))
+        (platform-catch clojure.lang.exceptions/throwable e
+          (do-action-run action e)))
+      (finally
+        (set-local-state nested nil)))))
+
+; Runs the actions queued behind action on the same thread while they were
+; sent to the same executor, up to the agent's batch size and time slice,
+; and then hands the next action to its executor.
+(defn- run-actions [action]
+  (let [agnt (-agent action)
+        exec (-exec action)
+        batch-size (-batch-size agnt)
+        deadline (+ (nano-time) (-time-slice agnt))]
+    (loop [action action
+           n 1]
+      (when-let [nxt (run-action action)]
+        (if (and (< n batch-size)
+                 (identical? exec (-exec nxt))
+                 (neg? (- (nano-time) deadline)))
+          (recur nxt (clojure.core/unchecked-inc n))
+          (-execute nxt))))))
 
 (defrunnable Action [-agnt -ar -f -ex]
   IAction
@@ -108,18 +149,7 @@
             ((-error-handler -agnt) error)
             (platform-catch clojure.lang.exceptions/throwable _ nil))))))
   (-run [this]
-    (try
-      (set-local-state nested EMPTY-VECTOR)
-      (platform-try
-        (let [old-val (deref -agnt)
-              new-val (apply-to -f (clojure.core/cons old-val -ar))]
-          (-set-state -agnt new-val)
-          (-notify-watches -agnt old-val new-val)
-          (do-action-run this nil))
-        (platform-catch clojure.lang.exceptions/throwable e
-          (do-action-run this e)))
-      (finally
-        (set-local-state nested nil)))))
+    (run-actions this)))
 
 (defn new-action [-agent -args -fn -exec]
   (Action. -agent -args -fn -exec))
@@ -135,7 +165,11 @@
                 ^:volatile-mutable -validator
                 ^:volatile-mutable -watches
                 ^:volatile-mutable -error-mode
-                -action-queue]
+                -action-queue
+                -send-executor
+                -send-off-executor
+                -batch-size
+                -time-slice]
 
   IAgent
   (-action-queue [this] -action-queue)
@@ -176,6 +210,14 @@
   (-set-state [this new-state]
     (set! -state new-state))
 
+  (-send-executor [this] -send-executor)
+
+  (-send-off-executor [this] -send-off-executor)
+
+  (-batch-size [this] -batch-size)
+
+  (-time-slice [this] -time-slice)
+
   (-restart [this new-state options]
     (if (agent-get-error this)
       (let [clear-actions (get options :clear-actions)]
@@ -221,7 +263,9 @@
 
   )
 
-(defn new-agent [-state -error-handler -meta -validator -watches -error-mode]
+(defn new-agent [-state -error-handler -meta -validator -watches -error-mode
+                 -send-executor -send-off-executor -batch-size -time-slice]
   (Agent. -state -error-handler -meta -validator -watches -error-mode
-    (new-atomic-ref EMPTY-ACTION-QUEUE)))
+    (new-atomic-ref EMPTY-ACTION-QUEUE)
+    -send-executor -send-off-executor -batch-size -time-slice))
 
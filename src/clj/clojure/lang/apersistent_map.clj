@@ -1,10 +1,15 @@
 (ns clojure.lang.apersistent-map
-  (:refer-clojure :only [cond defn let loop])
-  (:require [clojure.lang.exceptions  :refer [new-argument-error]]
+  (:refer-clojure :only [cond defn defn- let loop])
+  (:require [clojure.lang.capability  :refer [satisfies?]]
+            [clojure.lang.enumerable  :as    enum]
+            [clojure.lang.exceptions  :refer [new-argument-error]]
+            [clojure.lang.hash        :refer [hash-ordered-step hash-unordered-step mix-collection-hash]]
             [clojure.lang.key-value   :refer [platform-map-entry-type]]
-            [clojure.lang.protocols   :refer [-assoc]]
+            [clojure.lang.protocols   :refer [IMapIterable -assoc -contains-key? -dissoc -key-iterator -lookup
+                                             -val-iterator]]
             [clojure.next             :refer :all]))
 
+; an entry hashes like the vector [k v]
 (defn map-hash [m]
   (loop [entries (seq m)
          acc     0]
@@ -12,22 +17,36 @@
       (let [entry (first entries)]
         (recur
           (next entries)
-          (+ acc (bit-and (hash (key entry))
-                          (hash (val entry))))))
-      acc)))
+          (hash-unordered-step acc
+            (mix-collection-hash
+              (hash-ordered-step (hash-ordered-step 1 (hash (key entry))) (hash (val entry)))
+              2))))
+      (mix-collection-hash acc (count m)))))
 
+(defn- contains-entry? [m k v]
+  (and (contains? m k)
+       (= v (get m k))))
+
+; maps that iterate their keys and values are walked with both iterators
+; in step, which allocates neither seqs nor entries
 (defn map-equals? [m1 m2]
   (if (= (count m1) (count m2))
-    (loop [m1-seq (seq m1)]
-      (if m1-seq
-        (let [first-entry (first m1-seq)
-              k (key first-entry)
-              v (val first-entry)]
-          (if (and (contains? m2 k)
-                   (= v (get m2 k)))
-            (recur (next m1-seq))
-            false))
-        true))
+    (if (satisfies? IMapIterable m1)
+      (let [ks (-key-iterator m1)
+            vs (-val-iterator m1)]
+        (loop []
+          (if (enum/has-next? ks)
+            (if (contains-entry? m2 (enum/next-item ks) (enum/next-item vs))
+              (recur)
+              false)
+            true)))
+      (loop [m1-seq (seq m1)]
+        (if m1-seq
+          (let [first-entry (first m1-seq)]
+            (if (contains-entry? m2 (key first-entry) (val first-entry))
+              (recur (next m1-seq))
+              false))
+          true)))
     false))
 
 (defn map-cons [m o]
@@ -46,3 +65,41 @@
             (recur (-assoc mp (key entry) (val entry)) (next s)))
           mp))))
 
+
+; The entry by entry versions of IMergeable, for maps that have no faster
+; way to combine with other.
+
+(defn map-merge-with [m f other]
+  (loop [mp m
+         s (seq other)]
+    (if s
+      (let [entry (first s)
+            k (key entry)]
+        (recur (if (and f (-contains-key? mp k))
+                 (-assoc mp k (f (-lookup mp k nil) (val entry)))
+                 (-assoc mp k (val entry)))
+               (next s)))
+      mp)))
+
+(defn map-intersect-with [m f other]
+  (loop [mp m
+         s (seq m)]
+    (if s
+      (let [entry (first s)
+            k (key entry)]
+        (recur (cond
+                 (not (-contains-key? other k))
+                   (-dissoc mp k)
+                 f
+                   (-assoc mp k (f (val entry) (-lookup other k nil)))
+                 :else
+                   mp)
+               (next s)))
+      mp)))
+
+(defn map-remove-keys [m other]
+  (loop [mp m
+         s (seq other)]
+    (if s
+      (recur (-dissoc mp (key (first s))) (next s))
+      mp)))
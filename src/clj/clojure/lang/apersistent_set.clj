@@ -1,6 +1,9 @@
 (ns clojure.lang.apersistent-set
-  (:refer-clojure :only [apply defmacro defn defn- let list list* loop])
-  (:require [clojure.next :refer :all]))
+  (:refer-clojure :only [apply defmacro defn defn- if-let let list list* loop when])
+  (:require [clojure.next           :refer :all]
+            [clojure.lang.capability :refer [satisfies?]]
+            [clojure.lang.hash      :refer [hash-unordered-step mix-collection-hash]]
+            [clojure.lang.protocols :refer [IMergeable -merge-with -intersect-with -remove-keys]]))
 
 (defn make-pairs [xs]
   (loop [pairs xs
@@ -10,29 +13,57 @@
       (let [p (first pairs)]
         (recur (rest pairs) (clojure.core/conj acc p p))))))
 
-(defn- sets-reduce [accumulator-fn -map sets]
+; A set whose map can merge with the other set's map is combined through
+; IMergeable, which walks the two maps together. Others go item by item.
+; other-map returns the map of a set of the same type, or nil.
+(defn- mergeable-map [-map other-map s]
+  (let [m (other-map s)]
+    (when (and m (satisfies? IMergeable -map))
+      m)))
+
+(defn- sets-reduce [accumulator-fn merge-fn -map sets other-map]
   (loop [remaining-sets sets
          new-map        -map]
     (if (empty? remaining-sets)
       new-map
-      (recur (rest remaining-sets)
-             (accumulator-fn new-map (seq (first remaining-sets)))))))
-
-(defn set-difference [-map sets]
-  (sets-reduce #(reduce dissoc %1 %2) -map sets))
-
-(defn set-union [-map sets]
-  (sets-reduce #(apply assoc (clojure.core/cons %1 (make-pairs %2))) -map sets))
-
-(defn set-intersection [-map sets]
-  (loop [m -map
-         ks (keys -map)]
-    (if (empty? ks)
-      m
-      (let [k (first ks)]
-        (if (every? #(contains? % k) sets)
-          (recur m (rest ks))
-          (recur (dissoc m k) (rest ks)))))))
+      (let [s (first remaining-sets)]
+        (recur (rest remaining-sets)
+               (if-let [m (mergeable-map new-map other-map s)]
+                 (merge-fn new-map m)
+                 (accumulator-fn new-map (seq s))))))))
+
+(defn set-difference
+  ([-map sets]
+    (set-difference -map sets (constantly nil)))
+  ([-map sets other-map]
+    (sets-reduce #(reduce dissoc %1 %2) -remove-keys -map sets other-map)))
+
+(defn set-union
+  ([-map sets]
+    (set-union -map sets (constantly nil)))
+  ([-map sets other-map]
+    (sets-reduce #(apply assoc (clojure.core/cons %1 (make-pairs %2))) #(-merge-with %1 nil %2) -map sets other-map)))
+
+(defn set-intersection
+  ([-map sets]
+    (set-intersection -map sets (constantly nil)))
+  ([-map sets other-map]
+    (loop [m -map
+           sets (seq sets)]
+      (if sets
+        (let [s (first sets)]
+          (recur (if-let [other (mergeable-map m other-map s)]
+                   (-intersect-with m nil other)
+                   (loop [m m
+                          ks (keys m)]
+                     (if (empty? ks)
+                       m
+                       (let [k (first ks)]
+                         (if (contains? s k)
+                           (recur m (rest ks))
+                           (recur (dissoc m k) (rest ks)))))))
+                 (next sets)))
+        m))))
 
 (defn set-equals? [-map other-set]
   (if (= (count -map) (count other-set))
@@ -40,10 +71,20 @@
     false))
 
 (defn set-hash [items-seq]
-  (reduce #(+ %1 (hash %2)) 0 items-seq))
+  (loop [s items-seq
+         acc 0]
+    (if s
+      (recur (next s) (hash-unordered-step acc (hash (first s))))
+      (mix-collection-hash acc (count items-seq)))))
+
+; the fn that returns the map of another set of type
+(defn- other-map-fn [type]
+  (list 'clojure.core/fn '[other]
+    (list 'clojure.core/when (list 'clojure.core/instance? type 'other)
+      (list '.-_map (clojure.core/with-meta 'other {:tag type})))))
 
 (defmacro defset [type gen-next & body]
-  (list* 'clojure.lang.afn/deffn type '[-map]
+  (list* 'clojure.lang.afn/deffn type '[-map ^:unsynchronized-mutable -hasheq]
     'clojure.lang.protocols.ICounted
     (list '-count '[this]
       (list 'clojure.next/count '-map))
@@ -61,7 +102,7 @@
       (list 'clojure.next/contains? '-map 'x))
 
     (list '-difference '[this sets]
-      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-difference '-map 'sets)]
+      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-difference '-map 'sets (other-map-fn type))]
         (list gen-next 'next-map)))
 
     (list '-disj '[this x]
@@ -69,11 +110,11 @@
         (list gen-next 'next-map)))
 
     (list '-intersection '[this sets]
-      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-intersection '-map 'sets)]
+      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-intersection '-map 'sets (other-map-fn type))]
         (list gen-next 'next-map)))
 
     (list '-union '[this sets]
-      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-union '-map 'sets)]
+      (list 'clojure.core/let ['next-map (list 'clojure.lang.apersistent-set/set-union '-map 'sets (other-map-fn type))]
         (list gen-next 'next-map)))
 
     'clojure.lang.protocols.IPersistentCollection
@@ -93,7 +134,13 @@
       (list 'clojure.lang.apersistent-set/set-equals? '-map 'other))
 
     (list 'clojure.lang.hash/hash-method '[this]
-      (list clojure.lang.apersistent-set/set-hash (list 'seq 'this)))
+      (list 'clojure.next/hash 'this))
+
+    'clojure.lang.protocols.IHash
+    (list '-hash '[this]
+      (list 'clojure.core/when (list 'clojure.next/= '-hasheq -1)
+        (list 'set! '-hasheq (list 'clojure.lang.apersistent-set/set-hash (list 'clojure.next/seq 'this))))
+      '-hasheq)
 
     body))
 
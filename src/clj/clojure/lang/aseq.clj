@@ -3,10 +3,25 @@
   (:require [clojure.next :refer :all]
             [clojure.lang
               [protocols :refer [-seq -first -next]]
-              [array     :as    arr]]))
+              [array     :as    arr]
+              [hash      :refer [hash-code hash-ordered-step mix-collection-hash]]]))
 
+; the platform hash code, as java.util.List defines it
 (defn seq-hash [s]
-  (reduce #(+ (* 31 %1) (if (nil? %2) 0 (hash %2))) 1 s))
+  (loop [s (seq s)
+         acc 1]
+    (if s
+      (let [x (first s)]
+        (recur (next s) (hash-ordered-step acc (if (nil? x) 0 (hash-code x)))))
+      acc)))
+
+(defn seq-hasheq [s]
+  (loop [s (seq s)
+         n 0
+         acc 1]
+    (if s
+      (recur (next s) (inc n) (hash-ordered-step acc (hash (first s))))
+      (mix-collection-hash acc n))))
 
 (defn ^:private fill-array [arr sq]
   (loop [s sq i 0]
@@ -52,5 +67,10 @@
     'clojure.lang.object/base-object
     (list 'clojure.lang.equivalence/equals-method '[this other]
       (list 'clojure.lang.aseq/seq-equal? 'this 'other))
+    (list 'clojure.lang.hash/hash-method '[this]
+      (list 'clojure.lang.aseq/seq-hash 'this))
+    'clojure.lang.protocols.IHash
+    (list '-hash '[this]
+      (list 'clojure.lang.aseq/seq-hasheq 'this))
     body))
 
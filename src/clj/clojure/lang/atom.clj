@@ -1,10 +1,14 @@
 (ns clojure.lang.atom
-  (:refer-clojure :only [apply cons defn defn- deftype fn let loop if-not])
-  (:require [clojure.lang.atomic-ref :refer [new-atomic-ref ref-set!
-                                             ref-get ref-compare-and-set!]]
-            [clojure.lang.exceptions :refer [new-illegal-state-error]]
-            [clojure.lang.protocols  :refer [IAtom IDeref IMeta IReference IValidatable IWatchable
-                                             -reset-meta!]]
+  (:refer-clojure :only [apply cons defmacro defn defn- deftype fn let loop if-not when])
+  (:require [clojure.lang.atomic-ref :refer [new-atomic-ref ref-set! ref-get ref-compare-and-set!
+                                             new-atomic-long long-get long-add! long-compare-and-set!
+                                             new-atomic-ref-array ref-array-length ref-array-get
+                                             ref-array-set! ref-array-compare-and-set!]]
+            [clojure.lang.exceptions :refer [new-illegal-state-error new-unsupported-error]]
+            [clojure.lang.protocols  :refer [IAtom IAtomValues IDeref IMeta IReference ISwapStats IValidatable IWatchable
+                                             -deref -reset-meta!]]
+            [clojure.lang.random     :refer [thread-rand-int]]
+            [clojure.lang.thread     :refer [available-processors park-nanos thread-id]]
             [clojure.next            :refer :all :exclude [cons]]))
 
 (defn- validate-with-exception [validator-fn input]
@@ -21,10 +25,48 @@
         (watch-fn watch-key atm old-value new-value)
         (recur (rest watches))))))
 
+(deftype SwapStats [attempts failures max-retries])
+
+(defn- record-swap! [^SwapStats stats retries]
+  (long-add! (.-attempts stats) (inc retries))
+  (long-add! (.-failures stats) retries)
+  (let [max-retries (.-max-retries stats)]
+    (loop []
+      (let [current (long-get max-retries)]
+        (when (< current retries)
+          (if-not (long-compare-and-set! max-retries current retries)
+            (recur)))))))
+
+; Parks for a random time below a window that doubles with each failed
+; attempt, up to about 65 microseconds, so that threads which collided on
+; a compare-and-set spread out before they retry.
+(defn- back-off! [retries]
+  (park-nanos (thread-rand-int (bit-shift-left 64 (min retries 10)))))
+
+; The compare-and-set loop of the swaps on an Atom. Each attempt binds
+; old-value to the state and new-value to update, and the swap returns
+; result once new-value is set.
+(defmacro ^:private swap-loop [old-value new-value update result]
+  `(loop [retries# 0]
+     (let [~old-value (ref-get ~'-state)
+           ~new-value ~update]
+       (validate-with-exception ~'-validator ~new-value)
+       (if (ref-compare-and-set! ~'-state ~old-value ~new-value)
+         (do
+           (when ~'-stats
+             (record-swap! ~'-stats retries#))
+           (notify-watches ~'-watches ~'this ~old-value ~new-value)
+           ~result)
+         (do
+           (when ~'-stats
+             (back-off! retries#))
+           (recur (clojure.core/unchecked-inc retries#)))))))
+
 (deftype Atom [-state
                ^:unsynchronized-mutable -meta
                ^:volatile-mutable -validator
-               ^:volatile-mutable -watches]
+               ^:volatile-mutable -watches
+               -stats]
   IDeref
   (-deref [this] (ref-get -state))
 
@@ -58,16 +100,47 @@
       (notify-watches -watches this old-state new-state)
       new-state))
 
-  (-swap! [this f args]
-    (loop []
-      (let [old-value (ref-get -state)
-            new-value (apply f old-value args)]
-        (validate-with-exception -validator new-value)
-        (if (ref-compare-and-set! -state old-value new-value)
-          (do
-            (notify-watches -watches this old-value new-value)
-            new-value)
-          (recur)))))
+  (-swap! [this f]
+    (swap-loop old-value new-value (f old-value) new-value))
+
+  (-swap! [this f x]
+    (swap-loop old-value new-value (f old-value x) new-value))
+
+  (-swap! [this f x y]
+    (swap-loop old-value new-value (f old-value x y) new-value))
+
+  (-swap! [this f x y z]
+    (swap-loop old-value new-value (f old-value x y z) new-value))
+
+  (-swap! [this f x y z more]
+    (swap-loop old-value new-value (apply f old-value x y z more) new-value))
+
+  IAtomValues
+  (-reset-vals! [this new-state]
+    (swap-loop old-value new-value new-state (vector old-value new-value)))
+
+  (-swap-vals! [this f]
+    (swap-loop old-value new-value (f old-value) (vector old-value new-value)))
+
+  (-swap-vals! [this f x]
+    (swap-loop old-value new-value (f old-value x) (vector old-value new-value)))
+
+  (-swap-vals! [this f x y]
+    (swap-loop old-value new-value (f old-value x y) (vector old-value new-value)))
+
+  (-swap-vals! [this f x y z]
+    (swap-loop old-value new-value (f old-value x y z) (vector old-value new-value)))
+
+  (-swap-vals! [this f x y z more]
+    (swap-loop old-value new-value (apply f old-value x y z more) (vector old-value new-value)))
+
+  ISwapStats
+  (-swap-stats [this]
+    (when -stats
+      (let [^SwapStats stats -stats]
+        (array-map :attempts    (long-get (.-attempts stats))
+                   :failures    (long-get (.-failures stats))
+                   :max-retries (long-get (.-max-retries stats))))))
 
   IValidatable
   (-get-validator [this] -validator)
@@ -86,5 +159,82 @@
     (set! -watches (dissoc -watches k))
     this))
 
-(defn new-atom [state meta validator watches]
-  (Atom. state meta validator watches))
+(defn new-atom
+  ([state meta validator watches]
+    (Atom. state meta validator watches nil))
+  ([state meta validator watches backoff]
+    (Atom. state meta validator watches
+           (when backoff
+             (SwapStats. (new-atomic-long 0) (new-atomic-long 0) (new-atomic-long 0))))))
+
+; A striped atom spreads its state over one stripe per processor, and each
+; swap! updates the stripe picked by its thread, moving to the next stripe
+; when its compare-and-set fails. Deref combines the stripes, so updates
+; must commute, and init must be the identity of combine.
+(defn- stripe-count []
+  (loop [n 1]
+    (if (< n (available-processors))
+      (recur (clojure.core/bit-shift-left n 1))
+      n)))
+
+; The stripes sit this many slots apart in their array, which puts at least
+; 64 bytes, a cache line, between them, so threads updating neighbouring
+; stripes do not contend on one line.
+(def ^:private ^:const stripe-stride 16)
+
+; Updates the stripe of the current thread, binding old-value to its state
+; on each attempt. Reads no other stripe, and returns nil.
+(defmacro ^:private stripe-loop [old-value update]
+  `(let [mask# (clojure.core/unchecked-dec (ref-array-length ~'-stripes))]
+     (loop [i# (clojure.core/bit-and (clojure.core/unchecked-multiply (thread-id) stripe-stride) mask#)]
+       (let [~old-value (ref-array-get ~'-stripes i#)]
+         (if (ref-array-compare-and-set! ~'-stripes i# ~old-value ~update)
+           nil
+           (recur (clojure.core/bit-and (clojure.core/unchecked-add i# stripe-stride) mask#)))))))
+
+(deftype StripedAtom [-stripes -combine -init]
+  IDeref
+  (-deref [this]
+    (let [n (ref-array-length -stripes)]
+      (loop [i stripe-stride
+             acc (ref-array-get -stripes 0)]
+        (if (clojure.core/< i n)
+          (recur (clojure.core/unchecked-add i stripe-stride) (-combine acc (ref-array-get -stripes i)))
+          acc))))
+
+  IAtom
+  (-compare-and-set! [this old-state new-state]
+    (throw (new-unsupported-error "A striped atom has no single state to compare")))
+
+  (-reset! [this new-state]
+    (let [n (ref-array-length -stripes)]
+      (ref-array-set! -stripes 0 new-state)
+      (loop [i stripe-stride]
+        (when (clojure.core/< i n)
+          (ref-array-set! -stripes i -init)
+          (recur (clojure.core/unchecked-add i stripe-stride))))
+      new-state))
+
+  (-swap! [this f]
+    (stripe-loop old-value (f old-value)))
+
+  (-swap! [this f x]
+    (stripe-loop old-value (f old-value x)))
+
+  (-swap! [this f x y]
+    (stripe-loop old-value (f old-value x y)))
+
+  (-swap! [this f x y z]
+    (stripe-loop old-value (f old-value x y z)))
+
+  (-swap! [this f x y z more]
+    (stripe-loop old-value (apply f old-value x y z more))))
+
+(defn new-striped-atom [combine init]
+  (let [n (clojure.core/* (stripe-count) stripe-stride)
+        stripes (new-atomic-ref-array n)]
+    (loop [i 0]
+      (when (clojure.core/< i n)
+        (ref-array-set! stripes i init)
+        (recur (clojure.core/unchecked-add i stripe-stride))))
+    (StripedAtom. stripes combine init)))
@@ -1,8 +1,8 @@
 (ns clojure.lang.chunked-cons
-  (:refer-clojure :only [cond declare defn loop when])
+  (:refer-clojure :only [cond declare defn let loop when])
   (:require [clojure.next :refer :all]
             [clojure.lang
-              [aseq            :refer [seq-equal? seq-hash seq->array]]
+              [aseq            :refer [seq-equal? seq-hash seq-hasheq seq->array]]
               [collection      :as    coll]
               [deftype         :refer [deftype]]
               [equivalence     :as    equiv]
@@ -10,8 +10,8 @@
               [hash            :as    hash-code]
               [object          :as    obj]
               [persistent-list :refer [EMPTY-LIST]]
-              [protocols       :refer [IChunkedSeq ICounted IMeta IObj
-                                       IPersistentCollection ISeq ISeqable
+              [protocols       :refer [IChunkedSeq ICounted IHash IMeta IObj
+                                       IPersistentCollection IReduce ISeq ISeqable
                                        ISequential
                                        -drop-first]]]))
 
@@ -19,7 +19,7 @@
 
 (declare make-chunked-cons)
 
-(deftype ChunkedCons [-chunk -more -meta ^:unsynchronized-mutable -hash]
+(deftype ChunkedCons [-chunk -more -meta ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   IChunkedSeq
   (-chunked-first [this] -chunk)
 
@@ -44,7 +44,7 @@
   IObj
   (-with-meta [this new-meta]
     (if (not= new-meta -meta)
-      (make-chunked-cons -chunk -more new-meta)
+      (ChunkedCons. -chunk -more new-meta -hash -hasheq)
       this))
 
   IPersistentCollection
@@ -53,6 +53,27 @@
 
   (-empty [this] EMPTY-LIST)
 
+  ; reduces a chunk at a time while the rest is chunked too
+  IReduce
+  (-reduce [this f init]
+    (loop [s this
+           acc init]
+      (if (instance? ChunkedCons s)
+        (let [c (chunk-first s)
+              n (count c)
+              acc (loop [i 0
+                         acc acc]
+                    (if (< i n)
+                      (let [acc (f acc (nth c i))]
+                        (if (reduced? acc)
+                          acc
+                          (recur (inc i) acc)))
+                      acc))]
+          (if (reduced? acc)
+            (deref acc)
+            (recur (chunk-next s) acc)))
+        (reduce f acc s))))
+
   ISeq
   (-first [this]
     (nth -chunk 0))
@@ -76,6 +97,12 @@
 
   ISequential
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (equiv/equals-method [this other]
     (seq-equal? this other))
@@ -134,7 +161,7 @@
 
 (defn make-chunked-cons
   ([ch sq]
-    (ChunkedCons. ch sq nil -1))
+    (ChunkedCons. ch sq nil -1 -1))
   ([ch sq mta]
-    (ChunkedCons. ch sq mta -1)))
+    (ChunkedCons. ch sq mta -1 -1)))
 
@@ -1,21 +1,22 @@
 (ns clojure.lang.cons
-  (:refer-clojure :only [declare defn list loop])
+  (:refer-clojure :only [declare defn list loop when])
   (:require [clojure.next           :refer :all]
             [clojure.lang
-              [aseq        :refer [defseq seq-equal? seq-hash seq->array]]
+              [aseq        :refer [defseq seq-equal? seq-hash seq-hasheq seq->array]]
               [collection  :as    coll]
               [deftype     :refer [deftype]]
               [equivalence :as    equiv]
               [exceptions  :refer [new-unsupported-error]]
+              [hash        :as    hash-code]
               [object      :as    obj]
-              [protocols   :refer [ICounted IMeta IObj
+              [protocols   :refer [ICounted IHash IMeta IObj
                                    ISeq ISeqable ISequential]]]))
 
 (coll/import-collection-type)
 
 (declare make-cons)
 
-(deftype Cons [-meta -first -more]
+(deftype Cons [-meta -first -more ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   ICounted
   (-count [this]
     (inc (count -more)))
@@ -25,7 +26,7 @@
 
   IObj
   (-with-meta [this mta]
-    (make-cons mta -first -more))
+    (Cons. mta -first -more -hash -hasheq))
 
   ISeq
   (-first [this] -first)
@@ -42,10 +43,21 @@
   ISeqable
   (-seq [this] this)
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (equiv/equals-method [this other]
     (seq-equal? this other))
 
+  (hash-code/hash-method [this]
+    (when (= -hash -1)
+      (set! -hash (seq-hash this)))
+    -hash)
+
   coll/base-collection
   (coll/add-method [this other]
     (throw (new-unsupported-error)))
@@ -95,6 +107,6 @@
 
 (defn make-cons
   ([elem s]
-    (Cons. {} elem s))
+    (Cons. {} elem s -1 -1))
   ([mta elem s]
-    (Cons. mta elem s)))
+    (Cons. mta elem s -1 -1)))
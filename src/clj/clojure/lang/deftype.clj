@@ -3,10 +3,12 @@
   (:require [clojure.string          :refer [split]]
             [clojure.lang.exceptions :refer [platform-try exception new-exception]]))
 
+; a class prints as "class java.lang.Iterable" or "interface
+; java.util.Iterator", the fully qualified name resolves without an import
 (defn- symbol->Class [resolved-symbol original-symbol]
   (if (class? resolved-symbol)
     (-> (str resolved-symbol)
-        (split #"\.")
+        (split #" ")
         last
         symbol)
     original-symbol))
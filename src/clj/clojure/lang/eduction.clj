@@ -0,0 +1,18 @@
+(ns clojure.lang.eduction
+  (:refer-clojure :only [deftype defn])
+  (:require [clojure.next           :refer :all]
+            [clojure.lang.protocols :refer [IReduce ISeqable ISequential]]))
+
+(deftype Eduction [-xform -coll]
+  IReduce
+  (-reduce [this f init]
+    (transduce -xform (completing f) init -coll))
+
+  ISeqable
+  (-seq [this]
+    (seq (sequence -xform -coll)))
+
+  ISequential)
+
+(defn make-eduction [xform coll]
+  (Eduction. xform coll))
@@ -1,14 +1,15 @@
 (ns clojure.lang.enumeration-seq
-  (:refer-clojure :only [declare defn if-let locking loop satisfies?])
+  (:refer-clojure :only [declare defn if-let locking loop])
   (:require [clojure.next :refer :all]
             [clojure.lang
               [aseq            :refer [defseq]]
+              [capability      :refer [satisfies?]]
               [deftype]
               [enumerable      :refer [get-next has-more-elements?]]
               [equivalence]
               [object          :refer [new-base-object]]
               [persistent-list :refer [EMPTY-LIST]]
-              [protocols       :refer [ICounted IMeta IObj IPersistentCollection
+              [protocols       :refer [ICounted IHash IMeta IObj IPersistentCollection
                                        ISeq ISeqable ISequential]]]))
 
 (declare make-enumeration-seq)
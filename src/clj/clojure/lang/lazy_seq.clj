@@ -1,14 +1,14 @@
 (ns clojure.lang.lazy-seq
   (:refer-clojure :only [declare defn defn- let list locking loop])
   (:require [clojure.lang
-              [aseq        :refer [seq->array seq-equal?]]
+              [aseq        :refer [seq->array seq-equal? seq-hasheq]]
               [collection  :as    coll]
               [deftype     :refer [deftype]]
               [equivalence :as    equiv]
               [exceptions  :refer [new-unsupported-error]]
               [hash        :as    hash-code]
               [object      :as    platform-object]
-              [protocols   :refer [ICounted ILazySeq IMeta IObj IPending ISeq ISeqable ISequential
+              [protocols   :refer [ICounted IHash ILazySeq IMeta IObj IPending ISeq ISeqable ISequential
                                    -sval -seq -first -next -more]]]
             [clojure.next             :refer :all]))
 
@@ -84,6 +84,10 @@
       (list)
       (-more (-seq this))))
 
+  IHash
+  (-hash [this]
+    (seq-hasheq this))
+
   platform-object/base-object
   (equiv/equals-method [this other]
     (seq-equal? this other))
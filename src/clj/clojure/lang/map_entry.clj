@@ -1,7 +1,8 @@
 (ns clojure.lang.map-entry
-  (:refer-clojure :refer [cond defn defn- let satisfies? when])
+  (:refer-clojure :refer [cond defn defn- let when])
   (:require [clojure.lang
-              [aseq        :refer [seq-hash]]
+              [aseq        :refer [seq-hash seq-hasheq]]
+              [capability  :refer [satisfies?]]
               [deftype     :refer [deftype]]
               [equivalence :as    equiv]
               [exceptions  :refer [new-out-of-bounds-exception]]
@@ -9,7 +10,7 @@
               [key-value   :as    key-value]
               [numbers     :refer [platform-long platform-big-int platform-big-integer]]
               [object      :as    obj]
-              [protocols   :refer [ICounted IIndexed ILookup IMapEntry
+              [protocols   :refer [ICounted IHash IIndexed ILookup IMapEntry
                                    IPersistentCollection ISeqable
                                    -key -nth -val]]]
             [clojure.next :refer :all]))
@@ -22,7 +23,7 @@
       (instance? platform-big-int i)
       (instance? platform-big-integer i)))
 
-(deftype MapEntry [-k -v ^:unsynchronized-mutable -hash]
+(deftype MapEntry [-k -v ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   ICounted
   (-count [this] 2)
 
@@ -67,6 +68,12 @@
 
   (key-value/val-method [this] -v)
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (equiv/equals-method [this other]
     (and (satisfies? IMapEntry other)
@@ -79,5 +86,5 @@
     -hash))
 
 (defn new-map-entry [k v]
-  (MapEntry. k v -1))
+  (MapEntry. k v -1 -1))
 
@@ -14,9 +14,9 @@
               [map-entry       :refer [new-map-entry]]
               [object          :as    obj]
               [persistent-list :refer [EMPTY-LIST]]
-              [protocols       :refer [ICounted ILookup IAssociative IFn
+              [protocols       :refer [ICounted ILookup IAssociative IFn IHash
                                        IPersistentCollection IPersistentMap
-                                       IMeta IObj ISeq ISeqable ISequential
+                                       IMeta IObj IReduce ISeq ISeqable ISequential
                                        IEditableCollection ITransientCollection
                                        ITransientAssociative ITransientMap
                                        -assoc! -lookup]]
@@ -140,7 +140,7 @@
   (when (not= 0 count)
     (PersistentArrayMapSeq. arr count position)))
 
-(deffn PersistentArrayMap [-arr -size -count -meta]
+(deffn PersistentArrayMap [-arr -size -count -meta ^:unsynchronized-mutable -hasheq]
   IAssociative
   (-assoc [this k v]
     (if-let [idx (index-of -arr -size k)] ; key exists
@@ -188,7 +188,7 @@
   (-with-meta [this m]
     (let [new-arr (object-array -size)]
       (acopy -arr 0 new-arr 0 -size)
-      (new-array-map new-arr -size -count m)))
+      (PersistentArrayMap. new-arr -size -count m -hasheq)))
 
   IPersistentCollection
   (-cons [this o]
@@ -207,6 +207,17 @@
         (new-array-map new-array new-size (dec -count) -meta))
       this))
 
+  IReduce
+  (-reduce [this f init]
+    (loop [i 0
+           acc init]
+      (if (< i -size)
+        (let [acc (f acc (new-map-entry (aget -arr i) (aget -arr (inc i))))]
+          (if (reduced? acc)
+            (deref acc)
+            (recur (+ i 2) acc)))
+        acc)))
+
   ISeqable
   (-seq [this]
     (new-array-map-seq -arr -count 0))
@@ -216,13 +227,19 @@
     (map-equals? this other))
 
   (hash-code/hash-method [this]
-    (map-hash this))
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
 
   enum/base-enumerator
   (enum/enumerable-method [this]
     (enum/new-seq-iterator (seq this))))
 
 (defn new-array-map [arr size count meta]
-  (PersistentArrayMap. arr size count meta))
+  (PersistentArrayMap. arr size count meta -1))
 
 (def EMPTY-ARRAY-MAP (new-array-map (into-array EMPTY-LIST) 0 0 nil))
@@ -0,0 +1,682 @@
+(ns clojure.lang.persistent-champ-map
+  (:refer-clojure :only [defn defn- declare defprotocol format let if-let when loop cond])
+  (:require [clojure.lang
+              [apersistent-map :refer [map-cons map-equals? map-hash]]
+              [aseq            :refer [defseq]]
+              [atomic-ref      :refer [new-atomic-ref ref-get ref-set!]]
+              [deftype         :refer [deftype]]
+              [enumerable      :as    enum]
+              [equivalence     :as    equiv]
+              [exceptions      :refer [new-argument-error new-illegal-access-error
+                                       new-no-such-element-exception new-unsupported-error]]
+              [hash            :as    hash-code]
+              [key-value       :refer [platform-map-entry-type]]
+              [map-entry       :refer [new-map-entry]]
+              [object          :as    obj]
+              [persistent-list :refer [EMPTY-LIST]]
+              [hash-map        :refer [->bitnum empty-object
+                                       bit-and bit-or bit-xor bit-shift-left unsigned-bit-shift-right bit-count
+                                       + inc * - dec]]
+              [thread          :refer [thread-reference]]
+              [protocols       :refer [IAssociative ICounted ILookup IFn IEditableCollection IHash IReduce
+                                       IMapIterable IMeta IObj IPersistentCollection IPersistentMap
+                                       ISeqable ISeq ISequential
+                                       ITransientAssociative ITransientCollection ITransientMap
+                                       -assoc! -lookup]]]
+            [clojure.next :refer :all :exclude [bit-and bit-or bit-xor bit-shift-left
+                                                unsigned-bit-shift-right + inc * - dec]]))
+
+; A compressed hash-array mapped prefix-tree (Steindorfer and Vinju). A
+; node keeps one bitmap for the entries stored inline and another for its
+; child nodes, with the key/value pairs at the front of its array and the
+; children at the back in reverse. Removal puts a child that is down to a
+; single entry back inline, so a given set of keys has exactly one shape.
+
+(def ^:private ZERO       (->bitnum 0))
+(def ^:private ONE        (->bitnum 1))
+(def ^:private TWO        (->bitnum 2))
+(def ^:private FOUR       (->bitnum 4))
+(def ^:private FIVE       (->bitnum 5))
+(def ^:private THIRTY-TWO (->bitnum 32))
+(def ^:private BITMASK    (->bitnum 0x01f))
+
+(def ^:private NOT-FOUND (empty-object))
+
+(defprotocol ^:private ChampNode
+  (data-map         [this])
+  (node-map         [this])
+  (payload-arity    [this])
+  (node-arity       [this])
+  (key-at           [this i])
+  (val-at           [this i])
+  (node-at          [this j])
+  (node-find        [this shift hash key not-found])
+  (node-assoc       [this edit shift hash key val added])
+  (node-dissoc      [this edit shift hash key removed])
+  (replace-contents [this edit datamap nodemap arr])
+  (replace-slot     [this edit i v]))
+
+(declare new-bitmap-node)
+(declare new-collision-node)
+(declare new-champ-map)
+
+(defn- mask [hash shift]
+  (bit-and
+    (unsigned-bit-shift-right hash shift)
+    BITMASK))
+
+(defn- bit-pos [hash shift]
+  (bit-shift-left ONE (mask hash shift)))
+
+(defn- has-bit? [bitmap bit]
+  (not (zero? (bit-and bitmap bit))))
+
+(defn- index [bitmap bit]
+  (bit-count (bit-and bitmap (dec bit))))
+
+; a node belongs to a transient while the transient holds its edit
+(defn- owned? [node-edit edit]
+  (and (not (nil? edit))
+       (identical? node-edit edit)))
+
+(defn- clone-and-set [arr i v]
+  (let [clone (aclone arr)]
+    (aset clone i v)
+    clone))
+
+(defn- insert-pair [arr i k v]
+  (let [len (alength arr)
+        di (* TWO i)
+        new-arr (object-array (+ len TWO))]
+    (acopy arr ZERO new-arr ZERO di)
+    (aset new-arr di k)
+    (aset new-arr (inc di) v)
+    (acopy arr di new-arr (+ di TWO) (- len di))
+    new-arr))
+
+(defn- remove-pair [arr i]
+  (let [len (alength arr)
+        di (* TWO i)
+        new-arr (object-array (- len TWO))]
+    (acopy arr ZERO new-arr ZERO di)
+    (acopy arr (+ di TWO) new-arr di (- (- len di) TWO))
+    new-arr))
+
+; the pair at data index i becomes the child node at node index j
+(defn- data->node [arr i j node]
+  (let [len (alength arr)
+        di (* TWO i)
+        pos (- (- len TWO) j)
+        new-arr (object-array (dec len))]
+    (acopy arr ZERO new-arr ZERO di)
+    (acopy arr (+ di TWO) new-arr di (- pos di))
+    (aset new-arr pos node)
+    (acopy arr (+ pos TWO) new-arr (inc pos) (- (- len pos) TWO))
+    new-arr))
+
+; the child node at node index j becomes the pair at data index i
+(defn- node->data [arr i j k v]
+  (let [len (alength arr)
+        di (* TWO i)
+        pos (- (dec len) j)
+        new-arr (object-array (inc len))]
+    (acopy arr ZERO new-arr ZERO di)
+    (aset new-arr di k)
+    (aset new-arr (inc di) v)
+    (acopy arr di new-arr (+ di TWO) (- pos di))
+    (acopy arr (inc pos) new-arr (+ pos TWO) (- (dec len) pos))
+    new-arr))
+
+(defn- find-index [arr key]
+  (let [len (alength arr)]
+    (loop [i ZERO]
+      (cond
+        (>= i len)
+          (- ZERO ONE)
+        (= key (aget arr i))
+          i
+        :else
+          (recur (+ i TWO))))))
+
+(defn- pairs [k0 v0 k1 v1]
+  (let [arr (object-array FOUR)]
+    (aset arr ZERO k0)
+    (aset arr ONE v0)
+    (aset arr TWO k1)
+    (aset arr (inc TWO) v1)
+    arr))
+
+; Keys whose hashes agree on every bit only part at a collision node,
+; which sits below the last bitmap level.
+(defn- merge-two [edit shift k0 h0 v0 k1 h1 v1]
+  (if (>= shift THIRTY-TWO)
+    (new-collision-node edit h0 (pairs k0 v0 k1 v1))
+    (let [m0 (mask h0 shift)
+          m1 (mask h1 shift)]
+      (cond
+        (= m0 m1)
+          (let [arr (object-array ONE)]
+            (aset arr ZERO (merge-two edit (+ shift FIVE) k0 h0 v0 k1 h1 v1))
+            (new-bitmap-node edit ZERO (bit-pos h0 shift) arr))
+        (< m0 m1)
+          (new-bitmap-node edit (bit-or (bit-pos h0 shift) (bit-pos h1 shift)) ZERO (pairs k0 v0 k1 v1))
+        :else
+          (new-bitmap-node edit (bit-or (bit-pos h0 shift) (bit-pos h1 shift)) ZERO (pairs k1 v1 k0 v0))))))
+
+; the nodes take the hash as an argument that shadows hash
+(defn- key-hash [k]
+  (->bitnum (hash k)))
+
+(defn- single-entry? [node]
+  (and (zero? (node-arity node))
+       (= ONE (payload-arity node))))
+
+(deftype ^:private BitmapIndexedNode [edit
+                                      ^:unsynchronized-mutable datamap
+                                      ^:unsynchronized-mutable nodemap
+                                      ^:unsynchronized-mutable arr]
+  ChampNode
+  (data-map [this] datamap)
+  (node-map [this] nodemap)
+  (payload-arity [this] (bit-count datamap))
+  (node-arity [this] (bit-count nodemap))
+  (key-at [this i] (aget arr (* TWO i)))
+  (val-at [this i] (aget arr (inc (* TWO i))))
+  (node-at [this j] (aget arr (- (dec (alength arr)) j)))
+
+  (node-find [this shift hash key not-found]
+    (let [bit (bit-pos hash shift)]
+      (cond
+        (has-bit? datamap bit)
+          (let [i (* TWO (index datamap bit))]
+            (if (= key (aget arr i))
+              (aget arr (inc i))
+              not-found))
+        (has-bit? nodemap bit)
+          (node-find (aget arr (- (dec (alength arr)) (index nodemap bit)))
+                     (+ shift FIVE) hash key not-found)
+        :else
+          not-found)))
+
+  (node-assoc [this -edit shift hash key val added]
+    (let [bit (bit-pos hash shift)]
+      (cond
+        (has-bit? datamap bit)
+          (let [i (index datamap bit)
+                k (aget arr (* TWO i))
+                v (aget arr (inc (* TWO i)))]
+            (cond
+              (not (= key k))
+                (let [node (merge-two -edit (+ shift FIVE) k (key-hash k) v key hash val)]
+                  (vreset! added true)
+                  (replace-contents this -edit (bit-xor datamap bit) (bit-or nodemap bit)
+                                    (data->node arr i (index nodemap bit) node)))
+              (= val v)
+                this
+              :else
+                (replace-slot this -edit (inc (* TWO i)) val)))
+        (has-bit? nodemap bit)
+          (let [j (- (dec (alength arr)) (index nodemap bit))
+                child (aget arr j)
+                node (node-assoc child -edit (+ shift FIVE) hash key val added)]
+            (if (identical? child node)
+              this
+              (replace-slot this -edit j node)))
+        :else
+          (do
+            (vreset! added true)
+            (replace-contents this -edit (bit-or datamap bit) nodemap
+                              (insert-pair arr (index datamap bit) key val))))))
+
+  ; a transient changes an owned child in place, so the child coming back
+  ; unchanged does not mean nothing was removed below it
+  (node-dissoc [this -edit shift hash key removed]
+    (let [bit (bit-pos hash shift)]
+      (cond
+        (has-bit? datamap bit)
+          (let [i (index datamap bit)]
+            (if (= key (aget arr (* TWO i)))
+              (do
+                (vreset! removed true)
+                (replace-contents this -edit (bit-xor datamap bit) nodemap (remove-pair arr i)))
+              this))
+        (has-bit? nodemap bit)
+          (let [nj (index nodemap bit)
+                j (- (dec (alength arr)) nj)
+                child (aget arr j)
+                node (node-dissoc child -edit (+ shift FIVE) hash key removed)]
+            (cond
+              (and (identical? child node) (not (deref removed)))
+                this
+              (single-entry? node)
+                (replace-contents this -edit (bit-or datamap bit) (bit-xor nodemap bit)
+                                  (node->data arr (index datamap bit) nj (key-at node ZERO) (val-at node ZERO)))
+              :else
+                (replace-slot this -edit j node)))
+        :else
+          this)))
+
+  (replace-contents [this -edit new-datamap new-nodemap new-arr]
+    (if (owned? edit -edit)
+      (do
+        (set! datamap new-datamap)
+        (set! nodemap new-nodemap)
+        (set! arr new-arr)
+        this)
+      (new-bitmap-node -edit new-datamap new-nodemap new-arr)))
+
+  (replace-slot [this -edit i v]
+    (if (owned? edit -edit)
+      (do
+        (aset arr i v)
+        this)
+      (new-bitmap-node -edit datamap nodemap (clone-and-set arr i v)))))
+
+(defn- new-bitmap-node [edit datamap nodemap arr]
+  (BitmapIndexedNode. edit datamap nodemap arr))
+
+(def ^:private EMPTY-NODE (new-bitmap-node nil ZERO ZERO (object-array ZERO)))
+
+; only keys with the same hash reach a collision node
+(deftype ^:private HashCollisionNode [edit -hash ^:unsynchronized-mutable arr]
+  ChampNode
+  (data-map [this] ZERO)
+  (node-map [this] ZERO)
+  (payload-arity [this] (unsigned-bit-shift-right (alength arr) ONE))
+  (node-arity [this] ZERO)
+  (key-at [this i] (aget arr (* TWO i)))
+  (val-at [this i] (aget arr (inc (* TWO i))))
+  (node-at [this j] nil)
+
+  (node-find [this shift hash key not-found]
+    (let [i (find-index arr key)]
+      (if (< i ZERO)
+        not-found
+        (aget arr (inc i)))))
+
+  (node-assoc [this -edit shift hash key val added]
+    (let [i (find-index arr key)]
+      (cond
+        (< i ZERO)
+          (do
+            (vreset! added true)
+            (replace-contents this -edit ZERO ZERO
+                              (insert-pair arr (unsigned-bit-shift-right (alength arr) ONE) key val)))
+        (= val (aget arr (inc i)))
+          this
+        :else
+          (replace-slot this -edit (inc i) val))))
+
+  (node-dissoc [this -edit shift hash key removed]
+    (let [i (find-index arr key)]
+      (if (< i ZERO)
+        this
+        (do
+          (vreset! removed true)
+          (replace-contents this -edit ZERO ZERO (remove-pair arr (unsigned-bit-shift-right i ONE)))))))
+
+  (replace-contents [this -edit datamap nodemap new-arr]
+    (if (owned? edit -edit)
+      (do
+        (set! arr new-arr)
+        this)
+      (new-collision-node -edit -hash new-arr)))
+
+  (replace-slot [this -edit i v]
+    (if (owned? edit -edit)
+      (do
+        (aset arr i v)
+        this)
+      (new-collision-node -edit -hash (clone-and-set arr i v)))))
+
+(defn- new-collision-node [edit hash arr]
+  (HashCollisionNode. edit hash arr))
+
+(defn- collision-node? [node]
+  (instance? HashCollisionNode node))
+
+; Canonical shapes make equal maps equal node for node. Only the order
+; inside a collision node depends on history.
+(defn- nodes-equal? [a b]
+  (cond
+    (collision-node? a)
+      (and (collision-node? b)
+           (= (payload-arity a) (payload-arity b))
+           (loop [i ZERO]
+             (cond
+               (>= i (payload-arity a))
+                 true
+               (= (val-at a i) (node-find b ZERO ZERO (key-at a i) NOT-FOUND))
+                 (recur (inc i))
+               :else
+                 false)))
+    (or (collision-node? b)
+        (not (= (data-map a) (data-map b)))
+        (not (= (node-map a) (node-map b))))
+      false
+    :else
+      (and
+        (loop [i ZERO]
+          (cond
+            (>= i (payload-arity a))
+              true
+            (and (= (key-at a i) (key-at b i))
+                 (= (val-at a i) (val-at b i)))
+              (recur (inc i))
+            :else
+              false))
+        (loop [j ZERO]
+          (cond
+            (>= j (node-arity a))
+              true
+            (nodes-equal? (node-at a j) (node-at b j))
+              (recur (inc j))
+            :else
+              false)))))
+
+; Like the hash map's node-reduce, this stops at and returns a reduced
+; value without unwrapping it, so that the parent nodes stop too.
+(defn- node-reduce [node f init]
+  (let [n (payload-arity node)
+        m (node-arity node)]
+    (loop [i ZERO
+           acc init]
+      (cond
+        (reduced? acc)
+          acc
+        (< i n)
+          (recur (inc i) (f acc (new-map-entry (key-at node i) (val-at node i))))
+        :else
+          (loop [j ZERO
+                 acc acc]
+            (if (or (reduced? acc) (>= j m))
+              acc
+              (recur (inc j) (node-reduce (node-at node j) f acc))))))))
+
+(declare make-champ-seq)
+
+; -pending holds the nodes still to visit, nearest first
+(defseq ^:private ChampNodeSeq [-node -i -pending]
+  ICounted
+  (-count [this]
+    (loop [s (next this)
+           cnt ONE]
+      (if s
+        (recur (next s) (inc cnt))
+        cnt)))
+
+  ISeq
+  (-first [this]
+    (new-map-entry (key-at -node -i) (val-at -node -i)))
+
+  (-next [this]
+    (make-champ-seq -node (inc -i) -pending))
+
+  (-more [this]
+    (if-let [s (next this)] s EMPTY-LIST)))
+
+(defn- push-children [node pending]
+  (loop [j (dec (node-arity node))
+         pending pending]
+    (if (< j ZERO)
+      pending
+      (recur (dec j) (cons (node-at node j) pending)))))
+
+(defn- make-champ-seq [node i pending]
+  (loop [node node
+         i i
+         pending pending]
+    (if (< i (payload-arity node))
+      (ChampNodeSeq. node i pending)
+      (let [pending (push-children node pending)]
+        (when pending
+          (recur (first pending) ZERO (next pending)))))))
+
+; seven bitmap levels use up a hash, a collision node can only be below them
+(def ^:private ITERATOR-DEPTH 8)
+
+(defprotocol ^:private ChampIteration
+  (advance! [this]))
+
+; The entries of a node come before those of its children; -positions
+; keeps the next child to visit for each node on the stack.
+(deftype ^:private ChampIterator [-kind
+                                  -stack
+                                  -positions
+                                  ^:unsynchronized-mutable -depth
+                                  ^:unsynchronized-mutable -node
+                                  ^:unsynchronized-mutable -i
+                                  ^:unsynchronized-mutable -j
+                                  ^:unsynchronized-mutable -ready?
+                                  ^:unsynchronized-mutable -next-key
+                                  ^:unsynchronized-mutable -next-val]
+  ChampIteration
+  (advance! [this]
+    (loop []
+      (cond
+        (nil? -node)
+          false
+        (< -i (payload-arity -node))
+          (do
+            (set! -next-key (key-at -node -i))
+            (set! -next-val (val-at -node -i))
+            (set! -i (inc -i))
+            true)
+        (< -j (node-arity -node))
+          (let [child (node-at -node -j)]
+            (aset -stack -depth -node)
+            (aset -positions -depth (inc -j))
+            (set! -depth (inc -depth))
+            (set! -node child)
+            (set! -i ZERO)
+            (set! -j ZERO)
+            (recur))
+        (= ZERO -depth)
+          (do
+            (set! -node nil)
+            false)
+        :else
+          (let [depth (dec -depth)
+                parent (aget -stack depth)]
+            (aset -stack depth nil)
+            (set! -depth depth)
+            (set! -node parent)
+            (set! -i (payload-arity parent))
+            (set! -j (aget -positions depth))
+            (recur)))))
+
+  enum/base-enumerable
+  (enum/has-next-method [this]
+    (when (not -ready?)
+      (set! -ready? (advance! this)))
+    -ready?)
+
+  (enum/next-method [this]
+    (if (or -ready? (advance! this))
+      (do
+        (set! -ready? false)
+        (cond
+          (identical? -kind :keys) -next-key
+          (identical? -kind :vals) -next-val
+          :else (new-map-entry -next-key -next-val)))
+      (throw (new-no-such-element-exception))))
+
+  (enum/remove-method [this]
+    (throw (new-unsupported-error))))
+
+(defn- new-champ-iterator [kind root]
+  (ChampIterator. kind (object-array ITERATOR-DEPTH) (object-array ITERATOR-DEPTH) ZERO
+                  root ZERO ZERO false nil nil))
+
+(defn- ensure-editable [edit]
+  (when (nil? (ref-get edit))
+    (throw (new-illegal-access-error "Transient used after persistent! call"))))
+
+(deftype TransientChampMap [-edit
+                            ^:volatile-mutable -root
+                            ^:volatile-mutable -count
+                            -flag]
+
+  ICounted
+  (-count [this]
+    (ensure-editable -edit)
+    -count)
+
+  ILookup
+  (-lookup [this k not-found]
+    (ensure-editable -edit)
+    (node-find -root ZERO (->bitnum (hash k)) k not-found))
+
+  ITransientAssociative
+  (-assoc! [this k v]
+    (ensure-editable -edit)
+    (vreset! -flag false)
+    (let [node (node-assoc -root -edit ZERO (->bitnum (hash k)) k v -flag)]
+      (when (not (identical? node -root))
+        (set! -root node))
+      (when (deref -flag)
+        (set! -count (inc -count))))
+    this)
+
+  ITransientCollection
+  (-conj! [this o]
+    (ensure-editable -edit)
+    (cond
+      (instance? platform-map-entry-type o)
+        (-assoc! this (key o) (val o))
+      (vector? o)
+        (if (= (count o) 2)
+          (-assoc! this (nth o 0) (nth o 1))
+          (throw (new-argument-error "Vector arg to map conj must be a pair")))
+      :else
+        (loop [s (seq o)]
+          (if s
+            (let [entry (first s)]
+              (-assoc! this (key entry) (val entry))
+              (recur (next s)))
+            this))))
+
+  (-persistent [this]
+    (ensure-editable -edit)
+    (ref-set! -edit nil)
+    (new-champ-map nil -count -root))
+
+  ITransientMap
+  (-dissoc! [this k]
+    (ensure-editable -edit)
+    (vreset! -flag false)
+    (let [node (node-dissoc -root -edit ZERO (->bitnum (hash k)) k -flag)]
+      (when (not (identical? node -root))
+        (set! -root node))
+      (when (deref -flag)
+        (set! -count (dec -count))))
+    this))
+
+(defn- make-transient-champ-map [root count]
+  (TransientChampMap. (new-atomic-ref (thread-reference)) root count (volatile! false)))
+
+(declare EMPTY-CHAMP-MAP)
+
+(deftype PersistentChampMap [-meta -count -root ^:unsynchronized-mutable -hasheq]
+  IAssociative
+  (-assoc [this k v]
+    (let [added (volatile! false)
+          node (node-assoc -root nil ZERO (->bitnum (hash k)) k v added)]
+      (if (identical? node -root)
+        this
+        (new-champ-map -meta (if (deref added) (inc -count) -count) node))))
+
+  (-contains-key? [this k]
+    (not (identical? NOT-FOUND (node-find -root ZERO (->bitnum (hash k)) k NOT-FOUND))))
+
+  ICounted
+  (-count [this] -count)
+
+  IEditableCollection
+  (-as-transient [this]
+    (make-transient-champ-map -root -count))
+
+  IFn
+  (-invoke [this k]
+    (-lookup this k nil))
+
+  (-invoke [this k not-found]
+    (-lookup this k not-found))
+
+  ILookup
+  (-lookup [this k not-found]
+    (node-find -root ZERO (->bitnum (hash k)) k not-found))
+
+  IMeta
+  (-meta [this] -meta)
+
+  IObj
+  (-with-meta [this new-meta]
+    (PersistentChampMap. new-meta -count -root -hasheq))
+
+  IPersistentCollection
+  (-cons [this o]
+    (map-cons this o))
+
+  (-empty [this]
+    (with-meta EMPTY-CHAMP-MAP -meta))
+
+  IPersistentMap
+  (-dissoc [this k]
+    (let [removed (volatile! false)
+          node (node-dissoc -root nil ZERO (->bitnum (hash k)) k removed)]
+      (if (identical? node -root)
+        this
+        (new-champ-map -meta (dec -count) node))))
+
+  IReduce
+  (-reduce [this f init]
+    (unreduced (node-reduce -root f init)))
+
+  ISeqable
+  (-seq [this]
+    (make-champ-seq -root ZERO nil))
+
+  obj/base-object
+  (equiv/equals-method [this other]
+    (if (instance? PersistentChampMap other)
+      (and (= -count (count other))
+           (nodes-equal? -root (.-_root ^PersistentChampMap other)))
+      (map-equals? this other)))
+
+  (hash-code/hash-method [this]
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
+
+  IMapIterable
+  (-key-iterator [this]
+    (new-champ-iterator :keys -root))
+
+  (-val-iterator [this]
+    (new-champ-iterator :vals -root))
+
+  enum/base-enumerator
+  (enum/enumerable-method [this]
+    (new-champ-iterator :entries -root)))
+
+(defn new-champ-map [-meta -count -root]
+  (PersistentChampMap. -meta -count -root -1))
+
+(def EMPTY-CHAMP-MAP (new-champ-map nil ZERO EMPTY-NODE))
+
+(defn make-champ-map [kvs]
+  (let [size (count kvs)]
+    (if (even? size)
+      (loop [s (seq kvs)
+             t (make-transient-champ-map EMPTY-NODE ZERO)]
+        (if s
+          (recur (nnext s) (assoc! t (first s) (second s)))
+          (persistent! t)))
+      (throw (new-argument-error
+               (format "PersistentChampMap can only be created with even number of arguments: %s arguments given"
+                       size))))))
@@ -0,0 +1,66 @@
+(ns clojure.lang.persistent-champ-set
+  (:refer-clojure :only [apply declare defn let when])
+  (:require [clojure.lang
+              [afn             :refer [deffn]]
+              [apersistent-set :refer [defset]]
+              [deftype         :refer [deftype]]
+              [equivalence]
+              [hash]
+              [object]
+              [protocols :refer :all]]
+            [clojure.next :refer :all]))
+
+(declare make-champ-set
+         make-transient-champ-set)
+
+(defset PersistentChampSet make-champ-set
+  clojure.lang.protocols.IEditableCollection
+  (-as-transient [this]
+    (clojure.lang.persistent-champ-set/make-transient-champ-set (transient -map))))
+
+(defn make-champ-set [m]
+  (PersistentChampSet. m -1))
+
+(deffn TransientChampSet [^:unsynchronized-mutable -map]
+  ICounted
+  (-count [this]
+    (count -map))
+
+  IFn
+  (-invoke [this x]
+    (get -map x))
+
+  (-invoke [this x not-found]
+    (get -map x not-found))
+
+  ILookup
+  (-lookup [this x]
+    (get -map x))
+
+  (-lookup [this x not-found]
+    (get -map x not-found))
+
+  IPersistentSet
+  (-contains? [this x]
+    (not= this (get -map x this)))
+
+  ITransientCollection
+  (-conj! [this x]
+    (let [m (assoc! -map x x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this)
+
+  (-persistent [this]
+    (make-champ-set (persistent! -map)))
+
+  ITransientSet
+  (-disj! [this x]
+    (let [m (dissoc! -map x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this))
+
+(defn make-transient-champ-set [m]
+  (TransientChampSet. m))
+
@@ -1,13 +1,16 @@
 (ns clojure.lang.persistent-hash-map
-  (:refer-clojure :only [defn defn- declare defprotocol let if-let when loop cond ->])
+  (:refer-clojure :only [defn defn- declare defprotocol fn let if-let when loop cond ->])
   (:require [clojure.lang
-              [apersistent-map :refer [map-cons map-equals? map-hash]]
+              [apersistent-map :refer [map-cons map-equals? map-hash
+                                       map-merge-with map-intersect-with map-remove-keys]]
               [aseq            :refer [defseq]]
               [atomic-ref      :refer [new-atomic-ref ref-get ref-set!]]
               [deftype         :refer [deftype]]
               [enumerable      :as    enum]
               [equivalence     :as    equiv]
-              [exceptions      :refer [new-argument-error new-illegal-access-error]]
+              [exceptions      :refer [new-argument-error new-illegal-access-error
+                                       new-no-such-element-exception new-unsupported-error]]
+              [fork-join       :refer [new-task fork-task join-task invoke-in-pool]]
               [hash            :as    hash-code]
               [key-value       :refer [platform-map-entry-type]]
               [map-entry       :refer [new-map-entry]]
@@ -17,11 +20,11 @@
                                        bit-and bit-or bit-xor bit-shift-left unsigned-bit-shift-right bit-count
                                        + inc * - dec]]
               [thread          :refer [thread-reference]]
-              [protocols       :refer [IAssociative ICounted ILookup IFn IEditableCollection
-                                       IMeta IObj IPersistentCollection IPersistentMap
+              [protocols       :refer [IAssociative ICounted ILookup IFn IFold IEditableCollection IHash IReduce
+                                       IMapIterable IMergeable IMeta IObj IPersistentCollection IPersistentMap
                                        ISeqable ISeq ISeqable ISequential
                                        ITransientAssociative ITransientCollection ITransientMap
-                                       -assoc! -lookup]]]
+                                       -assoc! -count -lookup]]]
             [clojure.next :refer :all :exclude [bit-and bit-or bit-xor bit-shift-left
                                                 unsigned-bit-shift-right + inc * - dec]]))
 
@@ -32,6 +35,7 @@
 (def ^:private THREE      (->bitnum 3))
 (def ^:private FOUR       (->bitnum 4))
 (def ^:private FIVE       (->bitnum 5))
+(def ^:private EIGHT      (->bitnum 8))
 (def ^:private SIXTEEN    (->bitnum 16))
 (def ^:private THIRTY-TWO (->bitnum 32))
 (def ^:private BITMASK    (->bitnum 0x01f))
@@ -56,6 +60,8 @@
   (node-dissoc     [this shift hash key])
   (node-dissoc-ref [this edit shift hash key removed-leaf])
   (node-find       [this shift hash key not-found])
+  (node-fold       [this combinef reducef])
+  (node-reduce     [this f init])
   (node-seq        [this])
   (set-array!      [this new-arr]))
 
@@ -63,10 +69,15 @@
   (get-bitmap  [this])
   (set-bitmap! [this new-bitmap]))
 
+(defprotocol ^:private CountedNode
+  (get-count  [this])
+  (set-count! [this new-count]))
+
 (declare EMPTY-BitmapIndexedNode)
 (declare new-bitmap-node)
 (declare new-array-node)
 (declare new-hash-collision-node)
+(declare new-array-node-seq)
 (declare new-hash-map)
 (declare new-node-seq)
 
@@ -155,7 +166,7 @@
     nil
     (let [editable (ensure-editable this edit)
           arr (get-array editable)]
-      (set-bitmap! (get-bitmap editable) (bit-or (get-bitmap editable) bit))
+      (set-bitmap! editable (bit-xor (get-bitmap editable) bit))
       (acopy arr (* 2 (inc i)) arr (* i 2) (- (alength arr) (* 2 (inc i))))
       (aset arr (- (alength arr) 2) nil)
       (aset arr (dec (alength arr)) nil)
@@ -201,8 +212,86 @@
          nil))
      (NodeSeq. nil arr i s))))
 
-(deftype ^:private ArrayNode [edit count array]
+(defseq ^:private ArrayNodeSeq [meta nodes i s]
+  ICounted
+  (-count [this]
+    (let [s (next this)]
+      (if s
+        (inc (count s))
+        ONE)))
+
+  ISeq
+  (-first [this]
+    (first s))
+
+  (-next [this]
+    (new-array-node-seq nodes i (next s)))
+
+  (-more [this]
+    (if-let [s (next this)] s EMPTY-LIST)))
+
+(defn- new-array-node-seq
+  ([nodes] (new-array-node-seq nodes ZERO nil))
+  ([nodes i s]
+   (if (nil? s)
+     (loop [j i]
+       (if (< j (alength nodes))
+         (let [node (aget nodes j)
+               seq (when node (node-seq node))]
+           (if (nil? seq)
+             (recur (inc j))
+             (ArrayNodeSeq. nil nodes (inc j) seq)))
+         nil))
+     (ArrayNodeSeq. nil nodes i s))))
+
+; Entries are key/value pairs, or a nil key and a child node. Like
+; node-reduce, this stops at and returns a reduced value without
+; unwrapping it, so that the parent nodes stop too.
+(defn- reduce-node-array [arr end f init]
+  (loop [i ZERO
+         acc init]
+    (if (or (>= i end) (reduced? acc))
+      acc
+      (let [k (aget arr i)]
+        (if (nil? k)
+          (let [node (aget arr (inc i))]
+            (recur (+ TWO i) (if (nil? node) acc (node-reduce node f acc))))
+          (recur (+ TWO i) (f acc (new-map-entry k (aget arr (inc i))))))))))
+
+(defn- fold-nodes [nodes start end combinef reducef]
+  (if (= (- end start) ONE)
+    (let [node (aget nodes start)]
+      (if (nil? node)
+        (combinef)
+        (node-fold node combinef reducef)))
+    (let [split (+ start (unsigned-bit-shift-right (- end start) ONE))
+          right (fork-task (new-task #(fold-nodes nodes split end combinef reducef)))]
+      (combinef (fold-nodes nodes start split combinef reducef) (join-task right)))))
+
+(defn- pack-array-node [edit count array idx]
+  (let [new-arr (object-array (* TWO (dec count)))]
+    (loop [i ZERO j ONE bitmap ZERO]
+      (if (< i (alength array))
+        (if (or (= i idx) (nil? (aget array i)))
+          (recur (inc i) j bitmap)
+          (do
+            (aset new-arr j (aget array i))
+            (recur (inc i) (+ j TWO) (bit-or bitmap (bit-shift-left ONE i)))))
+        (new-bitmap-node edit bitmap new-arr)))))
+
+(deftype ^:private ArrayNode [edit ^:unsynchronized-mutable count array]
+  CountedNode
+  (get-count  [this] count)
+  (set-count! [this new-count] (set! count new-count))
+
   INode
+  (get-array [this] array)
+
+  (ensure-editable [this -edit]
+    (if (= edit -edit)
+      this
+      (new-array-node -edit count (aclone array))))
+
   (node-find [this shift hash key not-found]
     (let [idx (mask hash shift)
           node (aget array idx)]
@@ -223,13 +312,92 @@
           (if (= n node)
             this
             (new-array-node nil count (clone-and-set! array idx n)))))))
-  )
+
+  (node-assoc-ref [this edit shift hash key val added-leaf]
+    (let [idx (mask hash shift)
+          node (aget array idx)]
+      (if (nil? node)
+        (let [editable (edit-and-set! this edit idx
+                                      (node-assoc-ref EMPTY-BitmapIndexedNode edit
+                                                      (+ shift FIVE)
+                                                      hash key val added-leaf))]
+          (set-count! editable (inc (get-count editable)))
+          editable)
+        (let [n (node-assoc-ref node edit (+ shift FIVE) hash key val added-leaf)]
+          (if (= n node)
+            this
+            (edit-and-set! this edit idx n))))))
+
+  (node-dissoc [this shift hash key]
+    (let [idx (mask hash shift)
+          node (aget array idx)]
+      (if (nil? node)
+        this
+        (let [n (node-dissoc node (+ shift FIVE) hash key)]
+          (cond
+            (= n node)
+              this
+            (not (nil? n))
+              (new-array-node nil count (clone-and-set! array idx n))
+            (<= count EIGHT)
+              (pack-array-node nil count array idx)
+            :else
+              (new-array-node nil (dec count) (clone-and-set! array idx n)))))))
+
+  (node-dissoc-ref [this edit shift hash key removed-leaf]
+    (let [idx (mask hash shift)
+          node (aget array idx)]
+      (if (nil? node)
+        this
+        (let [n (node-dissoc-ref node edit (+ shift FIVE) hash key removed-leaf)]
+          (cond
+            (= n node)
+              this
+            (not (nil? n))
+              (edit-and-set! this edit idx n)
+            (<= count EIGHT)
+              (pack-array-node edit count array idx)
+            :else
+              (let [editable (edit-and-set! this edit idx n)]
+                (set-count! editable (dec (get-count editable)))
+                editable))))))
+
+  (node-fold [this combinef reducef]
+    (fold-nodes array ZERO (alength array) combinef reducef))
+
+  (node-reduce [this f init]
+    (loop [i ZERO
+           acc init]
+      (if (or (>= i (alength array)) (reduced? acc))
+        acc
+        (let [node (aget array i)]
+          (recur (inc i) (if (nil? node) acc (node-reduce node f acc)))))))
+
+  (node-seq [this]
+    (new-array-node-seq array)))
 
 (defn- new-array-node [edit count array]
   (ArrayNode. edit count array))
 
-(deftype ^:private HashCollisionNode [edit -hash count array]
+(deftype ^:private HashCollisionNode [edit -hash
+                                     ^:unsynchronized-mutable count
+                                     ^:unsynchronized-mutable array]
+  CountedNode
+  (get-count  [this] count)
+  (set-count! [this new-count] (set! count new-count))
+
   INode
+  (get-array  [this] array)
+  (set-array! [this new-arr] (set! array new-arr))
+
+  (ensure-editable [this -edit]
+    (if (= edit -edit)
+      this
+      ; make room for the next assoc
+      (let [new-arr (object-array (* TWO (inc count)))]
+        (acopy array ZERO new-arr ZERO (* TWO count))
+        (new-hash-collision-node -edit -hash count new-arr))))
+
   (node-find [this shift hash key not-found]
     (let [idx (find-index array count key)]
       (cond
@@ -256,9 +424,75 @@
       (let [new-arr (object-array TWO)]
         (aset new-arr ZERO nil)
         (aset new-arr ONE this)
-        (node-assoc (new-bitmap-node nil (bit-pos hash shift) new-arr)
+        (node-assoc (new-bitmap-node nil (bit-pos -hash shift) new-arr)
                     shift hash key val added-leaf))))
-  )
+
+  (node-assoc-ref [this edit shift hash key val added-leaf]
+    (if (= hash -hash)
+      (let [idx (find-index array count key)]
+        (cond
+          (not= idx NEG-ONE)
+            (if (= (aget array (inc idx)) val)
+              this
+              (edit-and-set! this edit (inc idx) val))
+          (> (alength array) (* TWO count))
+            (let [editable (edit-and-set! this edit (* TWO count) key (inc (* TWO count)) val)]
+              (set-value! added-leaf added-leaf)
+              (set-count! editable (inc (get-count editable)))
+              editable)
+          :else
+            (let [length (alength array)
+                  new-arr (object-array (+ length TWO))
+                  editable (ensure-editable this edit)]
+              (acopy array ZERO new-arr ZERO length)
+              (aset new-arr length key)
+              (aset new-arr (inc length) val)
+              (set-value! added-leaf added-leaf)
+              (set-array! editable new-arr)
+              (set-count! editable (inc count))
+              editable)))
+      (let [new-arr (object-array FOUR)]
+        (aset new-arr ONE this)
+        (node-assoc-ref (new-bitmap-node edit (bit-pos -hash shift) new-arr)
+                        edit shift hash key val added-leaf))))
+
+  (node-dissoc [this shift hash key]
+    (let [idx (find-index array count key)]
+      (cond
+        (= idx NEG-ONE)
+          this
+        (= count ONE)
+          nil
+        :else
+          (new-hash-collision-node nil -hash (dec count)
+                                   (remove-pair array (unsigned-bit-shift-right idx ONE))))))
+
+  (node-dissoc-ref [this edit shift hash key removed-leaf]
+    (let [idx (find-index array count key)]
+      (if (= idx NEG-ONE)
+        this
+        (do
+          (set-value! removed-leaf removed-leaf)
+          (if (= count ONE)
+            nil
+            (let [editable (ensure-editable this edit)
+                  editable-arr (get-array editable)
+                  last-key (* TWO (dec (get-count editable)))]
+              (aset editable-arr idx (aget editable-arr last-key))
+              (aset editable-arr (inc idx) (aget editable-arr (inc last-key)))
+              (aset editable-arr last-key nil)
+              (aset editable-arr (inc last-key) nil)
+              (set-count! editable (dec (get-count editable)))
+              editable))))))
+
+  (node-fold [this combinef reducef]
+    (unreduced (node-reduce this reducef (combinef))))
+
+  (node-reduce [this f init]
+    (reduce-node-array array (* TWO count) f init))
+
+  (node-seq [this]
+    (new-node-seq array)))
 
 (defn- new-hash-collision-node [edit hash count array]
   (HashCollisionNode. edit hash count array))
@@ -388,6 +622,7 @@
               (let [nodes (object-array THIRTY-TWO)
                     jdx (mask hash shift)
                     jdx-node (node-assoc-ref EMPTY-BitmapIndexedNode edit (+ FIVE shift) hash key val added-leaf)]
+                (aset nodes jdx jdx-node)
                 (loop [i ZERO j ZERO]
                   (when (< i THIRTY-TWO)
                     (if (not= (bit-and (unsigned-bit-shift-right bitmap i) ONE) ZERO)
@@ -466,6 +701,12 @@
             :else
               this)))))
 
+  (node-fold [this combinef reducef]
+    (unreduced (node-reduce this reducef (combinef))))
+
+  (node-reduce [this f init]
+    (reduce-node-array arr (alength arr) f init))
+
   (node-seq [this]
     (new-node-seq arr)))
 
@@ -576,9 +817,386 @@
 (defn make-transient-hash-map [root count has-nil? nil-value]
   (TransientHashMap. (new-atomic-ref (thread-reference)) root count has-nil? nil-value (BoxedValue. nil)))
 
+; Merging walks two tries in lockstep. The 32 slots of two nodes at the same
+; level are lined up, each one empty, an entry or a child node, and only the
+; slots that differ are combined, so that subtrees the maps share are kept
+; as they are. A collision node is combined entry by entry.
+
+(defn- node-size [node]
+  (if (nil? node)
+    ZERO
+    (node-reduce node (fn [n _] (inc n)) ZERO)))
+
+(defn- count! [counter n]
+  (vreset! counter (+ (deref counter) n)))
+
+(defn- collision? [node]
+  (instance? HashCollisionNode node))
+
+(defn- node-slots [node]
+  (let [slots (object-array (* TWO THIRTY-TWO))]
+    (if (instance? ArrayNode node)
+      (let [nodes (get-array node)]
+        (loop [i ZERO]
+          (when (< i THIRTY-TWO)
+            (aset slots (inc (* TWO i)) (aget nodes i))
+            (recur (inc i)))))
+      (let [bitmap (get-bitmap node)
+            arr (get-array node)]
+        (loop [i ZERO
+               j ZERO]
+          (when (< i THIRTY-TWO)
+            (if (= ZERO (bit-and bitmap (bit-shift-left ONE i)))
+              (recur (inc i) j)
+              (do
+                (acopy arr (* TWO j) slots (* TWO i) TWO)
+                (recur (inc i) (inc j))))))))
+    slots))
+
+(defn- entry-node [shift k v]
+  (let [arr (object-array TWO)]
+    (aset arr ZERO k)
+    (aset arr ONE v)
+    (new-bitmap-node nil (bit-pos (->bitnum (hash k)) shift) arr)))
+
+(defn- same-slots? [slots other]
+  (loop [i ZERO]
+    (cond
+      (= i (* TWO THIRTY-TWO))
+        true
+      (identical? (aget slots i) (aget other i))
+        (recur (inc i))
+      :else
+        false)))
+
+; Builds the node for slots, lifting a child that holds a single entry back
+; into its slot.
+(defn- build-node [shift slots]
+  (let [n (loop [i ZERO
+                 n ZERO]
+            (if (< i THIRTY-TWO)
+              (let [k (aget slots (* TWO i))
+                    v (aget slots (inc (* TWO i)))]
+                (when (and (nil? k)
+                           (instance? BitmapIndexedNode v)
+                           (= (bit-count (get-bitmap v)) ONE)
+                           (not (nil? (aget (get-array v) ZERO))))
+                  (acopy (get-array v) ZERO slots (* TWO i) TWO))
+                (recur (inc i) (if (and (nil? k) (nil? v)) n (inc n))))
+              n))]
+    (cond
+      (= n ZERO)
+        nil
+      (> n SIXTEEN)
+        (let [nodes (object-array THIRTY-TWO)]
+          (loop [i ZERO]
+            (when (< i THIRTY-TWO)
+              (let [k (aget slots (* TWO i))
+                    v (aget slots (inc (* TWO i)))]
+                (aset nodes i (if (nil? k) v (entry-node (+ shift FIVE) k v))))
+              (recur (inc i))))
+          (new-array-node nil n nodes))
+      :else
+        (let [arr (object-array (* TWO n))]
+          (loop [i ZERO
+                 j ZERO
+                 bitmap ZERO]
+            (if (< i THIRTY-TWO)
+              (let [k (aget slots (* TWO i))
+                    v (aget slots (inc (* TWO i)))]
+                (if (and (nil? k) (nil? v))
+                  (recur (inc i) j bitmap)
+                  (do
+                    (acopy slots (* TWO i) arr (* TWO j) TWO)
+                    (recur (inc i) (inc j) (bit-or bitmap (bit-shift-left ONE i))))))
+              (new-bitmap-node nil bitmap arr)))))))
+
+; a or b when slots are their own slots, xs or ys
+(defn- slots->node [shift slots a xs b ys]
+  (cond
+    (same-slots? slots xs) a
+    (and b (same-slots? slots ys)) b
+    :else (build-node shift slots)))
+
+; added counts the keys of b that are not in a
+(defn- merge-entries [f a b shift added]
+  (node-reduce b
+               (fn [node entry]
+                 (let [k (key entry)
+                       h (->bitnum (hash k))
+                       v (node-find node shift h k NOT-FOUND)
+                       found? (not (identical? v NOT-FOUND))]
+                   (when (not found?)
+                     (count! added ONE))
+                   (node-assoc node shift h k (if (and f found?) (f v (val entry)) (val entry)) (new-box nil))))
+               a))
+
+(defn- merge-nodes [f a b shift added]
+  (cond
+    (and (nil? f) (identical? a b))
+      a
+    (or (collision? a) (collision? b))
+      (merge-entries f a b shift added)
+    :else
+      (let [xs (node-slots a)
+            ys (node-slots b)
+            slots (object-array (* TWO THIRTY-TWO))]
+        (loop [i ZERO]
+          (when (< i THIRTY-TWO)
+            (let [k1 (aget xs (* TWO i))
+                  v1 (aget xs (inc (* TWO i)))
+                  k2 (aget ys (* TWO i))
+                  v2 (aget ys (inc (* TWO i)))
+                  [k v] (cond
+                          (and (nil? k2) (nil? v2))
+                            [k1 v1]
+                          (and (nil? k1) (nil? v1))
+                            (do
+                              (count! added (if (nil? k2) (node-size v2) ONE))
+                              [k2 v2])
+                          (and k1 k2 (= k1 k2))
+                            [k1 (if f (f v1 v2) v2)]
+                          (and k1 k2)
+                            (do
+                              (count! added ONE)
+                              [nil (create-node (+ shift FIVE) k1 v1 (->bitnum (hash k2)) k2 v2)])
+                          :else
+                            [nil (merge-nodes f
+                                              (if k1 (entry-node (+ shift FIVE) k1 v1) v1)
+                                              (if k2 (entry-node (+ shift FIVE) k2 v2) v2)
+                                              (+ shift FIVE)
+                                              added)])]
+              (aset slots (* TWO i) k)
+              (aset slots (inc (* TWO i)) v)
+              (recur (inc i)))))
+        (slots->node shift slots a xs b ys))))
+
+; removed counts the keys of a that are not in b
+(defn- intersect-entries [f a b shift removed]
+  (node-reduce a
+               (fn [node entry]
+                 (let [k (key entry)
+                       h (->bitnum (hash k))
+                       v (node-find b shift h k NOT-FOUND)]
+                   (cond
+                     (identical? v NOT-FOUND)
+                       (do
+                         (count! removed ONE)
+                         (node-dissoc node shift h k))
+                     f
+                       (node-assoc node shift h k (f (val entry) v) (new-box nil))
+                     :else
+                       node)))
+               a))
+
+(defn- intersect-nodes [f a b shift removed]
+  (cond
+    (and (nil? f) (identical? a b))
+      a
+    (or (collision? a) (collision? b))
+      (intersect-entries f a b shift removed)
+    :else
+      (let [xs (node-slots a)
+            ys (node-slots b)
+            slots (object-array (* TWO THIRTY-TWO))]
+        (loop [i ZERO]
+          (when (< i THIRTY-TWO)
+            (let [k1 (aget xs (* TWO i))
+                  v1 (aget xs (inc (* TWO i)))
+                  k2 (aget ys (* TWO i))
+                  v2 (aget ys (inc (* TWO i)))
+                  [k v] (cond
+                          (and (nil? k1) (nil? v1))
+                            [nil nil]
+                          (and (nil? k2) (nil? v2))
+                            (do
+                              (count! removed (if (nil? k1) (node-size v1) ONE))
+                              [nil nil])
+                          (and k1 k2 (= k1 k2))
+                            [k1 (if f (f v1 v2) v1)]
+                          (and k1 k2)
+                            (do
+                              (count! removed ONE)
+                              [nil nil])
+                          :else
+                            [nil (intersect-nodes f
+                                                  (if k1 (entry-node (+ shift FIVE) k1 v1) v1)
+                                                  (if k2 (entry-node (+ shift FIVE) k2 v2) v2)
+                                                  (+ shift FIVE)
+                                                  removed)])]
+              (aset slots (* TWO i) k)
+              (aset slots (inc (* TWO i)) v)
+              (recur (inc i)))))
+        (slots->node shift slots a xs nil nil))))
+
+; removed counts the keys of a that are in b
+(defn- difference-entries [a b shift removed]
+  (node-reduce b
+               (fn [node entry]
+                 (if (nil? node)
+                   node
+                   (let [k (key entry)
+                         new-node (node-dissoc node shift (->bitnum (hash k)) k)]
+                     (when (not (identical? new-node node))
+                       (count! removed ONE))
+                     new-node)))
+               a))
+
+(defn- difference-nodes [a b shift removed]
+  (cond
+    (identical? a b)
+      (do
+        (count! removed (node-size a))
+        nil)
+    (or (collision? a) (collision? b))
+      (difference-entries a b shift removed)
+    :else
+      (let [xs (node-slots a)
+            ys (node-slots b)
+            slots (object-array (* TWO THIRTY-TWO))]
+        (loop [i ZERO]
+          (when (< i THIRTY-TWO)
+            (let [k1 (aget xs (* TWO i))
+                  v1 (aget xs (inc (* TWO i)))
+                  k2 (aget ys (* TWO i))
+                  v2 (aget ys (inc (* TWO i)))
+                  [k v] (cond
+                          (or (and (nil? k1) (nil? v1)) (and (nil? k2) (nil? v2)))
+                            [k1 v1]
+                          (and k1 k2)
+                            (if (= k1 k2)
+                              (do
+                                (count! removed ONE)
+                                [nil nil])
+                              [k1 v1])
+                          :else
+                            [nil (difference-nodes (if k1 (entry-node (+ shift FIVE) k1 v1) v1)
+                                                   (if k2 (entry-node (+ shift FIVE) k2 v2) v2)
+                                                   (+ shift FIVE)
+                                                   removed)])]
+              (aset slots (* TWO i) k)
+              (aset slots (inc (* TWO i)) v)
+              (recur (inc i)))))
+        (slots->node shift slots a xs nil nil))))
+
+(defn- merge-roots [f a b added]
+  (cond
+    (nil? a)
+      (do
+        (count! added (node-size b))
+        b)
+    (nil? b)
+      a
+    :else
+      (merge-nodes f a b ZERO added)))
+
+(defn- intersect-roots [f a b removed]
+  (if (or (nil? a) (nil? b))
+    (do
+      (count! removed (node-size a))
+      nil)
+    (intersect-nodes f a b ZERO removed)))
+
+(defn- difference-roots [a b removed]
+  (if (or (nil? a) (nil? b))
+    a
+    (difference-nodes a b ZERO removed)))
+
+; A hash of 32 bits is used up by seven levels of bitmap or array nodes,
+; and a collision node can only sit below the last of them.
+(def ^:private ITERATOR-DEPTH 8)
+
+(defprotocol ^:private NodeIteration
+  (advance! [this]))
+
+; Walks the node arrays directly, keeping the nodes above the current one
+; on a fixed stack, so a step allocates nothing unless entries are asked
+; for. Array nodes hold a child per slot, the other nodes key/value pairs
+; where a nil key marks a child node.
+(deftype ^:private NodeIterator [-kind
+                                 -stack
+                                 -positions
+                                 ^:unsynchronized-mutable -depth
+                                 ^:unsynchronized-mutable -node
+                                 ^:unsynchronized-mutable -arr
+                                 ^:unsynchronized-mutable -i
+                                 ^:unsynchronized-mutable -array-node?
+                                 ^:unsynchronized-mutable -ready?
+                                 ^:unsynchronized-mutable -next-key
+                                 ^:unsynchronized-mutable -next-val]
+  NodeIteration
+  (advance! [this]
+    (loop []
+      (cond
+        (nil? -node)
+          false
+        (< -i (alength -arr))
+          (let [i -i
+                k (aget -arr i)
+                v (if -array-node? k (aget -arr (inc i)))
+                child (if -array-node? k (when (nil? k) v))]
+            (set! -i (if -array-node? (inc i) (+ i TWO)))
+            (cond
+              (not (nil? child))
+                (do
+                  (aset -stack -depth -node)
+                  (aset -positions -depth -i)
+                  (set! -depth (inc -depth))
+                  (set! -node child)
+                  (set! -arr (get-array child))
+                  (set! -i ZERO)
+                  (set! -array-node? (instance? ArrayNode child))
+                  (recur))
+              (or -array-node? (nil? k))
+                (recur)
+              :else
+                (do
+                  (set! -next-key k)
+                  (set! -next-val v)
+                  true)))
+        (zero? -depth)
+          (do
+            (set! -node nil)
+            false)
+        :else
+          (let [depth (dec -depth)
+                parent (aget -stack depth)]
+            (aset -stack depth nil)
+            (set! -depth depth)
+            (set! -node parent)
+            (set! -arr (get-array parent))
+            (set! -i (aget -positions depth))
+            (set! -array-node? (instance? ArrayNode parent))
+            (recur)))))
+
+  enum/base-enumerable
+  (enum/has-next-method [this]
+    (when (not -ready?)
+      (set! -ready? (advance! this)))
+    -ready?)
+
+  (enum/next-method [this]
+    (if (or -ready? (advance! this))
+      (do
+        (set! -ready? false)
+        (cond
+          (identical? -kind :keys) -next-key
+          (identical? -kind :vals) -next-val
+          :else (new-map-entry -next-key -next-val)))
+      (throw (new-no-such-element-exception))))
+
+  (enum/remove-method [this]
+    (throw (new-unsupported-error))))
+
+; a map with a nil key gives that entry first
+(defn- new-node-iterator [kind root has-nil? nil-value]
+  (NodeIterator. kind (object-array ITERATOR-DEPTH) (object-array ITERATOR-DEPTH) ZERO
+                 root (when root (get-array root)) ZERO (instance? ArrayNode root)
+                 has-nil? nil nil-value))
+
 (declare EMPTY-HASH-MAP)
 
-(deftype PersistentHashMap [-meta -count -root -has-nil? -nil-value]
+(deftype PersistentHashMap [-meta -count -root -has-nil? -nil-value ^:unsynchronized-mutable -hasheq]
   IAssociative
   (-assoc [this key val]
     (if (nil? key)
@@ -610,6 +1228,67 @@
   (-as-transient [this]
     (make-transient-hash-map -root -count -has-nil? -nil-value))
 
+  IMergeable
+  (-merge-with [this f other]
+    (if (instance? PersistentHashMap other)
+      (let [added (volatile! ZERO)
+            root (merge-roots f -root (.-_root ^PersistentHashMap other) added)
+            other-nil? (contains? other nil)]
+        (if (and (identical? root -root) (not other-nil?))
+          this
+          (new-hash-map -meta
+                        (+ -count (+ (deref added) (if (and other-nil? (not -has-nil?)) ONE ZERO)))
+                        root
+                        (or -has-nil? other-nil?)
+                        (cond
+                          (not other-nil?) -nil-value
+                          (and f -has-nil?) (f -nil-value (get other nil))
+                          :else (get other nil)))))
+      (map-merge-with this f other)))
+
+  (-intersect-with [this f other]
+    (if (instance? PersistentHashMap other)
+      (let [removed (volatile! ZERO)
+            root (intersect-roots f -root (.-_root ^PersistentHashMap other) removed)
+            has-nil? (and -has-nil? (contains? other nil))]
+        (if (and (nil? f) (identical? root -root) (= has-nil? -has-nil?))
+          this
+          (new-hash-map -meta
+                        (- -count (+ (deref removed) (if (= has-nil? -has-nil?) ZERO ONE)))
+                        root
+                        has-nil?
+                        (when has-nil?
+                          (if f (f -nil-value (get other nil)) -nil-value)))))
+      (map-intersect-with this f other)))
+
+  (-remove-keys [this other]
+    (if (instance? PersistentHashMap other)
+      (let [removed (volatile! ZERO)
+            root (difference-roots -root (.-_root ^PersistentHashMap other) removed)
+            has-nil? (and -has-nil? (not (contains? other nil)))]
+        (if (and (identical? root -root) (= has-nil? -has-nil?))
+          this
+          (new-hash-map -meta
+                        (- -count (+ (deref removed) (if (= has-nil? -has-nil?) ZERO ONE)))
+                        root
+                        has-nil?
+                        (when has-nil? -nil-value))))
+      (map-remove-keys this other)))
+
+  ; maps of at most n entries are reduced on the calling thread
+  IFold
+  (-fold [this n combinef reducef]
+    (let [ret (cond
+                (nil? -root)
+                  (combinef)
+                (<= -count n)
+                  (unreduced (node-reduce -root reducef (combinef)))
+                :else
+                  (invoke-in-pool #(node-fold -root combinef reducef)))]
+      (if -has-nil?
+        (combinef ret (unreduced (reducef (combinef) (new-map-entry nil -nil-value))))
+        ret)))
+
   IFn
   (-invoke [this k]
     (-lookup this k nil))
@@ -632,7 +1311,7 @@
 
   IObj
   (-with-meta [this new-meta]
-    (new-hash-map new-meta count -root -has-nil? -nil-value))
+    (PersistentHashMap. new-meta -count -root -has-nil? -nil-value -hasheq))
 
   IPersistentCollection
   (-cons [this o]
@@ -654,27 +1333,216 @@
             this
             (new-hash-map -meta (dec -count) new-root -has-nil? -nil-value))))))
 
+  IReduce
+  (-reduce [this f init]
+    (let [acc (if -has-nil? (f init (new-map-entry nil -nil-value)) init)]
+      (unreduced
+        (if (or (nil? -root) (reduced? acc))
+          acc
+          (node-reduce -root f acc)))))
+
   ISeqable
   (-seq [this]
-    (if (nil? -root)
-      nil
-      (node-seq -root))
-    ;return hasNull ? new Cons(new MapEntry(null, nullValue), s) : s;
-    )
+    (let [s (when -root (node-seq -root))]
+      (if -has-nil?
+        (cons (new-map-entry nil -nil-value) s)
+        s)))
 
   obj/base-object
   (equiv/equals-method [this other]
     (map-equals? this other))
 
   (hash-code/hash-method [this]
-    (map-hash this))
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
+
+  IMapIterable
+  (-key-iterator [this]
+    (new-node-iterator :keys -root -has-nil? -nil-value))
+
+  (-val-iterator [this]
+    (new-node-iterator :vals -root -has-nil? -nil-value))
 
   enum/base-enumerator
   (enum/enumerable-method [this]
-    (enum/new-seq-iterator (seq this))))
+    (new-node-iterator :entries -root -has-nil? -nil-value)))
 
 (defn new-hash-map [-meta -count -root -has-nil? -nil-value]
-  (PersistentHashMap. -meta -count -root -has-nil? -nil-value))
+  (PersistentHashMap. -meta -count -root -has-nil? -nil-value -1))
 
 (def EMPTY-HASH-MAP (new-hash-map nil ZERO nil false nil))
 
+
+; A transient hash map that several threads fill at once. Its keys are split
+; into 32 shards by the bits that the root of a hash map branches on, and
+; each shard is a subtree of its own, so threads that write to different
+; shards never touch the same node. persistent! makes the shards the
+; children of one root.
+
+(defn shard-index [k]
+  (mask (->bitnum (hash k)) ZERO))
+
+(defprotocol ^:private IHashMapShard
+  (shard-root    [this])
+  (shard-count   [this])
+  (shard-nil     [this])
+  (shard-lookup  [this k not-found])
+  (shard-assoc!  [this edit k v])
+  (shard-dissoc! [this edit k]))
+
+; holds the subtree at shift five for the keys of one shard, and the nil key
+; for shard zero
+(deftype ^:private HashMapShard [^:volatile-mutable -root
+                                 ^:volatile-mutable -count
+                                 ^:volatile-mutable -has-nil?
+                                 ^:volatile-mutable -nil-value
+                                 -leaf-flag]
+  IHashMapShard
+  (shard-root [this] -root)
+
+  (shard-count [this] -count)
+
+  (shard-nil [this]
+    (when -has-nil?
+      (new-map-entry nil -nil-value)))
+
+  (shard-lookup [this k not-found]
+    (cond
+      (nil? k)
+        (if -has-nil? -nil-value not-found)
+      (nil? -root)
+        not-found
+      :else
+        (node-find -root FIVE (->bitnum (hash k)) k not-found)))
+
+  (shard-assoc! [this edit k v]
+    (if (nil? k)
+      (do
+        (set! -nil-value v)
+        (when (not -has-nil?)
+          (set! -count (inc -count))
+          (set! -has-nil? true)))
+      (do
+        (set-value! -leaf-flag nil)
+        (let [node (node-assoc-ref (if (nil? -root) EMPTY-BitmapIndexedNode -root)
+                                   edit FIVE (->bitnum (hash k)) k v -leaf-flag)]
+          (when (not (identical? node -root))
+            (set! -root node))
+          (when (not (nil? (get-value -leaf-flag)))
+            (set! -count (inc -count)))))))
+
+  (shard-dissoc! [this edit k]
+    (cond
+      (nil? k)
+        (when -has-nil?
+          (set! -has-nil? false)
+          (set! -nil-value nil)
+          (set! -count (dec -count)))
+      (not (nil? -root))
+        (do
+          (set-value! -leaf-flag nil)
+          (let [node (node-dissoc-ref -root edit FIVE (->bitnum (hash k)) k -leaf-flag)]
+            (when (not (identical? node -root))
+              (set! -root node))
+            (when (not (nil? (get-value -leaf-flag)))
+              (set! -count (dec -count))))))))
+
+; a bitmap node for up to sixteen shards, the size at which a bitmap node
+; grows into an array node
+(defn- stitch-shards [shards]
+  (let [roots (object-array THIRTY-TWO)
+        n (loop [i ZERO
+                 n ZERO]
+            (if (< i THIRTY-TWO)
+              (let [root (shard-root (aget shards i))]
+                (aset roots i root)
+                (recur (inc i) (if (nil? root) n (inc n))))
+              n))]
+    (cond
+      (= n ZERO)
+        nil
+      (> n SIXTEEN)
+        (new-array-node nil n roots)
+      :else
+        (let [arr (object-array (* TWO n))]
+          (loop [i ZERO
+                 j ZERO
+                 bitmap ZERO]
+            (if (< i THIRTY-TWO)
+              (let [root (aget roots i)]
+                (if (nil? root)
+                  (recur (inc i) j bitmap)
+                  (do
+                    (aset arr (inc (* TWO j)) root)
+                    (recur (inc i) (inc j) (bit-or bitmap (bit-shift-left ONE i))))))
+              (new-bitmap-node nil bitmap arr)))))))
+
+; Each shard must be written by one thread at a time. Reads, and writes to
+; other shards, may happen at the same time.
+(deftype TransientShardedHashMap [-edit -shards]
+  ICounted
+  (-count [this]
+    (ensure-editable -edit)
+    (loop [i ZERO
+           n ZERO]
+      (if (< i THIRTY-TWO)
+        (recur (inc i) (+ n (shard-count (aget -shards i))))
+        n)))
+
+  ILookup
+  (-lookup [this k not-found]
+    (ensure-editable -edit)
+    (shard-lookup (aget -shards (shard-index k)) k not-found))
+
+  ITransientAssociative
+  (-assoc! [this k v]
+    (ensure-editable -edit)
+    (shard-assoc! (aget -shards (shard-index k)) -edit k v)
+    this)
+
+  ITransientCollection
+  (-conj! [this o]
+    (ensure-editable -edit)
+    (cond
+      (instance? platform-map-entry-type o)
+        (-assoc! this (key o) (val o))
+      (vector? o)
+        (if (= (count o) 2)
+          (-assoc! this (nth o 0) (nth o 1))
+          (throw (new-argument-error "Vector arg to map conj must be a pair")))
+      :else
+        (loop [s (seq o)]
+          (if s
+            (let [entry (first s)]
+              (-assoc! this (key entry) (val entry))
+              (recur (next s)))
+            this))))
+
+  (-persistent [this]
+    (let [n (-count this)
+          nil-entry (shard-nil (aget -shards ZERO))]
+      (ref-set! -edit nil)
+      (new-hash-map nil
+                    n
+                    (stitch-shards -shards)
+                    (not (nil? nil-entry))
+                    (when nil-entry (val nil-entry)))))
+
+  ITransientMap
+  (-dissoc! [this k]
+    (ensure-editable -edit)
+    (shard-dissoc! (aget -shards (shard-index k)) -edit k)
+    this))
+
+(defn make-sharded-transient-hash-map []
+  (let [shards (object-array THIRTY-TWO)]
+    (loop [i ZERO]
+      (when (< i THIRTY-TWO)
+        (aset shards i (HashMapShard. nil ZERO false nil (BoxedValue. nil)))
+        (recur (inc i))))
+    (TransientShardedHashMap. (new-atomic-ref (thread-reference)) shards)))
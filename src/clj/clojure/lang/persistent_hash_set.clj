@@ -19,7 +19,7 @@
     (clojure.lang.persistent-hash-set/make-transient-hash-set (transient -map))))
 
 (defn make-hash-set [m]
-  (PersistentHashSet. m))
+  (PersistentHashSet. m -1))
 
 (deffn TransientHashSet [^:unsynchronized-mutable -map]
   ICounted
@@ -0,0 +1,576 @@
+(ns clojure.lang.persistent-int-map
+  (:refer-clojure :only [defn defn- declare defprotocol format let if-let when loop cond])
+  (:require [clojure.lang
+              [apersistent-map :refer [map-cons map-equals? map-hash
+                                       map-merge-with map-intersect-with map-remove-keys]]
+              [aseq            :refer [defseq]]
+              [atomic-ref      :refer [new-atomic-ref ref-get ref-set!]]
+              [deftype         :refer [deftype]]
+              [enumerable      :as    enum]
+              [equivalence     :as    equiv]
+              [exceptions      :refer [new-argument-error new-illegal-access-error]]
+              [hash            :as    hash-code]
+              [hash-map        :refer [empty-object]]
+              [int-map         :refer [integer-key? ->long ->bits key= branch-mask prefix
+                                       prefix-matches? left? higher-mask?]]
+              [key-value       :refer [platform-map-entry-type]]
+              [map-entry       :refer [new-map-entry]]
+              [object          :as    obj]
+              [persistent-list :refer [EMPTY-LIST]]
+              [thread          :refer [thread-reference]]
+              [protocols       :refer [IAssociative ICounted ILookup IFn IEditableCollection IHash IMergeable
+                                       IMeta IObj IPersistentCollection IPersistentMap IReduce
+                                       ISeqable ISeq ISequential
+                                       ITransientAssociative ITransientCollection ITransientMap
+                                       -assoc! -lookup]]]
+            [clojure.next :refer :all]))
+
+; A big-endian Patricia trie (Okasaki and Gill) over long keys. Leaves keep
+; their key unboxed and branches split on the highest bit in which the keys
+; below them differ. A set of keys has exactly one trie, and two tries are
+; merged by walking both at once, so the work is proportional to where
+; they differ.
+
+(def ^:private NOT-FOUND (empty-object))
+
+(deftype ^:private Leaf [^long key val])
+
+(defprotocol ^:private IntBranch
+  (left          [this])
+  (right         [this])
+  (set-children! [this l r]))
+
+(deftype ^:private Branch [edit
+                           ^long prefix
+                           ^long mask
+                           ^:unsynchronized-mutable l
+                           ^:unsynchronized-mutable r]
+  IntBranch
+  (left [this] l)
+  (right [this] r)
+  (set-children! [this new-l new-r]
+    (set! l new-l)
+    (set! r new-r)
+    this))
+
+(defn- leaf? [node]
+  (instance? Leaf node))
+
+(defn- node-bits ^long [node]
+  (if (leaf? node)
+    (->bits (.-key ^Leaf node))
+    (.-prefix ^Branch node)))
+
+; a branch belongs to a transient while the transient holds its edit
+(defn- owned? [^Branch node edit]
+  (and (not (nil? edit))
+       (identical? (.-edit node) edit)))
+
+; joins two nodes whose prefixes differ under a new branch
+(defn- join [edit a b]
+  (let [pa (node-bits a)
+        m (branch-mask pa (node-bits b))]
+    (if (left? pa m)
+      (Branch. edit (prefix pa m) m a b)
+      (Branch. edit (prefix pa m) m b a))))
+
+; A branch left with one child is replaced by it, and one whose children
+; are unchanged is kept.
+(defn- with-children [^Branch node edit l r]
+  (cond
+    (nil? l)
+      r
+    (nil? r)
+      l
+    (and (identical? l (left node)) (identical? r (right node)))
+      node
+    (owned? node edit)
+      (set-children! node l r)
+    :else
+      (Branch. edit (.-prefix node) (.-mask node) l r)))
+
+(defn- node-lookup [node kl not-found]
+  (let [kl (->long kl)
+        bits (->bits kl)]
+    (loop [node node]
+      (cond
+        (nil? node)
+          not-found
+        (leaf? node)
+          (if (key= kl (.-key ^Leaf node))
+            (.-val ^Leaf node)
+            not-found)
+        :else
+          (let [^Branch b node
+                m (.-mask b)]
+            (cond
+              (not (prefix-matches? bits (.-prefix b) m))
+                not-found
+              (left? bits m)
+                (recur (left b))
+              :else
+                (recur (right b))))))))
+
+(defn- node-assoc [edit node k v added]
+  (let [kl (->long k)
+        bits (->bits kl)]
+    (cond
+      (nil? node)
+        (do
+          (vreset! added true)
+          (Leaf. kl v))
+      (leaf? node)
+        (cond
+          (not (key= kl (.-key ^Leaf node)))
+            (do
+              (vreset! added true)
+              (join edit (Leaf. kl v) node))
+          (identical? v (.-val ^Leaf node))
+            node
+          :else
+            (Leaf. kl v))
+      :else
+        (let [^Branch b node
+              m (.-mask b)]
+          (cond
+            (not (prefix-matches? bits (.-prefix b) m))
+              (do
+                (vreset! added true)
+                (join edit (Leaf. kl v) b))
+            (left? bits m)
+              (with-children b edit (node-assoc edit (left b) k v added) (right b))
+            :else
+              (with-children b edit (left b) (node-assoc edit (right b) k v added)))))))
+
+(defn- node-dissoc [edit node k removed]
+  (let [kl (->long k)
+        bits (->bits kl)]
+    (cond
+      (nil? node)
+        nil
+      (leaf? node)
+        (if (key= kl (.-key ^Leaf node))
+          (do
+            (vreset! removed true)
+            nil)
+          node)
+      :else
+        (let [^Branch b node
+              m (.-mask b)]
+          (cond
+            (not (prefix-matches? bits (.-prefix b) m))
+              b
+            (left? bits m)
+              (with-children b edit (node-dissoc edit (left b) k removed) (right b))
+            :else
+              (with-children b edit (left b) (node-dissoc edit (right b) k removed)))))))
+
+; Merges a leaf into a trie, calling f with the value of the leaf first
+; when leaf-first? is true. An unchanged value keeps the old leaf.
+(defn- merge-leaf [f ^Leaf leaf node leaf-first? dups]
+  (let [kl (.-key leaf)
+        bits (->bits kl)]
+    (cond
+      (leaf? node)
+        (if (key= kl (.-key ^Leaf node))
+          (let [lv (.-val leaf)
+                nv (.-val ^Leaf node)
+                v (if leaf-first? (f lv nv) (f nv lv))]
+            (vswap! dups inc)
+            (cond
+              (identical? v nv) node
+              (identical? v lv) leaf
+              :else (Leaf. kl v)))
+          (join nil leaf node))
+      :else
+        (let [^Branch b node
+              m (.-mask b)]
+          (cond
+            (not (prefix-matches? bits (.-prefix b) m))
+              (join nil leaf b)
+            (left? bits m)
+              (with-children b nil (merge-leaf f leaf (left b) leaf-first? dups) (right b))
+            :else
+              (with-children b nil (left b) (merge-leaf f leaf (right b) leaf-first? dups)))))))
+
+; dups counts the keys found in both tries
+(defn- node-merge [f a b dups]
+  (cond
+    (nil? a)
+      b
+    (nil? b)
+      a
+    (leaf? a)
+      (merge-leaf f a b true dups)
+    (leaf? b)
+      (merge-leaf f b a false dups)
+    :else
+      (let [^Branch x a
+            ^Branch y b
+            p (.-prefix x)
+            m (.-mask x)
+            q (.-prefix y)
+            n (.-mask y)]
+        (cond
+          (and (key= m n) (key= p q))
+            (with-children x nil (node-merge f (left x) (left y) dups) (node-merge f (right x) (right y) dups))
+          (and (higher-mask? m n) (prefix-matches? q p m))
+            (if (left? q m)
+              (with-children x nil (node-merge f (left x) y dups) (right x))
+              (with-children x nil (left x) (node-merge f (right x) y dups)))
+          (and (higher-mask? n m) (prefix-matches? p q n))
+            (if (left? p n)
+              (with-children y nil (node-merge f x (left y) dups) (right y))
+              (with-children y nil (left y) (node-merge f x (right y) dups)))
+          :else
+            (join nil x y)))))
+
+(defn- intersect-leaf [f ^Leaf leaf node leaf-first? kept]
+  (let [v (node-lookup node (.-key leaf) NOT-FOUND)]
+    (if (identical? NOT-FOUND v)
+      nil
+      (let [lv (.-val leaf)
+            v (if leaf-first? (f lv v) (f v lv))]
+        (vswap! kept inc)
+        (if (identical? v lv)
+          leaf
+          (Leaf. (.-key leaf) v))))))
+
+; kept counts the keys found in both tries
+(defn- node-intersect [f a b kept]
+  (cond
+    (or (nil? a) (nil? b))
+      nil
+    (leaf? a)
+      (intersect-leaf f a b true kept)
+    (leaf? b)
+      (intersect-leaf f b a false kept)
+    :else
+      (let [^Branch x a
+            ^Branch y b
+            p (.-prefix x)
+            m (.-mask x)
+            q (.-prefix y)
+            n (.-mask y)]
+        (cond
+          (and (key= m n) (key= p q))
+            (with-children x nil (node-intersect f (left x) (left y) kept) (node-intersect f (right x) (right y) kept))
+          (and (higher-mask? m n) (prefix-matches? q p m))
+            (node-intersect f (if (left? q m) (left x) (right x)) y kept)
+          (and (higher-mask? n m) (prefix-matches? p q n))
+            (node-intersect f x (if (left? p n) (left y) (right y)) kept)
+          :else
+            nil))))
+
+; removed counts the keys of a found in b
+(defn- node-difference [a b removed]
+  (cond
+    (or (nil? a) (nil? b))
+      a
+    (leaf? a)
+      (if (identical? NOT-FOUND (node-lookup b (.-key ^Leaf a) NOT-FOUND))
+        a
+        (do
+          (vswap! removed inc)
+          nil))
+    (leaf? b)
+      (let [found (volatile! false)
+            node (node-dissoc nil a (.-key ^Leaf b) found)]
+        (when (deref found)
+          (vswap! removed inc))
+        node)
+    :else
+      (let [^Branch x a
+            ^Branch y b
+            p (.-prefix x)
+            m (.-mask x)
+            q (.-prefix y)
+            n (.-mask y)]
+        (cond
+          (and (key= m n) (key= p q))
+            (with-children x nil (node-difference (left x) (left y) removed) (node-difference (right x) (right y) removed))
+          (and (higher-mask? m n) (prefix-matches? q p m))
+            (if (left? q m)
+              (with-children x nil (node-difference (left x) y removed) (right x))
+              (with-children x nil (left x) (node-difference (right x) y removed)))
+          (and (higher-mask? n m) (prefix-matches? p q n))
+            (node-difference x (if (left? p n) (left y) (right y)) removed)
+          :else
+            x))))
+
+(defn- nodes-equal? [a b]
+  (cond
+    (identical? a b)
+      true
+    (or (nil? a) (nil? b))
+      false
+    (leaf? a)
+      (and (leaf? b)
+           (key= (.-key ^Leaf a) (.-key ^Leaf b))
+           (= (.-val ^Leaf a) (.-val ^Leaf b)))
+    (leaf? b)
+      false
+    :else
+      (and (key= (.-prefix ^Branch a) (.-prefix ^Branch b))
+           (key= (.-mask ^Branch a) (.-mask ^Branch b))
+           (nodes-equal? (left a) (left b))
+           (nodes-equal? (right a) (right b)))))
+
+; stops at and returns a reduced value without unwrapping it
+(defn- node-reduce [node f init]
+  (cond
+    (nil? node)
+      init
+    (leaf? node)
+      (f init (new-map-entry (.-key ^Leaf node) (.-val ^Leaf node)))
+    :else
+      (let [acc (node-reduce (left node) f init)]
+        (if (reduced? acc)
+          acc
+          (node-reduce (right node) f acc)))))
+
+(declare make-int-map-seq)
+
+; -pending holds the right branches still to visit, nearest first
+(defseq ^:private IntMapSeq [-leaf -pending]
+  ICounted
+  (-count [this]
+    (loop [s (next this)
+           cnt 1]
+      (if s
+        (recur (next s) (inc cnt))
+        cnt)))
+
+  ISeq
+  (-first [this]
+    (new-map-entry (.-key ^Leaf -leaf) (.-val ^Leaf -leaf)))
+
+  (-next [this]
+    (make-int-map-seq nil -pending))
+
+  (-more [this]
+    (if-let [s (next this)] s EMPTY-LIST)))
+
+(defn- make-int-map-seq [node pending]
+  (loop [node node
+         pending pending]
+    (cond
+      (nil? node)
+        (when pending
+          (recur (first pending) (next pending)))
+      (leaf? node)
+        (IntMapSeq. node pending)
+      :else
+        (recur (left node) (cons (right node) pending)))))
+
+(defn- check-key [k]
+  (when (not (integer-key? k))
+    (throw (new-argument-error (format "PersistentIntMap keys must be integers: %s given" k)))))
+
+(defn- ensure-editable [edit]
+  (when (nil? (ref-get edit))
+    (throw (new-illegal-access-error "Transient used after persistent! call"))))
+
+(declare new-int-map)
+
+(deftype TransientIntMap [-edit
+                          ^:volatile-mutable -root
+                          ^:volatile-mutable -count
+                          -flag]
+
+  ICounted
+  (-count [this]
+    (ensure-editable -edit)
+    -count)
+
+  ILookup
+  (-lookup [this k not-found]
+    (ensure-editable -edit)
+    (if (integer-key? k)
+      (node-lookup -root k not-found)
+      not-found))
+
+  ITransientAssociative
+  (-assoc! [this k v]
+    (ensure-editable -edit)
+    (check-key k)
+    (vreset! -flag false)
+    (let [node (node-assoc -edit -root k v -flag)]
+      (when (not (identical? node -root))
+        (set! -root node))
+      (when (deref -flag)
+        (set! -count (inc -count))))
+    this)
+
+  ITransientCollection
+  (-conj! [this o]
+    (ensure-editable -edit)
+    (cond
+      (instance? platform-map-entry-type o)
+        (-assoc! this (key o) (val o))
+      (vector? o)
+        (if (= (count o) 2)
+          (-assoc! this (nth o 0) (nth o 1))
+          (throw (new-argument-error "Vector arg to map conj must be a pair")))
+      :else
+        (loop [s (seq o)]
+          (if s
+            (let [entry (first s)]
+              (-assoc! this (key entry) (val entry))
+              (recur (next s)))
+            this))))
+
+  (-persistent [this]
+    (ensure-editable -edit)
+    (ref-set! -edit nil)
+    (new-int-map nil -count -root))
+
+  ITransientMap
+  (-dissoc! [this k]
+    (ensure-editable -edit)
+    (when (integer-key? k)
+      (vreset! -flag false)
+      (let [node (node-dissoc -edit -root k -flag)]
+        (when (not (identical? node -root))
+          (set! -root node))
+        (when (deref -flag)
+          (set! -count (dec -count)))))
+    this))
+
+(defn- make-transient-int-map [root count]
+  (TransientIntMap. (new-atomic-ref (thread-reference)) root count (volatile! false)))
+
+(declare EMPTY-INT-MAP)
+
+(defn- take-other [v other-v]
+  other-v)
+
+(defn- keep-this [v other-v]
+  v)
+
+(deftype PersistentIntMap [-meta -count -root ^:unsynchronized-mutable -hasheq]
+  IAssociative
+  (-assoc [this k v]
+    (check-key k)
+    (let [added (volatile! false)
+          node (node-assoc nil -root k v added)]
+      (if (identical? node -root)
+        this
+        (new-int-map -meta (if (deref added) (inc -count) -count) node))))
+
+  (-contains-key? [this k]
+    (and (integer-key? k)
+         (not (identical? NOT-FOUND (node-lookup -root k NOT-FOUND)))))
+
+  ICounted
+  (-count [this] -count)
+
+  IEditableCollection
+  (-as-transient [this]
+    (make-transient-int-map -root -count))
+
+  IFn
+  (-invoke [this k]
+    (-lookup this k nil))
+
+  (-invoke [this k not-found]
+    (-lookup this k not-found))
+
+  ILookup
+  (-lookup [this k not-found]
+    (if (integer-key? k)
+      (node-lookup -root k not-found)
+      not-found))
+
+  IMergeable
+  (-merge-with [this f other]
+    (if (instance? PersistentIntMap other)
+      (let [dups (volatile! 0)
+            root (node-merge (if f f take-other) -root (.-_root ^PersistentIntMap other) dups)]
+        (new-int-map -meta (- (+ -count (count other)) (deref dups)) root))
+      (map-merge-with this f other)))
+
+  (-intersect-with [this f other]
+    (if (instance? PersistentIntMap other)
+      (let [kept (volatile! 0)
+            root (node-intersect (if f f keep-this) -root (.-_root ^PersistentIntMap other) kept)]
+        (new-int-map -meta (deref kept) root))
+      (map-intersect-with this f other)))
+
+  (-remove-keys [this other]
+    (if (instance? PersistentIntMap other)
+      (let [removed (volatile! 0)
+            root (node-difference -root (.-_root ^PersistentIntMap other) removed)]
+        (if (identical? root -root)
+          this
+          (new-int-map -meta (- -count (deref removed)) root)))
+      (map-remove-keys this other)))
+
+  IMeta
+  (-meta [this] -meta)
+
+  IObj
+  (-with-meta [this new-meta]
+    (PersistentIntMap. new-meta -count -root -hasheq))
+
+  IPersistentCollection
+  (-cons [this o]
+    (map-cons this o))
+
+  (-empty [this]
+    (with-meta EMPTY-INT-MAP -meta))
+
+  IPersistentMap
+  (-dissoc [this k]
+    (if (integer-key? k)
+      (let [removed (volatile! false)
+            node (node-dissoc nil -root k removed)]
+        (if (identical? node -root)
+          this
+          (new-int-map -meta (dec -count) node)))
+      this))
+
+  IReduce
+  (-reduce [this f init]
+    (unreduced (node-reduce -root f init)))
+
+  ISeqable
+  (-seq [this]
+    (make-int-map-seq -root nil))
+
+  obj/base-object
+  (equiv/equals-method [this other]
+    (if (instance? PersistentIntMap other)
+      (and (= -count (count other))
+           (nodes-equal? -root (.-_root ^PersistentIntMap other)))
+      (map-equals? this other)))
+
+  (hash-code/hash-method [this]
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
+
+  enum/base-enumerator
+  (enum/enumerable-method [this]
+    (enum/new-seq-iterator (seq this))))
+
+(defn new-int-map [-meta -count -root]
+  (PersistentIntMap. -meta -count -root -1))
+
+(def EMPTY-INT-MAP (new-int-map nil 0 nil))
+
+(defn make-int-map [kvs]
+  (let [size (count kvs)]
+    (if (even? size)
+      (loop [s (seq kvs)
+             t (make-transient-int-map nil 0)]
+        (if s
+          (recur (nnext s) (assoc! t (first s) (second s)))
+          (persistent! t)))
+      (throw (new-argument-error
+               (format "PersistentIntMap can only be created with even number of arguments: %s arguments given"
+                       size))))))
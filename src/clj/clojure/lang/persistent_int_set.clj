@@ -0,0 +1,146 @@
+(ns clojure.lang.persistent-int-set
+  (:refer-clojure :only [declare defn defn- let loop when])
+  (:require [clojure.lang
+              [afn             :refer [deffn]]
+              [apersistent-set :refer [set-difference set-equals? set-hash set-intersection set-union]]
+              [deftype         :refer [deftype]]
+              [equivalence     :as    equiv]
+              [hash            :as    hash-code]
+              [object          :as    obj]
+              [protocols       :refer :all]]
+            [clojure.next :refer :all]))
+
+; Not a defset, so that the set algebra between two int sets can merge
+; their tries instead of adding and removing one item at a time.
+
+(declare make-int-set
+         make-transient-int-set)
+
+(deffn PersistentIntSet [-map ^:unsynchronized-mutable -hasheq]
+  ICounted
+  (-count [this]
+    (count -map))
+
+  IEditableCollection
+  (-as-transient [this]
+    (make-transient-int-set (transient -map)))
+
+  IFn
+  (-invoke [this x]
+    (get -map x nil))
+
+  ILookup
+  (-lookup [this x default]
+    (get -map x default))
+
+  IPersistentSet
+  (-contains? [this x]
+    (contains? -map x))
+
+  (-difference [this sets]
+    (loop [m -map
+           sets (seq sets)]
+      (if sets
+        (let [s (first sets)]
+          (recur (if (instance? PersistentIntSet s)
+                   (-remove-keys m (.-_map ^PersistentIntSet s))
+                   (set-difference m (vector s)))
+                 (next sets)))
+        (make-int-set m))))
+
+  (-disj [this x]
+    (make-int-set (dissoc -map x)))
+
+  (-intersection [this sets]
+    (loop [m -map
+           sets (seq sets)]
+      (if sets
+        (let [s (first sets)]
+          (recur (if (instance? PersistentIntSet s)
+                   (-intersect-with m nil (.-_map ^PersistentIntSet s))
+                   (set-intersection m (vector s)))
+                 (next sets)))
+        (make-int-set m))))
+
+  (-union [this sets]
+    (loop [m -map
+           sets (seq sets)]
+      (if sets
+        (let [s (first sets)]
+          (recur (if (instance? PersistentIntSet s)
+                   (-merge-with m nil (.-_map ^PersistentIntSet s))
+                   (set-union m (vector s)))
+                 (next sets)))
+        (make-int-set m))))
+
+  IPersistentCollection
+  (-cons [this x]
+    (make-int-set (assoc -map x x)))
+
+  (-empty [this]
+    (make-int-set (empty -map)))
+
+  ISeqable
+  (-seq [this]
+    (seq (keys -map)))
+
+  obj/base-object
+  (equiv/equals-method [this other]
+    (if (instance? PersistentIntSet other)
+      (= -map (.-_map ^PersistentIntSet other))
+      (set-equals? -map other)))
+
+  (hash-code/hash-method [this]
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (set-hash (seq this))))
+    -hasheq))
+
+(defn make-int-set [m]
+  (PersistentIntSet. m -1))
+
+(deffn TransientIntSet [^:unsynchronized-mutable -map]
+  ICounted
+  (-count [this]
+    (count -map))
+
+  IFn
+  (-invoke [this x]
+    (get -map x))
+
+  (-invoke [this x not-found]
+    (get -map x not-found))
+
+  ILookup
+  (-lookup [this x]
+    (get -map x))
+
+  (-lookup [this x not-found]
+    (get -map x not-found))
+
+  IPersistentSet
+  (-contains? [this x]
+    (not= this (get -map x this)))
+
+  ITransientCollection
+  (-conj! [this x]
+    (let [m (assoc! -map x x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this)
+
+  (-persistent [this]
+    (make-int-set (persistent! -map)))
+
+  ITransientSet
+  (-disj! [this x]
+    (let [m (dissoc! -map x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this))
+
+(defn make-transient-int-set [m]
+  (TransientIntSet. m))
@@ -1,9 +1,10 @@
 (ns clojure.lang.persistent-list
-  (:refer-clojure :only [declare defn defn- butlast let loop satisfies? when])
+  (:refer-clojure :only [cond declare defn defn- butlast let loop when])
   (:require [clojure.next :refer :all]
             [clojure.lang
               [array        :as    arr]
-              [aseq         :refer [defseq seq->array seq-equal? seq-hash]]
+              [aseq         :refer [defseq seq->array seq-equal? seq-hash seq-hasheq]]
+              [capability   :refer [satisfies?]]
               [collection   :as    coll]
               [deftype      :refer [deftype]]
               [equivalence  :as    equiv]
@@ -11,8 +12,9 @@
                                     new-unsupported-error]]
               [hash         :as    hash-code]
               [object       :as    obj]
-              [protocols    :refer [ICounted IMeta IObj IPersistentCollection -cons
-                                    IPersistentList IPersistentStack ISeq ISeqable ISequential]]]))
+              [protocols    :refer [ICounted IHash IMeta IObj IPersistentCollection -cons
+                                    IPersistentList IPersistentStack IReduce ISeq ISeqable
+                                    ISequential -count -first -more]]]))
 
 (declare make-list)
 (declare EMPTY-LIST)
@@ -48,6 +50,9 @@
   (-pop [this]
     (throw (new-illegal-state-error "Can't pop empty list")))
 
+  IReduce
+  (-reduce [this f init] init)
+
   ISequential
 
   ISeqable
@@ -99,6 +104,10 @@
       (aset arr 0 nil))
     arr)
 
+  IHash
+  (-hash [this]
+    (seq-hasheq nil))
+
   obj/base-object
   (equiv/equals-method [this other]
     (and
@@ -108,7 +117,17 @@
   (hash-code/hash-method [this]
     1))
 
-(deftype PersistentList [-meta -first -rest -count ^:unsynchronized-mutable -hash]
+(defn- list-reduce [l f init]
+  (let [acc (f init (-first l))]
+    (cond
+      (reduced? acc)
+        (deref acc)
+      (= (-count l) 1)
+        acc
+      :else
+        (recur (-more l) f acc))))
+
+(deftype PersistentList [-meta -first -rest -count ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   IPersistentList
 
   ICounted
@@ -119,7 +138,7 @@
 
   IObj
   (-with-meta [this new-meta]
-    (make-list new-meta -first -rest -count))
+    (PersistentList. new-meta -first -rest -count -hash -hasheq))
 
   IPersistentCollection
   (-cons [this x]
@@ -134,6 +153,10 @@
   (-pop [this]
     (if -rest -rest (empty this)))
 
+  IReduce
+  (-reduce [this f init]
+    (list-reduce this f init))
+
   ISeq
   (-first [this] -first)
 
@@ -147,6 +170,12 @@
   ISeqable
   (-seq [this] this)
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (equiv/equals-method [this other]
     (seq-equal? this other))
@@ -204,7 +233,7 @@
     (seq->array this arr)))
 
 (defn- make-list [meta first rest count]
-  (PersistentList. meta first rest count -1))
+  (PersistentList. meta first rest count -1 -1))
 
 (def EMPTY-LIST (EmptyList. nil))
 
@@ -1,17 +1,40 @@
 (ns clojure.lang.persistent-map
-  (:refer-clojure :only [defn declare if-let when])
+  (:refer-clojure :only [defn defn- declare if-let let loop when])
   (:require [clojure.lang
               [aseq            :refer [defseq]]
               [deftype]
+              [enumerable      :as    enum]
               [equivalence]
               [persistent-list :refer [EMPTY-LIST]]
-              [protocols       :refer [ICounted ISeq ISeqable ISequential
-                                       -assoc -dissoc]]]
+              [protocols       :refer [ICounted IHash IMapIterable IReduce ISeq ISeqable ISequential
+                                       -assoc -dissoc -key-iterator -val-iterator]]]
             [clojure.next                 :refer :all]))
 
+(defn- iterator-reduce [iter f init]
+  (loop [acc init]
+    (if (enum/has-next? iter)
+      (let [acc (f acc (enum/next-item iter))]
+        (if (reduced? acc)
+          (deref acc)
+          (recur acc)))
+      acc)))
+
+(defn- seq-reduce [s f init]
+  (loop [s s
+         acc init]
+    (if (nil? s)
+      acc
+      (let [acc (f acc (first s))]
+        (if (reduced? acc)
+          (deref acc)
+          (recur (next s) acc))))))
+
 (declare new-key-seq)
 
-(defseq KeySeq [-seq]
+; A key seq made from a map that can iterate its keys reduces and iterates
+; over them directly instead of walking the entry seq. The seqs after it
+; only have the entries.
+(defseq KeySeq [-seq -map]
   ICounted
   (-count [this]
     (count -seq))
@@ -24,15 +47,30 @@
     (new-key-seq (next -seq)))
 
   (-more [this]
-    (if-let [m (next -seq)] (new-key-seq m) EMPTY-LIST)))
+    (if-let [m (next -seq)] (new-key-seq m) EMPTY-LIST))
+
+  IReduce
+  (-reduce [this f init]
+    (if -map
+      (iterator-reduce (-key-iterator -map) f init)
+      (seq-reduce this f init)))
 
-(defn new-key-seq [-seq]
-  (when -seq
-    (KeySeq. -seq)))
+  enum/base-enumerator
+  (enum/enumerable-method [this]
+    (if -map
+      (-key-iterator -map)
+      (enum/new-seq-iterator this))))
+
+(defn new-key-seq
+  ([-seq]
+    (new-key-seq -seq nil))
+  ([-seq m]
+    (when -seq
+      (KeySeq. -seq m))))
 
 (declare new-val-seq)
 
-(defseq ValSeq [-seq]
+(defseq ValSeq [-seq -map]
   ICounted
   (-count [this]
     (count -seq))
@@ -45,8 +83,23 @@
     (new-val-seq (next -seq)))
 
   (-more [this]
-    (if-let [m (next -seq)] (new-val-seq m) EMPTY-LIST)))
+    (if-let [m (next -seq)] (new-val-seq m) EMPTY-LIST))
+
+  IReduce
+  (-reduce [this f init]
+    (if -map
+      (iterator-reduce (-val-iterator -map) f init)
+      (seq-reduce this f init)))
+
+  enum/base-enumerator
+  (enum/enumerable-method [this]
+    (if -map
+      (-val-iterator -map)
+      (enum/new-seq-iterator this))))
 
-(defn new-val-seq [-seq]
-  (when -seq
-    (ValSeq. -seq)))
+(defn new-val-seq
+  ([-seq]
+    (new-val-seq -seq nil))
+  ([-seq m]
+    (when -seq
+      (ValSeq. -seq m))))
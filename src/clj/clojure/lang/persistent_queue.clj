@@ -1,13 +1,16 @@
 (ns clojure.lang.persistent-queue
-  (:refer-clojure :only [declare defn if-let let list loop satisfies?])
+  (:refer-clojure :only [declare defn if-let let list loop when])
   (:require [clojure.next :refer :all]
             [clojure.lang
-              [aseq      :refer [defseq]]
-              [deftype   :refer [deftype]]
-              [equivalence]
-              [protocols :refer [ICounted IPersistentStack IPersistentCollection IPersistentQueue
-                                 IMeta IObj
-                                 ISeq ISeqable ISequential]]]))
+              [aseq        :refer [defseq seq-equal? seq-hash seq-hasheq]]
+              [capability  :refer [satisfies?]]
+              [deftype     :refer [deftype]]
+              [equivalence :as    equiv]
+              [hash        :as    hash-code]
+              [object      :as    obj]
+              [protocols   :refer [ICounted IPersistentStack IPersistentCollection IPersistentQueue
+                                   IHash IMeta IObj
+                                   ISeq ISeqable ISequential]]]))
 
 (declare make-queue)
 
@@ -41,7 +44,7 @@
 
   )
 
-(deftype PersistentQueue [-meta -length -seq -vec]
+(deftype PersistentQueue [-meta -length -seq -vec ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   ICounted
   (-count [this] -length)
 
@@ -49,7 +52,7 @@
   (-meta [this] -meta)
 
   IObj
-  (-with-meta [this m] (make-queue m -length -seq -vec))
+  (-with-meta [this m] (PersistentQueue. m -length -seq -vec -hash -hasheq))
 
   IPersistentCollection
   (-cons [this x]
@@ -82,16 +85,33 @@
           true
           (recur (next s))))))
 
+  ISequential
+
   ISeqable
   (-seq [this]
     (if (nil? -seq)
       nil
       (PersistentQueueSeq. nil -seq (seq -vec))))
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
+  obj/base-object
+  (equiv/equals-method [this other]
+    (seq-equal? (seq this) other))
+
+  (hash-code/hash-method [this]
+    (when (= -hash -1)
+      (set! -hash (seq-hash this)))
+    -hash)
+
   )
 
 (defn make-queue [-meta -length -seq -vec]
-  (PersistentQueue. -meta -length -seq -vec))
+  (PersistentQueue. -meta -length -seq -vec -1 -1))
 
 (def EMPTY-QUEUE (make-queue nil 0 nil nil))
 
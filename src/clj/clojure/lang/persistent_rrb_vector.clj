@@ -0,0 +1,881 @@
+(ns clojure.lang.persistent-rrb-vector
+  (:refer-clojure :only [cond declare defn defn- defprotocol fn if-let let loop when ->])
+  (:require [clojure.next :refer :all]
+            [clojure.lang
+              [afn               :refer [deffn]]
+              [array-chunk       :refer [make-array-chunk]]
+              [array-manager     :refer [array-manager array-reduce object-array-manager]]
+              [aseq              :refer [defseq seq->array seq-hash seq-hasheq]]
+              [atomic-ref        :refer [new-atomic-ref ref-get ref-set!]]
+              [collection        :as    coll]
+              [deftype           :refer [deftype]]
+              [enumerable        :refer [enumerable? enumerable-equals?] :as enum]
+              [equivalence       :as    equiv]
+              [exceptions        :refer [new-argument-error new-out-of-bounds-exception
+                                         new-illegal-access-error new-illegal-state-error
+                                         new-unsupported-error]]
+              [fork-join         :refer [new-task fork-task join-task invoke-in-pool]]
+              [hash              :as    hash-code]
+              [object            :as    obj]
+              [persistent-list   :refer [EMPTY-LIST]]
+              [persistent-vector :refer [INode get-array get-edit make-node n-in-range?
+                                         EMPTY-NODE vector-tree]]
+              [protocols         :refer [-array-for -as-transient -assoc-n -assoc-n! -conj! -cons -count -fold
+                                         -persistent -nth -reduce -new-array -array-get -array-set!
+                                         -chunked-first -chunked-next -chunked-more
+                                         IAssociative ICounted IEditableCollection IFold IHash IMeta
+                                         IObj ILookup IReduce IPersistentCollection IPersistentVector
+                                         IPersistentStack ITransientAssociative ITransientCollection
+                                         ITransientVector IChunkedSeq ISeq ISeqable ISequential IIndexed]]
+              [thread            :refer [thread-reference]]]))
+
+(coll/import-collection-type)
+
+; A relaxed radix balanced tree (Bagwell and Rompf), which concatenates and
+; slices in O(log n). Its regular nodes are the nodes of a persistent vector:
+; a 32 slot array, every child full but the last, so a child is found from
+; the bits of the index. A relaxed node keeps the cumulative counts of its
+; children instead, and the index is looked up in them. Leaves hold at most
+; 32 elements, but need not be full when they are not the last.
+;
+; A node at shift s has children that hold at most 2^s elements, and the
+; leaves are at shift 0.
+
+(def ^:private sizes-am (array-manager :long))
+
+(defn- size-at [sizes i]
+  (-array-get sizes-am sizes i))
+
+(defn- set-size! [sizes i n]
+  (-array-set! sizes-am sizes i n))
+
+(defprotocol ^:private IRelaxedNode
+  (get-sizes [this]))
+
+(deftype ^:private RelaxedNode [-arr -sizes]
+  INode
+  (get-array [this] -arr)
+
+  (get-edit [this] nil)
+
+  IRelaxedNode
+  (get-sizes [this] -sizes))
+
+(defn- relaxed? [node]
+  (instance? RelaxedNode node))
+
+(defn- capacity [shift]
+  (bit-shift-left 1 shift))
+
+(defn- child-count [node]
+  (let [arr (get-array node)]
+    (if (relaxed? node)
+      (alength arr)
+      (loop [i (alength arr)]
+        (if (and (pos? i) (nil? (aget arr (dec i))))
+          (recur (dec i))
+          i)))))
+
+(defn- node-count [node shift]
+  (cond
+    (zero? shift)
+      (alength (get-array node))
+    (relaxed? node)
+      (let [sizes (get-sizes node)]
+        (if (zero? (alength sizes))
+          0
+          (size-at sizes (dec (alength sizes)))))
+    :else
+      (let [n (child-count node)]
+        (if (zero? n)
+          0
+          (+ (bit-shift-left (dec n) shift)
+             (node-count (aget (get-array node) (dec n)) (- shift 5)))))))
+
+; the slot of the child that holds index i
+(defn- child-slot [node shift i]
+  (if (relaxed? node)
+    (let [sizes (get-sizes node)]
+      ; a child holds at most 2^shift elements, so the slot is at least i >> shift
+      (loop [slot (unsigned-bit-shift-right i shift)]
+        (if (<= (size-at sizes slot) i)
+          (recur (inc slot))
+          slot)))
+    (bit-and (unsigned-bit-shift-right i shift) 0x01f)))
+
+; the index of the first element of the child in slot
+(defn- child-offset [node shift slot]
+  (cond
+    (zero? slot) 0
+    (relaxed? node) (size-at (get-sizes node) (dec slot))
+    :else (bit-shift-left slot shift)))
+
+(defn- leaf-for [root shift i]
+  (loop [node root
+         shift shift
+         i i]
+    (if (zero? shift)
+      (get-array node)
+      (let [slot (child-slot node shift i)]
+        (recur (aget (get-array node) slot) (- shift 5) (- i (child-offset node shift slot)))))))
+
+; the index of i within its leaf
+(defn- leaf-index [root shift i]
+  (loop [node root
+         shift shift
+         i i]
+    (if (zero? shift)
+      i
+      (let [slot (child-slot node shift i)]
+        (recur (aget (get-array node) slot) (- shift 5) (- i (child-offset node shift slot)))))))
+
+(defn- tree-nth [am root shift i]
+  (-array-get am (leaf-for root shift i) (leaf-index root shift i)))
+
+(defn- tree-assoc [am node shift i x]
+  (let [arr (aclone (get-array node))]
+    (if (zero? shift)
+      (do
+        (-array-set! am arr i x)
+        (make-node nil arr))
+      (let [slot (child-slot node shift i)]
+        (aset arr slot (tree-assoc am (aget arr slot) (- shift 5) (- i (child-offset node shift slot)) x))
+        (if (relaxed? node)
+          (RelaxedNode. arr (get-sizes node))
+          (make-node nil arr))))))
+
+; A node from an array holding exactly its children, which is regular when
+; all of them but the last are full.
+(defn- make-internal [children shift]
+  (let [n (alength children)
+        sizes (-new-array sizes-am n)
+        full (capacity shift)
+        regular? (loop [k 0
+                        regular? true]
+                   (if (< k n)
+                     (let [c (node-count (aget children k) (- shift 5))]
+                       (set-size! sizes k (if (zero? k) c (+ c (size-at sizes (dec k)))))
+                       (recur (inc k) (and regular? (or (= k (dec n)) (= c full)))))
+                     regular?))]
+    (if regular?
+      (let [arr (object-array 32)]
+        (acopy children 0 arr 0 n)
+        (make-node nil arr))
+      (RelaxedNode. children sizes))))
+
+(defn- node-sizes [node shift n]
+  (if (relaxed? node)
+    (get-sizes node)
+    (let [sizes (-new-array sizes-am n)]
+      (loop [k 0]
+        (when (< k (dec n))
+          (set-size! sizes k (bit-shift-left (inc k) shift))
+          (recur (inc k))))
+      (when (pos? n)
+        (set-size! sizes (dec n) (node-count node shift)))
+      sizes)))
+
+(defn- copy-sizes [sizes n]
+  (let [new-sizes (-new-array sizes-am n)]
+    (acopy sizes 0 new-sizes 0 (min n (alength sizes)))
+    new-sizes))
+
+(defn- copy-children [node n]
+  (let [arr (object-array n)]
+    (acopy (get-array node) 0 arr 0 (min n (child-count node)))
+    arr))
+
+(defn- new-path [shift leaf]
+  (if (zero? shift)
+    leaf
+    (let [arr (object-array 32)]
+      (aset arr 0 (new-path (- shift 5) leaf))
+      (make-node nil arr))))
+
+(defn- append-child [node shift n child child-count]
+  (if (and (not (relaxed? node))
+           (or (zero? n)
+               (= (capacity shift) (node-count (aget (get-array node) (dec n)) (- shift 5)))))
+    (let [arr (aclone (get-array node))]
+      (aset arr n child)
+      (make-node nil arr))
+    (let [sizes (copy-sizes (node-sizes node shift n) (inc n))
+          arr (copy-children node (inc n))]
+      (aset arr n child)
+      (set-size! sizes n (+ child-count (if (zero? n) 0 (size-at sizes (dec n)))))
+      (RelaxedNode. arr sizes))))
+
+(defn- replace-last-child [node n child delta]
+  (if (relaxed? node)
+    (let [sizes (aclone (get-sizes node))
+          arr (aclone (get-array node))]
+      (aset arr (dec n) child)
+      (set-size! sizes (dec n) (+ (size-at sizes (dec n)) delta))
+      (RelaxedNode. arr sizes))
+    (let [arr (aclone (get-array node))]
+      (aset arr (dec n) child)
+      (make-node nil arr))))
+
+(defn- remove-last-child [node n]
+  (cond
+    (= n 1)
+      nil
+    (relaxed? node)
+      (RelaxedNode. (copy-children node (dec n)) (copy-sizes (get-sizes node) (dec n)))
+    :else
+      (let [arr (aclone (get-array node))]
+        (aset arr (dec n) nil)
+        (make-node nil arr))))
+
+; Adds leaf after the last leaf under node, or returns nil when the right
+; edge of node is full.
+(defn- push-leaf [node shift leaf]
+  (let [n (child-count node)
+        leaf-count (alength (get-array leaf))]
+    (if (= shift 5)
+      (when (< n 32)
+        (append-child node shift n leaf leaf-count))
+      (if-let [child (when (pos? n) (push-leaf (aget (get-array node) (dec n)) (- shift 5) leaf))]
+        (replace-last-child node n child leaf-count)
+        (when (< n 32)
+          (append-child node shift n (new-path (- shift 5) leaf) leaf-count))))))
+
+; the root and shift of the tree with leaf added at its end
+(defn- push-leaf-root [root shift leaf]
+  (if-let [new-root (push-leaf root shift leaf)]
+    [new-root shift]
+    (let [arr (object-array 1)]
+      (aset arr 0 root)
+      [(append-child (make-internal arr (+ shift 5)) (+ shift 5) 1
+                     (new-path shift leaf) (alength (get-array leaf)))
+       (+ shift 5)])))
+
+; Removes the last leaf under node and puts it in the volatile popped.
+; Returns nil when that leaves the node empty.
+(defn- pop-leaf [node shift popped]
+  (let [n (child-count node)
+        child (aget (get-array node) (dec n))]
+    (if (= shift 5)
+      (do
+        (vreset! popped child)
+        (remove-last-child node n))
+      (if-let [new-child (pop-leaf child (- shift 5) popped)]
+        (replace-last-child node n new-child (- (alength (get-array (deref popped)))))
+        (remove-last-child node n)))))
+
+; drops the root levels that have a single child
+(defn- collapse-root [root shift]
+  (loop [root root
+         shift shift]
+    (if (and (> shift 5) (= 1 (child-count root)))
+      (recur (aget (get-array root) 0) (- shift 5))
+      [root shift])))
+
+; keeps the elements of node before end, which ends a leaf
+(defn- slice-right [node shift end]
+  (if (zero? shift)
+    node
+    (let [slot (child-slot node shift (dec end))
+          child (slice-right (aget (get-array node) slot) (- shift 5) (- end (child-offset node shift slot)))]
+      (if (relaxed? node)
+        (let [arr (copy-children node (inc slot))
+              sizes (copy-sizes (get-sizes node) (inc slot))]
+          (aset arr slot child)
+          (set-size! sizes slot end)
+          (RelaxedNode. arr sizes))
+        (let [arr (object-array 32)]
+          (acopy (get-array node) 0 arr 0 slot)
+          (aset arr slot child)
+          (make-node nil arr))))))
+
+; keeps the elements of node from start
+(defn- slice-left [am node shift start]
+  (cond
+    (zero? start)
+      node
+    (zero? shift)
+      (let [arr (get-array node)
+            new-arr (-new-array am (- (alength arr) start))]
+        (acopy arr start new-arr 0 (alength new-arr))
+        (make-node nil new-arr))
+    :else
+      (let [n (child-count node)
+            slot (child-slot node shift start)
+            child (slice-left am (aget (get-array node) slot) (- shift 5) (- start (child-offset node shift slot)))
+            children (object-array (- n slot))]
+        (aset children 0 child)
+        (acopy (get-array node) (inc slot) children 1 (- n slot 1))
+        (make-internal children shift))))
+
+; Concatenation follows L'orange, "Improving RRB-Tree Performance through
+; Transience". Two trees are joined down their facing edges, and at each
+; level the children along the seam are redistributed so that there are at
+; most two more of them than the fewest that could hold their slots.
+
+(defn- slot-count [node shift]
+  (if (zero? shift)
+    (alength (get-array node))
+    (child-count node)))
+
+(defn- add-children [nodes node from to]
+  (if (nil? node)
+    nodes
+    (loop [nodes nodes
+           k from]
+      (if (< k to)
+        (recur (conj! nodes (aget (get-array node) k)) (inc k))
+        nodes))))
+
+; the slot counts of the redistributed nodes
+(defn- concat-plan [nodes shift]
+  (let [n (count nodes)
+        counts (-new-array sizes-am n)
+        total (reduce (fn [total node] (+ total (slot-count node shift))) 0 nodes)
+        optimal (inc (quot (dec total) 32))]
+    (loop [k 0]
+      (when (< k n)
+        (set-size! counts k (slot-count (nth nodes k) shift))
+        (recur (inc k))))
+    (loop [len n]
+      (if (< (+ optimal 2) len)
+        (let [i (loop [i 0]
+                  (if (= 32 (size-at counts i))
+                    (recur (inc i))
+                    i))
+              ; spreads the slots of node i over the nodes after it
+              i (loop [r (size-at counts i)
+                       i i]
+                  (if (pos? r)
+                    (let [total (+ r (size-at counts (inc i)))
+                          c (min total 32)]
+                      (set-size! counts i c)
+                      (recur (- total c) (inc i)))
+                    i))]
+          (acopy counts (inc i) counts i (- len i 1))
+          (recur (dec len)))
+        (copy-sizes counts len)))))
+
+; Moves the slots of nodes, in order, into new nodes of the planned counts.
+; A node that already has its planned count is kept as it is.
+(defn- execute-plan [am nodes shift counts]
+  (let [n (count nodes)]
+    (loop [idx 0
+           j 0
+           k 0
+           filled 0
+           arr nil
+           out (transient (vector))]
+      (if (= idx n)
+        (persistent! out)
+        (let [node (nth nodes idx)
+              slots (slot-count node shift)]
+          (cond
+            (= j slots)
+              (recur (inc idx) 0 k filled arr out)
+            (and (zero? j) (zero? filled) (= slots (size-at counts k)))
+              (recur (inc idx) 0 (inc k) 0 nil (conj! out node))
+            :else
+              (let [target (size-at counts k)
+                    arr (or arr (if (zero? shift) (-new-array am target) (object-array target)))]
+                (acopy (get-array node) j arr filled 1)
+                (if (= (inc filled) target)
+                  (recur idx (inc j) (inc k) 0 nil
+                         (conj! out (if (zero? shift) (make-node nil arr) (make-internal arr shift))))
+                  (recur idx (inc j) k (inc filled) arr out)))))))))
+
+(defn- sub-array [v from to]
+  (let [arr (object-array (- to from))]
+    (loop [k from]
+      (when (< k to)
+        (aset arr (- k from) (nth v k))
+        (recur (inc k))))
+    arr))
+
+; Joins the children of left but its last, of middle, and of right but its
+; first, which are all at shift - 5. Returns a node at shift + 5 with one or
+; two children.
+(defn- rebalance [am left middle right shift]
+  (let [nodes (-> (transient (vector))
+                  (add-children left 0 (when left (dec (child-count left))))
+                  (add-children middle 0 (child-count middle))
+                  (add-children right 1 (when right (child-count right)))
+                  (persistent!))
+        new-nodes (execute-plan am nodes (- shift 5) (concat-plan nodes (- shift 5)))
+        n (count new-nodes)
+        top (object-array (if (<= n 32) 1 2))]
+    (aset top 0 (make-internal (sub-array new-nodes 0 (min n 32)) shift))
+    (when (> n 32)
+      (aset top 1 (make-internal (sub-array new-nodes 32 n) shift)))
+    (make-internal top (+ shift 5))))
+
+(defn- concat-sub-tree [am left left-shift right right-shift]
+  (cond
+    (> left-shift right-shift)
+      (let [middle (concat-sub-tree am (aget (get-array left) (dec (child-count left))) (- left-shift 5)
+                                    right right-shift)]
+        (rebalance am left middle nil left-shift))
+    (< left-shift right-shift)
+      (let [middle (concat-sub-tree am left left-shift
+                                    (aget (get-array right) 0) (- right-shift 5))]
+        (rebalance am nil middle right right-shift))
+    (zero? left-shift)
+      (let [arr (object-array 2)]
+        (aset arr 0 left)
+        (aset arr 1 right)
+        (make-internal arr 5))
+    :else
+      (let [middle (concat-sub-tree am (aget (get-array left) (dec (child-count left))) (- left-shift 5)
+                                    (aget (get-array right) 0) (- right-shift 5))]
+        (rebalance am left middle right left-shift))))
+
+(declare make-rrb-vector make-chunked-seq make-transient-rrb-vector EMPTY-RRB-VECTOR)
+
+(defprotocol ^:private IRRBVector
+  (leaf-start [this i]))
+
+(defn- reduce-range [v start end f init]
+  (loop [i start
+         acc init]
+    (if (< i end)
+      (let [arr (-array-for v i)
+            offset (- i (leaf-start v i))
+            stop (min end (+ i (- (alength arr) offset)))
+            acc (array-reduce arr offset (+ offset (- stop i)) f acc)]
+        (if (reduced? acc)
+          (deref acc)
+          (recur stop acc)))
+      acc)))
+
+(defn- fold-range [v start end n combinef reducef]
+  (if (<= (- end start) n)
+    (reduce-range v start end reducef (combinef))
+    (let [split (+ start (quot (- end start) 2))
+          right (fork-task (new-task #(fold-range v split end n combinef reducef)))]
+      (combinef (fold-range v start split n combinef reducef) (join-task right)))))
+
+(defseq ChunkedSeq [-vec -node -i -offset -meta]
+  IChunkedSeq
+  (-chunked-first [this]
+    (make-array-chunk -node -offset))
+
+  (-chunked-next [this]
+    (let [next-i (+ -i (alength -node))]
+      (when (< next-i (count -vec))
+        (make-chunked-seq -vec (-array-for -vec next-i) next-i 0 nil))))
+
+  (-chunked-more [this]
+    (if-let [s (-chunked-next this)]
+      s
+      EMPTY-LIST))
+
+  ICounted
+  (-count [this]
+    (- (count -vec) (+ -i -offset)))
+
+  IMeta
+  (-meta [this] -meta)
+
+  IObj
+  (-with-meta [this mta]
+    (if (= mta -meta)
+      this
+      (make-chunked-seq -vec -node -i -offset mta)))
+
+  IReduce
+  (-reduce [this f init]
+    (reduce-range -vec (+ -i -offset) (count -vec) f init))
+
+  IPersistentCollection
+  (-cons [this x]
+    (cons x this))
+
+  (-empty [this] EMPTY-LIST)
+
+  ISeq
+  (-first [this]
+    (aget -node -offset))
+
+  (-next [this]
+    (if (< (inc -offset) (alength -node))
+      (make-chunked-seq -vec -node -i (inc -offset) nil)
+      (-chunked-next this)))
+
+  (-more [this]
+    (if-let [s (next this)]
+      s
+      EMPTY-LIST)))
+
+(defn- make-chunked-seq [v node i offset mta]
+  (ChunkedSeq. v node i offset mta))
+
+(defn- vector-equals? [v other]
+  (cond
+    (identical? v other)
+      true
+    (enumerable? other)
+      (enumerable-equals? v other)
+    :else
+      (= (seq v) (seq other))))
+
+; -tail holds the last elements outside of the tree, and is empty only when
+; the vector is
+(deffn PersistentRRBVector [-meta -count -shift -root -tail -am
+                            ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
+  IRRBVector
+  (leaf-start [this i]
+    (let [tree-count (- -count (alength -tail))]
+      (if (>= i tree-count)
+        tree-count
+        (- i (leaf-index -root -shift i)))))
+
+  IPersistentCollection
+  (-cons [this x]
+    (let [tail-count (alength -tail)]
+      (if (< tail-count 32)
+        (let [new-tail (-new-array -am (inc tail-count))]
+          (acopy -tail 0 new-tail 0 tail-count)
+          (-array-set! -am new-tail tail-count x)
+          (make-rrb-vector -meta (inc -count) -shift -root new-tail -am))
+        (let [[root shift] (push-leaf-root -root -shift (make-node nil -tail))
+              new-tail (-new-array -am 1)]
+          (-array-set! -am new-tail 0 x)
+          (make-rrb-vector -meta (inc -count) shift root new-tail -am)))))
+
+  (-empty [this]
+    (with-meta (make-rrb-vector nil 0 5 EMPTY-NODE (-new-array -am 0) -am) -meta))
+
+  IPersistentStack
+  (-peek [this]
+    (when (pos? -count)
+      (-array-get -am -tail (dec (alength -tail)))))
+
+  (-pop [this]
+    (cond
+      (zero? -count)
+        (throw (new-illegal-state-error "Can't pop empty vector"))
+      (= 1 -count)
+        (empty this)
+      (> (alength -tail) 1)
+        (let [new-tail (-new-array -am (dec (alength -tail)))]
+          (acopy -tail 0 new-tail 0 (alength new-tail))
+          (make-rrb-vector -meta (dec -count) -shift -root new-tail -am))
+      :else
+        (let [popped (volatile! nil)
+              [root shift] (collapse-root (if-let [root (pop-leaf -root -shift popped)] root EMPTY-NODE) -shift)]
+          (make-rrb-vector -meta (dec -count) shift root (get-array (deref popped)) -am))))
+
+  IPersistentVector
+  (-assoc-n [this n x]
+    (let [tree-count (- -count (alength -tail))]
+      (cond
+        (and (>= n tree-count) (< n -count))
+          (let [new-tail (aclone -tail)]
+            (-array-set! -am new-tail (- n tree-count) x)
+            (make-rrb-vector -meta -count -shift -root new-tail -am))
+        (n-in-range? n -count)
+          (make-rrb-vector -meta -count -shift (tree-assoc -am -root -shift n x) -tail -am)
+        (= n -count)
+          (-cons this x)
+        :else
+          (throw (new-out-of-bounds-exception "")))))
+
+  ; the leaf that holds i, which need not start at a multiple of 32
+  (-array-for [this i]
+    (if (n-in-range? i -count)
+      (let [tree-count (- -count (alength -tail))]
+        (if (>= i tree-count)
+          -tail
+          (leaf-for -root -shift i)))
+      (throw (new-out-of-bounds-exception))))
+
+  IAssociative
+  (-assoc [this k v]
+    (if (integer? k)
+      (-assoc-n this k v)
+      (throw (new-argument-error "Key must be integer"))))
+
+  (-contains-key? [this k]
+    (if (integer? k)
+      (n-in-range? k -count)
+      false))
+
+  ICounted
+  (-count [this] -count)
+
+  IFold
+  (-fold [this n combinef reducef]
+    (invoke-in-pool #(fold-range this 0 -count n combinef reducef)))
+
+  IReduce
+  (-reduce [this f init]
+    (reduce-range this 0 -count f init))
+
+  IEditableCollection
+  (-as-transient [this]
+    (make-transient-rrb-vector -meta -count -shift -root -tail -am))
+
+  IFn
+  (-invoke [this n]
+    (if (integer? n)
+      (nth this (int n))
+      (throw (new-argument-error "Key must be integer"))))
+
+  IMeta
+  (-meta [this] -meta)
+
+  IObj
+  (-with-meta [this new-meta]
+    (PersistentRRBVector. new-meta -count -shift -root -tail -am -hash -hasheq))
+
+  ISequential
+
+  ISeqable
+  (-seq [this]
+    (when (pos? -count)
+      (make-chunked-seq this (-array-for this 0) 0 0 nil)))
+
+  IIndexed
+  (-nth [this n]
+    (if (n-in-range? n -count)
+      (let [tree-count (- -count (alength -tail))]
+        (if (>= n tree-count)
+          (-array-get -am -tail (- n tree-count))
+          (tree-nth -am -root -shift n)))
+      (throw (new-out-of-bounds-exception))))
+
+  (-nth [this n not-found]
+    (if (n-in-range? n -count)
+      (-nth this n)
+      not-found))
+
+  coll/base-collection
+  (coll/add-method [this o]
+    (throw (new-unsupported-error)))
+
+  (coll/add-all-method [this os]
+    (throw (new-unsupported-error)))
+
+  (coll/clear-method [this]
+    (throw (new-unsupported-error)))
+
+  (coll/contains?-method [this o]
+    (loop [s (seq this)]
+      (if s
+        (if (= (first s) o)
+          true
+          (recur (next s)))
+        false)))
+
+  (coll/contains-all?-method [this os]
+    (loop [o (seq os)]
+      (if o
+        (if (not (coll/contains? this (first o)))
+          false
+          (recur (next o)))
+        true)))
+
+  (coll/is-empty?-method [this]
+    (zero? -count))
+
+  (coll/remove-method [this o]
+    (throw (new-unsupported-error)))
+
+  (coll/remove-all-method [this os]
+    (throw (new-unsupported-error)))
+
+  (coll/retain-all-method [this os]
+    (throw (new-unsupported-error)))
+
+  (coll/size-method [this]
+    -count)
+
+  (coll/to-array-method [this]
+    (seq->array (seq this)))
+
+  (coll/to-array-method [this arr]
+    (seq->array (seq this) arr))
+
+  enum/base-enumerator
+  (enum/enumerable-method [this]
+    (enum/new-seq-iterator (seq this)))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
+  obj/base-object
+  (hash-code/hash-method [this]
+    (when (= -hash -1)
+      (set! -hash (seq-hash (seq this))))
+    -hash)
+
+  (equiv/equals-method [this other]
+    (vector-equals? this other)))
+
+(defn- make-rrb-vector [meta cnt shift root tail am]
+  (PersistentRRBVector. meta cnt shift root tail am -1 -1))
+
+(def EMPTY-RRB-VECTOR (make-rrb-vector nil 0 5 EMPTY-NODE (object-array 0) object-array-manager))
+
+(defn is-rrb-vector? [v]
+  (instance? PersistentRRBVector v))
+
+(defn- ensure-editable [edit]
+  (when (nil? (ref-get edit))
+    (throw (new-illegal-access-error "Transient used after persistent! call"))))
+
+; Conjoins into a 32 slot tail in place, and pushes it into the tree when it
+; fills up. Changes inside the tree copy their path.
+(deffn ^:private TransientRRBVector [-meta
+                                     -edit
+                                     ^:unsynchronized-mutable -count
+                                     ^:unsynchronized-mutable -tail-count
+                                     ^:unsynchronized-mutable -shift
+                                     ^:unsynchronized-mutable -root
+                                     ^:unsynchronized-mutable -tail
+                                     -am]
+  ICounted
+  (-count [this]
+    (ensure-editable -edit)
+    -count)
+
+  IFn
+  (-invoke [this n]
+    (if (integer? n)
+      (nth this (int n))
+      (throw (new-argument-error "Key must be integer"))))
+
+  ILookup
+  (-lookup [this k not-found]
+    (ensure-editable -edit)
+    (if (and (integer? k) (n-in-range? k -count))
+      (-nth this k)
+      not-found))
+
+  IIndexed
+  (-nth [this n]
+    (ensure-editable -edit)
+    (if (n-in-range? n -count)
+      (let [tree-count (- -count -tail-count)]
+        (if (>= n tree-count)
+          (-array-get -am -tail (- n tree-count))
+          (tree-nth -am -root -shift n)))
+      (throw (new-out-of-bounds-exception))))
+
+  (-nth [this n not-found]
+    (if (n-in-range? n (-count this))
+      (-nth this n)
+      not-found))
+
+  ITransientAssociative
+  (-assoc! [this k v]
+    (if (integer? k)
+      (-assoc-n! this k v)
+      (throw (new-argument-error "Key must be integer"))))
+
+  ITransientCollection
+  (-conj! [this x]
+    (ensure-editable -edit)
+    (when (= -tail-count 32)
+      (let [[root shift] (push-leaf-root -root -shift (make-node nil -tail))]
+        (set! -root root)
+        (set! -shift shift)
+        (set! -tail (-new-array -am 32))
+        (set! -tail-count 0)))
+    (-array-set! -am -tail -tail-count x)
+    (set! -tail-count (inc -tail-count))
+    (set! -count (inc -count))
+    this)
+
+  (-persistent [this]
+    (ensure-editable -edit)
+    (ref-set! -edit nil)
+    (let [trimmed-tail (-new-array -am -tail-count)]
+      (acopy -tail 0 trimmed-tail 0 -tail-count)
+      (make-rrb-vector -meta -count -shift -root trimmed-tail -am)))
+
+  ITransientVector
+  (-assoc-n! [this n x]
+    (ensure-editable -edit)
+    (let [tree-count (- -count -tail-count)]
+      (cond
+        (and (>= n tree-count) (< n -count))
+          (-array-set! -am -tail (- n tree-count) x)
+        (n-in-range? n -count)
+          (set! -root (tree-assoc -am -root -shift n x))
+        (= n -count)
+          (-conj! this x)
+        :else
+          (throw (new-out-of-bounds-exception))))
+    this)
+
+  (-pop! [this]
+    (ensure-editable -edit)
+    (cond
+      (zero? -count)
+        (throw (new-illegal-state-error "Can't pop empty vector"))
+      (or (> -tail-count 1) (= 1 -count))
+        (do
+          (set! -tail-count (dec -tail-count))
+          (set! -count (dec -count)))
+      :else
+        (let [popped (volatile! nil)
+              [root shift] (collapse-root (if-let [root (pop-leaf -root -shift popped)] root EMPTY-NODE) -shift)
+              leaf (get-array (deref popped))]
+          (set! -root root)
+          (set! -shift shift)
+          (set! -tail (-new-array -am 32))
+          (acopy leaf 0 -tail 0 (alength leaf))
+          (set! -tail-count (alength leaf))
+          (set! -count (dec -count))))
+    this))
+
+(defn- make-transient-rrb-vector [meta cnt shift root tail am]
+  (let [new-tail (-new-array am 32)]
+    (acopy tail 0 new-tail 0 (alength tail))
+    (TransientRRBVector. meta (new-atomic-ref (thread-reference)) cnt (alength tail) shift root new-tail am)))
+
+; An RRB vector over v. A persistent vector shares its tree, and any other
+; vector is copied.
+(defn ->rrb-vector [v]
+  (if (is-rrb-vector? v)
+    v
+    (if-let [[cnt shift root tail am] (vector-tree v)]
+      (make-rrb-vector (meta v) cnt shift root tail am)
+      (with-meta (persistent! (reduce conj! (transient EMPTY-RRB-VECTOR) v)) (meta v)))))
+
+(defn rrb-concat [a b]
+  (let [^PersistentRRBVector a (->rrb-vector a)
+        ^PersistentRRBVector b (->rrb-vector b)]
+    (cond
+      (zero? (count a))
+        b
+      (or (<= (count b) 32) (not (identical? (.-_am a) (.-_am b))))
+        (persistent! (reduce conj! (transient a) b))
+      :else
+        (let [am (.-_am a)
+              [left left-shift] (push-leaf-root (.-_root a) (.-_shift a) (make-node nil (.-_tail a)))
+              top (concat-sub-tree am left left-shift (.-_root b) (.-_shift b))
+              shift (+ (max left-shift (.-_shift b)) 5)
+              [root shift] (if (= 1 (child-count top))
+                             [(aget (get-array top) 0) (- shift 5)]
+                             [top shift])]
+          (make-rrb-vector (meta a) (+ (count a) (count b)) shift root (.-_tail b) am)))))
+
+(defn rrb-slice [^PersistentRRBVector v start end]
+  (let [am (.-_am v)
+        tail (.-_tail v)
+        tree-count (- (count v) (alength tail))
+        ; the leaf that holds end - 1 becomes the new tail
+        tail-start (if (> end tree-count) tree-count (leaf-start v (dec end)))
+        leaf (-array-for v (dec end))
+        new-tail (-new-array am (- end (max start tail-start)))
+        _ (acopy leaf (- (max start tail-start) tail-start) new-tail 0 (alength new-tail))
+        [root shift] (if (< start tail-start)
+                       (collapse-root (slice-left am (slice-right (.-_root v) (.-_shift v) tail-start)
+                                                  (.-_shift v) start)
+                                      (.-_shift v))
+                       [EMPTY-NODE 5])]
+    (make-rrb-vector (meta v) (- end start) shift root new-tail am)))
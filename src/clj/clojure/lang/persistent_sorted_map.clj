@@ -1,21 +1,25 @@
 (ns clojure.lang.persistent-sorted-map
-  (:refer-clojure :only [cond declare defn defn- defprotocol format if-let let loop])
+  (:refer-clojure :only [cond declare defn defn- defprotocol format if-let let loop when])
   (:require [clojure.lang
               [afn             :refer [deffn]]
               [apersistent-map :refer [map-cons map-equals? map-hash]]
               [aseq            :refer [defseq]]
+              [atomic-ref      :refer [new-atomic-ref ref-get ref-set!]]
               [deftype         :refer [deftype]]
               [enumerable      :as    enum]
               [equivalence     :as    equiv]
-              [exceptions      :refer [new-argument-error new-unsupported-error]]
+              [exceptions      :refer [new-argument-error new-illegal-access-error new-unsupported-error]]
               [hash            :as    hash-code]
+              [key-value       :refer [platform-map-entry-type]]
               [map-entry       :refer [new-map-entry]]
               [object          :as    obj]
               [persistent-list :refer [EMPTY-LIST]]
-              [protocols       :refer [ICounted ILookup IMeta IObj IFn
+              [thread          :refer [thread-reference]]
+              [protocols       :refer [ICounted IEditableCollection ILookup IHash IMeta IObj IFn
                                        IAssociative IPersistentCollection IPersistentMap
-                                       ISeq ISeqable ISequential ISorted
-                                       -lookup]]]
+                                       IReduce ISeq ISeqable ISequential ISorted
+                                       ITransientAssociative ITransientCollection ITransientMap
+                                       -assoc! -lookup]]]
             [clojure.next :refer :all]))
 
 (declare red-node?)
@@ -47,7 +51,16 @@
   (-balance-right [this parent-node])
   (-blacken [this])
   (-redden [this])
-  (-replace [this entry left right]))
+  (-replace [this entry left right])
+  (-ensure-editable [this edit]))
+
+(defprotocol ^:private EditableSortedNode
+  (-set-color! [this color])
+  (-set-entry! [this entry])
+  (-set-left! [this node])
+  (-set-right! [this node]))
+
+(declare make-edit-node)
 
 (deftype SortedBlackNode ^:private
   [-map-entry]
@@ -73,7 +86,9 @@
   (-redden [this]
     (make-sorted-red-node -map-entry))
   (-replace [this entry left right]
-    (make-black-node entry left right)))
+    (make-black-node entry left right))
+  (-ensure-editable [this edit]
+    (make-edit-node edit this)))
 
 (deftype SortedBlackBranch ^:private
   [-map-entry -left-node -right-node]
@@ -99,7 +114,9 @@
   (-redden [this]
     (make-sorted-red-branch -map-entry -left-node -right-node))
   (-replace [this entry left right]
-    (make-black-node entry left right)))
+    (make-black-node entry left right))
+  (-ensure-editable [this edit]
+    (make-edit-node edit this)))
 
 (deftype SortedRedNode ^:private
   [-map-entry]
@@ -126,7 +143,9 @@
   (-redden [this]
     (throw (new-unsupported-error "Invariant Violation")))
   (-replace [this entry left right]
-    (make-red-node entry left right)))
+    (make-red-node entry left right))
+  (-ensure-editable [this edit]
+    (make-edit-node edit this)))
 
 (deftype SortedRedBranch ^:private
   [-map-entry -left-node -right-node]
@@ -171,17 +190,79 @@
   (-redden [this]
     (throw (new-unsupported-error "Invariant Violation")))
   (-replace [this entry left right]
-    (make-red-node entry left right)))
+    (make-red-node entry left right))
+  (-ensure-editable [this edit]
+    (make-edit-node edit this)))
+
+(declare persistent-node)
+
+; A node owned by a transient, which changes it in place while -edit is
+; its edit. Everything else treats it as the red or black node it
+; stands for.
+(deftype SortedEditNode ^:private
+  [-edit
+   ^:unsynchronized-mutable -node-color
+   ^:unsynchronized-mutable -map-entry
+   ^:unsynchronized-mutable -left-node
+   ^:unsynchronized-mutable -right-node]
+
+  SortedNode
+  (-color [this] -node-color)
+  (-entry [this] -map-entry)
+  (-left [this] -left-node)
+  (-right [this] -right-node)
+  (-add-left [this node]
+    (-add-left (persistent-node this) node))
+  (-add-right [this node]
+    (-add-right (persistent-node this) node))
+  (-remove-left [this node]
+    (-remove-left (persistent-node this) node))
+  (-remove-right [this node]
+    (-remove-right (persistent-node this) node))
+  (-balance-left [this node]
+    (-balance-left (persistent-node this) node))
+  (-balance-right [this node]
+    (-balance-right (persistent-node this) node))
+  (-blacken [this]
+    (-blacken (persistent-node this)))
+  (-redden [this]
+    (-redden (persistent-node this)))
+  (-replace [this entry left right]
+    (-replace (persistent-node this) entry left right))
+  (-ensure-editable [this edit]
+    (if (identical? edit -edit)
+      this
+      (make-edit-node edit this)))
+
+  EditableSortedNode
+  (-set-color! [this color]
+    (set! -node-color color)
+    this)
+  (-set-entry! [this entry]
+    (set! -map-entry entry)
+    this)
+  (-set-left! [this node]
+    (set! -left-node node)
+    this)
+  (-set-right! [this node]
+    (set! -right-node node)
+    this))
+
+(defn- make-edit-node [edit node]
+  (SortedEditNode. edit (-color node) (-entry node) (-left node) (-right node)))
+
+(defn- new-edit-node [edit map-entry]
+  (SortedEditNode. edit :red map-entry nil nil))
 
 (defn- red-node? [node]
   (and
     (not (nil? node))
-    (= :red (-color node))))
+    (identical? :red (-color node))))
 
 (defn- black-node? [node]
   (and
     (not (nil? node))
-    (= :black (-color node))))
+    (identical? :black (-color node))))
 
 (defn- make-sorted-red-node [-map-entry]
   (SortedRedNode. -map-entry))
@@ -205,6 +286,11 @@
     (make-sorted-red-node -map-entry)
     (make-sorted-red-branch -map-entry left right)))
 
+(defn- persistent-node [node]
+  (if (red-node? node)
+    (make-red-node (-entry node) (-left node) (-right node))
+    (make-black-node (-entry node) (-left node) (-right node))))
+
 (defn- left-balance [-map-entry ins right]
   (cond
     (and (red-node? ins) (red-node? (-left ins)))
@@ -343,6 +429,85 @@
       [node 1]
       [root 0])))
 
+; In place insertion for transients. An owned child comes back as itself
+; even when a key was added below it, so the path is rebalanced whenever
+; added is set. A red node with a red child only ever appears on that
+; path, so the nodes rotated are already owned by the edit; the
+; -ensure-editable calls only guard that.
+(defn- edit-balance-left [node edit]
+  (let [l (-left node)]
+    (cond
+      (or (red-node? node) (not (red-node? l)))
+        node
+      (red-node? (-left l))
+        (let [l (-ensure-editable l edit)]
+          (-set-left! node (-right l))
+          (-set-right! l node)
+          (-set-left! l (-set-color! (-ensure-editable (-left l) edit) :black))
+          l)
+      (red-node? (-right l))
+        (let [l (-ensure-editable l edit)
+              lr (-ensure-editable (-right l) edit)]
+          (-set-right! l (-left lr))
+          (-set-left! node (-right lr))
+          (-set-left! lr (-set-color! l :black))
+          (-set-right! lr node)
+          lr)
+      :else
+        node)))
+
+(defn- edit-balance-right [node edit]
+  (let [r (-right node)]
+    (cond
+      (or (red-node? node) (not (red-node? r)))
+        node
+      (red-node? (-right r))
+        (let [r (-ensure-editable r edit)]
+          (-set-right! node (-left r))
+          (-set-left! r node)
+          (-set-right! r (-set-color! (-ensure-editable (-right r) edit) :black))
+          r)
+      (red-node? (-left r))
+        (let [r (-ensure-editable r edit)
+              rl (-ensure-editable (-left r) edit)]
+          (-set-left! r (-right rl))
+          (-set-right! node (-left rl))
+          (-set-right! rl (-set-color! r :black))
+          (-set-left! rl node)
+          rl)
+      :else
+        node)))
+
+(defn- edit-add [node edit compare-fn k v added]
+  (if (nil? node)
+    (do
+      (vreset! added true)
+      (new-edit-node edit (new-map-entry k v)))
+    (let [comparison (compare-fn k (key (-entry node)))]
+      (cond
+        (zero? comparison)
+          (if (= v (val (-entry node)))
+            node
+            (-set-entry! (-ensure-editable node edit) (new-map-entry (key (-entry node)) v)))
+        (< comparison 0)
+          (let [child (-left node)
+                ins (edit-add child edit compare-fn k v added)]
+            (if (and (identical? ins child) (not (deref added)))
+              node
+              (edit-balance-left (-set-left! (-ensure-editable node edit) ins) edit)))
+        :else
+          (let [child (-right node)
+                ins (edit-add child edit compare-fn k v added)]
+            (if (and (identical? ins child) (not (deref added)))
+              node
+              (edit-balance-right (-set-right! (-ensure-editable node edit) ins) edit)))))))
+
+(defn- sorted-map-assoc! [root edit compare-fn k v added]
+  (let [node (edit-add root edit compare-fn k v added)]
+    (if (red-node? node)
+      (-set-color! (-ensure-editable node edit) :black)
+      node)))
+
 (defn- sorted-map-includes? [node compare-fn k]
   (if (nil? node)
     false
@@ -373,12 +538,47 @@
             (> comparison 0)
               (recur (-right node) false))))))
 
+; A red black tree with a count that fits in an int is at most 62 nodes
+; deep, so the in-order walk keeps its path in a fixed array.
+(def ^:private MAX-DEPTH 64)
+
+(defn- tree-reduce [root f init]
+  (let [stack (object-array MAX-DEPTH)]
+    (loop [node root
+           depth 0
+           acc init]
+      (cond
+        (not (nil? node))
+          (do
+            (aset stack depth node)
+            (recur (-left node) (inc depth) acc))
+        (zero? depth)
+          acc
+        :else
+          (let [node (aget stack (dec depth))
+                acc (f acc (-entry node))]
+            (if (reduced? acc)
+              (deref acc)
+              (recur (-right node) (dec depth) acc)))))))
+
 (declare make-seq-stack)
 (declare make-sorted-map-seq)
 
-(defseq PersistentSortedMapSeq [-stack -count]
+(defn- count-seq [s]
+  (loop [s s
+         cnt 0]
+    (if s
+      (recur (next s) (inc cnt))
+      cnt)))
+
+; -stack holds the path of nodes still to visit, nearest first. A seq that
+; starts part way through the map does not know its count.
+(defseq PersistentSortedMapSeq [-stack -asc? -count]
   ICounted
-  (-count [this] -count)
+  (-count [this]
+    (if (nil? -count)
+      (count-seq this)
+      -count))
 
   ISeq
   (-first [this]
@@ -386,27 +586,48 @@
 
   (-next [this]
     (let [node (first -stack)
-          next-stack (make-seq-stack (-right node) (next -stack))]
-      (make-sorted-map-seq next-stack (dec -count))))
+          next-stack (make-seq-stack (if -asc? (-right node) (-left node)) (next -stack) -asc?)]
+      (make-sorted-map-seq next-stack -asc? (when -count (dec -count)))))
 
   (-more [this]
     (if-let [s (next this)] s EMPTY-LIST))
 
   )
 
-(defn- make-seq-stack [tree stack]
+(defn- make-seq-stack [tree stack asc?]
   (if (nil? tree)
     stack
-    (recur (-left tree) (cons tree stack))))
+    (recur (if asc? (-left tree) (-right tree)) (cons tree stack) asc?)))
 
-(defn- make-sorted-map-seq [stack cnt]
+(defn- make-sorted-map-seq [stack asc? cnt]
   (if (nil? (first stack))
     nil
-    (PersistentSortedMapSeq. stack cnt)))
-
-(declare EMPTY-SORTED-MAP)
-
-(deffn PersistentTreeMap [-root -count -comparator -meta] ; PersistentTreeMap is the clojure class name
+    (PersistentSortedMapSeq. stack asc? cnt)))
+
+; walks down to k, keeping the nodes an ascending (or descending) seq from
+; k would visit next
+(defn- seq-from-stack [root compare-fn k asc?]
+  (loop [node root
+         stack nil]
+    (if (nil? node)
+      stack
+      (let [c (compare-fn k (key (-entry node)))]
+        (cond
+          (zero? c)
+            (cons node stack)
+          asc?
+            (if (neg? c)
+              (recur (-left node) (cons node stack))
+              (recur (-right node) stack))
+          :else
+            (if (pos? c)
+              (recur (-right node) (cons node stack))
+              (recur (-left node) stack)))))))
+
+(declare EMPTY-SORTED-MAP
+         make-transient-sorted-map)
+
+(deffn PersistentTreeMap [-root -count -comparator -meta ^:unsynchronized-mutable -hasheq] ; PersistentTreeMap is the clojure class name
   IAssociative
   (-assoc [this k v]
     (let [[tree cnt] (sorted-map-assoc -root -comparator k v)]
@@ -420,6 +641,10 @@
   ICounted
   (-count [this] -count)
 
+  IEditableCollection
+  (-as-transient [this]
+    (make-transient-sorted-map -root -count -comparator))
+
   IFn
   (-invoke [this k]
     (-lookup this k nil))
@@ -436,7 +661,7 @@
 
   IObj
   (-with-meta [this m]
-    (new-sorted-map -root -count -comparator m))
+    (PersistentTreeMap. -root -count -comparator m -hasheq))
 
   IPersistentCollection
   (-cons [this o]
@@ -452,42 +677,166 @@
         this
         (new-sorted-map tree (- -count cnt) -comparator -meta))))
 
+  IReduce
+  (-reduce [this f init]
+    (tree-reduce -root f init))
+
   ISeqable
   (-seq [this]
-    (make-sorted-map-seq (make-seq-stack -root nil) -count))
+    (make-sorted-map-seq (make-seq-stack -root nil true) true -count))
 
   obj/base-object
   (equiv/equals-method [this other]
     (map-equals? this other))
 
   (hash-code/hash-method [this]
-    (map-hash this))
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
 
   enum/base-enumerator
   (enum/enumerable-method [this]
     (enum/new-seq-iterator (seq this)))
 
-  ISorted)
+  ISorted
+  (-comparator [this] -comparator)
+
+  (-entry-key [this entry]
+    (key entry))
+
+  (-sorted-seq [this ascending?]
+    (make-sorted-map-seq (make-seq-stack -root nil ascending?) ascending? -count))
+
+  (-sorted-seq-from [this k ascending?]
+    (make-sorted-map-seq (seq-from-stack -root -comparator k ascending?) ascending? nil)))
 
 (defn- new-sorted-map [root cnt compare-fn mta]
-  (PersistentTreeMap. root cnt compare-fn mta))
+  (PersistentTreeMap. root cnt compare-fn mta -1))
 
 (def EMPTY-SORTED-MAP (new-sorted-map nil 0 compare nil))
 
+(defn- ensure-editable [edit]
+  (when (nil? (ref-get edit))
+    (throw (new-illegal-access-error "Transient used after persistent! call"))))
+
+(deftype TransientTreeMap [-edit
+                           ^:volatile-mutable -root
+                           ^:volatile-mutable -count
+                           -comparator
+                           -added]
+
+  ICounted
+  (-count [this]
+    (ensure-editable -edit)
+    -count)
+
+  ILookup
+  (-lookup [this k not-found]
+    (ensure-editable -edit)
+    (sorted-map-lookup -root -comparator k not-found))
+
+  ITransientAssociative
+  (-assoc! [this k v]
+    (ensure-editable -edit)
+    (vreset! -added false)
+    (let [node (sorted-map-assoc! -root -edit -comparator k v -added)]
+      (when (not (identical? node -root))
+        (set! -root node))
+      (when (deref -added)
+        (set! -count (inc -count))))
+    this)
+
+  ITransientCollection
+  (-conj! [this o]
+    (ensure-editable -edit)
+    (cond
+      (instance? platform-map-entry-type o)
+        (-assoc! this (key o) (val o))
+      (vector? o)
+        (if (= (count o) 2)
+          (-assoc! this (nth o 0) (nth o 1))
+          (throw (new-argument-error "Vector arg to map conj must be a pair")))
+      :else
+        (loop [s (seq o)]
+          (if s
+            (let [entry (first s)]
+              (-assoc! this (key entry) (val entry))
+              (recur (next s)))
+            this))))
+
+  (-persistent [this]
+    (ensure-editable -edit)
+    (ref-set! -edit nil)
+    (new-sorted-map -root -count -comparator nil))
+
+  ; removal copies the path as the persistent map does, the nodes it
+  ; leaves in place stay owned by this transient
+  ITransientMap
+  (-dissoc! [this k]
+    (ensure-editable -edit)
+    (let [[tree cnt] (sorted-map-dissoc -root -comparator k)]
+      (when (not (identical? tree -root))
+        (set! -root tree)
+        (set! -count (- -count cnt))))
+    this))
+
+(defn- make-transient-sorted-map [root cnt compare-fn]
+  (TransientTreeMap. (new-atomic-ref (thread-reference)) root cnt compare-fn (volatile! false)))
+
+; The entries of args as an array, or nil as soon as a key does not sort
+; strictly after the one before it.
+(defn- ascending-entries [compare-fn args n]
+  (let [entries (object-array n)]
+    (loop [kvs args
+           i 0
+           prev nil]
+      (if (= i n)
+        entries
+        (let [k (first kvs)]
+          (when (or (nil? prev) (neg? (compare-fn (key prev) k)))
+            (let [entry (new-map-entry k (second kvs))]
+              (aset entries i entry)
+              (recur (nnext kvs) (inc i) entry))))))))
+
+; the depth of the first level a balanced tree of n nodes does not fill
+(defn- full-levels [n]
+  (loop [depth 0
+         width 1]
+    (if (<= width n)
+      (recur (clojure.core/unchecked-inc depth)
+             (clojure.core/unchecked-inc (clojure.core/unchecked-add width width)))
+      depth)))
+
+; Splitting at the middle fills every level but the last, so coloring the
+; nodes on that level red and the rest black gives a valid tree without
+; any rebalancing.
+(defn- build-balanced [entries lo hi depth red-depth]
+  (when (< lo hi)
+    (let [mid (+ lo (quot (- hi lo) 2))
+          left (build-balanced entries lo mid (inc depth) red-depth)
+          right (build-balanced entries (inc mid) hi (inc depth) red-depth)]
+      (if (= depth red-depth)
+        (make-red-node (aget entries mid) left right)
+        (make-black-node (aget entries mid) left right)))))
+
+; Keys given in ascending order are built into a balanced tree in one
+; pass, anything else is added one pair at a time to a transient.
 (defn make-sorted-map [compare-fn args]
   (let [arg-count (count args)]
     (if (even? arg-count)
-      (let [empty-sorted-map (new-sorted-map nil 0 compare-fn nil)]
-        (loop [kvs args
-               -sorted-map empty-sorted-map]
-          (if (empty? kvs)
-            -sorted-map
-            (let [k (first kvs)
-                  v (second kvs)]
-              (recur
-                (rest (next kvs))
-                (assoc -sorted-map k v))))))
+      (let [n (quot arg-count 2)
+            entries (ascending-entries compare-fn args n)]
+        (if entries
+          (new-sorted-map (build-balanced entries 0 n 0 (full-levels n)) n compare-fn nil)
+          (loop [kvs args
+                 t (make-transient-sorted-map nil 0 compare-fn)]
+            (if (empty? kvs)
+              (persistent! t)
+              (recur (nnext kvs) (assoc! t (first kvs) (second kvs)))))))
       (throw (new-argument-error
                (format "PersistentTreeMap can only be created with even number of arguments: %s arguments given"
                 arg-count))))))
-
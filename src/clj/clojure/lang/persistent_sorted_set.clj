@@ -1,5 +1,5 @@
 (ns clojure.lang.persistent-sorted-set
-  (:refer-clojure :only [apply declare defn fn])
+  (:refer-clojure :only [apply declare defn fn let when])
   (:require [clojure.lang
               [afn             :refer [deffn]]
               [apersistent-set :refer [defset]]
@@ -14,8 +14,66 @@
 (declare make-sorted-set
          make-transient-sorted-set)
 
-(defset PersistentSortedSet make-sorted-set clojure.lang.protocols.ISorted)
+(defset PersistentSortedSet make-sorted-set
+  clojure.lang.protocols.IEditableCollection
+  (-as-transient [this]
+    (clojure.lang.persistent-sorted-set/make-transient-sorted-set (transient -map)))
+
+  clojure.lang.protocols.ISorted
+  (-comparator [this]
+    (-comparator -map))
+
+  (-entry-key [this entry] entry)
+
+  (-sorted-seq [this ascending?]
+    (keys (-sorted-seq -map ascending?)))
+
+  (-sorted-seq-from [this k ascending?]
+    (keys (-sorted-seq-from -map k ascending?))))
 
 (defn make-sorted-set [m]
-  (PersistentSortedSet. m))
+  (PersistentSortedSet. m -1))
+
+
+(deffn TransientSortedSet [^:unsynchronized-mutable -map]
+  ICounted
+  (-count [this]
+    (count -map))
+
+  IFn
+  (-invoke [this x]
+    (get -map x))
+
+  (-invoke [this x not-found]
+    (get -map x not-found))
+
+  ILookup
+  (-lookup [this x]
+    (get -map x))
+
+  (-lookup [this x not-found]
+    (get -map x not-found))
+
+  IPersistentSet
+  (-contains? [this x]
+    (not= this (get -map x this)))
+
+  ITransientCollection
+  (-conj! [this x]
+    (let [m (assoc! -map x x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this)
+
+  (-persistent [this]
+    (make-sorted-set (persistent! -map)))
+
+  ITransientSet
+  (-disj! [this x]
+    (let [m (dissoc! -map x)]
+      (when (not= m -map)
+        (set! -map m)))
+    this))
 
+(defn make-transient-sorted-set [m]
+  (TransientSortedSet. m))
@@ -13,7 +13,7 @@
               [persistent-hash-map :refer [EMPTY-HASH-MAP]]
               [persistent-list     :refer [EMPTY-LIST]]
               [protocols           :refer [-get-keys -get-keyslots
-                                           IAssociative ICounted IDef ILookup
+                                           IAssociative ICounted IDef IHash ILookup
                                            IMeta IObj IPersistentCollection
                                            IPersistentMap ISeq ISeqable ISequential]]]
             [clojure.next :refer :all]))
@@ -66,7 +66,7 @@
 (defn- make-struct-map-seq [-i -keys -vals -ext -meta]
   (PersistentStructMapSeq. -i -keys -vals -ext -meta))
 
-(deftype PersistentStructMap [-def -vals -ext -meta]
+(deftype PersistentStructMap [-def -vals -ext -meta ^:unsynchronized-mutable -hasheq]
   IAssociative
   (-assoc [this k v]
     (let [sentinel (obj/new-base-object)
@@ -102,7 +102,7 @@
   (-with-meta [this m]
     (if (= -meta m)
       this
-      (make-struct-map -def -vals -ext m)))
+      (PersistentStructMap. -def -vals -ext m -hasheq)))
 
   IPersistentCollection
   (-cons [this o]
@@ -130,12 +130,18 @@
     (map-equals? this other))
 
   (hash-code/hash-method [this]
-    (map-hash this))
+    (hash this))
+
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (map-hash this)))
+    -hasheq)
 
   enum/base-enumerator
   (enum/enumerable-method [this]
     (enum/new-seq-iterator (seq this))))
 
 (defn make-struct-map [-def -vals -ext -meta]
-  (PersistentStructMap. -def -vals -ext -meta))
+  (PersistentStructMap. -def -vals -ext -meta -1))
 
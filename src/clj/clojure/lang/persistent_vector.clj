@@ -5,7 +5,8 @@
               [afn             :refer [deffn]]
               [array           :refer [EMPTY-ARRAY]]
               [array-chunk     :refer [make-array-chunk]]
-              [aseq            :refer [defseq seq->array seq-hash]]
+              [array-manager   :refer [array-manager array-reduce object-array-manager]]
+              [aseq            :refer [defseq seq->array seq-hash seq-hasheq]]
               [collection      :as    coll]
               [deftype         :refer [deftype]]
               [enumerable      :refer [enumerable? enumerable-equals?] :as enum]
@@ -13,15 +14,17 @@
               [exceptions      :refer [new-argument-error new-out-of-bounds-exception
                                        new-illegal-access-error new-illegal-state-error
                                        new-unsupported-error]]
+              [fork-join       :refer [new-task fork-task join-task invoke-in-pool]]
               [hash            :as    hash-code]
               [hash-map        :refer [->bitnum bit-shift-left unsigned-bit-shift-right]]
               [numbers         :refer [->int platform-long platform-big-int platform-big-integer]]
               [object          :as    obj]
               [persistent-list :refer [EMPTY-LIST]]
               [protocols       :refer [-as-transient -assoc-n -assoc-n! -array-for
-                                       -conj! -count -persistent -lookup -nth
+                                       -conj! -count -fold -persistent -lookup -nth -reduce
+                                       -new-array -array-get -array-set!
                                        -chunked-first -chunked-next -chunked-more
-                                       IAssociative ICounted IEditableCollection IMeta IObj ILookup
+                                       IAssociative ICounted IEditableCollection IFold IHash IMeta IObj ILookup IReduce
                                        IPersistentCollection IPersistentVector IPersistentStack
                                        ITransientAssociative ITransientCollection ITransientVector
                                        IChunkedSeq ISeq ISeqable ISequential IIndexed]]
@@ -30,6 +33,7 @@
 (coll/import-collection-type)
 
 (declare make-chunked-seq)
+(declare reduce-range)
 
 (declare EMPTY-VECTOR)
 (declare EMPTY-NODE)
@@ -68,6 +72,10 @@
       this
       (make-chunked-seq -vec -node -i -offset mta)))
 
+  IReduce
+  (-reduce [this f init]
+    (reduce-range -vec (+ -i -offset) (count -vec) init f))
+
   IPersistentCollection
   (-cons [this x]
     (cons x this))
@@ -111,6 +119,17 @@
   (-with-meta [this m]
     (make-vector-seq -v -i m))
 
+  IReduce
+  (-reduce [this f init]
+    (loop [i -i
+           acc init]
+      (if (< i (count -v))
+        (let [acc (f acc (nth -v i))]
+          (if (reduced? acc)
+            (deref acc)
+            (recur (inc i) acc)))
+        acc)))
+
   ISeq
   (-first [this]
     (nth -v -i))
@@ -139,7 +158,29 @@
     :else
       (= (seq v) (seq other))))
 
-(deffn SubVector [-v -start -end -meta ^:unsynchronized-mutable -hash]
+(defn- reduce-range [v start end init f]
+  (loop [i start
+         acc init]
+    (if (< i end)
+      (let [arr (-array-for v i)
+            offset (bit-and (->bitnum i) (->bitnum 0x01f))
+            stop (min end (+ (- i offset) 32))
+            acc (array-reduce arr offset (+ offset (- stop i)) f acc)]
+        (if (reduced? acc)
+          (deref acc)
+          (recur stop acc)))
+      acc)))
+
+; splits the range in half until it is at most n long, then reduces each
+; part a leaf array at a time
+(defn- fold-range [v start end n combinef reducef]
+  (if (<= (- end start) n)
+    (reduce-range v start end (combinef) reducef)
+    (let [split (+ start (quot (- end start) 2))
+          right (fork-task (new-task #(fold-range v split end n combinef reducef)))]
+      (combinef (fold-range v start split n combinef reducef) (join-task right)))))
+
+(deffn SubVector [-v -start -end -meta ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   IAssociative
   (-assoc [this k v]
     (if (integer? k)
@@ -155,6 +196,14 @@
   (-count [this]
     (- -end -start))
 
+  IFold
+  (-fold [this n combinef reducef]
+    (invoke-in-pool #(fold-range -v -start -end n combinef reducef)))
+
+  IReduce
+  (-reduce [this f init]
+    (reduce-range -v -start -end init f))
+
   IFn
   (-invoke [this n]
     (if (is-integer? n)
@@ -179,7 +228,7 @@
   (-with-meta [this m]
     (if (= m -meta)
       this
-      (make-subvec -v -start -end m)))
+      (SubVector. -v -start -end m -hash -hasheq)))
 
   IPersistentCollection
   (-cons [this x]
@@ -271,6 +320,12 @@
   (enum/enumerable-method [this]
     (enum/new-ranged-iterator this -start -end))
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (hash-code/hash-method [this]
     (when (= -hash -1)
@@ -285,20 +340,21 @@
     (let [v (.vector v)
           s (+ start (.start v))
           e (+ end (.end v))]
-      (SubVector. v s e mta -1))
-    (SubVector. v start end mta -1)))
+      (SubVector. v s e mta -1 -1))
+    (SubVector. v start end mta -1 -1)))
 
-(defprotocol ^:private INode
+; Nodes are shared with the RRB vectors, whose regular nodes are these.
+(defprotocol INode
   (get-array [this])
   (get-edit [this]))
 
-(deftype ^:private Node [-edit -arr]
+(deftype Node [-edit -arr]
   INode
   (get-array [this] -arr)
 
   (get-edit [this] -edit))
 
-(defn- make-node
+(defn make-node
   ([edit arr]
    (Node. edit arr))
   ([edit]
@@ -346,14 +402,14 @@
           (aset (get-array ret) subidx nil)
           ret))))
 
-(defn- do-assoc [level node n x]
+(defn- do-assoc [am level node n x]
   (let [new-node (make-node (get-edit node) (aclone (get-array node)))]
     (if (= level 0)
       (do
-        (aset (get-array new-node) (bit-and (->bitnum n) (->bitnum 0x01f)) x)
+        (-array-set! am (get-array new-node) (bit-and (->bitnum n) (->bitnum 0x01f)) x)
         new-node)
       (let [subidx (bit-and (unsigned-bit-shift-right (->bitnum n) (->bitnum level)) (->bitnum 0x01f))]
-        (aset (get-array new-node) subidx (do-assoc (- level 5) (aget (get-array node) subidx) n x))
+        (aset (get-array new-node) subidx (do-assoc am (- level 5) (aget (get-array node) subidx) n x))
         new-node))))
 
 (defn- array-for [i length tail root shift]
@@ -362,12 +418,11 @@
       tail
       (loop [node root
              level shift]
-        (let [l (- level 5)]
-          (if (> 0 l)
-            (recur
-              (aget (get-array node) (bit-and (unsigned-bit-shift-right (->bitnum i) (->bitnum l)) (->bitnum 0x01f)))
-              l)
-            (get-array node)))))
+        (if (> level 0)
+          (recur
+            (aget (get-array node) (bit-and (unsigned-bit-shift-right (->bitnum i) (->bitnum level)) (->bitnum 0x01f)))
+            (- level 5))
+          (get-array node))))
     (throw (new-out-of-bounds-exception))))
 
 (defn- ensure-editable
@@ -381,7 +436,7 @@
 
 (defn- editable-array-for [i length tail root shift]
   (if (and (>= i 0) (< i length))
-    (if (> i (tailoff length))
+    (if (>= i (tailoff length))
       tail
       (loop [level shift
              node root]
@@ -395,11 +450,13 @@
 (declare make-vector)
 (declare make-transient-vec)
 
+; -am is the array manager of the leaf arrays, see clojure.lang.array-manager
 (deffn ^:private TransientVector [-meta
                                     ^:unsynchronized-mutable -length
                                     ^:unsynchronized-mutable -shift
                                     ^:unsynchronized-mutable -root
-                                    ^:unsynchronized-mutable -tail]
+                                    ^:unsynchronized-mutable -tail
+                                    -am]
   ICounted
   (-count [this]
     (ensure-editable -root)
@@ -425,7 +482,7 @@
   (-nth [this n]
     (ensure-editable -root)
     (let [node (array-for n -length -tail -root -shift)]
-      (aget node (bit-and (->bitnum n) (->bitnum 0x01f)))))
+      (-array-get -am node (bit-and (->bitnum n) (->bitnum 0x01f)))))
 
   (-nth [this n not-found]
     (if (and (>= n 0) (< n (-count this)))
@@ -443,12 +500,12 @@
     (ensure-editable -root)
     (if (< (- (->bitnum -length) (->bitnum (tailoff -length))) 32)
       (do
-        (aset -tail (bit-and (->bitnum -length) (->bitnum 0x01f)) x)
+        (-array-set! -am -tail (bit-and (->bitnum -length) (->bitnum 0x01f)) x)
         (set! -length (inc -length))
         this)
       (let [tail-node (make-node (get-edit -root) -tail)
-            new-tail (object-array 32)]
-        (aset new-tail 0 x)
+            new-tail (-new-array -am 32)]
+        (-array-set! -am new-tail 0 x)
         (if (> (unsigned-bit-shift-right (->bitnum -length) (->bitnum 5)) (bit-shift-left (->bitnum 1) (->bitnum -shift)))
           (let [new-root (make-node (get-edit -root))]
             (aset (get-array new-root) 0 -root)
@@ -467,17 +524,17 @@
   (-persistent [this]
     (ensure-editable -root)
     (set! -root (make-node nil (get-array -root)))
-    (let [trimmed-tail (object-array (- (->bitnum -length) (->bitnum (tailoff -length))))]
+    (let [trimmed-tail (-new-array -am (- (->bitnum -length) (->bitnum (tailoff -length))))]
       (acopy -tail 0 trimmed-tail 0 (alength trimmed-tail))
-      (make-vector -meta -length -shift -root trimmed-tail)))
+      (make-vector -meta -length -shift -root trimmed-tail -am)))
 
   ITransientVector
   (-assoc-n! [this index value]
     (ensure-editable -root)
     (if (and (>= index 0) (< index -length))
       (if (>= index (tailoff -length))
-        (do (aset -tail (bit-and (->bitnum index) (->bitnum 0x01f)) value) this)
-        (do (set! -root (do-assoc -shift -root index value)) this))
+        (do (-array-set! -am -tail (bit-and (->bitnum index) (->bitnum 0x01f)) value) this)
+        (do (set! -root (do-assoc -am -shift -root index value)) this))
       (if (= index -length)
         (do (-conj! this value) this)
         (throw (new-out-of-bounds-exception)))))
@@ -513,36 +570,39 @@
 (defn- editable-root [root]
   (make-node (thread-reference) (aclone (get-array root))))
 
-(defn- editable-tail [tail]
-  (let [new-arr (object-array 32)]
+(defn- editable-tail [am tail]
+  (let [new-arr (-new-array am 32)]
     (acopy tail 0 new-arr 0 (alength tail))
     new-arr))
 
-(defn- make-transient-vec [meta length shift root tail]
-  (TransientVector. meta length shift (editable-root root) (editable-tail tail)))
+(defn- make-transient-vec [meta length shift root tail am]
+  (TransientVector. meta length shift (editable-root root) (editable-tail am tail) am))
 
-(deffn PersistentVector [-meta -length -shift -root -tail ^:unsynchronized-mutable -hash]
+(declare empty-vector)
+
+; -am is the array manager of the leaf arrays, see clojure.lang.array-manager
+(deffn PersistentVector [-meta -length -shift -root -tail -am ^:unsynchronized-mutable -hash ^:unsynchronized-mutable -hasheq]
   IPersistentCollection
   (-cons [this x]
     (if (< (- (->bitnum -length) (->bitnum (tailoff -length))) 32)
       (let [tail-length (alength -tail)
-            new-tail (object-array (inc tail-length))]
+            new-tail (-new-array -am (inc tail-length))]
         (acopy -tail 0 new-tail 0 tail-length)
-        (aset new-tail tail-length x)
-        (make-vector -meta (inc -length) -shift -root new-tail))
+        (-array-set! -am new-tail tail-length x)
+        (make-vector -meta (inc -length) -shift -root new-tail -am))
       (let [tail-node (make-node (get-edit -root) -tail)
-            new-arr (object-array 1)]
-        (aset new-arr 0 x)
+            new-arr (-new-array -am 1)]
+        (-array-set! -am new-arr 0 x)
         (if (> (unsigned-bit-shift-right (->bitnum -length) (->bitnum 5)) (bit-shift-left (->bitnum 1) (->bitnum -shift)))
           (let [new-root (make-node (get-edit -root))]
             (aset (get-array new-root) 0 -root)
             (aset (get-array new-root) 1 (new-path (get-edit -root) -shift tail-node))
-            (make-vector -meta (inc -length) (+ (->bitnum -shift) (->bitnum 5)) new-root new-arr))
+            (make-vector -meta (inc -length) (+ (->bitnum -shift) (->bitnum 5)) new-root new-arr -am))
           (let [new-root (push-tail -shift -root tail-node -length -root)]
-            (make-vector -meta (inc -length) -shift new-root new-arr))))))
+            (make-vector -meta (inc -length) -shift new-root new-arr -am))))))
 
   (-empty [this]
-    (with-meta EMPTY-VECTOR (meta this)))
+    (with-meta (empty-vector -am) (meta this)))
 
   IPersistentStack
   (-peek [this]
@@ -553,33 +613,31 @@
   (-pop [this]
     (cond
       (zero? -length) (throw (new-illegal-state-error "Can't pop empty vector"))
-      (= 1 -length) (with-meta EMPTY-VECTOR -meta)
+      (= 1 -length) (with-meta (empty-vector -am) -meta)
       (< 1 (- -length (tailoff -length)))
-        (let [new-tail (object-array (dec (alength -tail)))]
+        (let [new-tail (-new-array -am (dec (alength -tail)))]
           (acopy -tail 0 new-tail 0 (alength new-tail))
-          (make-vector -meta (dec -length) -shift -root new-tail))
+          (make-vector -meta (dec -length) -shift -root new-tail -am))
       :else
         (let [new-tail (array-for (- -length 2) -length -tail -root -shift)
               new-root (pop-tail -shift -root -root -length)]
           (cond
             (nil? new-root)
-              (make-vector -meta (dec -length) -shift EMPTY-NODE new-tail)
+              (make-vector -meta (dec -length) -shift EMPTY-NODE new-tail -am)
             (and (> -shift 5) (nil? (aget (get-array new-root) 1)))
-              (make-vector -meta (dec -length) (- -shift 5) (aget (get-array new-root) 0) new-tail)
+              (make-vector -meta (dec -length) (- -shift 5) (aget (get-array new-root) 0) new-tail -am)
             :else
-              (make-vector -meta (dec -length) -shift new-root new-tail)))))
+              (make-vector -meta (dec -length) -shift new-root new-tail -am)))))
 
   IPersistentVector
   (-assoc-n [this n x]
     (cond
       (n-in-range? n -length)
       (if (>= n (tailoff -length))
-        (let [tail-length (alength -tail)
-              new-tail (object-array tail-length)]
-          (acopy -tail 0 new-tail 0 tail-length)
-          (aset new-tail (bit-and (->bitnum n) (->bitnum 0x01f)) x)
-          (make-vector -meta -length -shift -root new-tail))
-        (make-vector -meta -length -shift (do-assoc -shift -root n x) -tail))
+        (let [new-tail (aclone -tail)]
+          (-array-set! -am new-tail (bit-and (->bitnum n) (->bitnum 0x01f)) x)
+          (make-vector -meta -length -shift -root new-tail -am))
+        (make-vector -meta -length -shift (do-assoc -am -shift -root n x) -tail -am))
       (= n -length)
       (cons this x)
       :else
@@ -603,9 +661,17 @@
   ICounted
   (-count [this] -length)
 
+  IFold
+  (-fold [this n combinef reducef]
+    (invoke-in-pool #(fold-range this 0 -length n combinef reducef)))
+
+  IReduce
+  (-reduce [this f init]
+    (reduce-range this 0 -length init f))
+
   IEditableCollection
   (-as-transient [this]
-    (make-transient-vec -meta -length -shift -root -tail))
+    (make-transient-vec -meta -length -shift -root -tail -am))
 
   IFn
   (-invoke [this n]
@@ -618,7 +684,7 @@
 
   IObj
   (-with-meta [this new-meta]
-    (make-vector new-meta -length -shift -root -tail))
+    (PersistentVector. new-meta -length -shift -root -tail -am -hash -hasheq))
 
   ISequential
 
@@ -631,7 +697,8 @@
 
   IIndexed
   (-nth [this n]
-    (aget -tail n))
+    (let [node (array-for n -length -tail -root -shift)]
+      (-array-get -am node (bit-and (->bitnum n) (->bitnum 0x01f)))))
 
   (-nth [this n not-found]
     (if (n-in-range? n -length)
@@ -689,6 +756,12 @@
   (enum/enumerable-method [this]
     (enum/new-ranged-iterator this 0 (count this)))
 
+  IHash
+  (-hash [this]
+    (when (= -hasheq -1)
+      (set! -hasheq (seq-hasheq this)))
+    -hasheq)
+
   obj/base-object
   (hash-code/hash-method [this]
     (when (= -hash -1)
@@ -698,10 +771,27 @@
   (equiv/equals-method [this other]
     (vector-equals? this other)))
 
-(defn- make-vector [meta length shift root arr]
-  (PersistentVector. meta length shift root arr -1))
+(defn- make-vector [meta length shift root arr am]
+  (PersistentVector. meta length shift root arr am -1 -1))
+
+(def EMPTY-NODE (make-node nil (object-array 32)))
+
+(def EMPTY-VECTOR (make-vector nil 0 5 EMPTY-NODE EMPTY-ARRAY object-array-manager))
+
+(defn- empty-vector [am]
+  (if (identical? am object-array-manager)
+    EMPTY-VECTOR
+    (make-vector nil 0 5 EMPTY-NODE (-new-array am 0) am)))
 
-(def ^:private EMPTY-NODE (make-node nil (object-array 32)))
+; the count, shift, root, tail and array manager of a persistent vector, or
+; nil for any other vector
+(defn vector-tree [v]
+  (when (instance? PersistentVector v)
+    (let [^PersistentVector v v]
+      [(.-_length v) (.-_shift v) (.-_root v) (.-_tail v) (.-_am v)])))
 
-(def EMPTY-VECTOR (make-vector nil 0 5 EMPTY-NODE EMPTY-ARRAY))
+(defn empty-vector-of [t]
+  (if-let [am (array-manager t)]
+    (empty-vector am)
+    (throw (new-argument-error (str "Unrecognized type " t)))))
 
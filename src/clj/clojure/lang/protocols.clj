@@ -10,8 +10,18 @@
   (-set-error-mode [this k])
   (-enqueue [this action])
   (-set-state [this new-state])
+  (-send-executor [this])
+  (-send-off-executor [this])
+  (-batch-size [this])
+  (-time-slice [this])
   (-restart [this new-state options]))
 
+; creates and accesses the leaf arrays of a vector
+(defprotocol IArrayManager
+  (-new-array  [this size])
+  (-array-get  [this arr i])
+  (-array-set! [this arr i x]))
+
 (defprotocol IAssociative
   (-contains-key? [this k])
   (-entry-at      [this k])
@@ -20,7 +30,14 @@
 (defprotocol IAtom
   (-compare-and-set! [this old-state new-state])
   (-reset! [this new-state])
-  (-swap! [this f args]))
+  (-swap! [this f] [this f x] [this f x y] [this f x y z] [this f x y z more]))
+
+(defprotocol IAtomValues
+  (-reset-vals! [this new-state])
+  (-swap-vals! [this f] [this f x] [this f x y] [this f x y z] [this f x y z more]))
+
+(defprotocol ISwapStats
+  (-swap-stats [this]))
 
 (defprotocol IChunk
   (-drop-first [this]))
@@ -85,6 +102,9 @@
     [this arg1 arg2 arg3 arg4 arg5 arg6 arg7 arg8 arg9 arg10 arg11 arg12 arg13 arg14 arg15 arg16 arg17 arg18 arg19])
   (-apply-to [this args]))
 
+(defprotocol IFold
+  (-fold [this n combinef reducef]))
+
 (defprotocol IHash
   "This protocol should not be directly used in a deftype. It should only
   be used to override an existing platform hash method."
@@ -108,6 +128,17 @@
   (-key [this])
   (-val [this]))
 
+(defprotocol IMapIterable
+  (-key-iterator [this])
+  (-val-iterator [this]))
+
+; f combines the values of a key in both maps. Without f, -merge-with takes
+; the value from other and -intersect-with keeps the value from this.
+(defprotocol IMergeable
+  (-merge-with     [this f other])
+  (-intersect-with [this f other])
+  (-remove-keys    [this other]))
+
 (defprotocol IMeta
   (-meta [this]))
 
@@ -154,6 +185,9 @@
   (-numerator [this])
   (-denominator [this]))
 
+(defprotocol IReduce
+  (-reduce [this f init]))
+
 (defprotocol IReference
   (-reset-meta! [this new-meta])
   (-alter-meta! [this f args]))
@@ -172,7 +206,11 @@
 (defprotocol IShow
   (-show [this]))
 
-(defprotocol ISorted)
+(defprotocol ISorted
+  (-comparator [this])
+  (-entry-key [this entry])
+  (-sorted-seq [this ascending?])
+  (-sorted-seq-from [this k ascending?]))
 
 (defprotocol ITransientAssociative
   (-assoc! [this k v]))
@@ -195,6 +233,9 @@
   (-get-validator  [this])
   (-set-validator! [this validator-fn]))
 
+(defprotocol IVolatile
+  (-vreset! [this new-val]))
+
 (defprotocol IWatchable
   (-get-watches    [this])
   (-add-watch      [this watch-key callback-fn])
@@ -0,0 +1,14 @@
+(ns clojure.lang.reduced
+  (:refer-clojure :only [deftype defn])
+  (:require [clojure.next           :refer :all]
+            [clojure.lang.protocols :refer [IDeref]]))
+
+(deftype Reduced [-val]
+  IDeref
+  (-deref [this] -val))
+
+(defn new-reduced [x]
+  (Reduced. x))
+
+(defn is-reduced? [x]
+  (instance? Reduced x))
@@ -0,0 +1,18 @@
+(ns clojure.lang.volatile
+  (:refer-clojure :only [deftype defn])
+  (:require [clojure.next           :refer :all]
+            [clojure.lang.protocols :refer [IDeref IVolatile]]))
+
+(deftype Volatile [^:volatile-mutable -val]
+  IDeref
+  (-deref [this] -val)
+
+  IVolatile
+  (-vreset! [this new-val]
+    (set! -val new-val)))
+
+(defn new-volatile [x]
+  (Volatile. x))
+
+(defn is-volatile? [x]
+  (instance? Volatile x))
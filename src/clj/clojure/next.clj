@@ -1,9 +1,10 @@
 (ns clojure.next ; eventually, this will be clojure.core
   (:refer-clojure :only [*assert* complement
                          apply binding case cond declare defmacro defmulti defmethod defn defn-
-                         extend-type dotimes fn if-let let require satisfies? range
+                         extend-type dotimes fn if-let let require range
                          doseq for list list* load loop format pr-str butlast when when-let])
-  (:require [clojure.lang.equivalence]
+  (:require [clojure.lang.capability :refer [satisfies?]]
+            [clojure.lang.equivalence]
             [clojure.lang.object     :as    platform-object]
             [clojure.lang.exceptions :refer [new-assertion-error new-argument-error new-exception new-out-of-bounds-exception]]
             [clojure.lang.random     :refer [rand-float]]
@@ -14,7 +15,7 @@
    :minor       6
    :incremental 0})
 
-(declare cons hash-map str seq reduce not vector)
+(declare cons hash-map str seq reduce not vector deref)
 
 (defn clojure-version []
   (str (:major *clojure-version*) "."
@@ -185,6 +186,8 @@
 
 (defn ==
   "Equivalence. Calls the platform numbers-equivalent? function with the arguments"
+  {:inline (fn [x y] `(platform-numbers/equivalent? ~x ~y))
+   :inline-arities #{2}}
   ([x] true)
   ([x y] (platform-numbers/equivalent? x y))
   ([x y & more] (and (== x y) (apply == y more))))
@@ -297,6 +300,8 @@
   (platform-numbers/bit-test x location))
 
 (defn +
+  {:inline (fn [x y] `(platform-numbers/+ ~x ~y))
+   :inline-arities #{2}}
   ([] 0)
   ([x] (platform-numbers/+ x 0))
   ([x y] (platform-numbers/+ x y))
@@ -309,6 +314,8 @@
   ([x y & more] (reduce +' (+' x y) more)))
 
 (defn -
+  {:inline (fn [x y] `(platform-numbers/- ~x ~y))
+   :inline-arities #{2}}
   ([x] (platform-numbers/- x))
   ([x y] (platform-numbers/- x y))
   ([x y & more] (reduce - (- x y) more)))
@@ -331,6 +338,8 @@
   (platform-numbers/unchecked-negate-int x))
 
 (defn *
+  {:inline (fn [x y] `(platform-numbers/* ~x ~y))
+   :inline-arities #{2}}
   ([] 1)
   ([x] (platform-numbers/* x 1))
   ([x y] (platform-numbers/* x y))
@@ -382,7 +391,9 @@
       modulus
       (+ modulus div))))
 
-(defn inc [i]
+(defn inc
+  {:inline (fn [i] `(platform-numbers/inc ~i))}
+  [i]
   (platform-numbers/inc i))
 
 (defn unchecked-inc [i]
@@ -394,7 +405,9 @@
 (defn inc' [i]
   (platform-numbers/inc' i))
 
-(defn dec [i]
+(defn dec
+  {:inline (fn [i] `(platform-numbers/dec ~i))}
+  [i]
   (platform-numbers/dec i))
 
 (defn unchecked-dec [i]
@@ -419,6 +432,8 @@
   (platform-numbers/rationalize n))
 
 (defn <
+  {:inline (fn [a b] `(platform-numbers/< ~a ~b))
+   :inline-arities #{2}}
   ([a] true)
   ([a b] (platform-numbers/< a b))
   ([a b & more]
@@ -429,6 +444,8 @@
       false)))
 
 (defn <=
+  {:inline (fn [a b] `(platform-numbers/<= ~a ~b))
+   :inline-arities #{2}}
   ([a] true)
   ([a b] (platform-numbers/<= a b))
   ([a b & more]
@@ -464,8 +481,10 @@
 (defn persistent! [coll]
   (-persistent coll))
 
-(defn conj! [coll x]
-  (-conj! coll x))
+(defn conj!
+  ([] (transient (vector)))
+  ([coll] coll)
+  ([coll x] (-conj! coll x)))
 
 (defn disj! [coll x]
   (-disj! coll x))
@@ -496,6 +515,8 @@
       (-count obj)
     (nil? obj)
       0
+    (satisfies? IReduce obj)
+      (-reduce obj (fn [cnt _] (inc cnt)) 0)
     (satisfies? IPersistentCollection obj)
       (loop [s (seq obj)
              cnt 0]
@@ -677,6 +698,36 @@
               (aset arr i (first sq))
               (recur (inc i) (next sq)))))))))
 
+; Bulk kernels over long, int and double arrays. Integer arithmetic wraps
+; like the unchecked ops, and int sums and dot products are returned as longs.
+
+(defn asum [arr]
+  (array-sum arr))
+
+(defn adot [x y]
+  (array-dot x y))
+
+(defn ascale [arr k]
+  (array-scale arr k))
+
+(defn aadd [x y]
+  (array-add x y))
+
+(defn amin [arr]
+  (array-min arr))
+
+(defn amax [arr]
+  (array-max arr))
+
+(defn aprefix-sum [arr]
+  (array-prefix-sum arr))
+
+(defn acompare [x y]
+  (array-compare x y))
+
+(defn afill! [arr v]
+  (array-fill! arr v))
+
 (defmacro amap [a idx ret expr]
   `(let [a# ~a
          ~ret (aclone a#)]
@@ -760,6 +811,35 @@
 
 (defn identity [x] x)
 
+(require ['clojure.lang.reduced :refer ['new-reduced 'is-reduced?]])
+
+(defn reduced [x]
+  (new-reduced x))
+
+(defn reduced? [x]
+  (is-reduced? x))
+
+(defn unreduced [x]
+  (if (reduced? x) (-deref x) x))
+
+(defn ensure-reduced [x]
+  (if (reduced? x) x (reduced x)))
+
+(require ['clojure.lang.volatile :refer ['new-volatile 'is-volatile?]])
+
+(defn volatile! [x]
+  (new-volatile x))
+
+(defn volatile? [x]
+  (is-volatile? x))
+
+(defn vreset! [vol new-val]
+  (-vreset! vol new-val))
+
+(defmacro vswap! [vol f & args]
+  `(let [v# ~vol]
+     (vreset! v# (~f (deref v#) ~@args))))
+
 (require ['clojure.lang.sequence :refer ['platform-seq 'make-iterator-seq]])
 
 (defn seq [s]
@@ -891,7 +971,7 @@
      (recur (conj coll x) (first xs) (next xs))
      (conj coll x))))
 
-(require ['clojure.lang.persistent-vector :refer ['EMPTY-VECTOR 'is-chunked-seq? 'make-subvec]])
+(require ['clojure.lang.persistent-vector :refer ['EMPTY-VECTOR 'empty-vector-of 'make-subvec]])
 
 (defn vector [& args]
   (let [arg-seq (seq args)
@@ -903,6 +983,19 @@
           (-persistent v)))
       (-persistent empty-transient))))
 
+(defn vector-of
+  "Creates a vector of the primitive type t, one of :long, :double, :int
+  or :byte. Its elements are kept unboxed in arrays of that type, and are
+  coerced to t as they are added."
+  [t & elements]
+  (loop [xs (seq elements)
+         v (-as-transient (empty-vector-of t))]
+    (if xs
+      (recur (next xs) (-conj! v (first xs)))
+      (-persistent v))))
+
+(declare slice-rrb-vector)
+
 (defn subvec
   ([v start]
     (subvec v start (count v)))
@@ -913,10 +1006,11 @@
       (= start end)
         EMPTY-VECTOR
       :else
-        (make-subvec v start end nil))))
+        (or (slice-rrb-vector v start end)
+            (make-subvec v start end nil)))))
 
 (defn chunked-seq? [cs]
-  (is-chunked-seq? cs))
+  (satisfies? IChunkedSeq cs))
 
 (require '[clojure.lang.enumeration-seq :refer [make-enumeration-seq]])
 
@@ -933,25 +1027,62 @@
 (defn constantly [rval]
   (fn [& args] rval))
 
-(defn take [n coll]
-  (lazy-seq
-    (when (pos? n)
+(defn take
+  ([n]
+    (fn [rf]
+      (let [nv (volatile! n)]
+        (fn
+          ([] (rf))
+          ([result] (rf result))
+          ([result input]
+            (let [n (deref nv)
+                  nn (vswap! nv dec)
+                  result (if (pos? n) (rf result input) result)]
+              (if (pos? nn)
+                result
+                (ensure-reduced result))))))))
+  ([n coll]
+    (lazy-seq
+      (when (pos? n)
+        (when-let [s (seq coll)]
+          (cons (first s) (take (dec n) (next s))))))))
+
+(defn take-while
+  ([pred]
+    (fn [rf]
+      (fn
+        ([] (rf))
+        ([result] (rf result))
+        ([result input]
+          (if (pred input)
+            (rf result input)
+            (reduced result))))))
+  ([pred coll]
+    (lazy-seq
       (when-let [s (seq coll)]
-        (cons (first s) (take (dec n) (next s)))))))
-
-(defn take-while [pred coll]
-  (lazy-seq
-    (when-let [s (seq coll)]
-      (when (pred (first s))
-        (cons (first s) (take-while pred (next s)))))))
-
-(defn drop-while [pred coll]
-  (let [step (fn [pred coll]
-               (let [s (seq coll)]
-                 (if (and s (pred (first s)))
-                   (recur pred (rest s))
-                   s)))]
-    (lazy-seq (step pred coll))))
+        (when (pred (first s))
+          (cons (first s) (take-while pred (next s))))))))
+
+(defn drop-while
+  ([pred]
+    (fn [rf]
+      (let [dropping (volatile! true)]
+        (fn
+          ([] (rf))
+          ([result] (rf result))
+          ([result input]
+            (if (and (deref dropping) (pred input))
+              result
+              (do
+                (vreset! dropping false)
+                (rf result input))))))))
+  ([pred coll]
+    (let [step (fn [pred coll]
+                 (let [s (seq coll)]
+                   (if (and s (pred (first s)))
+                     (recur pred (rest s))
+                     s)))]
+      (lazy-seq (step pred coll)))))
 
 (defn repeat
   ([x] (lazy-seq (cons x (repeat x))))
@@ -985,6 +1116,24 @@
                          (cat (first zs) (next zs)))))))]
        (cat (concat x y) zs))))
 
+(defn- preserving-reduced [rf]
+  (fn [acc x]
+    (let [ret (rf acc x)]
+      (if (reduced? ret)
+        (reduced ret)
+        ret))))
+
+(defn cat
+  "The transducer form of concat: each input is a collection whose
+  elements are passed on in turn."
+  [rf]
+  (let [rrf (preserving-reduced rf)]
+    (fn
+      ([] (rf))
+      ([result] (rf result))
+      ([result input]
+        (reduce rrf result input)))))
+
 (defn fnil
   ([f x]
     (fn
@@ -1032,6 +1181,21 @@
   ([f] f)
   ([f & args] (Partial. f args)))
 
+(declare reduce)
+
+(defn comp
+  ([] identity)
+  ([f] f)
+  ([f g]
+    (fn
+      ([] (f (g)))
+      ([x] (f (g x)))
+      ([x y] (f (g x y)))
+      ([x y z] (f (g x y z)))
+      ([x y z & args] (f (apply g x y z args)))))
+  ([f g & fs]
+    (reduce comp (list* f g fs))))
+
 (defn disj
   ([s] s)
   ([s x]
@@ -1044,12 +1208,8 @@
           (recur ret (first xs) (next xs))
           ret)))))
 
-(defn every? [pred s]
-  (let [sq (seq s)]
-    (cond
-      (nil? s) true
-      (pred (first sq)) (recur pred (next sq))
-      :else false)))
+(defn every? [pred coll]
+  (reduce #(if (pred %2) true (reduced false)) true coll))
 
 (defn key [entry]
   (-key entry))
@@ -1061,31 +1221,154 @@
 (require ['clojure.lang.persistent-map :refer ['new-key-seq 'new-val-seq]])
 
 (defn keys [m]
-  (new-key-seq (seq m)))
+  (if (satisfies? IMapIterable m)
+    (new-key-seq (seq m) m)
+    (new-key-seq (seq m))))
 
 (defn vals [m]
-  (new-val-seq (seq m)))
+  (if (satisfies? IMapIterable m)
+    (new-val-seq (seq m) m)
+    (new-val-seq (seq m))))
+
+(declare transduce)
+
+(defn into
+  ([to from]
+    (if (satisfies? IEditableCollection to)
+      (with-meta (persistent! (reduce conj! (transient to) from)) (meta to))
+      (reduce conj to from)))
+  ([to xform from]
+    (if (satisfies? IEditableCollection to)
+      (with-meta (persistent! (transduce xform conj! (transient to) from)) (meta to))
+      (transduce xform conj to from))))
 
-(defn into [to from]
-  (if (satisfies? IEditableCollection to)
-    (with-meta (persistent! (reduce conj! (transient to) from)) (meta to))
-    (reduce conj to from)))
+(def ^:private reduce-none (platform-object/new-base-object))
 
 (defn reduce
+  "Collections that implement IReduce reduce themselves, anything else is
+  walked as a seq. A reduced return value from f ends the reduction early."
   ([f coll]
-   (if-let [s (seq coll)]
-     (reduce f (first s) (next s))
-     (f)))
-  ([f v coll]
-    (loop [s coll
-           acc v]
-      (if (empty? s)
-        acc
-        (let [next-s (seq s)
-              next-acc (f acc (first next-s))]
-          (recur (next next-s) next-acc))))))
+    (let [ret (reduce #(if (identical? reduce-none %1) %2 (f %1 %2)) reduce-none coll)]
+      (if (identical? reduce-none ret)
+        (f)
+        ret)))
+  ([f init coll]
+    (if (satisfies? IReduce coll)
+      (-reduce coll f init)
+      (let [s (seq coll)]
+        (if (satisfies? IReduce s)
+          (-reduce s f init)
+          (loop [s s
+                 acc init]
+            (if (nil? s)
+              acc
+              (let [acc (f acc (first s))]
+                (if (reduced? acc)
+                  (deref acc)
+                  (recur (next s) acc))))))))))
+
+(defn fold
+  "Reduces coll in parallel. Vectors and hash maps are split into parts of
+  about n elements (512 by default), each part is reduced with reducef
+  starting from (combinef), and the results are combined with combinef.
+  Other collections are reduced sequentially."
+  ([reducef coll]
+    (fold reducef reducef coll))
+  ([combinef reducef coll]
+    (fold 512 combinef reducef coll))
+  ([n combinef reducef coll]
+    (if (satisfies? IFold coll)
+      (-fold coll n combinef reducef)
+      (reduce reducef (combinef) coll))))
+
+(defn completing
+  "Adds a completion arity to a reducing function of two arguments."
+  ([f] (completing f identity))
+  ([f cf]
+    (fn
+      ([] (f))
+      ([x] (cf x))
+      ([x y] (f x y)))))
+
+(defn transduce
+  "Reduces coll with (xform f) in a single pass, then calls the completion
+  arity on the result. init defaults to (f)."
+  ([xform f coll]
+    (transduce xform f (f) coll))
+  ([xform f init coll]
+    (let [xf (xform f)]
+      (xf (reduce xf init coll)))))
+
+(require '[clojure.lang.array-chunk :refer [make-array-chunk]])
+
+(defn- chunk-vector [v more]
+  ; a vector's leaf arrays become the chunks, without copying
+  (let [n (count v)]
+    (loop [i (if (pos? n) (* 32 (quot (dec n) 32)) -1)
+           more more]
+      (if (neg? i)
+        more
+        (recur (- i 32)
+               (chunk-cons (make-array-chunk (-array-for v i) 0 (min 32 (- n i))) more))))))
+
+(defn- transform-step [xf s]
+  ; feeds one chunk, or up to 32 elements, of s through xf
+  (if (chunked-seq? s)
+    (let [c (chunk-first s)
+          n (count c)]
+      (loop [i 0
+             acc (transient (vector))]
+        (if (and (< i n) (not (reduced? acc)))
+          (recur (inc i) (xf acc (nth c i)))
+          (vector acc (chunk-next s)))))
+    (loop [i 0
+           s s
+           acc (transient (vector))]
+      (if (and s (< i 32) (not (reduced? acc)))
+        (recur (inc i) (next s) (xf acc (first s)))
+        (vector acc s)))))
+
+(defn- transform-seq [xf s]
+  (lazy-seq
+    (loop [s (seq s)]
+      (if (nil? s)
+        (chunk-vector (persistent! (xf (transient (vector)))) nil)
+        (let [step (transform-step xf s)
+              acc (nth step 0)]
+          (if (reduced? acc)
+            (chunk-vector (persistent! (xf (deref acc))) nil)
+            (let [v (persistent! acc)]
+              (if (zero? (count v))
+                (recur (nth step 1))
+                (chunk-vector v (transform-seq xf (nth step 1)))))))))))
+
+(defn sequence
+  "Returns coll as a seq, empty rather than nil when coll is empty. With
+  an xform, the seq is computed a chunk at a time by running the source
+  through xform."
+  ([coll]
+    (if (seq? coll)
+      coll
+      (lazy-seq coll)))
+  ([xform coll]
+    (transform-seq (xform conj!) coll)))
+
+(require ['clojure.lang.eduction :refer ['make-eduction]])
+
+(defn eduction
+  "Returns a reducible and seqable view of applying the xforms to coll.
+  Each reduce or seq over it runs the transformation again."
+  [& xforms]
+  (make-eduction (apply comp (butlast xforms)) (last xforms)))
 
 (defn map
+  ([f]
+    (fn [rf]
+      (fn
+        ([] (rf))
+        ([result] (rf result))
+        ([result input]
+          (rf result (f input))))))
   ([f coll]
     (lazy-seq
       (when-let [s (seq coll)]
@@ -1098,24 +1381,37 @@
             (chunk-cons (chunk b) (map f (chunk-rest s))))
           (cons (f (first s)) (map f (rest s))))))))
 
-(defn filter [pred coll]
-  (lazy-seq
-    (when-let [s (seq coll)]
-      (if (chunked-seq? s)
-        (let [c (chunk-first s)
-              size (count c)
-              b (chunk-buffer size)]
-          (dotimes [i size]
-              (when (pred (nth c i))
-                (chunk-append b (nth c i))))
-          (chunk-cons (chunk b) (filter pred (chunk-rest s))))
-        (let [f (first s) r (rest s)]
-          (if (pred f)
-            (cons f (filter pred r))
-            (filter pred r)))))))
-
-(defn remove [pred coll]
-  (filter (complement pred) coll))
+(defn filter
+  ([pred]
+    (fn [rf]
+      (fn
+        ([] (rf))
+        ([result] (rf result))
+        ([result input]
+          (if (pred input)
+            (rf result input)
+            result)))))
+  ([pred coll]
+    (lazy-seq
+      (when-let [s (seq coll)]
+        (if (chunked-seq? s)
+          (let [c (chunk-first s)
+                size (count c)
+                b (chunk-buffer size)]
+            (dotimes [i size]
+                (when (pred (nth c i))
+                  (chunk-append b (nth c i))))
+            (chunk-cons (chunk b) (filter pred (chunk-rest s))))
+          (let [f (first s) r (rest s)]
+            (if (pred f)
+              (cons f (filter pred r))
+              (filter pred r))))))))
+
+(defn remove
+  ([pred]
+    (filter (complement pred)))
+  ([pred coll]
+    (filter (complement pred) coll)))
 
 (require ['clojure.lang.persistent-array-map :refer ['new-array-map]])
 
@@ -1175,7 +1471,8 @@
       (assoc m k (assoc-in (get m k) ks v))
       (assoc m k v))))
 
-(require ['clojure.lang.persistent-hash-map :refer ['new-hash-map 'EMPTY-HASH-MAP]])
+(require ['clojure.lang.persistent-hash-map :refer ['new-hash-map 'EMPTY-HASH-MAP
+                                                     'make-sharded-transient-hash-map 'shard-index]])
 
 (defn hash-map [& kvs]
   (let [kvs-seq (seq kvs)]
@@ -1191,6 +1488,20 @@
                            size)))))
       EMPTY-HASH-MAP)))
 
+(defn hash-shard
+  "The shard of key k in a sharded-transient-hash-map, from 0 to 31."
+  [k]
+  (shard-index k))
+
+(defn sharded-transient-hash-map
+  "Returns a transient hash map that several threads can fill at once. Its
+  keys are split into 32 shards by hash-shard, and each shard must be
+  written by only one thread at a time, e.g. by giving every worker the
+  keys of its own shards. persistent! joins the shards into a hash map in
+  time proportional to their number."
+  []
+  (make-sharded-transient-hash-map))
+
 (require ['clojure.lang.apersistent-set :refer ['make-pairs]])
 (require ['clojure.lang.persistent-hash-set :refer ['make-hash-set]])
 
@@ -1200,6 +1511,101 @@
     (make-hash-set
       (apply hash-map (make-pairs xs)))))
 
+(require ['clojure.lang.persistent-champ-map :refer ['make-champ-map]])
+
+(defn champ-hash-map
+  "Like hash-map, but backed by a CHAMP trie, which keeps one canonical
+  shape for a given set of keys."
+  [& kvs]
+  (make-champ-map kvs))
+
+(require ['clojure.lang.persistent-champ-set :refer ['make-champ-set]])
+
+(defn champ-hash-set
+  "Like hash-set, but backed by a champ-hash-map."
+  [& xs]
+  (make-champ-set (make-champ-map (make-pairs xs))))
+
+(require ['clojure.lang.persistent-int-map :refer ['make-int-map]])
+
+(defn int-map
+  "A map with integer keys, kept unboxed as longs in a Patricia trie.
+  merge, merge-with and the set operations on int sets combine two of
+  them without going through their entries one by one."
+  [& kvs]
+  (make-int-map kvs))
+
+(require ['clojure.lang.persistent-int-set :refer ['make-int-set]])
+
+(defn int-set
+  "A set of integers backed by an int-map."
+  [& xs]
+  (make-int-set (make-int-map (make-pairs xs))))
+
+(require ['clojure.lang.persistent-rrb-vector :refer ['EMPTY-RRB-VECTOR '->rrb-vector 'is-rrb-vector?
+                                                      'rrb-concat 'rrb-slice]])
+
+; nil when v is not an rrb vector
+(defn- slice-rrb-vector [v start end]
+  (when (is-rrb-vector? v)
+    (rrb-slice v start end)))
+
+(defn catvec
+  "Concatenates vectors into a relaxed radix balanced vector, in time
+  logarithmic in their counts. subvec on the result shares its structure
+  without holding on to the rest of it."
+  ([] EMPTY-RRB-VECTOR)
+  ([v] (->rrb-vector v))
+  ([v1 v2] (rrb-concat v1 v2))
+  ([v1 v2 & vs]
+    (reduce rrb-concat (rrb-concat v1 v2) vs)))
+
+(defn splice
+  "Replaces the elements of v from start to end with the elements of
+  coll, as a catvec of the slices around them."
+  ([v start coll]
+    (splice v start start coll))
+  ([v start end coll]
+    (let [v (->rrb-vector v)]
+      (catvec (subvec v 0 start)
+              (if (vector? coll) coll (into EMPTY-RRB-VECTOR coll))
+              (subvec v end (count v))))))
+
+(defn insert-at
+  "Inserts x into v before index i, in time logarithmic in the count of v."
+  [v i x]
+  (splice v i (vector x)))
+
+(require ['clojure.lang.apersistent-map :refer ['map-merge-with]])
+
+(defn- merge-two [f m1 m2]
+  (cond
+    (nil? m1) m2
+    (nil? m2) m1
+    (satisfies? IMergeable m1) (-merge-with m1 f m2)
+    (nil? f) (conj m1 m2)
+    :else (map-merge-with m1 f m2)))
+
+(defn merge
+  "Returns a map with the entries of the maps, a key taking its value from
+  the last map that has it."
+  [& maps]
+  (loop [m nil
+         ms (seq maps)]
+    (if ms
+      (recur (merge-two nil m (first ms)) (next ms))
+      m)))
+
+(defn merge-with
+  "Like merge, but the values of a key in more than one map are combined
+  with (f val-in-result val-in-latter)."
+  [f & maps]
+  (loop [m nil
+         ms (seq maps)]
+    (if ms
+      (recur (merge-two f m (first ms)) (next ms))
+      m)))
+
 (defn comparator [predicate]
   (fn [x y]
     (cond
@@ -1257,6 +1663,55 @@
   (make-sorted-set
     (apply sorted-map-by (clojure.core/cons compare-fn (make-pairs ks)))))
 
+(defn rseq
+  "Returns the entries of a sorted collection in descending order."
+  [sc]
+  (-sorted-seq sc false))
+
+(defn- mk-bound-fn [sc test k]
+  (fn [e]
+    (test ((-comparator sc) (-entry-key sc e) k) 0)))
+
+(defn subseq
+  "Returns an ascending seq of the entries of sorted collection sc whose
+  keys pass the bound tests, which are <, <=, > or >=. The seq starts
+  from the lower bound without walking the entries below it."
+  ([sc test k]
+    (let [include? (mk-bound-fn sc test k)]
+      (if (or (identical? test >) (identical? test >=))
+        (when-let [s (-sorted-seq-from sc k true)]
+          (if (include? (first s)) s (next s)))
+        (take-while include? (-sorted-seq sc true)))))
+  ([sc start-test start-k end-test end-k]
+    (when-let [s (-sorted-seq-from sc start-k true)]
+      (take-while (mk-bound-fn sc end-test end-k)
+                  (if ((mk-bound-fn sc start-test start-k) (first s)) s (next s))))))
+
+(defn rsubseq
+  "Like subseq, but the seq is descending and starts from the upper bound."
+  ([sc test k]
+    (let [include? (mk-bound-fn sc test k)]
+      (if (or (identical? test <) (identical? test <=))
+        (when-let [s (-sorted-seq-from sc k false)]
+          (if (include? (first s)) s (next s)))
+        (take-while include? (-sorted-seq sc false)))))
+  ([sc start-test start-k end-test end-k]
+    (when-let [s (-sorted-seq-from sc end-k false)]
+      (take-while (mk-bound-fn sc start-test start-k)
+                  (if ((mk-bound-fn sc end-test end-k) (first s)) s (next s))))))
+
+(defn floor-entry
+  "Returns the entry of sorted collection sc with the greatest key less
+  than or equal to k, or nil."
+  [sc k]
+  (first (rsubseq sc <= k)))
+
+(defn ceiling-entry
+  "Returns the entry of sorted collection sc with the least key greater
+  than or equal to k, or nil."
+  [sc k]
+  (first (subseq sc >= k)))
+
 (require ['clojure.lang.persistent-struct-map :refer ['make-def 'make-struct-map]])
 
 (defn create-struct [& ks]
@@ -1294,17 +1749,30 @@
           (recur (inc idx) (next v))))
       (make-struct-map d v-arr EMPTY-HASH-MAP nil))))
 
-(defn distinct [coll]
-  (let [step (fn step [xs seen]
-                 (lazy-seq
-                  ((fn [xs seen]
-                    (let [f (first xs)]
-                      (when-let [s (seq xs)]
-                        (if (contains? seen f)
-                          (recur (rest s) seen)
-                          (cons f (step (rest s) (conj seen f)))))))
-                   xs seen)))]
-    (step coll (hash-set))))
+(defn distinct
+  ([]
+    (fn [rf]
+      (let [seen (volatile! (hash-set))]
+        (fn
+          ([] (rf))
+          ([result] (rf result))
+          ([result input]
+            (if (contains? (deref seen) input)
+              result
+              (do
+                (vswap! seen conj input)
+                (rf result input))))))))
+  ([coll]
+    (let [step (fn step [xs seen]
+                   (lazy-seq
+                    ((fn [xs seen]
+                      (let [f (first xs)]
+                        (when-let [s (seq xs)]
+                          (if (contains? seen f)
+                            (recur (rest s) seen)
+                            (cons f (step (rest s) (conj seen f)))))))
+                     xs seen)))]
+      (step coll (hash-set)))))
 
 (defn distinct?
   ([x] true)
@@ -1338,10 +1806,37 @@
   (-reset! atm new-val))
 
 (defn swap!
-  ([atm f] (-swap! atm f []))
-  ([atm f x] (-swap! atm f [x]))
-  ([atm f x y] (-swap! atm f [x y]))
-  ([atm f x y & args] (-swap! atm f (clojure.core/into [x y] args))))
+  ([atm f] (-swap! atm f))
+  ([atm f x] (-swap! atm f x))
+  ([atm f x y] (-swap! atm f x y))
+  ([atm f x y z] (-swap! atm f x y z))
+  ([atm f x y z & more] (-swap! atm f x y z more)))
+
+(defn reset-vals!
+  "Sets the value of atm to new-val, and returns a vector of its old and
+  new values. A striped-atom has no single old value, and does not support
+  reset-vals!."
+  [atm new-val]
+  (-reset-vals! atm new-val))
+
+(defn swap-vals!
+  "Swaps the value of atm as swap! does, and returns a vector of its old
+  and new values. A striped-atom has no single old value, and does not
+  support swap-vals!."
+  ([atm f] (-swap-vals! atm f))
+  ([atm f x] (-swap-vals! atm f x))
+  ([atm f x y] (-swap-vals! atm f x y))
+  ([atm f x y z] (-swap-vals! atm f x y z))
+  ([atm f x y z & more] (-swap-vals! atm f x y z more)))
+
+(defn- apply-updates [state fs]
+  (reduce (fn [state f] (f state)) state fs))
+
+(defn swap-batch!
+  "Applies each of the update functions in fs in turn to the value of atm,
+  and sets the result with one compare-and-set. Returns the new value."
+  [atm fs]
+  (-swap! atm apply-updates fs))
 
 (require ['clojure.lang.agent :refer ['new-agent 'agent-get-error
                                       'action-release-pending-sends
@@ -1369,18 +1864,28 @@
          (clojure.lang.Var/resetThreadBindingFrame frame)
          (apply f x y z args)))))
 
-(defn send-via [executor agnt f & args]
+(defn- dispatch [executor agnt f args]
   (-dispatch agnt (binding [*agent* agnt] (binding-conveyor-fn f)) args executor))
 
+(defn send-via [executor agnt f & args]
+  (dispatch executor agnt f args))
+
 (defn send [agnt f & args]
-  (apply send-via pooled-executor agnt f args))
+  (dispatch (-send-executor agnt) agnt f args))
 
 (defn send-off [agnt f & args]
-  (apply send-via solo-executor agnt f args))
+  (dispatch (-send-off-executor agnt) agnt f args))
 
 (defn release-pending-sends [] action-release-pending-sends)
 
-(defn agent [state & args]
+(defn agent
+  "Creates an agent with the initial state and options. Besides :meta,
+  :validator, :error-handler and :error-mode, the options are
+  :send-executor and :send-off-executor, the executors that send and
+  send-off run actions on, and :batch-size and :time-slice-ms, which bound
+  how many queued actions, sent to the same executor, one thread runs in a
+  row before it hands the agent back to the executor."
+  [state & args]
   (let [options (apply hash-map args)
         err-handler (get options :error-handler)]
     (new-agent state err-handler
@@ -1388,7 +1893,11 @@
                (get options :validator)
                (get options :watches)
                (get options :error-mode
-                 (if err-handler :continue :fail)))))
+                 (if err-handler :continue :fail))
+               (get options :send-executor pooled-executor)
+               (get options :send-off-executor solo-executor)
+               (get options :batch-size 32)
+               (* 1000000 (get options :time-slice-ms 1)))))
 
 (defn agent-error [agnt]
   (agent-get-error agnt))
@@ -1449,7 +1958,7 @@
     reference)
 
 (require ['clojure.lang.atomic-ref :refer ['new-atomic-ref]])
-(require ['clojure.lang.atom :refer ['new-atom]])
+(require ['clojure.lang.atom :refer ['new-atom 'new-striped-atom]])
 
 (defn atom
   ([state]
@@ -1457,9 +1966,24 @@
   ([state & args]
     (let [config (apply array-map args)]
       (setup-reference
-        (new-atom (new-atomic-ref state) nil nil (array-map))
+        (new-atom (new-atomic-ref state) nil nil (array-map) (get config :backoff))
         config))))
 
+(defn swap-stats
+  "Returns the :attempts, :failures and :max-retries of the swaps on an atom
+  made with :backoff true, or nil for any other atom."
+  [atm]
+  (-swap-stats atm))
+
+(defn striped-atom
+  "Returns an atom whose state is spread over stripes, so that threads
+  swapping it at once rarely contend. Deref combines the stripes with
+  combine, so swap! must only apply updates that commute, and init must be
+  the identity of combine, as 0 is for +. swap! updates one stripe and
+  returns nil rather than combine them; deref the atom for its value."
+  [combine init]
+  (new-striped-atom combine init))
+
 (defn memoize [f]
   (let [cache-atom (atom (hash-map))]
     (fn [& args]
@@ -1492,7 +2016,7 @@
 (defn future-done? [f]
   (future-submission/is-done? f))
 
-(require ['clojure.lang.hash :refer ['hash-combine]])
+(require ['clojure.lang.hash :refer ['hash-combine 'hash-string]])
 (require ['clojure.lang.symbol :as 'sym])
 
 (defn symbol? [x]
@@ -1510,7 +2034,7 @@
    (if (nil? name)
      (throw (Exception. "Can't create symbol with nil name")))
    (sym/new-symbol ns name (if ns (str ns "/" name) name)
-               (hash (hash-combine (hash name) (hash ns))) nil)))
+               (hash-combine (hash-string name) (hash ns)) nil)))
 
 (defn- munge-char [c]
   (case c
@@ -1565,7 +2089,7 @@
      (keyword (namespace sym) (name sym))))
   ([ns name]
    (let [sym (symbol ns name)
-         hash-code (hash (clojure.core/+ (hash sym) 0x9e3779b9))]
+         hash-code (clojure.core/unchecked-int (clojure.core/+ (hash sym) 0x9e3779b9))]
      (kwd/new-keyword ns name (str ":" sym) hash-code {} sym))))
 
 (defmacro when-not [test & body]
@@ -0,0 +1,105 @@
+(ns clojure.lang.array-manager
+  (:refer-clojure :only [cond defmacro deftype defn gensym let loop with-meta])
+  (:require [clojure.lang.protocols :refer [IArrayManager]]
+            [clojure.lang.reduced   :refer [is-reduced?]]))
+
+; Array managers create the leaf arrays of a vector and read and write them
+; with typed accesses, so that a vector-of keeps its elements unboxed.
+; Stores coerce the element to the array's type, and throw if it does not fit.
+
+(deftype ObjectArrayManager []
+  IArrayManager
+  (-new-array [this size]
+    (clojure.core/object-array (clojure.core/long size)))
+
+  (-array-get [this arr i]
+    (clojure.core/aget ^objects arr (clojure.core/int i)))
+
+  (-array-set! [this arr i x]
+    (clojure.core/aset ^objects arr (clojure.core/int i) x)))
+
+(deftype LongArrayManager []
+  IArrayManager
+  (-new-array [this size]
+    (clojure.core/long-array (clojure.core/long size)))
+
+  (-array-get [this arr i]
+    (clojure.core/aget ^longs arr (clojure.core/int i)))
+
+  (-array-set! [this arr i x]
+    (clojure.core/aset ^longs arr (clojure.core/int i) (clojure.core/long x))))
+
+(deftype DoubleArrayManager []
+  IArrayManager
+  (-new-array [this size]
+    (clojure.core/double-array (clojure.core/long size)))
+
+  (-array-get [this arr i]
+    (clojure.core/aget ^doubles arr (clojure.core/int i)))
+
+  (-array-set! [this arr i x]
+    (clojure.core/aset ^doubles arr (clojure.core/int i) (clojure.core/double x))))
+
+(deftype IntArrayManager []
+  IArrayManager
+  (-new-array [this size]
+    (clojure.core/int-array (clojure.core/long size)))
+
+  (-array-get [this arr i]
+    (clojure.core/aget ^ints arr (clojure.core/int i)))
+
+  (-array-set! [this arr i x]
+    (clojure.core/aset ^ints arr (clojure.core/int i) (clojure.core/int x))))
+
+(deftype ByteArrayManager []
+  IArrayManager
+  (-new-array [this size]
+    (clojure.core/byte-array (clojure.core/long size)))
+
+  (-array-get [this arr i]
+    (clojure.core/aget ^bytes arr (clojure.core/int i)))
+
+  (-array-set! [this arr i x]
+    (clojure.core/aset ^bytes arr (clojure.core/int i) (clojure.core/byte x))))
+
+(def object-array-manager (ObjectArrayManager.))
+
+(def ^:private array-managers
+  {:long   (LongArrayManager.)
+   :double (DoubleArrayManager.)
+   :int    (IntArrayManager.)
+   :byte   (ByteArrayManager.)})
+
+; nil for a type that has no manager
+(defn array-manager [t]
+  (clojure.core/get array-managers t))
+
+(def ^:private object-array-type (Class/forName "[Ljava.lang.Object;"))
+(def ^:private long-array-type   (Class/forName "[J"))
+(def ^:private double-array-type (Class/forName "[D"))
+(def ^:private int-array-type    (Class/forName "[I"))
+(def ^:private byte-array-type   (Class/forName "[B"))
+
+(defmacro ^:private reduce-typed [hint arr start end f init]
+  (let [a (with-meta (gensym "arr") {:tag hint})]
+    `(let [~a ~arr
+           end# (clojure.core/long ~end)
+           f# ~f]
+       (loop [i# (clojure.core/long ~start)
+              acc# ~init]
+         (if (clojure.core/< i# end#)
+           (let [acc# (f# acc# (clojure.core/aget ~a i#))]
+             (if (is-reduced? acc#)
+               acc#
+               (recur (clojure.core/inc i#) acc#)))
+           acc#)))))
+
+; Reduces arr from start to end with a loop typed to the array, and returns
+; a reduced value without unwrapping it.
+(defn array-reduce [arr start end f init]
+  (cond
+    (clojure.core/instance? object-array-type arr) (reduce-typed objects arr start end f init)
+    (clojure.core/instance? long-array-type arr)   (reduce-typed longs arr start end f init)
+    (clojure.core/instance? double-array-type arr) (reduce-typed doubles arr start end f init)
+    (clojure.core/instance? int-array-type arr)    (reduce-typed ints arr start end f init)
+    :else                                          (reduce-typed bytes arr start end f init)))
@@ -1,15 +1,18 @@
 (ns clojure.lang.atomic-ref
-  (:refer-clojure :only [defmacro])
-  (:import [java.util.concurrent.atomic AtomicReference AtomicLong]))
+  (:refer-clojure :only [defmacro let])
+  (:import [java.util.concurrent.atomic AtomicReference AtomicReferenceArray AtomicLong]))
 
 (defmacro ref-get [ref]
-  `(.get ~ref))
+  `(let [ref# ~ref]
+     (.get ^AtomicReference ref#)))
 
 (defmacro ref-set! [ref new-value]
-  `(.set ~ref ~new-value))
+  `(let [ref# ~ref]
+     (.set ^AtomicReference ref# ~new-value)))
 
 (defmacro ref-compare-and-set! [ref old-value new-value]
-  `(.compareAndSet ~ref ~old-value ~new-value))
+  `(let [ref# ~ref]
+     (.compareAndSet ^AtomicReference ref# ~old-value ~new-value)))
 
 (defmacro new-atomic-ref
   ([]
@@ -20,3 +23,33 @@
 (defmacro new-atomic-long [l]
   `(AtomicLong. ~l))
 
+(defmacro long-get [l]
+  `(let [l# ~l]
+     (.get ^AtomicLong l#)))
+
+(defmacro long-add! [l delta]
+  `(let [l# ~l]
+     (.addAndGet ^AtomicLong l# ~delta)))
+
+(defmacro long-compare-and-set! [l old-value new-value]
+  `(let [l# ~l]
+     (.compareAndSet ^AtomicLong l# ~old-value ~new-value)))
+
+(defmacro new-atomic-ref-array [size]
+  `(AtomicReferenceArray. (clojure.core/int ~size)))
+
+(defmacro ref-array-length [arr]
+  `(let [arr# ~arr]
+     (.length ^AtomicReferenceArray arr#)))
+
+(defmacro ref-array-get [arr i]
+  `(let [arr# ~arr]
+     (.get ^AtomicReferenceArray arr# (clojure.core/int ~i))))
+
+(defmacro ref-array-set! [arr i new-value]
+  `(let [arr# ~arr]
+     (.set ^AtomicReferenceArray arr# (clojure.core/int ~i) ~new-value)))
+
+(defmacro ref-array-compare-and-set! [arr i old-value new-value]
+  `(let [arr# ~arr]
+     (.compareAndSet ^AtomicReferenceArray arr# (clojure.core/int ~i) ~old-value ~new-value)))
@@ -0,0 +1,49 @@
+(ns clojure.lang.capability
+  (:refer-clojure :only [add-watch defmacro defn defn- deref fn if-let let nil?])
+  (:import [clojure.lang.platform ClassCache]
+           [java.util.concurrent ConcurrentHashMap]))
+
+; satisfies? walks the supers of a class that does not implement a protocol
+; on every call, so each protocol keeps a cache of its answer by class.
+; Extending the protocol alters its var, and the watch on the var swaps in
+; an empty cache, so an answer computed from the old impls is dropped with
+; the old cache rather than cleared from under a reader. The caches read
+; without a lock and hold their classes weakly, so that types made by eval
+; or a reload can still be unloaded.
+
+(def ^:private caches (ConcurrentHashMap.))
+
+; the class key for nil, which may be extended like any class
+(def ^:private nil-key (Object.))
+
+; The watch goes on before the cache is published, so an extension that
+; lands in between swaps out the cache rather than leave it stale.
+(defn- protocol-cache ^ClassCache [protocol-var]
+  (if-let [cache (.get ^ConcurrentHashMap caches protocol-var)]
+    cache
+    (let [cache (ClassCache.)]
+      (add-watch protocol-var ::capability
+        (fn [_ v _ _]
+          (.put ^ConcurrentHashMap caches v (ClassCache.))))
+      (if-let [existing (.putIfAbsent ^ConcurrentHashMap caches protocol-var cache)]
+        existing
+        cache))))
+
+(defn satisfies-protocol? [protocol-var x]
+  (let [cache (protocol-cache protocol-var)
+        k (if (nil? x) nil-key (.getClass ^Object x))
+        known (.get cache k)]
+    (if (nil? known)
+      (let [answer (clojure.core/boolean (clojure.core/satisfies? (deref protocol-var) x))]
+        (.put cache k answer)
+        answer)
+      (.booleanValue ^Boolean known))))
+
+; Types that implement the protocol inline are answered by an instance
+; check on its interface, and only extended types go to the cache.
+(defmacro satisfies? [protocol x]
+  (let [interface (clojure.core/symbol (.getName ^Class (:on-interface (deref (clojure.core/resolve protocol)))))]
+    `(let [x# ~x]
+       (if (clojure.core/instance? ~interface x#)
+         true
+         (satisfies-protocol? (var ~protocol) x#)))))
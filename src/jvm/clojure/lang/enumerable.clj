@@ -1,6 +1,7 @@
 (ns clojure.lang.enumerable
-  (:refer-clojure :only [defmacro deftype let loop reset! defn update-in fn cons list satisfies? when])
+  (:refer-clojure :only [defmacro deftype let loop reset! defn update-in fn cons list when])
   (:require [clojure.next :refer :all :exclude [cons]]
+            [clojure.lang.capability :refer [satisfies?]]
             [clojure.lang.numbers   :refer [unsafe-cast-int]]
             [clojure.lang.protocols :refer [IPersistentVector -array-for]]))
 
@@ -67,6 +68,12 @@
 (defn new-seq-iterator [-seq]
   (SeqIterator. -seq))
 
+(defn has-next? [^java.util.Iterator iter]
+  (.hasNext iter))
+
+(defn next-item [^java.util.Iterator iter]
+  (.next iter))
+
 (defn has-more-elements? [^java.util.Enumeration iter]
   (.hasMoreElements iter))
 
@@ -76,3 +83,12 @@
 (defmacro enumerable-method [bindings & body]
   `(iterator ~bindings ~@body))
 
+(defmacro has-next-method [bindings & body]
+  `(hasNext ~bindings ~@body))
+
+(defmacro next-method [bindings & body]
+  `(next ~bindings ~@body))
+
+(defmacro remove-method [bindings & body]
+  `(remove ~bindings ~@body))
+
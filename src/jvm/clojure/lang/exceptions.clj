@@ -43,6 +43,11 @@
 (defmacro new-out-of-bounds-exception [& args]
   (list* 'new out-of-bounds-exception args))
 
+(def no-such-element-exception java.util.NoSuchElementException)
+
+(defmacro new-no-such-element-exception [& args]
+  (list* 'new no-such-element-exception args))
+
 (def class-cast-exception ClassCastException)
 
 (defmacro new-class-cast-exception [& args]
@@ -0,0 +1,45 @@
+(ns clojure.lang.fork-join
+  (:refer-clojure :only [defmacro let])
+  (:require [clojure.next :refer :all]))
+
+(defmacro ^:private if-fork-join [then else]
+  (if (try
+        (Class/forName "java.util.concurrent.ForkJoinTask")
+        true
+        (catch ClassNotFoundException e
+          false))
+    then
+    else))
+
+(if-fork-join
+  (do
+    (def fork-join-pool (java.util.concurrent.ForkJoinPool.))
+
+    (defmacro new-task [f]
+      `(let [f# ~f]
+         (java.util.concurrent.ForkJoinTask/adapt ^Callable f#)))
+
+    (defmacro fork-task [task]
+      `(.fork ^java.util.concurrent.ForkJoinTask ~task))
+
+    (defmacro join-task [task]
+      `(.join ^java.util.concurrent.ForkJoinTask ~task))
+
+    ; tasks forked from inside the pool are run by its workers directly
+    (defmacro invoke-in-pool [f]
+      `(let [f# ~f]
+         (if (java.util.concurrent.ForkJoinTask/inForkJoinPool)
+           (f#)
+           (.invoke ^java.util.concurrent.ForkJoinPool fork-join-pool (new-task f#))))))
+
+  ; Java 6 has no fork/join, so a task runs when it is joined
+  (do
+    (defmacro new-task [f] f)
+
+    (defmacro fork-task [task] task)
+
+    (defmacro join-task [task]
+      `(~task))
+
+    (defmacro invoke-in-pool [f]
+      `(~f))))
@@ -1,12 +1,29 @@
 (ns clojure.lang.hash
-  (:refer-clojure :only [defmacro extend-protocol extend-type fn defn list update-in cons])
+  (:refer-clojure :only [defmacro extend-protocol extend-type fn defn let list long update-in cons])
   (:require [clojure.lang.protocols :refer [IHash]])
-  (:import [clojure.lang Util]))
+  (:import [clojure.lang.platform Murmur3]))
 
 (defn hash-combine [hash1 hash2]
-  (Util/hashCombine hash1 hash2))
+  (Murmur3/combine (long hash1) (long hash2)))
 
-(defn hash-code [this]
+(defn hash-string [s]
+  (Murmur3/hashUnencodedChars ^CharSequence s))
+
+; ordered collections fold 31 * acc + h over their elements from 1,
+; unordered ones sum from 0, and both finish with mix-collection-hash
+(defmacro hash-ordered-step [acc h]
+  `(let [acc# ~acc h# ~h]
+     (Murmur3/orderedStep (long acc#) (long h#))))
+
+(defmacro hash-unordered-step [acc h]
+  `(let [acc# ~acc h# ~h]
+     (Murmur3/unorderedStep (long acc#) (long h#))))
+
+(defmacro mix-collection-hash [h n]
+  `(let [h# ~h n# ~n]
+     (Murmur3/mixCollHash (long h#) (long n#))))
+
+(defn hash-code [^Object this]
   (.hashCode this))
 
 (extend-protocol IHash
@@ -20,4 +37,3 @@
 
 (defmacro hash-method [bindings & body]
   `(hashCode ~bindings ~@body))
-
@@ -1,6 +1,7 @@
 (ns clojure.lang.input-output
-  (:refer-clojure :only [binding cond defmacro defmethod defn dotimes fn let loop prefer-method satisfies? when when-let])
+  (:refer-clojure :only [binding cond defmacro defmethod defn dotimes fn let loop prefer-method when when-let])
   (:require [clojure.next           :refer :all]
+            [clojure.lang.capability :refer [satisfies?]]
             [clojure.lang.protocols :refer [IMeta]])
   (:import [java.io Writer OutputStreamWriter StringWriter]
            [clojure.next]))
@@ -0,0 +1,42 @@
+(ns clojure.lang.int-map
+  (:refer-clojure :only [defmacro let or instance?]))
+
+; Int maps branch on the bits of a key with its sign bit flipped, so that
+; the trie keeps negative keys before positive ones.
+
+(defmacro integer-key? [k]
+  `(let [k# ~k]
+     (or (instance? Long k#)
+         (instance? Integer k#)
+         (instance? Short k#)
+         (instance? Byte k#))))
+
+(defmacro ->long [k]
+  `(let [^Number n# ~k]
+     (.longValue n#)))
+
+(defmacro ->bits [k]
+  `(clojure.core/bit-xor ~k Long/MIN_VALUE))
+
+(defmacro key= [x y]
+  `(clojure.core/== ~x ~y))
+
+; the highest bit two prefixes differ in
+(defmacro branch-mask [x y]
+  `(Long/highestOneBit (clojure.core/bit-xor ~x ~y)))
+
+; the bits above mask
+(defmacro prefix [bits mask]
+  `(let [m# ~mask]
+     (clojure.core/bit-and ~bits (clojure.core/bit-not (clojure.core/bit-or (clojure.core/unchecked-dec m#) m#)))))
+
+(defmacro prefix-matches? [bits p mask]
+  `(clojure.core/== (prefix ~bits ~mask) ~p))
+
+(defmacro left? [bits mask]
+  `(clojure.core/zero? (clojure.core/bit-and ~bits ~mask)))
+
+; masks are single bits and compare unsigned
+(defmacro higher-mask? [m n]
+  `(clojure.core/> (clojure.core/unchecked-add ~m Long/MIN_VALUE)
+                   (clojure.core/unchecked-add ~n Long/MIN_VALUE)))
@@ -27,6 +27,46 @@
 (def platform-double        Double)
 (def platform-native-double Double/TYPE)
 
+(def ^:private long-tags   #{'long 'int 'short 'byte})
+(def ^:private double-tags #{'double 'float})
+
+(defn- local-class [env sym]
+  (let [^clojure.lang.Compiler$LocalBinding b (clojure.core/get env sym)]
+    (if (and b (.hasJavaClass b))
+      (.getJavaClass b))))
+
+; :long or :double when the compiler will see x as that primitive (a literal,
+; a type hint or a primitive local), nil otherwise
+(defn- primitive-type [env x]
+  (cond
+    (instance? Long x) :long
+    (instance? Double x) :double
+    :else
+      (let [tag (:tag (clojure.core/meta x))
+            c (if (clojure.core/symbol? x) (local-class env x))]
+        (cond
+          (or (long-tags tag) (identical? c Long/TYPE) (identical? c Integer/TYPE)) :long
+          (or (double-tags tag) (identical? c Double/TYPE) (identical? c Float/TYPE)) :double))))
+
+; picks the long or double overload of method when every argument is
+; primitive, so hinted arithmetic never allocates a Number. Mixed long and
+; double arguments are widened to double unless promote? is false.
+(defn- numeric-call
+  ([env klass method args]
+    (numeric-call env klass method args true))
+  ([env klass method args promote?]
+    (let [types (clojure.core/map #(primitive-type env %) args)
+          widen (fn [t x] (if (identical? t :long) `(. Cast (uncheckedCastToDouble ~x)) x))]
+      (cond
+        (clojure.core/every? #{:long} types)
+          `(. ~klass (~method ~@args))
+        (clojure.core/every? #{:double} types)
+          `(. ~klass (~method ~@args))
+        (and promote? (clojure.core/every? #{:long :double} types))
+          `(. ~klass (~method ~@(clojure.core/map widen types args)))
+        :else
+          `(. ~klass (~method ~@(clojure.core/map (fn [x] `(->num ~x)) args)))))))
+
 (defmacro number? [x]
   `(instance? Number ~x))
 
@@ -70,13 +110,13 @@
   `(. BitOps (numberUnsignedBitShiftRight ~x ~y)))
 
 (defmacro + [x y]
-  `(. Addition (numberAdd ~x ~y)))
+  (numeric-call &env `Addition 'numberAdd [x y]))
 
 (defmacro +' [x y]
   `(. Addition (numberPrecisionAdd ~x ~y)))
 
 (defmacro inc [x]
-  `(. Increment (numberIncrement ~x)))
+  (numeric-call &env `Increment 'numberIncrement [x]))
 
 (defmacro unchecked-inc [x]
   `(. Increment (numberUncheckedIncrement ~x)))
@@ -88,7 +128,7 @@
   `(. Increment (numberPrecisionIncrement ~x)))
 
 (defmacro * [x y]
-  `(. Multiplication (numberMultiply ~x ~y)))
+  (numeric-call &env `Multiplication 'numberMultiply [x y]))
 
 (defmacro *' [x y]
   `(. Multiplication (numberPrecisionMultiply ~x ~y)))
@@ -101,7 +141,7 @@
 
 (defmacro -
   ([x] `(. Negation (numberNegate ~x)))
-  ([x y] `(. Subtraction (numberSubtract ~x ~y))))
+  ([x y] (numeric-call &env `Subtraction 'numberSubtract [x y])))
 
 (defmacro -'
   ([x] `(. Negation (numberPrecisionNegate ~x)))
@@ -120,7 +160,7 @@
   `(. Negation (numberUncheckedNegateInt ~x)))
 
 (defmacro dec [x]
-  `(. Decrement (numberDecrement ~x)))
+  (numeric-call &env `Decrement 'numberDecrement [x]))
 
 (defmacro unchecked-dec [x]
   `(. Decrement (numberUncheckedDecrement ~x)))
@@ -147,10 +187,10 @@
   `(. Rationalize (numberRationalize ~x)))
 
 (defmacro equal? [x y]
-  `(. Equivalence (numberEqual ~x ~y)))
+  (numeric-call &env `Equivalence 'numberEqual [x y] false))
 
 (defmacro equivalent? [x y]
-  `(. Equivalence (numbersEquivalent ~x ~y)))
+  (numeric-call &env `Equivalence 'numbersEquivalent [x y]))
 
 (defmacro zero? [x]
   `(. Zero (numberIsZero ~x)))
@@ -235,10 +275,10 @@
   `(. Cast (castToChar ~x)))
 
 (defmacro < [x y]
-  `(. Comparison (lessThan ~x ~y)))
+  (numeric-call &env `Comparison 'lessThan [x y]))
 
 (defmacro <= [x y]
-  `(. Comparison (lessThanEqualTo ~x ~y)))
+  (numeric-call &env `Comparison 'lessThanEqualTo [x y]))
 
 (extend-type Ratio
   IRatio
@@ -3,13 +3,29 @@ package clojure.lang.platform;
 import java.math.BigInteger;
 import java.math.BigDecimal;
 
-public final class BigInt extends Number {
+public final class BigInt extends Number implements Comparable<BigInt> {
 
   private final long lpart;
   private final BigInteger bipart;
 
-  final public static BigInt ZERO = new BigInt(0,null);
-  final public static BigInt ONE = new BigInt(1,null);
+  // Preallocated values for the small magnitudes most arithmetic lands on,
+  // with their BigInteger twins for the mixed long/BigInteger paths
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1024;
+  private static final BigInt[] CACHE = new BigInt[CACHE_HIGH - CACHE_LOW + 1];
+  private static final BigInteger[] BIG_INTEGER_CACHE = new BigInteger[CACHE_HIGH - CACHE_LOW + 1];
+
+  static {
+    for (int i = 0; i < CACHE.length; i++) {
+      CACHE[i] = new BigInt(i + CACHE_LOW, null);
+      BIG_INTEGER_CACHE[i] = BigInteger.valueOf(i + CACHE_LOW);
+    }
+  }
+
+  private static final BigInteger TWO_TO_THE_63 = BigInteger.ONE.shiftLeft(63);
+
+  final public static BigInt ZERO = BigInt.valueOf(0);
+  final public static BigInt ONE = BigInt.valueOf(1);
 
   private BigInt(long lpart, BigInteger bipart) {
     this.lpart = lpart;
@@ -26,7 +42,7 @@ public final class BigInt extends Number {
 
   public static BigInt fromBigInteger(BigInteger bi) {
     if (bi.bitLength() < 64) {
-      return new BigInt(bi.longValue(), null);
+      return BigInt.valueOf(bi.longValue());
     } else {
       return new BigInt(0, bi);
     }
@@ -34,18 +50,30 @@ public final class BigInt extends Number {
 
   public BigInteger toBigInteger() {
     if (bipart == null) {
-      return BigInteger.valueOf(lpart);
+      return BigInt.bigIntegerValueOf(lpart);
     } else {
       return bipart;
     }
   }
 
   public static BigInt fromLong(long l) {
-    return new BigInt(l, null);
+    return BigInt.valueOf(l);
   }
 
   public static BigInt valueOf(long l) {
-    return new BigInt(l, null);
+    if (l >= CACHE_LOW && l <= CACHE_HIGH) {
+      return CACHE[(int) l - CACHE_LOW];
+    } else {
+      return new BigInt(l, null);
+    }
+  }
+
+  private static BigInteger bigIntegerValueOf(long l) {
+    if (l >= CACHE_LOW && l <= CACHE_HIGH) {
+      return BIG_INTEGER_CACHE[(int) l - CACHE_LOW];
+    } else {
+      return BigInteger.valueOf(l);
+    }
   }
 
   public BigDecimal toBigDecimal() {
@@ -88,7 +116,7 @@ public final class BigInt extends Number {
     if (bipart == null) {
       return (int) lpart;
     } else {
-      return bipart.byteValue();
+      return bipart.intValue();
     }
   }
 
@@ -112,15 +140,34 @@ public final class BigInt extends Number {
     if ((bipart == null) && (y.bipart == null)) {
       long ret = lpart + y.lpart;
       if ((ret ^ lpart) >= 0 || (ret ^ y.lpart) >= 0) {
-          return BigInt.valueOf(ret);
+        return BigInt.valueOf(ret);
       } else {
         return BigInt.fromBigInteger(this.toBigInteger().add(y.toBigInteger()));
       }
+    } else if (y.bipart == null && y.lpart == 0) {
+      return this;
+    } else if (bipart == null && lpart == 0) {
+      return y;
     } else {
       return BigInt.fromBigInteger(this.toBigInteger().add(y.toBigInteger()));
     }
   }
 
+  public BigInt subtract(BigInt y) {
+    if ((bipart == null) && (y.bipart == null)) {
+      long ret = lpart - y.lpart;
+      if (((ret ^ lpart) & (lpart ^ y.lpart)) >= 0) {
+        return BigInt.valueOf(ret);
+      } else {
+        return BigInt.fromBigInteger(this.toBigInteger().subtract(y.toBigInteger()));
+      }
+    } else if (y.bipart == null && y.lpart == 0) {
+      return this;
+    } else {
+      return BigInt.fromBigInteger(this.toBigInteger().subtract(y.toBigInteger()));
+    }
+  }
+
   public BigInt multiply(BigInt y) {
     if ((bipart == null) && (y.bipart == null)) {
       long ret = lpart * y.lpart;
@@ -129,6 +176,12 @@ public final class BigInt extends Number {
       } else {
         return BigInt.fromBigInteger(this.toBigInteger().multiply(y.toBigInteger()));
       }
+    } else if (y.bipart == null && y.lpart == 1) {
+      return this;
+    } else if (bipart == null && lpart == 1) {
+      return y;
+    } else if ((y.bipart == null && y.lpart == 0) || (bipart == null && lpart == 0)) {
+      return ZERO;
     } else {
       return BigInt.fromBigInteger(this.toBigInteger().multiply(y.toBigInteger()));
     }
@@ -141,6 +194,15 @@ public final class BigInt extends Number {
       } else {
         return BigInt.valueOf(lpart / y.lpart);
       }
+    } else if (bipart == null) {
+      // y is past a long, so it outweighs x unless x is -2^63 and y 2^63
+      if (lpart == Long.MIN_VALUE && y.bipart.equals(TWO_TO_THE_63)) {
+        return BigInt.valueOf(-1);
+      } else {
+        return ZERO;
+      }
+    } else if (y.lpart == 1) {
+      return this;
     } else {
       return BigInt.fromBigInteger(this.toBigInteger().divide(y.toBigInteger()));
     }
@@ -148,20 +210,71 @@ public final class BigInt extends Number {
 
   public BigInt remainder(BigInt y) {
     if ((bipart == null) && (y.bipart == null)) {
-        return BigInt.valueOf(lpart % y.lpart);
+      return BigInt.valueOf(lpart % y.lpart);
+    } else if (bipart == null) {
+      if (lpart == Long.MIN_VALUE && y.bipart.equals(TWO_TO_THE_63)) {
+        return ZERO;
+      } else {
+        return this;
+      }
     } else {
       return BigInt.fromBigInteger(this.toBigInteger().remainder(y.toBigInteger()));
     }
   }
 
-  public boolean lt(BigInt y) {
+  public BigInt negate() {
+    if (bipart == null) {
+      if (lpart == Long.MIN_VALUE) {
+        return BigInt.fromBigInteger(this.toBigInteger().negate());
+      } else {
+        return BigInt.valueOf(-lpart);
+      }
+    } else {
+      return BigInt.fromBigInteger(bipart.negate());
+    }
+  }
+
+  public BigInt gcd(BigInt y) {
+    if ((bipart == null) && (y.bipart == null)
+        && lpart != Long.MIN_VALUE && y.lpart != Long.MIN_VALUE) {
+      long a = Math.abs(lpart);
+      long b = Math.abs(y.lpart);
+      while (b != 0) {
+        long r = a % b;
+        a = b;
+        b = r;
+      }
+      return BigInt.valueOf(a);
+    } else {
+      return BigInt.fromBigInteger(this.toBigInteger().gcd(y.toBigInteger()));
+    }
+  }
+
+  public int signum() {
+    if (bipart == null) {
+      return (lpart > 0) ? 1 : ((lpart < 0) ? -1 : 0);
+    } else {
+      return bipart.signum();
+    }
+  }
+
+  public int compareTo(BigInt y) {
     if ((bipart == null) && (y.bipart == null)) {
-        return lpart < y.lpart;
+      return (lpart < y.lpart) ? -1 : ((lpart == y.lpart) ? 0 : 1);
+    } else if (bipart == null) {
+      // a value past a long outweighs any long
+      return -y.bipart.signum();
+    } else if (y.bipart == null) {
+      return bipart.signum();
     } else {
-      return this.toBigInteger().compareTo(y.toBigInteger()) < 0;
+      return bipart.compareTo(y.bipart);
     }
   }
 
+  public boolean lt(BigInt y) {
+    return this.compareTo(y) < 0;
+  }
+
   public int hashCode() {
     if (bipart == null) {
       return (int) (lpart ^ (lpart >>> 32));
@@ -0,0 +1,88 @@
+package clojure.lang.platform;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A map from classes to booleans whose reads take no lock. It holds its
+// keys weakly, so that an answer cached for a class does not keep the class
+// from being unloaded, and drops the entries of collected keys on put.
+public final class ClassCache {
+
+  private final ConcurrentHashMap<Object, Boolean> map = new ConcurrentHashMap<Object, Boolean>();
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+  public Boolean get(Object key) {
+    return map.get(new LookupKey(key));
+  }
+
+  public void put(Object key, Boolean value) {
+    Reference<?> collected;
+    while ((collected = queue.poll()) != null) {
+      map.remove(collected);
+    }
+    map.put(new WeakKey(key, queue), value);
+  }
+
+  private interface Key {
+    Object referent();
+  }
+
+  private static boolean sameReferent(Key key, Object other) {
+    if (key == other) {
+      return true;
+    }
+    if (!(other instanceof Key)) {
+      return false;
+    }
+    Object referent = key.referent();
+    return referent != null && referent == ((Key) other).referent();
+  }
+
+  private static final class LookupKey implements Key {
+    private final Object referent;
+
+    LookupKey(Object referent) {
+      this.referent = referent;
+    }
+
+    public Object referent() {
+      return referent;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(referent);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameReferent(this, other);
+    }
+  }
+
+  private static final class WeakKey extends WeakReference<Object> implements Key {
+    private final int hash;
+
+    WeakKey(Object referent, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+      this.hash = System.identityHashCode(referent);
+    }
+
+    public Object referent() {
+      return get();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameReferent(this, other);
+    }
+  }
+
+}
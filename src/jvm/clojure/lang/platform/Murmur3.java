@@ -0,0 +1,84 @@
+package clojure.lang.platform;
+
+// The 32 bit MurmurHash3 mixing steps (Austin Appleby), with the same seed
+// and finalization as Clojure's hasheq. Collection hashes are accumulated
+// with orderedStep or unorderedStep and finished with mixCollHash.
+public final class Murmur3 {
+
+  private static final int SEED = 0;
+  private static final int C1 = 0xcc9e2d51;
+  private static final int C2 = 0x1b873593;
+
+  private Murmur3() {}
+
+  private static int mixK1(int k1) {
+    k1 *= C1;
+    k1 = Integer.rotateLeft(k1, 15);
+    k1 *= C2;
+    return k1;
+  }
+
+  private static int mixH1(int h1, int k1) {
+    h1 ^= k1;
+    h1 = Integer.rotateLeft(h1, 13);
+    h1 = h1 * 5 + 0xe6546b64;
+    return h1;
+  }
+
+  private static int fmix(int h1, int length) {
+    h1 ^= length;
+    h1 ^= h1 >>> 16;
+    h1 *= 0x85ebca6b;
+    h1 ^= h1 >>> 13;
+    h1 *= 0xc2b2ae35;
+    h1 ^= h1 >>> 16;
+    return h1;
+  }
+
+  public static int hashInt(int input) {
+    if (input == 0) {
+      return 0;
+    }
+    return fmix(mixH1(SEED, mixK1(input)), 4);
+  }
+
+  public static int hashLong(long input) {
+    if (input == 0) {
+      return 0;
+    }
+    int h1 = mixH1(SEED, mixK1((int) input));
+    h1 = mixH1(h1, mixK1((int) (input >>> 32)));
+    return fmix(h1, 8);
+  }
+
+  // Two chars per block, which is what upstream uses for symbol names
+  public static int hashUnencodedChars(CharSequence input) {
+    int h1 = SEED;
+    int length = input.length();
+    for (int i = 1; i < length; i += 2) {
+      int k1 = input.charAt(i - 1) | (input.charAt(i) << 16);
+      h1 = mixH1(h1, mixK1(k1));
+    }
+    if ((length & 1) == 1) {
+      h1 ^= mixK1(input.charAt(length - 1));
+    }
+    return fmix(h1, 2 * length);
+  }
+
+  public static int combine(long seed, long hash) {
+    return fmix(mixH1((int) seed, mixK1((int) hash)), 4);
+  }
+
+  public static int orderedStep(long acc, long hash) {
+    return 31 * (int) acc + (int) hash;
+  }
+
+  public static int unorderedStep(long acc, long hash) {
+    return (int) acc + (int) hash;
+  }
+
+  public static int mixCollHash(long hash, long count) {
+    return fmix(mixH1(SEED, mixK1((int) hash)), (int) count);
+  }
+
+}
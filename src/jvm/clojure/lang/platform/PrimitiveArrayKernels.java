@@ -0,0 +1,522 @@
+package clojure.lang.platform;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// Bulk numeric kernels over long[], int[] and double[].
+//
+// Element-wise kernels are plain counted loops, which C2 unrolls and
+// compiles to SIMD on its own. Reductions keep four independent
+// accumulators, so they are not serialized on one add and the JIT can
+// interleave them. Integer kernels wrap on overflow like the unchecked
+// ops, and double sums and dot products add in four lanes, so their
+// rounding can differ from a left-to-right reduce.
+public final class PrimitiveArrayKernels {
+
+  // sum
+
+  public static long sum(long[] a) {
+    long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += a[i];
+      s1 += a[i + 1];
+      s2 += a[i + 2];
+      s3 += a[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += a[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  public static long sum(int[] a) {
+    long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += a[i];
+      s1 += a[i + 1];
+      s2 += a[i + 2];
+      s3 += a[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += a[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  public static double sum(double[] a) {
+    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += a[i];
+      s1 += a[i + 1];
+      s2 += a[i + 2];
+      s3 += a[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += a[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  // dot
+
+  public static long dot(long[] a, long[] b) {
+    checkLengths(a.length, b.length);
+    long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += a[i] * b[i];
+      s1 += a[i + 1] * b[i + 1];
+      s2 += a[i + 2] * b[i + 2];
+      s3 += a[i + 3] * b[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += a[i] * b[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  public static long dot(int[] a, int[] b) {
+    checkLengths(a.length, b.length);
+    long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += (long) a[i] * b[i];
+      s1 += (long) a[i + 1] * b[i + 1];
+      s2 += (long) a[i + 2] * b[i + 2];
+      s3 += (long) a[i + 3] * b[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += (long) a[i] * b[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  public static double dot(double[] a, double[] b) {
+    checkLengths(a.length, b.length);
+    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      s0 += a[i] * b[i];
+      s1 += a[i + 1] * b[i + 1];
+      s2 += a[i + 2] * b[i + 2];
+      s3 += a[i + 3] * b[i + 3];
+    }
+    for (; i < a.length; i++) {
+      s0 += a[i] * b[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  // scale
+
+  public static long[] scale(long[] a, long k) {
+    long[] ret = new long[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] * k;
+    }
+    return ret;
+  }
+
+  public static int[] scale(int[] a, int k) {
+    int[] ret = new int[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] * k;
+    }
+    return ret;
+  }
+
+  public static double[] scale(double[] a, double k) {
+    double[] ret = new double[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] * k;
+    }
+    return ret;
+  }
+
+  // add
+
+  public static long[] add(long[] a, long[] b) {
+    checkLengths(a.length, b.length);
+    long[] ret = new long[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] + b[i];
+    }
+    return ret;
+  }
+
+  public static int[] add(int[] a, int[] b) {
+    checkLengths(a.length, b.length);
+    int[] ret = new int[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] + b[i];
+    }
+    return ret;
+  }
+
+  public static double[] add(double[] a, double[] b) {
+    checkLengths(a.length, b.length);
+    double[] ret = new double[a.length];
+    for (int i = 0; i < a.length; i++) {
+      ret[i] = a[i] + b[i];
+    }
+    return ret;
+  }
+
+  // min and max
+
+  public static long min(long[] a) {
+    checkNotEmpty(a.length);
+    long m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.min(m0, a[i]);
+      m1 = Math.min(m1, a[i + 1]);
+      m2 = Math.min(m2, a[i + 2]);
+      m3 = Math.min(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.min(m0, a[i]);
+    }
+    return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+  }
+
+  public static int min(int[] a) {
+    checkNotEmpty(a.length);
+    int m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.min(m0, a[i]);
+      m1 = Math.min(m1, a[i + 1]);
+      m2 = Math.min(m2, a[i + 2]);
+      m3 = Math.min(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.min(m0, a[i]);
+    }
+    return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+  }
+
+  public static double min(double[] a) {
+    checkNotEmpty(a.length);
+    double m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.min(m0, a[i]);
+      m1 = Math.min(m1, a[i + 1]);
+      m2 = Math.min(m2, a[i + 2]);
+      m3 = Math.min(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.min(m0, a[i]);
+    }
+    return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+  }
+
+  public static long max(long[] a) {
+    checkNotEmpty(a.length);
+    long m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.max(m0, a[i]);
+      m1 = Math.max(m1, a[i + 1]);
+      m2 = Math.max(m2, a[i + 2]);
+      m3 = Math.max(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.max(m0, a[i]);
+    }
+    return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+  }
+
+  public static int max(int[] a) {
+    checkNotEmpty(a.length);
+    int m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.max(m0, a[i]);
+      m1 = Math.max(m1, a[i + 1]);
+      m2 = Math.max(m2, a[i + 2]);
+      m3 = Math.max(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.max(m0, a[i]);
+    }
+    return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+  }
+
+  public static double max(double[] a) {
+    checkNotEmpty(a.length);
+    double m0 = a[0], m1 = a[0], m2 = a[0], m3 = a[0];
+    int i = 0;
+    for (int bound = a.length & ~3; i < bound; i += 4) {
+      m0 = Math.max(m0, a[i]);
+      m1 = Math.max(m1, a[i + 1]);
+      m2 = Math.max(m2, a[i + 2]);
+      m3 = Math.max(m3, a[i + 3]);
+    }
+    for (; i < a.length; i++) {
+      m0 = Math.max(m0, a[i]);
+    }
+    return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+  }
+
+  // prefix sum, inclusive
+
+  public static long[] prefixSum(long[] a) {
+    long[] ret = new long[a.length];
+    long s = 0;
+    for (int i = 0; i < a.length; i++) {
+      s += a[i];
+      ret[i] = s;
+    }
+    return ret;
+  }
+
+  public static long[] prefixSum(int[] a) {
+    long[] ret = new long[a.length];
+    long s = 0;
+    for (int i = 0; i < a.length; i++) {
+      s += a[i];
+      ret[i] = s;
+    }
+    return ret;
+  }
+
+  public static double[] prefixSum(double[] a) {
+    double[] ret = new double[a.length];
+    double s = 0;
+    for (int i = 0; i < a.length; i++) {
+      s += a[i];
+      ret[i] = s;
+    }
+    return ret;
+  }
+
+  // compare, lexicographically with a shorter prefix first
+
+  public static int compare(long[] a, long[] b) {
+    int n = Math.min(a.length, b.length);
+    for (int i = 0; i < n; i++) {
+      if (a[i] != b[i]) {
+        return (a[i] < b[i]) ? -1 : 1;
+      }
+    }
+    return compareLengths(a.length, b.length);
+  }
+
+  public static int compare(int[] a, int[] b) {
+    int n = Math.min(a.length, b.length);
+    for (int i = 0; i < n; i++) {
+      if (a[i] != b[i]) {
+        return (a[i] < b[i]) ? -1 : 1;
+      }
+    }
+    return compareLengths(a.length, b.length);
+  }
+
+  public static int compare(double[] a, double[] b) {
+    int n = Math.min(a.length, b.length);
+    for (int i = 0; i < n; i++) {
+      int c = Double.compare(a[i], b[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return compareLengths(a.length, b.length);
+  }
+
+  // fill
+
+  public static long[] fill(long[] a, long v) {
+    Arrays.fill(a, v);
+    return a;
+  }
+
+  public static int[] fill(int[] a, int v) {
+    Arrays.fill(a, v);
+    return a;
+  }
+
+  public static double[] fill(double[] a, double v) {
+    Arrays.fill(a, v);
+    return a;
+  }
+
+  // Untyped entry points, dispatching on the array type
+
+  public static Number sum(Object a) {
+    if (a instanceof long[]) {
+      return sum((long[]) a);
+    } else if (a instanceof double[]) {
+      return sum((double[]) a);
+    } else if (a instanceof int[]) {
+      return sum((int[]) a);
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  public static Number dot(Object a, Object b) {
+    if (a instanceof long[] && b instanceof long[]) {
+      return dot((long[]) a, (long[]) b);
+    } else if (a instanceof double[] && b instanceof double[]) {
+      return dot((double[]) a, (double[]) b);
+    } else if (a instanceof int[] && b instanceof int[]) {
+      return dot((int[]) a, (int[]) b);
+    } else {
+      throw unsupported(a, b);
+    }
+  }
+
+  public static Object scale(Object a, Number k) {
+    if (a instanceof long[]) {
+      return scale((long[]) a, exactLong(k, Long.MIN_VALUE, Long.MAX_VALUE, "long"));
+    } else if (a instanceof double[]) {
+      return scale((double[]) a, k.doubleValue());
+    } else if (a instanceof int[]) {
+      return scale((int[]) a, (int) exactLong(k, Integer.MIN_VALUE, Integer.MAX_VALUE, "int"));
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  public static Object add(Object a, Object b) {
+    if (a instanceof long[] && b instanceof long[]) {
+      return add((long[]) a, (long[]) b);
+    } else if (a instanceof double[] && b instanceof double[]) {
+      return add((double[]) a, (double[]) b);
+    } else if (a instanceof int[] && b instanceof int[]) {
+      return add((int[]) a, (int[]) b);
+    } else {
+      throw unsupported(a, b);
+    }
+  }
+
+  public static Number min(Object a) {
+    if (a instanceof long[]) {
+      return min((long[]) a);
+    } else if (a instanceof double[]) {
+      return min((double[]) a);
+    } else if (a instanceof int[]) {
+      return (long) min((int[]) a);
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  public static Number max(Object a) {
+    if (a instanceof long[]) {
+      return max((long[]) a);
+    } else if (a instanceof double[]) {
+      return max((double[]) a);
+    } else if (a instanceof int[]) {
+      return (long) max((int[]) a);
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  public static Object prefixSum(Object a) {
+    if (a instanceof long[]) {
+      return prefixSum((long[]) a);
+    } else if (a instanceof double[]) {
+      return prefixSum((double[]) a);
+    } else if (a instanceof int[]) {
+      return prefixSum((int[]) a);
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  public static int compare(Object a, Object b) {
+    if (a instanceof long[] && b instanceof long[]) {
+      return compare((long[]) a, (long[]) b);
+    } else if (a instanceof double[] && b instanceof double[]) {
+      return compare((double[]) a, (double[]) b);
+    } else if (a instanceof int[] && b instanceof int[]) {
+      return compare((int[]) a, (int[]) b);
+    } else {
+      throw unsupported(a, b);
+    }
+  }
+
+  public static Object fill(Object a, Number v) {
+    if (a instanceof long[]) {
+      return fill((long[]) a, exactLong(v, Long.MIN_VALUE, Long.MAX_VALUE, "long"));
+    } else if (a instanceof double[]) {
+      return fill((double[]) a, v.doubleValue());
+    } else if (a instanceof int[]) {
+      return fill((int[]) a, (int) exactLong(v, Integer.MIN_VALUE, Integer.MAX_VALUE, "int"));
+    } else {
+      throw unsupported(a);
+    }
+  }
+
+  // The value of n as a long between min and max. Throws rather than
+  // truncate a fraction or wrap a value out of range, as int and aset-int do.
+  private static long exactLong(Number n, long min, long max, String type) {
+    BigDecimal d;
+    if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte) {
+      d = BigDecimal.valueOf(n.longValue());
+    } else if (n instanceof BigInt) {
+      d = ((BigInt) n).toBigDecimal();
+    } else if (n instanceof BigInteger) {
+      d = new BigDecimal((BigInteger) n);
+    } else if (n instanceof BigDecimal) {
+      d = (BigDecimal) n;
+    } else if (n instanceof Ratio) {
+      Ratio r = (Ratio) n;
+      if (!r.getDenominator().equals(BigInteger.ONE)) {
+        throw new IllegalArgumentException("Value is not an integer for " + type + ": " + n);
+      }
+      d = new BigDecimal(r.getNumerator());
+    } else {
+      double x = n.doubleValue();
+      if (Double.isNaN(x) || Double.isInfinite(x)) {
+        throw new IllegalArgumentException("Value out of range for " + type + ": " + n);
+      }
+      d = new BigDecimal(x);
+    }
+    if (d.signum() != 0 && d.stripTrailingZeros().scale() > 0) {
+      throw new IllegalArgumentException("Value is not an integer for " + type + ": " + n);
+    }
+    if (d.compareTo(BigDecimal.valueOf(min)) < 0 || d.compareTo(BigDecimal.valueOf(max)) > 0) {
+      throw new IllegalArgumentException("Value out of range for " + type + ": " + n);
+    }
+    return d.longValue();
+  }
+
+  private static void checkLengths(int x, int y) {
+    if (x != y) {
+      throw new IllegalArgumentException("Arrays must be the same length: " + x + " and " + y);
+    }
+  }
+
+  private static void checkNotEmpty(int length) {
+    if (length == 0) {
+      throw new IllegalArgumentException("Array must not be empty");
+    }
+  }
+
+  private static int compareLengths(int x, int y) {
+    return (x < y) ? -1 : ((x == y) ? 0 : 1);
+  }
+
+  private static IllegalArgumentException unsupported(Object a) {
+    return new IllegalArgumentException("Expected a long, int or double array: " + typeName(a));
+  }
+
+  private static IllegalArgumentException unsupported(Object a, Object b) {
+    return new IllegalArgumentException("Expected two long, int or double arrays of the same type: "
+                                        + typeName(a) + " and " + typeName(b));
+  }
+
+  private static String typeName(Object a) {
+    return (a == null) ? "nil" : a.getClass().getSimpleName();
+  }
+
+}
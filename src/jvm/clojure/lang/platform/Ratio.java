@@ -3,26 +3,80 @@ package clojure.lang.platform;
 import java.math.BigInteger;
 import java.math.BigDecimal;
 
-public final class Ratio extends Number {
+public final class Ratio extends Number implements Comparable<Ratio> {
 
+  // While both fit, the numerator and denominator live in the long parts
+  // and the BigInteger parts are null. Ratios are always reduced with a
+  // positive denominator, so each value has exactly one representation.
+  final private long lnumerator;
+  final private long ldenominator;
   final private BigInteger numerator;
   final private BigInteger denominator;
 
   public Ratio(BigInteger numerator, BigInteger denominator) {
-    this.numerator   = numerator;
-    this.denominator = denominator;
+    if (numerator.bitLength() < 64 && denominator.bitLength() < 64) {
+      this.lnumerator   = numerator.longValue();
+      this.ldenominator = denominator.longValue();
+      this.numerator    = null;
+      this.denominator  = null;
+    } else {
+      this.lnumerator   = 0;
+      this.ldenominator = 0;
+      this.numerator    = numerator;
+      this.denominator  = denominator;
+    }
+  }
+
+  public Ratio(long numerator, long denominator) {
+    this.lnumerator   = numerator;
+    this.ldenominator = denominator;
+    this.numerator    = null;
+    this.denominator  = null;
   }
 
   public BigInteger getNumerator() {
-    return numerator;
+    if (numerator == null) {
+      return BigInteger.valueOf(lnumerator);
+    } else {
+      return numerator;
+    }
   }
 
   public BigInteger getDenominator() {
-    return denominator;
+    if (denominator == null) {
+      return BigInteger.valueOf(ldenominator);
+    } else {
+      return denominator;
+    }
+  }
+
+  public int signum() {
+    if (numerator == null) {
+      return (lnumerator > 0) ? 1 : ((lnumerator < 0) ? -1 : 0);
+    } else {
+      return numerator.signum();
+    }
+  }
+
+  // Same value as BigInteger.valueOf(x).hashCode(), without building it
+  private static int bigIntegerHash(long x) {
+    long magnitude = (x < 0) ? -x : x;
+    int high = (int) (magnitude >>> 32);
+    int low = (int) magnitude;
+    int h = 0;
+    if (high != 0) {
+      h = high;
+    }
+    h = (int) (31 * h + (low & 0xFFFFFFFFL));
+    return (x < 0) ? -h : h;
   }
 
   public int hashCode(){
-    return numerator.hashCode() ^ denominator.hashCode();
+    if (numerator == null) {
+      return bigIntegerHash(lnumerator) ^ bigIntegerHash(ldenominator);
+    } else {
+      return numerator.hashCode() ^ denominator.hashCode();
+    }
   }
 
   public Ratio ratioValue() {
@@ -34,36 +88,259 @@ public final class Ratio extends Number {
   }
 
   public long longValue() {
-    return bigIntegerValue().longValue();
+    if (numerator == null) {
+      return lnumerator / ldenominator;
+    } else {
+      return bigIntegerValue().longValue();
+    }
   }
 
   public float floatValue() {
     return (float) doubleValue();
   }
 
+  // Doubles hold 53 bits exactly, and IEEE division of exact operands is
+  // correctly rounded
+  private static final long DOUBLE_EXACT = 1L << 53;
+
   public double doubleValue() {
-    BigDecimal bigDecimalNumerator   = new BigDecimal(numerator);
-    BigDecimal bigDecimalDenominator = new BigDecimal(denominator);
-    return bigDecimalNumerator.divide(bigDecimalDenominator, java.math.MathContext.DECIMAL64).doubleValue();
+    if (numerator == null
+        && lnumerator > -DOUBLE_EXACT && lnumerator < DOUBLE_EXACT
+        && ldenominator < DOUBLE_EXACT) {
+      return (double) lnumerator / (double) ldenominator;
+    } else {
+      return Ratio.toDouble(getNumerator(), getDenominator());
+    }
+  }
+
+  // n/d rounded half to even. Takes 55 bits of quotient plus a sticky bit
+  // for the rest of the remainder, then rounds to the 53 bits a double
+  // holds, or fewer once the result is subnormal.
+  private static double toDouble(BigInteger n, BigInteger d) {
+    int sign = n.signum();
+    if (sign == 0) {
+      return 0.0;
+    }
+    n = n.abs();
+    int scale = 54 - (n.bitLength() - d.bitLength());
+    BigInteger[] qr = (scale >= 0)
+      ? n.shiftLeft(scale).divideAndRemainder(d)
+      : n.divideAndRemainder(d.shiftLeft(-scale));
+    long q = qr[0].longValue();
+    boolean sticky = qr[1].signum() != 0;
+    int bits = 64 - Long.numberOfLeadingZeros(q);
+    int exponent = bits - 1 - scale;
+    if (exponent > 1023) {
+      return sign * Double.POSITIVE_INFINITY;
+    }
+    int drop = bits - 53;
+    if (exponent < -1022) {
+      drop += -1022 - exponent;
+    }
+    if (drop > 62) {
+      return sign * 0.0;
+    }
+    long mantissa = q >> drop;
+    long rest = q & ((1L << drop) - 1);
+    long half = 1L << (drop - 1);
+    if (rest > half || (rest == half && (sticky || (mantissa & 1) == 1))) {
+      mantissa++;
+    }
+    return sign * Math.scalb((double) mantissa, drop - scale);
   }
 
   public BigDecimal bigDecimalValue() {
-    BigDecimal bigDecimalNumerator   = new BigDecimal(numerator);
-    BigDecimal bigDecimalDenominator = new BigDecimal(denominator);
+    BigDecimal bigDecimalNumerator   = new BigDecimal(getNumerator());
+    BigDecimal bigDecimalDenominator = new BigDecimal(getDenominator());
     return bigDecimalNumerator.divide(bigDecimalDenominator, java.math.MathContext.UNLIMITED);
   }
 
   public BigInteger bigIntegerValue() {
-    return numerator.divide(denominator);
+    if (numerator == null) {
+      return BigInteger.valueOf(lnumerator / ldenominator);
+    } else {
+      return numerator.divide(denominator);
+    }
+  }
+
+  public int compareTo(Ratio other) {
+    if (numerator == null && other.numerator == null) {
+      long xd = Ratio.checkedMultiply(lnumerator, other.ldenominator);
+      long yd = Ratio.checkedMultiply(other.lnumerator, ldenominator);
+      if (xd != OVERFLOW && yd != OVERFLOW) {
+        return (xd < yd) ? -1 : ((xd == yd) ? 0 : 1);
+      }
+    }
+    return getNumerator().multiply(other.getDenominator())
+      .compareTo(other.getNumerator().multiply(getDenominator()));
   }
 
   public boolean equals(Object other) {
     if ((other != null) && (other instanceof Ratio)) {
-      return numerator.equals(((Ratio) other).getNumerator())
-              && denominator.equals(((Ratio) other).getDenominator());
+      Ratio o = (Ratio) other;
+      if (numerator == null) {
+        return o.numerator == null
+                && lnumerator == o.lnumerator
+                && ldenominator == o.ldenominator;
+      } else {
+        return numerator.equals(o.numerator)
+                && denominator.equals(o.denominator);
+      }
     } else {
       return false;
     }
   }
 
+  // Long.MIN_VALUE cannot be negated, so results that reach it are redone
+  // with BigIntegers. That frees it up to mark an overflowed step.
+  private static final long OVERFLOW = Long.MIN_VALUE;
+
+  private static long checkedMultiply(long x, long y) {
+    long ret = x * y;
+    if (((Math.abs(x) | Math.abs(y)) >>> 31) != 0) {
+      if ((y != 0 && ret / y != x) || (x == Long.MIN_VALUE && y == -1)) {
+        return OVERFLOW;
+      }
+    }
+    return ret;
+  }
+
+  private static long checkedAdd(long x, long y) {
+    long ret = x + y;
+    if (((x ^ ret) & (y ^ ret)) < 0) {
+      return OVERFLOW;
+    } else {
+      return ret;
+    }
+  }
+
+  private static long gcd(long x, long y) {
+    x = Math.abs(x);
+    y = Math.abs(y);
+    while (y != 0) {
+      long rem = x % y;
+      x = y;
+      y = rem;
+    }
+    return x;
+  }
+
+  private boolean hasUsableLongParts() {
+    return numerator == null && lnumerator != OVERFLOW;
+  }
+
+  // A reduced num/den with den > 0, as a BigInt when it is whole
+  private static Number create(long num, long den) {
+    if (den == 1) {
+      return BigInt.valueOf(num);
+    } else {
+      return new Ratio(num, den);
+    }
+  }
+
+  public static Number valueOf(long num, long den) {
+    if (num == OVERFLOW || den == OVERFLOW) {
+      return Ratio.valueOf(BigInteger.valueOf(num), BigInteger.valueOf(den));
+    }
+    long g = gcd(num, den);
+    if (g == 0) {
+      return BigInt.ZERO;
+    }
+    num = num / g;
+    den = den / g;
+    if (den < 0) {
+      num = -num;
+      den = -den;
+    }
+    return Ratio.create(num, den);
+  }
+
+  public static Number valueOf(BigInteger num, BigInteger den) {
+    BigInteger g = num.gcd(den);
+    if (g.signum() == 0) {
+      return BigInt.ZERO;
+    }
+    num = num.divide(g);
+    den = den.divide(g);
+    if (den.signum() < 0) {
+      num = num.negate();
+      den = den.negate();
+    }
+    if (den.equals(BigInteger.ONE)) {
+      return BigInt.fromBigInteger(num);
+    } else {
+      return new Ratio(num, den);
+    }
+  }
+
+  // x/y + z/w = (x * w/g + z * y/g) / (y/g * w), with g = gcd(y, w) and the
+  // result reduced by gcd(numerator, g) (Knuth 4.5.1)
+  public Number add(Ratio other) {
+    if (hasUsableLongParts() && other.hasUsableLongParts()) {
+      long g = gcd(ldenominator, other.ldenominator);
+      long xd = ldenominator / g;
+      long yd = other.ldenominator / g;
+      long xn = checkedMultiply(lnumerator, yd);
+      long yn = checkedMultiply(other.lnumerator, xd);
+      if (xn != OVERFLOW && yn != OVERFLOW) {
+        long t = checkedAdd(xn, yn);
+        if (t == 0) {
+          return BigInt.ZERO;
+        } else if (t != OVERFLOW) {
+          long g2 = gcd(t, g);
+          long den = checkedMultiply(xd, other.ldenominator / g2);
+          if (den != OVERFLOW) {
+            return Ratio.create(t / g2, den);
+          }
+        }
+      }
+    }
+    BigInteger d = getDenominator();
+    BigInteger od = other.getDenominator();
+    return Ratio.valueOf(getNumerator().multiply(od).add(other.getNumerator().multiply(d)),
+                         d.multiply(od));
+  }
+
+  // x/y * z/w = (x/g1 * z/g2) / (y/g2 * w/g1), with g1 = gcd(x, w) and
+  // g2 = gcd(z, y), which leaves the result reduced
+  public Number multiply(Ratio other) {
+    if (hasUsableLongParts() && other.hasUsableLongParts()) {
+      if (lnumerator == 0 || other.lnumerator == 0) {
+        return BigInt.ZERO;
+      }
+      long g1 = gcd(lnumerator, other.ldenominator);
+      long g2 = gcd(other.lnumerator, ldenominator);
+      long num = checkedMultiply(lnumerator / g1, other.lnumerator / g2);
+      long den = checkedMultiply(ldenominator / g2, other.ldenominator / g1);
+      if (num != OVERFLOW && den != OVERFLOW) {
+        return Ratio.create(num, den);
+      }
+    }
+    return Ratio.valueOf(getNumerator().multiply(other.getNumerator()),
+                         getDenominator().multiply(other.getDenominator()));
+  }
+
+  public Number divide(Ratio other) {
+    if (other.signum() == 0) {
+      throw new ArithmeticException("Divide by zero");
+    } else if (other.hasUsableLongParts()) {
+      if (other.lnumerator < 0) {
+        return multiply(new Ratio(-other.ldenominator, -other.lnumerator));
+      } else {
+        return multiply(new Ratio(other.ldenominator, other.lnumerator));
+      }
+    } else {
+      return Ratio.valueOf(getNumerator().multiply(other.getDenominator()),
+                           getDenominator().multiply(other.getNumerator()));
+    }
+  }
+
+  public Ratio negate() {
+    if (hasUsableLongParts()) {
+      return new Ratio(-lnumerator, ldenominator);
+    } else {
+      return new Ratio(getNumerator().negate(), getDenominator());
+    }
+  }
+
 }
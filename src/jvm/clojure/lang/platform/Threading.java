@@ -1,5 +1,8 @@
 package clojure.lang.platform;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -16,5 +19,26 @@ public class Threading {
     };
   }
 
-}
+  // Virtual threads arrived in JDK 21, so they are reached by reflection.
+  // Returns null when the JDK has none.
+  public static ExecutorService createVirtualThreadPerTaskExecutor(final String format, final AtomicLong threadPoolCounter) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+      final ThreadFactory virtualThreadFactory = (ThreadFactory) factory.invoke(builder);
+      ThreadFactory namedThreadFactory = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = virtualThreadFactory.newThread(runnable);
+          thread.setName(String.format(format, threadPoolCounter.getAndIncrement()));
+          return thread;
+        }
+      };
+      Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, namedThreadFactory);
+    } catch (Exception e) {
+      return null;
+    }
+  }
 
+}
@@ -31,24 +31,29 @@ public final class Addition {
     return x + y;
   }
 
-  public static Number longAdd(long x, long y) {
+  public static long numberAdd(long x, long y) {
     long ret = x + y;
     if ((ret ^ x) < 0 && (ret ^ y) < 0) {
       throw new ArithmeticException("integer overflow");
     } else {
-      return (Number) ret;
+      return ret;
     }
   }
 
+  public static double numberAdd(double x, double y) {
+    return x + y;
+  }
+
+  public static Number longAdd(long x, long y) {
+    return (Number) Addition.numberAdd(x, y);
+  }
+
   public static Number bigIntAdd(BigInt x, BigInt y) {
     return (Number) x.add(y);
   }
 
   public static Number ratioAdd(Ratio x, Ratio y) {
-    BigInteger ynXxd = y.getNumerator().multiply(x.getDenominator());
-    BigInteger xnXyd = x.getNumerator().multiply(y.getDenominator());
-    BigInteger ydXxd = y.getDenominator().multiply(x.getDenominator());
-    return (Number) Division.bigIntegerDivide(ynXxd.add(xnXyd), ydXxd);
+    return x.add(y);
   }
 
   public static Number bigDecimalAdd(BigDecimal x, BigDecimal y) {
@@ -34,8 +34,10 @@ public final class Coercion {
   public static Ratio toRatio(Number x) {
     if (x instanceof Ratio) {
       return (Ratio) x;
-    } else {
+    } else if ((x instanceof BigInt) || (x instanceof BigInteger)) {
       return new Ratio(Coercion.toBigInteger(x), BigInteger.ONE);
+    } else {
+      return new Ratio(x.longValue(), 1);
     }
   }
 
@@ -198,6 +198,14 @@ public final class Comparison {
     }
   }
 
+  public static boolean lessThan(long x, long y) {
+    return x < y;
+  }
+
+  public static boolean lessThan(double x, double y) {
+    return x < y;
+  }
+
   public static boolean lessThanEqualTo(Number x, Number y) {
     Ops type = OpType.findOpType(x, y);
     if (type == Ops.DOUBLE) {
@@ -207,12 +215,20 @@ public final class Comparison {
     } else if (type == Ops.RATIO) {
       return Comparison.ratioLessThanEqualTo(Coercion.toRatio(x), Coercion.toRatio(y));
     } else if (type == Ops.BIGINT) {
-      return Comparison.bigIntLessThanEqualTo(Coercion.toBigInteger(x), Coercion.toBigInteger(y));
+      return Comparison.bigIntLessThanEqualTo(Coercion.toBigInt(x), Coercion.toBigInt(y));
     } else {
       return Comparison.longLessThanEqualTo(Coercion.toLong(x), Coercion.toLong(y));
     }
   }
 
+  public static boolean lessThanEqualTo(long x, long y) {
+    return x <= y;
+  }
+
+  public static boolean lessThanEqualTo(double x, double y) {
+    return x <= y;
+  }
+
   private static boolean isNaN(Object x) {
     return (x instanceof Double) && ((Double)x).isNaN()
       || (x instanceof Float) && ((Float)x).isNaN();
@@ -235,20 +251,18 @@ public final class Comparison {
   }
 
   private static boolean ratioLessThan(Ratio x, Ratio y) {
-    return lessThan(x.getNumerator().multiply(y.getDenominator()),
-                    y.getNumerator().multiply(x.getDenominator()));
+    return x.compareTo(y) < 0;
   }
 
   private static boolean ratioLessThanEqualTo(Ratio x, Ratio y) {
-    return lessThanEqualTo(x.getNumerator().multiply(y.getDenominator()),
-                           y.getNumerator().multiply(x.getDenominator()));
+    return x.compareTo(y) <= 0;
   }
 
   private static boolean bigIntLessThan(BigInt x, BigInt y) {
     return x.lt(y);
   }
 
-  private static boolean bigIntLessThanEqualTo(BigInteger x, BigInteger y) {
+  private static boolean bigIntLessThanEqualTo(BigInt x, BigInt y) {
     return x.compareTo(y) <= 0;
   }
 
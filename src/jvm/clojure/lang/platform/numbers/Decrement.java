@@ -17,20 +17,28 @@ public final class Decrement {
     } else if (x instanceof Ratio) {
       return Decrement.ratioDecrement((Ratio) x);
     } else if ((x instanceof BigInt) || (x instanceof BigInteger)) {
-      return Decrement.bigIntDecrement(Coercion.toBigInteger(x));
+      return Decrement.bigIntDecrement(Coercion.toBigInt(x));
     } else {
       return Decrement.longDecrement(Coercion.toLong(x));
     }
   }
 
+  public static long numberDecrement(long x) {
+    return x - 1;
+  }
+
+  public static double numberDecrement(double x) {
+    return x - 1;
+  }
+
   public static Number longDecrement(long x) {
     long xDup = x;
     xDup--;
     return (Number) xDup;
   }
 
-  public static Number bigIntDecrement(BigInteger x) {
-    return (Number) BigInt.fromBigInteger(x.subtract(BigInteger.ONE));
+  public static Number bigIntDecrement(BigInt x) {
+    return (Number) x.subtract(BigInt.ONE);
   }
 
   public static Number ratioDecrement(Ratio x) {
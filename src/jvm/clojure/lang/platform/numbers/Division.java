@@ -52,7 +52,7 @@ public final class Division {
       denom = - denom;
     }
 
-    return new Ratio(BigInteger.valueOf(num), BigInteger.valueOf(denom));
+    return new Ratio(num, denom);
   }
 
   public static Number bigIntegerDivide(BigInteger x, BigInteger y) {
@@ -60,29 +60,11 @@ public final class Division {
       throw new ArithmeticException("Divide by zero");
     }
 
-    BigInteger gcd = x.gcd(y);
-    if (gcd.equals(BigInteger.ZERO)) {
-      return BigInt.ZERO;
-    }
-
-    x = x.divide(gcd);
-    y = y.divide(gcd);
-    if (y.equals(BigInteger.ONE)) {
-      return BigInt.fromBigInteger(x);
-    } else if (y.equals(BigInteger.ONE.negate())) {
-      return BigInt.fromBigInteger(x.negate());
-    } else {
-      if (y.signum() < 0) {
-        return new Ratio(x.negate(), y.negate());
-      } else {
-        return new Ratio(x, y);
-      }
-    }
+    return Ratio.valueOf(x, y);
   }
 
   public static Number ratioDivide(Ratio x, Ratio y) {
-    return bigIntegerDivide(y.getDenominator().multiply(x.getNumerator()),
-                            y.getNumerator().multiply(x.getDenominator()));
+    return x.divide(y);
   }
 
   public static Number bigDecimalDivide(BigDecimal x, BigDecimal y) {
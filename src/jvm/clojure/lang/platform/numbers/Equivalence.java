@@ -15,6 +15,14 @@ public final class Equivalence {
     }
   }
 
+  public static boolean numberEqual(long x, long y) {
+    return x == y;
+  }
+
+  public static boolean numberEqual(double x, double y) {
+    return x == y;
+  }
+
   public static boolean numbersEquivalent(Number x, Number y) {
     Ops type = OpType.findOpType(x, y);
     if (type == Ops.DOUBLE) {
@@ -30,6 +38,14 @@ public final class Equivalence {
     }
   }
 
+  public static boolean numbersEquivalent(long x, long y) {
+    return x == y;
+  }
+
+  public static boolean numbersEquivalent(double x, double y) {
+    return x == y;
+  }
+
   public static boolean longEquivalent(long x, long y) {
     return x == y;
   }
@@ -39,8 +55,7 @@ public final class Equivalence {
   }
 
   public static boolean ratioEquivalent(Ratio x, Ratio y) {
-    return x.getNumerator().equals(y.getNumerator()) &&
-           x.getDenominator().equals(y.getDenominator());
+    return x.equals(y);
   }
 
   public static boolean bigDecimalEquivalent(BigDecimal x, BigDecimal y) {
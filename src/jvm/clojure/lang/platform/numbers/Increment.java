@@ -17,20 +17,28 @@ public final class Increment {
     } else if (x instanceof Ratio) {
       return Increment.ratioIncrement((Ratio) x);
     } else if ((x instanceof BigInt) || (x instanceof BigInteger)) {
-      return Increment.bigIntIncrement(Coercion.toBigInteger(x));
+      return Increment.bigIntIncrement(Coercion.toBigInt(x));
     } else {
       return Increment.longIncrement(Coercion.toLong(x));
     }
   }
 
+  public static long numberIncrement(long x) {
+    return x + 1;
+  }
+
+  public static double numberIncrement(double x) {
+    return x + 1;
+  }
+
   public static Number longIncrement(long x) {
     long xDup = x;
     xDup++;
     return (Number) xDup;
   }
 
-  public static Number bigIntIncrement(BigInteger x) {
-    return (Number) BigInt.fromBigInteger(x.add(BigInteger.ONE));
+  public static Number bigIntIncrement(BigInt x) {
+    return (Number) x.add(BigInt.ONE);
   }
 
   public static Number ratioIncrement(Ratio x) {
@@ -31,13 +31,21 @@ public final class Multiplication {
     return x * y;
   }
 
-  public static Number longMultiply(long x, long y) {
+  public static long numberMultiply(long x, long y) {
     if (x == Long.MIN_VALUE && y < 0)
       throw new ArithmeticException("integer overflow");
     long ret = x * y;
     if (y != 0 && ret/y != x)
       throw new ArithmeticException("integer overflow");
-    return (Number) ret;
+    return ret;
+  }
+
+  public static double numberMultiply(double x, double y) {
+    return x * y;
+  }
+
+  public static Number longMultiply(long x, long y) {
+    return (Number) Multiplication.numberMultiply(x, y);
   }
 
   public static Number bigIntMultiply(BigInt x, BigInt y) {
@@ -45,9 +53,7 @@ public final class Multiplication {
   }
 
   public static Number ratioMultiply(Ratio x, Ratio y) {
-    BigInteger ynXxn = y.getNumerator().multiply(x.getNumerator());
-    BigInteger ydXxd = y.getDenominator().multiply(x.getDenominator());
-    return Division.bigIntegerDivide(ynXxn, ydXxd);
+    return x.multiply(y);
   }
 
   public static Number bigDecimalMultiply(BigDecimal x, BigDecimal y) {
@@ -32,12 +32,11 @@ public final class Negation {
   }
 
   public static final Number bigIntNegate(BigInt x) {
-    return (Number) BigInt.fromBigInteger(Coercion.toBigInteger(x).negate());
+    return (Number) x.negate();
   }
 
   public static final Number ratioNegate(Ratio x) {
-    Ratio r = new Ratio(x.getNumerator().negate(), x.getDenominator());
-    return (Number) r;
+    return (Number) x.negate();
   }
 
   public static final Number bigDecimalNegate(BigDecimal x) {
@@ -55,7 +54,7 @@ public final class Negation {
       if (lx > Long.MIN_VALUE) {
         return (Number) Long.valueOf(-lx);
       } else {
-        return (Number) BigInt.fromBigInteger(BigInteger.valueOf(lx).negate());
+        return (Number) BigInt.valueOf(lx).negate();
       }
     } else {
       return (Number) numberNegate(x);
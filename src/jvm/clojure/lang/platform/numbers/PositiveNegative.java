@@ -15,7 +15,7 @@ public final class PositiveNegative {
     } else if (x instanceof BigDecimal) {
       return ((BigDecimal) x).signum() > 0;
     } else if (x instanceof Ratio) {
-      return ((Ratio) x).getNumerator().signum() > 0;
+      return ((Ratio) x).signum() > 0;
     } else if ((x instanceof BigInt) || (x instanceof BigInteger)) {
       BigInt bx = Coercion.toBigInt(x);
       if (bx.getBipart() == null) {
@@ -36,7 +36,7 @@ public final class PositiveNegative {
     } else if (x instanceof BigDecimal) {
       return ((BigDecimal) x).signum() < 0;
     } else if (x instanceof Ratio) {
-      return ((Ratio) x).getNumerator().signum() < 0;
+      return ((Ratio) x).signum() < 0;
     } else if ((x instanceof BigInt) || (x instanceof BigInteger)) {
       BigInt bx = Coercion.toBigInt(x);
       if (bx.getBipart() == null) {
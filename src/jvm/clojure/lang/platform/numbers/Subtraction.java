@@ -11,6 +11,19 @@ public final class Subtraction {
     return Addition.numberAdd((Number) x, (Number) Negation.numberNegate(y));
   }
 
+  public static long numberSubtract(long x, long y) {
+    long ret = x - y;
+    if (((ret ^ x) & (x ^ y)) < 0) {
+      throw new ArithmeticException("integer overflow");
+    } else {
+      return ret;
+    }
+  }
+
+  public static double numberSubtract(double x, double y) {
+    return x - y;
+  }
+
   // Special Case, needs to be removed at some point
   public static int integerPreserveSubtract(int x, int y) {
     return x - y;
@@ -1,8 +1,8 @@
 (ns clojure.lang.primitive-array
-  (:refer-clojure :only [defmacro defn])
+  (:refer-clojure :only [defmacro defn let])
   (:require [clojure.next           :refer :all]
             [clojure.lang.protocols :refer [ISeq]])
-  (:import  [clojure.lang.platform PrimitiveArray]))
+  (:import  [clojure.lang.platform PrimitiveArray PrimitiveArrayKernels]))
 
 (def platform-boolean        Boolean)
 (def platform-native-boolean Boolean/TYPE)
@@ -56,3 +56,38 @@
 (defn char-array-for-size [size]
   (PrimitiveArray/charArrayForSize ^Number size))
 
+(defmacro array-sum [arr]
+  `(let [arr# ~arr]
+     (PrimitiveArrayKernels/sum ^Object arr#)))
+
+(defmacro array-dot [x y]
+  `(let [x# ~x y# ~y]
+     (PrimitiveArrayKernels/dot ^Object x# ^Object y#)))
+
+(defmacro array-scale [arr k]
+  `(let [arr# ~arr k# ~k]
+     (PrimitiveArrayKernels/scale ^Object arr# ^Number k#)))
+
+(defmacro array-add [x y]
+  `(let [x# ~x y# ~y]
+     (PrimitiveArrayKernels/add ^Object x# ^Object y#)))
+
+(defmacro array-min [arr]
+  `(let [arr# ~arr]
+     (PrimitiveArrayKernels/min ^Object arr#)))
+
+(defmacro array-max [arr]
+  `(let [arr# ~arr]
+     (PrimitiveArrayKernels/max ^Object arr#)))
+
+(defmacro array-prefix-sum [arr]
+  `(let [arr# ~arr]
+     (PrimitiveArrayKernels/prefixSum ^Object arr#)))
+
+(defmacro array-compare [x y]
+  `(let [x# ~x y# ~y]
+     (PrimitiveArrayKernels/compare ^Object x# ^Object y#)))
+
+(defmacro array-fill! [arr v]
+  `(let [arr# ~arr v# ~v]
+     (PrimitiveArrayKernels/fill ^Object arr# ^Number v#)))
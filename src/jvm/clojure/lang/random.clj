@@ -1,6 +1,18 @@
 (ns clojure.lang.random
-  (:refer-clojure :only [defn])
+  (:refer-clojure :only [defn let])
   (:import [Math]))
 
 (defn rand-float []
   (. Math (random)))
+
+; each thread draws from its own generator, so that threads drawing at the
+; same time neither contend on one seed nor draw the same numbers
+(def ^:private thread-random (ThreadLocal.))
+
+(defn thread-rand-int [bound]
+  (let [^ThreadLocal local thread-random
+        ^java.util.Random random (clojure.core/or (.get local)
+                                                  (let [random (java.util.Random.)]
+                                                    (.set local random)
+                                                    random))]
+    (.nextInt random (clojure.core/int bound))))
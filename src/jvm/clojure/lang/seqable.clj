@@ -5,7 +5,7 @@
   (:require [clojure.lang
               [deftype]
               [equivalence]
-              [protocols :refer [ICounted ISeq ISeqable ISequential]]]))
+              [protocols :refer [ICounted IHash ISeq ISeqable ISequential]]]))
 
 (declare old-seq->new-seq)
 
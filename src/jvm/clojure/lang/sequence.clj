@@ -1,14 +1,15 @@
 (ns clojure.lang.sequence
-  (:refer-clojure :only [cond declare defn defn- if-let let locking loop satisfies? when])
+  (:refer-clojure :only [cond declare defn defn- if-let let locking loop when])
   (:require [clojure.next                 :refer :all]
             [clojure.lang
               [aseq            :refer [defseq]]
+              [capability      :refer [satisfies?]]
               [deftype]
               [equivalence]
               [persistent-list :refer [EMPTY-LIST]]
               [protocols       :refer [IIndexedSeq IPersistentCollection
                                        IPersistentVector
-                                       ICounted IObj IMeta
+                                       ICounted IHash IObj IMeta
                                        ISeq ISeqable ISequential]]])
   (:import [java.lang.reflect Array]
            [java.util Iterator Map]))
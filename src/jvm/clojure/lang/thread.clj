@@ -20,6 +20,18 @@
 (defmacro thread-reference []
   `(. Thread currentThread))
 
+(defmacro thread-id []
+  `(.getId (. Thread currentThread)))
+
+(defmacro park-nanos [nanos]
+  `(. java.util.concurrent.locks.LockSupport parkNanos (clojure.core/long ~nanos)))
+
+(defmacro nano-time []
+  `(. System nanoTime))
+
+(defmacro available-processors []
+  `(.availableProcessors (. Runtime getRuntime)))
+
 (defmacro create-fixed-thread-pool-executor [atomic-long]
   `(. java.util.concurrent.Executors newFixedThreadPool
     (+ 2 (.availableProcessors (. Runtime getRuntime)))
@@ -31,6 +43,13 @@
     (. Threading createThreadFactory
       "clojure-agent-send-off-pool-%d" ~atomic-long)))
 
+(defmacro create-virtual-thread-executor [atomic-long]
+  `(. Threading createVirtualThreadPerTaskExecutor
+    "clojure-agent-send-off-pool-%d" ~atomic-long))
+
+(defmacro virtual-threads-requested? []
+  `(.equals "virtual" (. System getProperty "clojure.agent.solo-executor")))
+
 (defmacro new-countdown-latch [c]
   `(new CountDownLatch ~c))
 
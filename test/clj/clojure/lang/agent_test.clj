@@ -1,8 +1,8 @@
 (ns clojure.lang.agent-test
-  (:refer-clojure :only [defmacro fn let])
+  (:refer-clojure :only [defmacro defn- dotimes fn let])
   (:require [clojure.test                         :refer :all]
             [clojure.next                         :refer :all]
-            [clojure.lang.thread                  :refer [sleep]]
+            [clojure.lang.thread                  :refer [sleep new-countdown-latch latch-await latch-countdown]]
             [clojure.lang.exceptions              :refer [new-runtime-exception]]
             [clojure.support.exception-assertions :refer [runtime-exception-is-thrown?]]))
 
@@ -115,3 +115,42 @@
       (is (= validator-fn (get-validator agt)))))
 
   )
+
+(defn- counting-executor [submissions]
+  (clojure.core/reify java.util.concurrent.Executor
+    (execute [this task]
+      (swap! submissions inc)
+      (.execute ^java.util.concurrent.Executor clojure.lang.agent/pooled-executor task))))
+
+(defn- submissions-for [batch-size]
+  (let [submissions (atom 0)
+        latch (new-countdown-latch 1)
+        agt (agent 0 :send-executor (counting-executor submissions)
+                     :batch-size batch-size
+                     :time-slice-ms 60000)]
+    (send agt (fn [n] (latch-await latch) n))
+    (dotimes [_ 99]
+      (send agt inc))
+    (latch-countdown latch)
+    (await-for 10000 agt)
+    (is (= 99 (deref agt)))
+    (deref submissions)))
+
+(deftest agent-dispatch-test
+  (testing "send and send-off use the executors of the agent"
+    (let [sends (atom 0)
+          send-offs (atom 0)
+          agt (agent 0 :send-executor (counting-executor sends)
+                       :send-off-executor (counting-executor send-offs))]
+      (send agt + 1 1)
+      (await-for 10000 agt)
+      (send-off agt + 1 1)
+      (await-for 10000 agt)
+      (is (= 4 (deref agt)))
+      (is (= 1 (deref send-offs)))))
+
+  ; await sends one more action to the agent
+  (testing "runs queued actions in batches"
+    (is (= 2 (submissions-for 100)))
+    (is (= 101 (submissions-for 1)))
+    (is (= 11 (submissions-for 10)))))
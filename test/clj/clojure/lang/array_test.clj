@@ -173,6 +173,115 @@
       (is (= 3 (aget arr 2)))
       (is (= 92 ret)))))
 
+(deftest asum-test
+  (testing "sums long, int and double arrays"
+    (is (= 21 (asum (long-array 7 3))))
+    (is (= 0 (asum (long-array 0))))
+    (is (= 3.5 (asum (double-array 7 0.5))))
+    (let [arr (int-array 5 (int 2))]
+      (aset-int arr 4 Integer/MAX_VALUE)
+      (is (= 2147483655 (asum arr)))))
+
+  (testing "throws an exception for other arrays"
+    (argument-error-is-thrown? #"Expected a long, int or double array" (asum (object-array 1)))))
+
+(deftest adot-test
+  (testing "the dot product of two arrays of the same type and length"
+    (is (= 11 (adot (long-array [1 2]) (long-array [3 4]))))
+    (is (= 63.0 (adot (double-array 7 3.0) (double-array 7 3.0))))
+    (is (= 36 (adot (int-array 9 (int 2)) (int-array 9 (int 2))))))
+
+  (testing "throws an exception if the lengths differ"
+    (argument-error-is-thrown? #"same length" (adot (long-array 2) (long-array 3))))
+
+  (testing "throws an exception if the types differ"
+    (argument-error-is-thrown? #"same type" (adot (long-array 2) (double-array 2)))))
+
+(deftest ascale-test
+  (testing "returns a new array with each element multiplied"
+    (let [arr (long-array [1 2 3])
+          ret (ascale arr 3)]
+      (is (= 3 (aget ret 0)))
+      (is (= 9 (aget ret 2)))
+      (is (= 1 (aget arr 0))))
+    (is (= 1.5 (aget (ascale (double-array [1 2 3]) 0.5) 2)))
+    (is (= 6 (aget (ascale (int-array 3 (int 2)) 3) 1)))
+    (is (= 6 (aget (ascale (long-array [1 2 3]) 2.0) 2))))
+
+  (testing "throws an exception for a fractional factor of a long or int array"
+    (argument-error-is-thrown? #"Value is not an integer for long: 2.5" (ascale (long-array [1 2 3]) 2.5))
+    (argument-error-is-thrown? #"Value is not an integer for int" (ascale (int-array 3) (/ 1 2))))
+
+  (testing "throws an exception for a factor out of range for the element type"
+    (argument-error-is-thrown? #"Value out of range for int: 5000000000" (ascale (int-array 3) 5000000000))))
+
+(deftest aadd-test
+  (testing "returns a new array of the element-wise sums"
+    (let [ret (aadd (long-array [1 2 3]) (long-array [10 20 30]))]
+      (is (= 11 (aget ret 0)))
+      (is (= 33 (aget ret 2))))
+    (is (= 2.5 (aget (aadd (double-array [1 2]) (double-array [0.5 0.5])) 1))))
+
+  (testing "throws an exception if the lengths differ"
+    (argument-error-is-thrown? #"same length" (aadd (int-array 1) (int-array 2)))))
+
+(deftest amin-and-amax-test
+  (testing "finds the extremes wherever they are in the array"
+    (let [arr (long-array 7 5)]
+      (aset-long arr 6 -2)
+      (aset-long arr 1 12)
+      (is (= -2 (amin arr)))
+      (is (= 12 (amax arr))))
+    (let [arr (int-array 5 (int 0))]
+      (aset-int arr 3 -7)
+      (is (= -7 (amin arr)))
+      (is (= 0 (amax arr)))
+      (is (obj/instance? Long (amin arr)))
+      (is (obj/instance? Long (amax arr))))
+    (is (= -1.5 (amin (double-array [3 -1.5 2]))))
+    (is (= 3.0 (amax (double-array [3 -1.5 2])))))
+
+  (testing "throws an exception for an empty array"
+    (argument-error-is-thrown? #"must not be empty" (amin (long-array 0)))
+    (argument-error-is-thrown? #"must not be empty" (amax (double-array 0)))))
+
+(deftest aprefix-sum-test
+  (testing "returns the running totals"
+    (let [ret (aprefix-sum (long-array [1 2 3 4]))]
+      (is (= 1 (aget ret 0)))
+      (is (= 6 (aget ret 2)))
+      (is (= 10 (aget ret 3))))
+    (is (= 1.5 (aget (aprefix-sum (double-array 3 0.5)) 2))))
+
+  (testing "int running totals are longs and do not overflow"
+    (let [ret (aprefix-sum (int-array 2 (int Integer/MAX_VALUE)))]
+      (is (= 4294967294 (aget ret 1))))))
+
+(deftest acompare-test
+  (testing "compares arrays element by element"
+    (is (= 0 (acompare (long-array [1 2]) (long-array [1 2]))))
+    (is (= -1 (acompare (long-array [1 2]) (long-array [1 3]))))
+    (is (= 1 (acompare (double-array [2]) (double-array [1 5])))))
+
+  (testing "a prefix of an array sorts before it"
+    (is (= -1 (acompare (int-array 2) (int-array 3))))
+    (is (= 1 (acompare (long-array [1 2 0]) (long-array [1 2]))))))
+
+(deftest afill!-test
+  (testing "fills the given array in place"
+    (let [arr (double-array 3)]
+      (is (identical? arr (afill! arr 2)))
+      (is (= 2.0 (aget arr 0)))
+      (is (= 2.0 (aget arr 2))))
+    (let [arr (int-array 2)]
+      (afill! arr 7)
+      (is (= 7 (aget arr 1)))))
+
+  (testing "throws an exception for a value that does not fit the element type"
+    (argument-error-is-thrown? #"Value out of range for int: 5000000000" (afill! (int-array 3) 5000000000))
+    (argument-error-is-thrown? #"Value out of range for long" (afill! (long-array 3) 1e19))
+    (argument-error-is-thrown? #"Value is not an integer for int: 1.5" (afill! (int-array 3) 1.5))))
+
 (deftest to-array-test
   (testing "passing nil returns a zero argument object array"
     (is (= (type (to-array nil)) (type (object-array 0))))
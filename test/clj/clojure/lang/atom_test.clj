@@ -1,8 +1,8 @@
 (ns clojure.lang.atom-test
-  (:refer-clojure :only [apply assoc fn defmacro defn dorun dotimes first flatten let partition pcalls range repeat vec])
+  (:refer-clojure :only [apply assoc fn defmacro defn dorun dotimes first flatten let loop partition pcalls range repeat vec])
   (:require [clojure.test                         :refer :all]
             [clojure.next                         :refer :all :exclude [first assoc repeat]]
-            [clojure.support.exception-assertions :refer [illegal-state-error-is-thrown?]]))
+            [clojure.support.exception-assertions :refer [illegal-state-error-is-thrown? unsupported-error-is-thrown?]]))
 
 (deftest atom-test
   (testing "creates an atom which can be dereferenced"
@@ -214,3 +214,116 @@
       (is (= (memoized-fn :foo) (memoized-fn :foo)))))
 
   )
+
+(defn inc-in-parallel! [atm nthreads niters]
+  (dorun (apply pcalls
+                (repeat nthreads
+                        #(dotimes [_ niters]
+                           (swap! atm + 1))))))
+
+(deftest backoff-atom-test
+  (testing "swap! counts attempts and failures"
+    (let [atm (atom 0 :backoff true)]
+      (inc-in-parallel! atm 8 500)
+      (is (= 4000 (deref atm)))
+      (let [stats (swap-stats atm)]
+        (is (= (+ 4000 (get stats :failures)) (get stats :attempts)))
+        (is (<= (get stats :max-retries) (get stats :failures))))))
+
+  (testing "swap! backs off and retries after a failed compare-and-set"
+    (let [atm (atom 0 :backoff true)
+          calls (atom 0)]
+      ; the first five attempts change the atom before they return
+      (is (= 11 (swap! atm (fn [n]
+                             (if (<= (swap! calls inc) 5)
+                               (reset! atm (+ n 2)))
+                             (inc n)))))
+      (is (= 6 (deref calls)))
+      (is (= (array-map :attempts 6 :failures 5 :max-retries 5) (swap-stats atm)))))
+
+  (testing "swap! validates the new state"
+    (let [atm (atom 2 :backoff true :validator #(not= 3 %))]
+      (illegal-state-error-is-thrown?
+        #"Invalid reference state"
+        (swap! atm inc))))
+
+  (testing "has no stats without backoff"
+    (is (nil? (swap-stats (atom 0))))))
+
+(deftest striped-atom-test
+  (testing "deref combines the stripes"
+    (let [atm (striped-atom + 0)]
+      (inc-in-parallel! atm 8 500)
+      (is (= 4000 (deref atm)))
+      (is (nil? (swap! atm + 10)))
+      (is (= 4010 (deref atm)))))
+
+  (testing "reset! replaces the combined state"
+    (let [atm (striped-atom + 0)]
+      (inc-in-parallel! atm 4 10)
+      (is (= 5 (reset! atm 5)))
+      (is (= 5 (deref atm)))))
+
+  (testing "cannot compare-and-set!"
+    (unsupported-error-is-thrown? #"A striped atom has no single state to compare"
+      (compare-and-set! (striped-atom + 0) 0 1))))
+
+(deftest swap-arities-test
+  (testing "swap! applies up to three arguments and then any more"
+    (let [atm (atom 0)]
+      (is (= 1 (swap! atm inc)))
+      (is (= 3 (swap! atm + 2)))
+      (is (= 6 (swap! atm + 1 2)))
+      (is (= 12 (swap! atm + 1 2 3)))
+      (is (= 27 (swap! atm + 1 2 3 4 5)))
+      (is (= 27 (deref atm))))))
+
+(deftest swap-vals!-test
+  (testing "returns the old and new values"
+    (let [atm (atom 1)]
+      (is (= (vector 1 2) (swap-vals! atm inc)))
+      (is (= (vector 2 5) (swap-vals! atm + 1 2)))
+      (is (= (vector 5 20) (swap-vals! atm + 1 2 3 4 5)))
+      (is (= 20 (deref atm)))))
+
+  (testing "validates the new value"
+    (let [atm (atom 2 :validator #(not= 3 %))]
+      (illegal-state-error-is-thrown?
+        #"Invalid reference state"
+        (swap-vals! atm inc))
+      (is (= 2 (deref atm))))))
+
+(deftest reset-vals!-test
+  (testing "returns the old and new values"
+    (let [atm (atom :old)]
+      (is (= (vector :old :new) (reset-vals! atm :new)))
+      (is (= :new (deref atm)))))
+
+  ; the validator yields between the read and the write of each update
+  (testing "loses no swaps made while it resets"
+    (let [atm (atom 0 :validator (fn [_] (Thread/yield) true))
+          taken (atom 0)
+          done (atom false)
+          resetter (clojure.core/future
+                     (loop []
+                       (swap! taken + (nth (reset-vals! atm 0) 0))
+                       (if (deref done)
+                         (swap! taken + (nth (reset-vals! atm 0) 0))
+                         (recur))))]
+      (inc-in-parallel! atm 3 20000)
+      (reset! done true)
+      (clojure.core/deref resetter)
+      (is (= 60000 (deref taken))))))
+
+(deftest swap-batch!-test
+  (testing "applies the updates in order"
+    (let [atm (atom 1)]
+      (is (= 6 (swap-batch! atm (vector inc #(* 3 %)))))
+      (is (= 6 (swap-batch! atm (vector))))))
+
+  (testing "sets the result with one compare-and-set"
+    (let [changes (atom 0)
+          atm (add-watch (atom 0) :count (fn [_ _ _ _] (swap! changes inc)))]
+      (swap-batch! atm (repeat 100 inc))
+      (is (= 100 (deref atm)))
+      (is (= 1 (deref changes))))))
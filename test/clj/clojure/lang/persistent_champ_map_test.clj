@@ -0,0 +1,70 @@
+(ns clojure.lang.persistent-champ-map-test
+  (:refer-clojure :only [fn let loop when])
+  (:require [clojure.test                         :refer :all]
+            [clojure.lang.persistent-map-test     :refer [map-test]]
+            [clojure.lang.transient-map-test      :refer [transient-map-test]]
+            [clojure.next                         :refer :all]))
+
+(deftest champ-hash-map-test
+  (map-test "PersistentChampMap" champ-hash-map))
+
+(deftest transient-champ-hash-map-test
+  (transient-map-test champ-hash-map))
+
+(deftest large-champ-hash-map-test
+  (let [size 2000
+        m (loop [i 0 m (champ-hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i (str i))) m))]
+    (testing "assoc beyond a single node"
+      (is (= size (count m)))
+      (is (= "0" (get m 0)))
+      (is (= "1999" (get m 1999)))
+      (is (nil? (get m size))))
+
+    (testing "seq and reduce walk every entry"
+      (is (= size (count (seq m))))
+      (is (= 1999000 (reduce (fn [acc entry] (+ acc (key entry))) 0 m)))
+      (is (= 1999000 (reduce + 0 (keys m)))))
+
+    (testing "reduce stops at a reduced value"
+      (is (= :done (reduce (fn [acc entry] (reduced :done)) 0 m))))
+
+    (testing "dissoc down to an empty map"
+      (let [emptied (loop [i 0 m m]
+                      (if (< i size) (recur (inc i) (dissoc m i)) m))]
+        (is (= 0 (count emptied)))
+        (is (nil? (seq emptied)))
+        (is (= (champ-hash-map) emptied))))
+
+    (testing "dissoc leaves the same map as never adding the keys"
+      (let [odds (loop [i 1 m (champ-hash-map)]
+                   (if (< i size) (recur (+ i 2) (assoc m i (str i))) m))
+            removed (loop [i 0 m m]
+                      (if (< i size) (recur (+ i 2) (dissoc m i)) m))
+            removed! (loop [i 0 t (transient m)]
+                       (if (< i size) (recur (+ i 2) (dissoc! t i)) (persistent! t)))]
+        (is (= odds removed))
+        (is (= odds removed!))
+        (is (= (hash odds) (hash removed)))
+        (is (= size (count m)))))
+
+    (testing "equals a hash map with the same entries"
+      (let [h (loop [i 0 h (hash-map)]
+                (if (< i size) (recur (inc i) (assoc h i (str i))) h))]
+        (is (= m h))
+        (is (= h m))
+        (is (= (hash h) (hash m)))
+        (is (not (= m (assoc h 7 7))))))))
+
+(deftest champ-hash-map-nil-key-test
+  (let [m (assoc (champ-hash-map :a 1) nil 2)]
+    (testing "a nil key is stored like any other"
+      (is (= 2 (count m)))
+      (is (= 2 (get m nil)))
+      (is (contains? m nil))
+      (is (= 2 (count (seq m)))))
+
+    (testing "dissoc a nil key"
+      (let [m (dissoc m nil)]
+        (is (= 1 (count m)))
+        (is (not (contains? m nil)))))))
@@ -0,0 +1,30 @@
+(ns clojure.lang.persistent-champ-set-test
+  (:refer-clojure :only [let loop])
+  (:require [clojure.test :refer :all]
+            [clojure.next :refer :all]))
+
+(deftest persistent-champ-set-test
+  (testing "conj, disj and contains?"
+    (let [s (conj (champ-hash-set) 1 2 3)]
+      (is (= 3 (count s)))
+      (is (contains? s 2))
+      (is (not (contains? (disj s 2) 2)))
+      (is (= 2 (get s 2)))
+      (is (nil? (get s 4)))))
+
+  (testing "duplicates are added once"
+    (is (= 2 (count (champ-hash-set :a :b :a)))))
+
+  (testing "equals a hash set with the same items"
+    (is (= (hash-set 1 2 3) (champ-hash-set 3 2 1)))
+    (is (= (champ-hash-set 3 2 1) (hash-set 1 2 3)))
+    (is (= (hash (hash-set 1 2 3)) (hash (champ-hash-set 1 2 3))))))
+
+(deftest transient-champ-set-test
+  (let [t (loop [i 0 t (transient (champ-hash-set))]
+            (if (< i 100) (recur (inc i) (conj! t i)) t))
+        s (persistent! (disj! t 50))]
+    (testing "conj! and disj! on a transient"
+      (is (= 99 (count s)))
+      (is (contains? s 99))
+      (is (not (contains? s 50))))))
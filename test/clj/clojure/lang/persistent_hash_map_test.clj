@@ -1,9 +1,10 @@
 (ns clojure.lang.persistent-hash-map-test
-  (:refer-clojure :only [let defn- loop])
+  (:refer-clojure :only [defn- fn let loop range when])
   (:require [clojure.test                         :refer :all]
             [clojure.lang.persistent-map-test     :refer [map-test]]
             [clojure.lang.persistent-list         :refer [EMPTY-LIST]]
             [clojure.lang.transient-map-test      :refer [transient-map-test]]
+            [clojure.support.exception-assertions :refer [illegal-access-error-is-thrown?]]
             [clojure.next                         :refer :all]))
 
 (deftest hash-map-test
@@ -50,3 +51,181 @@
 
 (deftest transient-hash-map-test
   (transient-map-test hash-map))
+
+(deftest large-hash-map-test
+  (let [size 200
+        m (loop [i 0 m (hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i (str i))) m))]
+    (testing "assoc beyond a single bitmap node"
+      (is (= size (count m)))
+      (is (= "0" (get m 0)))
+      (is (= "199" (get m 199)))
+      (is (nil? (get m size))))
+
+    (testing "seq walks every entry"
+      (is (= size (count (seq m)))))
+
+    (testing "dissoc down to an empty map"
+      (let [emptied (loop [i 0 m m]
+                      (if (< i size) (recur (inc i) (dissoc m i)) m))]
+        (is (= 0 (count emptied)))
+        (is (nil? (get emptied 10)))))
+
+    (testing "assoc! and dissoc! on a transient"
+      (let [t (loop [i 0 t (transient (hash-map))]
+                (if (< i size) (recur (inc i) (assoc! t i (str i))) t))
+            _ (loop [i 0]
+                (when (< i size)
+                  (dissoc! t i)
+                  (recur (+ i 2))))
+            p (persistent! t)]
+        (is (= (/ size 2) (count p)))
+        (is (= (/ size 2) (count (seq p))))
+        (is (nil? (get p 0)))
+        (is (= "199" (get p 199)))))))
+
+(deftest hash-map-nil-key-seq-test
+  (testing "seq includes the entry for a nil key"
+    (let [m (assoc (hash-map :a 1) nil 2)]
+      (is (= 2 (count (seq m)))))))
+
+(deftest hash-map-fold-test
+  (let [size 2000
+        m (loop [i 0 m (hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i i)) m))
+        count-entries (fn [acc entry] (inc acc))
+        sum-vals (fn [acc entry] (+ acc (val entry)))]
+    (testing "visits every entry once"
+      (is (= size (fold 16 + count-entries m)))
+      (is (= 1999000 (fold 16 + sum-vals m))))
+
+    (testing "maps of at most n entries are reduced directly"
+      (is (= size (fold 4096 + count-entries m))))
+
+    (testing "includes the entry for a nil key"
+      (is (= (inc size) (fold 16 + count-entries (assoc m nil 1)))))
+
+    (testing "unwraps a reduced value from the entry for a nil key"
+      (let [stop (fn [acc entry] (reduced 42))]
+        (is (= 84 (fold + stop (hash-map nil 1 :a 2))))
+        (is (= 42 (fold + stop (hash-map :a 2))))
+        (is (= 42 (fold 4096 + stop (assoc (hash-map) nil 1))))))
+
+    (testing "an empty map folds to (combinef)"
+      (is (= 0 (fold + count-entries (hash-map)))))))
+
+(deftest hash-map-keys-vals-test
+  (let [size 2000
+        m (loop [i 0 m (hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i (- i))) m))]
+    (testing "keys and vals reduce over every key and value"
+      (is (= 1999000 (reduce + 0 (keys m))))
+      (is (= -1999000 (reduce + 0 (vals m)))))
+
+    (testing "reduce over keys stops at a reduced value"
+      (is (= :done (reduce (fn [acc k] (reduced :done)) 0 (keys m)))))
+
+    (testing "keys and vals include a nil key"
+      (let [m (assoc (hash-map :a 1) nil 2)]
+        (is (= 2 (count (keys m))))
+        (is (= 3 (reduce + 0 (vals m))))))
+
+    (testing "maps with the same entries are equal however they were built"
+      (let [other (loop [i (dec size) m (hash-map)]
+                    (if (< i 0) m (recur (dec i) (assoc m i (- i)))))]
+        (is (= m other))
+        (is (not (= m (assoc other 7 7))))
+        (is (not (= m (assoc (dissoc other 7) :x -7))))))))
+
+(deftest sharded-transient-hash-map-test
+  (let [size 20000
+        expected (loop [i 0 m (hash-map)]
+                   (if (< i size) (recur (inc i) (assoc m i (- i))) m))]
+    (testing "workers that each fill their own shards build one hash map"
+      (let [t (sharded-transient-hash-map)
+            workers 4
+            fill (fn [w]
+                   (loop [i 0]
+                     (when (< i size)
+                       (when (= w (mod (hash-shard i) workers))
+                         (assoc! t i (- i)))
+                       (recur (inc i)))))
+            done (loop [w 0 fs (vector)]
+                   (if (< w workers)
+                     (recur (inc w) (conj fs (future-call (fn [] (fill w)))))
+                     fs))]
+        (reduce (fn [_ f] (deref f)) nil done)
+        (is (= size (count t)))
+        (is (= -7 (get t 7)))
+        (let [m (persistent! t)]
+          (is (= size (count m)))
+          (is (= expected m))
+          (is (= m expected))
+          (is (= size (reduce (fn [n _] (inc n)) 0 m)))
+          (is (= (hash expected) (hash m)))
+          (is (= -42 (get (assoc m 42 -42) 42)))
+          (is (= (dec size) (count (dissoc m 42)))))))
+
+    (testing "joins a few shards under a bitmap node"
+      (let [t (sharded-transient-hash-map)]
+        (assoc! t :a 1)
+        (assoc! t :b 2)
+        (assoc! t nil 3)
+        (is (= (hash-map :a 1 :b 2 nil 3) (persistent! t)))
+        (is (= (hash-map) (persistent! (sharded-transient-hash-map))))))
+
+    (testing "conj! and dissoc!"
+      (let [t (sharded-transient-hash-map)]
+        (conj! t (vector :a 1))
+        (conj! t (hash-map :b 2 :c 3))
+        (dissoc! t :b)
+        (dissoc! t :missing)
+        (is (= (hash-map :a 1 :c 3) (persistent! t)))))
+
+    (testing "can not be used after persistent!"
+      (let [t (sharded-transient-hash-map)]
+        (persistent! t)
+        (illegal-access-error-is-thrown? #"Transient used after persistent! call"
+          (assoc! t :a 1))))))
+
+(deftest hash-map-merge-test
+  (let [build (fn [from to f]
+                (loop [i from m (hash-map)]
+                  (if (< i to) (recur (inc i) (assoc m i (f i))) m)))
+        a (build 0 3000 -)
+        b (build 2000 5000 str)]
+    (testing "merge takes the values of the latter map"
+      (let [m (merge a b)]
+        (is (= 5000 (count m)))
+        (is (= -1999 (get m 1999)))
+        (is (= "2000" (get m 2000)))
+        (is (= m (reduce (fn [m k] (assoc m k (str k))) a (range 2000 5000))))))
+
+    (testing "merge-with combines the values of shared keys"
+      (let [m (merge-with (fn [x y] (vector x y)) a b)]
+        (is (= 5000 (count m)))
+        (is (= (vector -2500 "2500") (get m 2500)))
+        (is (= "4000" (get m 4000)))))
+
+    (testing "merging a map with itself or a part of it returns it"
+      (is (identical? a (merge a a)))
+      (is (identical? a (merge a (dissoc a 7))))
+      (is (= (assoc a 9000 :x) (merge (dissoc a 7) (assoc a 9000 :x)))))
+
+    (testing "merges the nil key"
+      (let [m (merge (assoc a nil 1) (assoc b nil 2))]
+        (is (= 5001 (count m)))
+        (is (= 2 (get m nil))))
+      (is (= 3 (get (merge-with + (assoc a nil 1) (hash-map nil 2)) nil)))
+      (is (= 1 (get (merge (assoc a nil 1) b) nil))))
+
+    (testing "merges keys whose hashes collide"
+      (is (= (hash "Aa") (hash "BB")))
+      (let [m (merge (hash-map "Aa" 1 "x" 2) (hash-map "BB" 3 "Aa" 4))]
+        (is (= 3 (count m)))
+        (is (= 4 (get m "Aa")))
+        (is (= 3 (get m "BB"))))
+      (let [m (merge (hash-map "Aa" 1 "BB" 2) (hash-map "Aa" 3 "y" 4))]
+        (is (= 3 (count m)))
+        (is (= 3 (get m "Aa")))
+        (is (= 2 (get m "BB")))))))
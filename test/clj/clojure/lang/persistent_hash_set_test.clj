@@ -1,5 +1,5 @@
 (ns clojure.lang.persistent-hash-set-test
-  (:refer-clojure :only [deftype let])
+  (:refer-clojure :only [apply deftype let range])
   (:require [clojure.test                     :refer :all]
             [clojure.lang.persistent-set      :refer [difference intersection subset? superset? union]]
             [clojure.lang.protocols           :refer [IHash -invoke]]
@@ -149,16 +149,16 @@
   (-hash [this] t))
 
 (deftest persistent-hash-set-hash-test
-  (testing "the hash of an empty set is zero"
+  (testing "the hash of an empty set is the mixed hash of no elements"
     (let [s1 (hash-set)]
-      (is (= 0 (hash s1)))))
+      (is (= (clojure.core/mix-collection-hash 0 0) (hash s1)))))
 
-  (testing "calculates the sum of all of it's elements hash codes"
+  (testing "mixes the sum of all of it's elements hash codes"
     (let [thing1 (Thing. 42)
           thing2 (Thing. 24)
           thing3 (Thing. 1337)
           s1 (hash-set thing1 thing2 thing3)]
-      (is (= 1403 (hash s1)))))
+      (is (= (clojure.core/mix-collection-hash 1403 3) (hash s1)))))
 
   (testing "hash of two identical sets will be the same"
     (let [s1 (hash-set 1 2 3)
@@ -248,3 +248,27 @@
       (is (nil? (get t 4)))
       (is (= "not found" (get t 4 "not found"))))))
 
+
+(deftest persistent-hash-set-algebra-test
+  (let [evens (apply hash-set (range 0 4000 2))
+        threes (apply hash-set (range 0 4000 3))
+        sixes (apply hash-set (range 0 4000 6))]
+    (testing "union, intersection and difference of large hash sets"
+      (is (= (count (union evens threes)) (- (+ (count evens) (count threes)) (count sixes))))
+      (is (= sixes (intersection evens threes)))
+      (is (= sixes (intersection threes evens)))
+      (is (= (count (difference evens threes)) (- (count evens) (count sixes))))
+      (is (not (contains? (difference evens threes) 6)))
+      (is (contains? (difference evens threes) 4)))
+
+    (testing "sets that share their items"
+      (is (= evens (union evens evens)))
+      (is (= evens (intersection evens evens)))
+      (is (= (hash-set) (difference evens evens)))
+      (is (= (conj evens 1) (union evens (conj evens 1))))
+      (is (= (disj evens 10) (intersection evens (disj evens 10)))))
+
+    (testing "mixes with other kinds of sets"
+      (is (= (hash-set 1 2 3) (union (hash-set 1 2) (sorted-set 2 3))))
+      (is (= (hash-set 2) (intersection (hash-set 1 2) (sorted-set 2 3))))
+      (is (= (hash-set 1) (difference (hash-set 1 2) (sorted-set 2 3)))))))
@@ -0,0 +1,124 @@
+(ns clojure.lang.persistent-int-map-test
+  (:refer-clojure :only [defn- fn let loop when])
+  (:require [clojure.test                         :refer :all]
+            [clojure.lang.persistent-list         :refer [list]]
+            [clojure.lang.protocols               :refer [-intersect-with -remove-keys]]
+            [clojure.support.exception-assertions :refer [argument-error-is-thrown?
+                                                          illegal-access-error-is-thrown?]]
+            [clojure.next                         :refer :all]))
+
+(defn- range-map [start end f]
+  (loop [i start m (int-map)]
+    (if (< i end) (recur (inc i) (assoc m i (f i))) m)))
+
+(deftest int-map-test
+  (testing "assoc, get and contains? with integer keys"
+    (let [m (int-map 1 :a 2 :b -3 :c)]
+      (is (= 3 (count m)))
+      (is (= :a (get m 1)))
+      (is (= :c (get m -3)))
+      (is (nil? (get m 4)))
+      (is (= :nf (get m 4 :nf)))
+      (is (contains? m 2))
+      (is (not (contains? m 4)))))
+
+  (testing "keys of any integer type are the same key"
+    (let [m (int-map 1 :a)]
+      (is (= :a (get m (clojure.core/int 1))))
+      (is (= 1 (count (assoc m (clojure.core/short 1) :b))))))
+
+  (testing "a key that is not an integer is never found"
+    (let [m (int-map 1 :a)]
+      (is (nil? (get m :a)))
+      (is (not (contains? m "1")))
+      (is (= m (dissoc m :a)))))
+
+  (testing "assoc of a key that is not an integer is an error"
+    (argument-error-is-thrown? #"PersistentIntMap keys must be integers: :a given"
+      (assoc (int-map) :a 1)))
+
+  (testing "an odd number of arguments is an error"
+    (argument-error-is-thrown?
+      #"PersistentIntMap can only be created with even number of arguments: 3 arguments given"
+      (int-map 1 2 3)))
+
+  (testing "seq walks the keys in ascending order"
+    (let [m (int-map 9 9 -1 -1 0 0 9223372036854775807 1 -9223372036854775808 2)]
+      (is (= (list -9223372036854775808 -1 0 9 9223372036854775807) (keys m)))))
+
+  (testing "equals a hash map with the same entries"
+    (let [m (range-map -500 500 str)
+          h (loop [i -500 h (hash-map)]
+              (if (< i 500) (recur (inc i) (assoc h i (str i))) h))]
+      (is (= m h))
+      (is (= h m))
+      (is (= (hash h) (hash m)))
+      (is (not (= m (assoc h 7 7))))))
+
+  (testing "dissoc down to the map that never had the keys"
+    (let [m (range-map 0 1000 str)
+          odds (loop [i 1 m (int-map)]
+                 (if (< i 1000) (recur (+ i 2) (assoc m i (str i))) m))
+          removed (loop [i 0 m m]
+                    (if (< i 1000) (recur (+ i 2) (dissoc m i)) m))]
+      (is (= odds removed))
+      (is (= 500 (count removed)))
+      (is (= 1000 (count m)))))
+
+  (testing "reduce stops at a reduced value"
+    (let [m (range-map 0 100 str)]
+      (is (= 4950 (reduce (fn [acc entry] (+ acc (key entry))) 0 m)))
+      (is (= :done (reduce (fn [acc entry] (reduced :done)) 0 m))))))
+
+(deftest transient-int-map-test
+  (let [t (loop [i 0 t (transient (int-map))]
+            (if (< i 1000) (recur (inc i) (assoc! t i (str i))) t))
+        _ (loop [i 0]
+            (when (< i 1000)
+              (dissoc! t i)
+              (recur (+ i 2))))
+        p (persistent! t)]
+    (testing "assoc! and dissoc! on a transient"
+      (is (= 500 (count p)))
+      (is (nil? (get p 0)))
+      (is (= "999" (get p 999))))
+
+    (testing "a transient cannot be used after persistent!"
+      (illegal-access-error-is-thrown? #"Transient used after persistent! call"
+        (assoc! t 1 1)))))
+
+(deftest int-map-merge-test
+  (let [a (range-map 0 1000 (fn [i] i))
+        b (range-map 500 1500 (fn [i] (- i)))]
+    (testing "merge takes the value of a key in both maps from the latter"
+      (let [m (merge a b)]
+        (is (= 1500 (count m)))
+        (is (= 10 (get m 10)))
+        (is (= -600 (get m 600)))
+        (is (= (range-map 0 1500 (fn [i] (if (< i 500) i (- i)))) m))))
+
+    (testing "merge-with combines the values of a key in both maps"
+      (let [m (merge-with + a b)]
+        (is (= 1500 (count m)))
+        (is (= 0 (get m 600)))
+        (is (= -1400 (get m 1400)))))
+
+    (testing "merge with a map that is not an int map"
+      (let [m (merge a (hash-map 5000 1 1 :one))]
+        (is (= 1001 (count m)))
+        (is (= :one (get m 1)))))
+
+    (testing "intersect keeps the keys in both maps"
+      (let [m (-intersect-with a nil b)]
+        (is (= 500 (count m)))
+        (is (= 600 (get m 600)))
+        (is (nil? (get m 10)))
+        (is (= 2 (count (-intersect-with a + (hash-map 1 1 2 2 5000 5000)))))
+        (is (= 0 (get (-intersect-with a + b) 700)))))
+
+    (testing "remove-keys keeps the keys only in this map"
+      (let [m (-remove-keys a b)]
+        (is (= 500 (count m)))
+        (is (= 10 (get m 10)))
+        (is (nil? (get m 600)))
+        (is (identical? a (-remove-keys a (int-map 5000 1))))))))
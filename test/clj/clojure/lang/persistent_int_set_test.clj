@@ -0,0 +1,50 @@
+(ns clojure.lang.persistent-int-set-test
+  (:refer-clojure :only [let loop])
+  (:require [clojure.test                 :refer :all]
+            [clojure.lang.persistent-list :refer [list]]
+            [clojure.lang.persistent-set  :refer [difference intersection union]]
+            [clojure.next                 :refer :all]))
+
+(deftest persistent-int-set-test
+  (testing "conj, disj and contains?"
+    (let [s (conj (int-set) 1 2 3)]
+      (is (= 3 (count s)))
+      (is (contains? s 2))
+      (is (not (contains? (disj s 2) 2)))
+      (is (= 2 (get s 2)))
+      (is (nil? (get s 4)))))
+
+  (testing "equals a hash set with the same items"
+    (is (= (hash-set 1 2 3) (int-set 3 2 1)))
+    (is (= (int-set 3 2 1) (hash-set 1 2 3)))
+    (is (= (hash (hash-set 1 2 3)) (hash (int-set 1 2 3)))))
+
+  (testing "seq gives the items in ascending order"
+    (is (= (list -2 0 5) (seq (int-set 5 -2 0))))))
+
+(deftest int-set-algebra-test
+  (let [a (int-set 1 2 3 4)
+        b (int-set 3 4 5 6)]
+    (testing "union"
+      (is (= (int-set 1 2 3 4 5 6) (union a b)))
+      (is (= (int-set 1 2 3 4 7) (union a (hash-set 7 1))))
+      (is (= (int-set 1 2 3 4 5 6 7) (union a b (int-set 7)))))
+
+    (testing "intersection"
+      (is (= (int-set 3 4) (intersection a b)))
+      (is (= (int-set 1) (intersection a (hash-set 1 9))))
+      (is (= (int-set) (intersection a b (int-set 1)))))
+
+    (testing "difference"
+      (is (= (int-set 1 2) (difference a b)))
+      (is (= (int-set 2 3 4) (difference a (hash-set 1 9))))
+      (is (= (int-set 2) (difference a b (int-set 1)))))))
+
+(deftest transient-int-set-test
+  (let [t (loop [i 0 t (transient (int-set))]
+            (if (< i 100) (recur (inc i) (conj! t i)) t))
+        s (persistent! (disj! t 50))]
+    (testing "conj! and disj! on a transient"
+      (is (= 99 (count s)))
+      (is (contains? s 99))
+      (is (not (contains? s 50))))))
@@ -331,23 +331,30 @@
   (-compare-to [this other] 1))
 
 (defn map-hash-test [constructor]
-  (testing "the hash of an empty map-hash is zero"
+  (testing "the hash of an empty map is the mixed hash of no entries"
     (let [m1 (constructor)]
-      (is (= 0 (hash m1)))))
+      (is (= (clojure.core/mix-collection-hash 0 0) (hash m1)))))
 
-  (testing "calculates the bit-and of the key and value and adds them together"
-    (let [thing1 (Thing. 2r1101)
-          thing2 (Thing. 2r1010)
+  (testing "hashes an entry like the vector of its key and value"
+    (let [thing1 (Thing. 13)
+          thing2 (Thing. 10)
           m1 (constructor thing1 thing2)]
-      (is (= 2r1000 (hash m1)))))
+      (is (= (clojure.core/mix-collection-hash (hash (vector thing1 thing2)) 1) (hash m1)))))
 
-  (testing "calculates the bit-and of to map entries"
-    (let [thing1 (Thing. 2r1101)
-          thing2 (Thing. 2r1010)
-          thing3 (Thing. 2r1011)
-          thing4 (Thing. 2r1111)
+  (testing "adds the entry hashes together before mixing"
+    (let [thing1 (Thing. 13)
+          thing2 (Thing. 10)
+          thing3 (Thing. 11)
+          thing4 (Thing. 15)
           m1 (constructor thing1 thing2 thing3 thing4)]
-      (is (= 2r10011 (hash m1)))))
+      (is (= (clojure.core/mix-collection-hash
+               (clojure.core/unchecked-add-int (hash (vector thing1 thing2)) (hash (vector thing3 thing4)))
+               2)
+             (hash m1)))))
+
+  (testing "the hash is the same after changing the meta"
+    (let [m1 (constructor :k 1)]
+      (is (= (hash m1) (hash (with-meta m1 {:so :meta}))))))
 
   (testing "hash code of equivalent maps will be the same"
     (let [m1 (constructor :k 1)
@@ -39,6 +39,19 @@
       (is (nil? (meta EMPTY-QUEUE)))
       (is (= {:so :meta} (meta meta-queue)))))
 
+  (testing "equals and hashes like a vector of its items"
+    (let [q (conj (conj (pop (conj (conj EMPTY-QUEUE 0) 1)) 2) 3)
+          v (vector 1 2 3)]
+      (is (= v q))
+      (is (= q v))
+      (is (= (hash v) (hash q)))
+      (is (= (hash v) (hash (with-meta q {:so :meta}))))
+      (is (= (.hashCode v) (.hashCode q)))
+      (is (contains? (hash-set v) q))
+      (is (not= q (vector 1 2)))
+      (is (= EMPTY-QUEUE (vector)))
+      (is (= (hash (vector)) (hash EMPTY-QUEUE)))))
+
   )
 
 (deftest persistent-queue-seq-test
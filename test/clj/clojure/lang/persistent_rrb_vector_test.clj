@@ -0,0 +1,151 @@
+(ns clojure.lang.persistent-rrb-vector-test
+  (:refer-clojure :only [apply defn defn- doseq fn for let loop range when])
+  (:require [clojure.test                         :refer :all]
+            [clojure.lang.protocols               :refer [-invoke]]
+            [clojure.support.exception-assertions :refer :all]
+            [clojure.next                         :refer :all]))
+
+(defn- range-vector [start end]
+  (apply vector (range start end)))
+
+(defn- same-elements? [v expected]
+  (and (= (count expected) (count v))
+       (loop [i 0]
+         (if (< i (count expected))
+           (if (= (nth expected i) (nth v i))
+             (recur (inc i))
+             false)
+           true))))
+
+(deftest catvec-test
+  (testing "concatenates vectors"
+    (is (= (vector 1 2 3 4 5) (catvec (vector 1 2) (vector 3) (vector 4 5))))
+    (is (= (vector) (catvec)))
+    (is (= (vector 1) (catvec (vector) (vector 1) (vector)))))
+
+  (testing "concatenates vectors of any size"
+    (doseq [[a b] [[31 33] [32 32] [33 1000] [1000 33] [1057 5000] [70000 35]]]
+      (let [v (catvec (range-vector 0 a) (range-vector a (+ a b)))]
+        (is (same-elements? v (range-vector 0 (+ a b)))))))
+
+  (testing "keeps indexing after many uneven concatenations"
+    (let [pieces (for [i (range 300)]
+                   (range-vector 0 (+ 1 (mod (* i 37) 90))))
+          v (apply catvec pieces)
+          expected (into (vector) (apply concat pieces))]
+      (is (same-elements? v expected))
+      (is (= expected v))
+      (is (= (reduce + 0 expected) (reduce + 0 v)))))
+
+  (testing "is equal to and hashes like a vector"
+    (let [v (catvec (range-vector 0 100) (range-vector 100 200))]
+      (is (= (range-vector 0 200) v))
+      (is (= v (range-vector 0 200)))
+      (is (= (hash (range-vector 0 200)) (hash v)))
+      (is (vector? v))))
+
+  (testing "keeps the meta of the first vector"
+    (let [mta {:so :meta}
+          v (catvec (with-meta (range-vector 0 100) mta) (range-vector 0 100))]
+      (is (= mta (meta v)))))
+
+  (testing "keeps the type of a vector-of"
+    (let [v (catvec (into (vector-of :long) (range 100)) (into (vector-of :long) (range 100 200)))]
+      (is (= (range-vector 0 200) v))
+      (is (= 7 (nth (assoc v 150 7.5) 150))))))
+
+(deftest rrb-vector-test
+  (let [v (catvec (range-vector 0 1000) (range-vector 1000 2000))]
+    (testing "conj, assoc and pop"
+      (is (= (range-vector 0 2001) (conj v 2000)))
+      (is (= :x (nth (assoc v 500 :x) 500)))
+      (is (= :x (nth (assoc v 1999 :x) 1999)))
+      (is (= (conj v :x) (assoc v 2000 :x)))
+      (is (= (range-vector 0 1999) (pop v)))
+      (is (= 1999 (peek v)))
+      (is (= (range-vector 0 100)
+             (loop [v v]
+               (if (= 100 (count v))
+                 v
+                 (recur (pop v)))))))
+
+    (testing "throws on an index out of range"
+      (out-of-bounds-exception-is-thrown? #""
+        (nth v 2000))
+      (out-of-bounds-exception-is-thrown? #""
+        (assoc v 2001 :x)))
+
+    (testing "returns not-found out of range"
+      (is (= :none (nth v 2000 :none)))
+      (is (= 5 (-invoke v 5))))
+
+    (testing "returns a chunked seq"
+      (let [s (seq (catvec (range-vector 0 10) (range-vector 10 100)))]
+        (is (chunked-seq? s))
+        (is (= 90 (count (chunk-next s))))
+        (is (= (seq (range-vector 0 100)) s))))
+
+    (testing "folds"
+      (is (= (reduce + 0 (range 2000)) (fold 100 + + v))))
+
+    (testing "empty keeps the meta"
+      (let [mta {:so :meta}]
+        (is (= mta (meta (empty (with-meta v mta)))))
+        (is (= (vector) (empty v)))))))
+
+(deftest rrb-subvec-test
+  (let [v (apply catvec (for [i (range 50)] (range-vector (* i 41) (* (inc i) 41))))]
+    (testing "slices a concatenated vector"
+      (doseq [[start end] [[0 2050] [0 1] [17 2049] [1000 1040] [2040 2050] [33 64]]]
+        (is (same-elements? (subvec v start end) (range-vector start end)))))
+
+    (testing "slices a slice"
+      (is (= (range-vector 120 130) (subvec (subvec v 100 1000) 20 30))))
+
+    (testing "returns an rrb vector that can grow"
+      (is (= (range-vector 10 101) (conj (subvec v 10 100) 100)))
+      (is (= (range-vector 10 300) (catvec (subvec v 10 100) (subvec v 100 300)))))))
+
+(deftest splice-test
+  (let [v (range-vector 0 1000)]
+    (testing "inserts an element"
+      (let [w (insert-at v 500 :x)]
+        (is (= 1001 (count w)))
+        (is (= 499 (nth w 499)))
+        (is (= :x (nth w 500)))
+        (is (= 500 (nth w 501))))
+      (is (= :x (first (insert-at v 0 :x))))
+      (is (= :x (peek (insert-at v 1000 :x)))))
+
+    (testing "replaces a range with a collection"
+      (is (= (vector 1 :a :b :c 4) (splice (vector 1 2 3 4) 1 3 (vector :a :b :c))))
+      (is (= (vector 1 :a 2) (splice (vector 1 2) 1 (cons :a nil)))))))
+
+(deftest transient-rrb-vector-test
+  (let [v (catvec (range-vector 0 100) (range-vector 100 150))]
+    (testing "conj!, assoc! and pop!"
+      (let [t (transient v)]
+        (doseq [i (range 150 2000)]
+          (conj! t i))
+        (assoc! t 3 :x)
+        (assoc! t 1999 :y)
+        (pop! t)
+        (is (= 1999 (count t)))
+        (is (= :x (nth t 3)))
+        (is (= :x (-invoke t 3)))
+        (is (= :none (get t 5000 :none)))
+        (let [p (persistent! t)]
+          (is (= (assoc (range-vector 0 1999) 3 :x) p))
+          (is (= (range-vector 0 150) v)))))
+
+    (testing "pops into the tree"
+      (let [t (transient v)]
+        (doseq [_ (range 140)]
+          (pop! t))
+        (is (= (range-vector 0 10) (persistent! t)))))
+
+    (testing "throws when used after persistent!"
+      (let [t (transient v)]
+        (persistent! t)
+        (illegal-access-error-is-thrown? #"Transient used after persistent! call"
+          (conj! t 1))))))
@@ -1,8 +1,9 @@
 (ns clojure.lang.persistent-sorted-map-test
-  (:refer-clojure :only [conj defn- let loop reduce repeatedly])
+  (:refer-clojure :only [apply conj defn- doseq let loop reduce repeatedly])
   (:require [clojure.test                       :refer :all]
             [clojure.lang.persistent-map-test   :refer [map-test]]
-            [clojure.lang.persistent-list       :refer [EMPTY-LIST]]
+            [clojure.lang.transient-map-test    :refer [transient-map-test]]
+            [clojure.lang.persistent-list       :refer [EMPTY-LIST list]]
             [clojure.lang.exceptions            :refer [argument-error]]
             [clojure.next                       :refer :all :exclude [reduce conj repeatedly]]))
 
@@ -135,3 +136,106 @@
       (is (= 3 (count m3-seq)))
       (is (= 2 (count m4-seq)))
       (is (= 1 (count m5-seq))))))
+
+(deftest sorted-map-range-test
+  (let [m (sorted-map 1 :a 3 :c 5 :e 7 :g 9 :i)]
+    (testing "subseq with a single bound"
+      (is (= (list 5 7 9) (keys (subseq m >= 5))))
+      (is (= (list 7 9) (keys (subseq m > 5))))
+      (is (= (list 7 9) (keys (subseq m > 6))))
+      (is (= (list 1 3) (keys (subseq m < 5))))
+      (is (= (list 1 3 5) (keys (subseq m <= 5))))
+      (is (nil? (subseq m > 9))))
+
+    (testing "subseq with two bounds"
+      (is (= (list 3 5 7) (keys (subseq m >= 3 <= 7))))
+      (is (= (list 5) (keys (subseq m > 3 < 7))))
+      (is (= (list 3 5) (keys (subseq m >= 2 < 6))))
+      (is (nil? (seq (subseq m > 3 < 5)))))
+
+    (testing "rsubseq with a single bound"
+      (is (= (list 5 3 1) (keys (rsubseq m <= 5))))
+      (is (= (list 3 1) (keys (rsubseq m < 5))))
+      (is (= (list 3 1) (keys (rsubseq m < 4))))
+      (is (= (list 9 7) (keys (rsubseq m > 5))))
+      (is (nil? (rsubseq m < 1))))
+
+    (testing "rsubseq with two bounds"
+      (is (= (list 7 5 3) (keys (rsubseq m >= 3 <= 7))))
+      (is (= (list 5 3) (keys (rsubseq m > 2 < 6)))))
+
+    (testing "rseq walks the map in descending order"
+      (is (= (list 9 7 5 3 1) (keys (rseq m))))
+      (is (= 5 (count (rseq m))))
+      (is (nil? (rseq (sorted-map)))))
+
+    (testing "a seq from a key counts its entries"
+      (is (= 3 (count (subseq m >= 5)))))
+
+    (testing "floor-entry and ceiling-entry find the nearest keys"
+      (is (= 5 (key (floor-entry m 5))))
+      (is (= 5 (key (floor-entry m 6))))
+      (is (nil? (floor-entry m 0)))
+      (is (= 7 (key (ceiling-entry m 6))))
+      (is (= :c (val (ceiling-entry m 2))))
+      (is (nil? (ceiling-entry m 10)))))
+
+  (testing "follows the map's comparator"
+    (let [m (sorted-map-by > 1 :a 3 :c 5 :e)]
+      (is (= (list 3 1) (keys (subseq m > 4))))
+      (is (= (list 1 3) (keys (rsubseq m > 4))))
+      (is (= 3 (key (floor-entry m 2)))))))
+
+(deftest transient-sorted-map-test
+  (transient-map-test sorted-map)
+
+  (testing "assoc! and dissoc! keep the entries in order"
+    (let [t (transient (sorted-map))]
+      (doseq [k (clojure.core/shuffle (clojure.core/range 200))]
+        (assoc! t k (* k k)))
+      (doseq [k (clojure.core/range 0 200 2)]
+        (dissoc! t k))
+      (let [p (persistent! t)]
+        (is (= 100 (count p)))
+        (is (= 9 (get p 3)))
+        (is (= (apply list (clojure.core/range 1 200 2)) (keys p))))))
+
+  (testing "the map a transient was made from is left unchanged"
+    (let [m (sorted-map 1 :a 2 :b 3 :c)
+          t (transient m)]
+      (doseq [k (clojure.core/range 4 100)]
+        (assoc! t k k))
+      (assoc! t 2 :z)
+      (dissoc! t 1)
+      (is (= 3 (count m)))
+      (is (= (list 1 2 3) (keys m)))
+      (is (= :b (get m 2)))
+      (is (= :z (get (persistent! t) 2)))))
+
+  (testing "into a sorted map goes through a transient"
+    (let [m (into (sorted-map-by > 1 :a) (hash-map 2 :b 3 :c))]
+      (is (= (list 3 2 1) (keys m))))))
+
+(deftest sorted-map-bulk-build-test
+  (testing "keys given in order build the same map as keys given out of order"
+    (doseq [n [1 2 3 7 8 100 1000]]
+      (let [ks (clojure.core/range n)
+            in-order (apply sorted-map (clojure.core/interleave ks ks))
+            shuffled (clojure.core/shuffle ks)
+            out-of-order (apply sorted-map (clojure.core/interleave shuffled shuffled))]
+        (is (= n (count in-order)))
+        (is (= out-of-order in-order))
+        (is (= (apply list ks) (keys in-order))))))
+
+  (testing "a map built from sorted keys stays balanced through assoc and dissoc"
+    (let [ks (clojure.core/range 500)
+          m (apply sorted-map (clojure.core/interleave ks ks))
+          m (reduce dissoc m (clojure.core/range 0 500 3))
+          m (reduce #(assoc %1 %2 %2) m (clojure.core/range 500 600))]
+      (is (= 433 (count m)))
+      (is (= 599 (key (first (rseq m)))))))
+
+  (testing "a repeated key keeps the last value"
+    (let [m (sorted-map 1 :a 2 :b 2 :c)]
+      (is (= 2 (count m)))
+      (is (= :c (get m 2))))))
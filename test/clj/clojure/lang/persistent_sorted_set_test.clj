@@ -1,6 +1,7 @@
 (ns clojure.lang.persistent-sorted-set-test
   (:refer-clojure :only [deftype let])
   (:require [clojure.test                       :refer :all]
+            [clojure.lang.persistent-list       :refer [list]]
             [clojure.lang.persistent-set        :refer [difference intersection subset? superset? union]]
             [clojure.lang.protocols             :refer [IHash -invoke]]
             [clojure.next                       :refer :all]))
@@ -155,16 +156,16 @@
   (compareTo [this other] 1))
 
 (deftest persistent-sorted-set-hash-test
-  (testing "the hash of an empty set is zero"
+  (testing "the hash of an empty set is the mixed hash of no elements"
     (let [s1 (sorted-set)]
-      (is (= 0 (hash s1)))))
+      (is (= (clojure.core/mix-collection-hash 0 0) (hash s1)))))
 
-  (testing "calculates the sum of all of it's elements hash codes"
+  (testing "mixes the sum of all of it's elements hash codes"
     (let [thing1 (Thing. 42)
           thing2 (Thing. 24)
           thing3 (Thing. 1337)
           s1 (sorted-set thing1 thing2 thing3)]
-      (is (= 1403 (hash s1)))))
+      (is (= (clojure.core/mix-collection-hash 1403 3) (hash s1)))))
 
   (testing "hash of two identical sets will be the same"
     (let [s1 (sorted-set 1 2 3)
@@ -214,3 +215,34 @@
       (is (= 2 (first seq2)))
       (is (= 1 (first seq3))))))
 
+
+(deftest persistent-sorted-set-range-test
+  (let [s (sorted-set 10 20 30 40)]
+    (testing "subseq and rsubseq return the elements in range"
+      (is (= (list 20 30) (subseq s > 10 <= 30)))
+      (is (= (list 30 40) (subseq s >= 25)))
+      (is (= (list 30 20) (rsubseq s >= 15 < 40)))
+      (is (= (list 40 30 20 10) (rseq s))))
+
+    (testing "floor-entry and ceiling-entry return the nearest elements"
+      (is (= 20 (floor-entry s 25)))
+      (is (= 30 (ceiling-entry s 25)))
+      (is (= 40 (ceiling-entry s 40)))
+      (is (nil? (floor-entry s 5))))))
+
+(deftest transient-sorted-set-test
+  (testing "conj! and disj! keep the elements in order"
+    (let [t (transient (sorted-set 5 1))]
+      (conj! t 3)
+      (conj! t 1)
+      (disj! t 5)
+      (is (= 2 (count t)))
+      (is (true? (contains? t 3)))
+      (is (= 3 (get t 3)))
+      (let [s (persistent! t)]
+        (is (true? (sorted? s)))
+        (is (= (list 1 3) (seq s))))))
+
+  (testing "keeps the set's comparator"
+    (let [s (persistent! (conj! (transient (sorted-set-by > 1 2)) 3))]
+      (is (= (list 3 2 1) (seq s))))))
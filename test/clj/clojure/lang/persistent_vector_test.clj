@@ -3,6 +3,7 @@
   (:require [clojure.test                         :refer :all]
             [clojure.lang.protocols               :refer [IPersistentVector
                                                           -invoke]]
+            [clojure.lang.persistent-list         :refer [list]]
             [clojure.support.exception-assertions :refer :all]
             [clojure.next                         :refer :all]))
 
@@ -32,6 +33,15 @@
       (is (= :c (nth new-vec 2)))
       (is (= :f (nth new-vec 5)))))
 
+  (testing "returns the nth object from the tree once the tail is full"
+    (let [new-vec (apply vector (range 2000))]
+      (is (= 0 (nth new-vec 0)))
+      (is (= 31 (nth new-vec 31)))
+      (is (= 32 (nth new-vec 32)))
+      (is (= 1056 (nth new-vec 1056)))
+      (is (= 1999 (nth new-vec 1999)))
+      (is (= 2000 (count (seq new-vec))))))
+
   (testing "returns the nth object or not-found"
     (let [new-vec (vector :a :b :c :d :e :f)]
       (is (= :a (nth new-vec 0)))
@@ -408,3 +418,113 @@
     (let [v (transient (vector 0 1 2))]
       (argument-error-is-thrown? #"Key must be integer" (-invoke v :foo)))))
 
+
+(deftest vector-fold-test
+  (let [size 2000
+        v (apply vector (range size))
+        concat-vectors (fn ([] (vector)) ([a b] (into a b)))
+        counts-up? (fn [r start end]
+                     (and (= (- end start) (count r))
+                          (every? #(= (+ start %) (nth r %)) (range (- end start)))))]
+    (testing "reduces each part and combines the results"
+      (is (= 1999000 (fold 16 + + v)))
+      (is (= 1999000 (fold + v))))
+
+    (testing "combines the parts in order"
+      (is (counts-up? (fold 100 concat-vectors conj v) 0 size))
+      (is (counts-up? (fold 33 concat-vectors conj v) 0 size)))
+
+    (testing "folds a sub vector"
+      (is (counts-up? (fold 64 concat-vectors conj (subvec v 40 1000)) 40 1000)))
+
+    (testing "an empty vector folds to (combinef)"
+      (is (= 0 (fold + (vector)))))))
+
+(deftest vector-hasheq-test
+  (testing "hashes like the other sequential collections"
+    (is (= (hash (vector 1 2 3)) (hash (list 1 2 3))))
+    (is (= (hash (vector 1 2 3)) (hash (lazy-seq (list 1 2 3)))))
+    (is (= (hash (vector)) (hash (list)))))
+
+  (testing "mixes the ordered hash of the elements with the count"
+    (is (= (clojure.core/mix-collection-hash 30817 3) (hash (vector 1 2 3)))))
+
+  (testing "large vectors hash without overflowing"
+    (let [v (apply vector (range 10000))]
+      (is (= (hash v) (hash (apply vector (range 10000)))))
+      (is (= (hash v) (hash (subvec (apply vector (range -1 10000)) 1))))))
+
+  (testing "the hash is the same after changing the meta"
+    (let [v (vector 1 2 3)]
+      (is (= (hash v) (hash (with-meta v {:so :meta})))))))
+
+(deftest vector-of-test
+  (testing "holds elements of a primitive type"
+    (let [v (vector-of :long 1 2 3)]
+      (is (= 3 (count v)))
+      (is (= 2 (nth v 1)))
+      (is (= (vector 1 2 3) v))
+      (is (= (hash (vector 1 2 3)) (hash v)))))
+
+  (testing "coerces the elements to its type"
+    (is (= (vector 1 2) (vector-of :long 1.5 2)))
+    (is (= (vector 1.0 2.0) (vector-of :double 1 2)))
+    (is (= (vector 1 2) (vector-of :int 1 2)))
+    (is (= (vector 127) (vector-of :byte 127))))
+
+  (testing "throws if an element does not fit its type"
+    (argument-error-is-thrown? #"out of range"
+      (vector-of :byte 128))
+    (class-cast-exception-is-thrown? #""
+      (vector-of :long :a)))
+
+  (testing "throws on an unknown type"
+    (argument-error-is-thrown? #"Unrecognized type :string"
+      (vector-of :string)))
+
+  (testing "conj, assoc and pop keep the type"
+    (let [v (into (vector-of :int) (range 2000))]
+      (is (= 2001 (count (conj v 2.5))))
+      (is (= 2 (nth (conj v 2.5) 2000)))
+      (is (= 7 (nth (assoc v 1000 7.9) 1000)))
+      (is (= 7 (nth (assoc v 1999 7.9) 1999)))
+      (is (= (apply vector (range 1999)) (pop v)))
+      (is (= 1 (nth (conj (empty v) 1.5) 0)))))
+
+  (testing "empty keeps the type and the meta"
+    (let [mta {:so :meta}
+          v (with-meta (vector-of :double 1 2) mta)]
+      (is (empty? (empty v)))
+      (is (= mta (meta (empty v))))
+      (is (= (vector 1.0) (conj (empty v) 1)))
+      (is (= (vector 1.0 1.0) (conj (pop v) 1)))))
+
+  (testing "reduces, seqs and folds through its leaf arrays"
+    (let [v (into (vector-of :long) (range 2000))]
+      (is (= 1999000 (reduce + v)))
+      (is (= 1999000 (reduce + (seq v))))
+      (is (= 1999000 (fold 16 + + v)))
+      (is (= 10 (reduce (fn [acc x] (if (= x 5) (reduced acc) (+ acc x))) 0 v)))
+      (is (= (seq (apply vector (range 2000))) (seq v)))
+      (is (= (apply vector (range 40 1000)) (subvec v 40 1000)))
+      (is (= 1000 (nth (seq v) 1000)))
+      (is (= (seq (apply vector (range 2000))) (iterator-seq (.iterator v))))))
+
+  (testing "transients keep the type"
+    (let [t (transient (vector-of :long))]
+      (doseq [i (range 2000)]
+        (conj! t (+ i 0.5)))
+      (assoc! t 0 -1.5)
+      (assoc! t 1999 7.5)
+      (pop! t)
+      (let [v (persistent! t)]
+        (is (= 1999 (count v)))
+        (is (= -1 (nth v 0)))
+        (is (= 1998 (nth v 1998)))
+        (is (= (vector 1) (conj (empty v) 1.0))))))
+
+  (testing "a byte vector over many leaves"
+    (let [v (into (vector-of :byte) (map #(- (mod % 256) 128) (range 5000)))]
+      (is (= 5000 (count v)))
+      (is (= -128 (nth v 256)))
+      (is (= (reduce + (map #(- (mod % 256) 128) (range 5000))) (reduce + v))))))
@@ -1,5 +1,5 @@
 (ns clojure.lang.seq-test
-  (:refer-clojure :only [defmacro fn let list* reify])
+  (:refer-clojure :only [apply defmacro fn let list* range reify])
   (:require [clojure.test                         :refer :all]
             [clojure.next                         :refer :all]
             [clojure.lang.protocols               :refer [ISeq]]
@@ -82,6 +82,9 @@
   (testing "returns true if the seq is nil"
     (is (every? #() nil)))
 
+  (testing "returns true for an empty collection without calling the predicate"
+    (is (every? #(throw %) (vector))))
+
   (testing "returns true if every element passes the predicate test"
     (let [pred #(> % 0)
           s (list 1 2 3)]
@@ -114,6 +117,53 @@
   (testing "reduces the collection with a supplied start value"
     (is (= 10 (reduce + 1 (list 2 3 4))))))
 
+(deftest reduce-collections-test
+  (let [v (apply vector (range 100))
+        sum-vals #(+ %1 (val %2))
+        take-three (fn [acc x] (if (= 3 (count acc)) (reduced acc) (conj acc x)))]
+    (testing "reduces vectors, sub vectors and their seqs"
+      (is (= 4950 (reduce + v)))
+      (is (= 4950 (reduce + 0 (seq v))))
+      (is (= 4949 (reduce + (next (next (seq v))))))
+      (is (= 45 (reduce + (subvec v 0 10)))))
+
+    (testing "reduces maps over their entries"
+      (is (= 6 (reduce sum-vals 0 (array-map :a 1 :b 2 :c 3))))
+      (is (= 10000 (reduce sum-vals 0 (apply hash-map (range 200)))))
+      (is (= 3 (reduce sum-vals 0 (assoc (hash-map :a 1) nil 2)))))
+
+    (testing "reduces a sorted map in key order"
+      (is (= (vector 1 2 3 4)
+             (reduce #(conj %1 (key %2)) (vector) (sorted-map 3 :c 1 :a 4 :d 2 :b)))))
+
+    (testing "reduces chunked seqs"
+      (is (= 5050 (reduce + (map inc v)))))
+
+    (testing "a reduced value ends the reduction"
+      (is (= (vector 0 1 2) (reduce take-three (vector) v)))
+      (is (= (vector 0 1 2) (reduce take-three (vector) (map identity v))))
+      (is (= (vector 1 2 3) (reduce take-three (vector) (list 1 2 3 4 5))))
+      (is (= 3 (count (reduce take-three (vector) (apply hash-map (range 200))))))
+      (is (= (vector 1 2 3) (reduce #(if (= 3 (count %1)) (reduced %1) (conj %1 (key %2)))
+                                    (vector)
+                                    (sorted-map 5 5 3 3 1 1 2 2 4 4))))
+      (is (= :done (reduce (fn [acc x] (reduced :done)) 0 (array-map :a 1 :b 2)))))))
+
+(deftest reduced-test
+  (testing "wraps a value to end a reduction"
+    (is (reduced? (reduced 1)))
+    (is (not (reduced? 1)))
+    (is (= 1 (deref (reduced 1)))))
+
+  (testing "unreduced unwraps a reduced value"
+    (is (= 1 (unreduced (reduced 1))))
+    (is (= 1 (unreduced 1))))
+
+  (testing "ensure-reduced wraps values at most once"
+    (let [r (reduced 1)]
+      (is (identical? r (ensure-reduced r)))
+      (is (reduced? (ensure-reduced 1))))))
+
 (deftest map-test
   (testing "map over nil returns an empty result"
     (is (empty? (map identity nil))))
@@ -227,3 +277,77 @@
   (testing "many elements which do not repeat are distinct"
     (is (distinct? 1 2 3 4))))
 
+
+(deftest transducer-test
+  (testing "map, filter and remove compose into a single transformation"
+    (is (= (list 2 4 6) (seq (sequence (comp (map inc) (filter even?)) (list 1 2 3 4 5)))))
+    (is (= (list 1 3) (seq (sequence (remove even?) (list 1 2 3 4))))))
+
+  (testing "take stops the transformation early"
+    (is (= (list 0 1 2) (seq (sequence (take 3) (range))))))
+
+  (testing "take-while and drop-while"
+    (is (= (list 1 2) (seq (sequence (take-while #(< % 3)) (list 1 2 3 1)))))
+    (is (= (list 3 1) (seq (sequence (drop-while #(< % 3)) (list 1 2 3 1))))))
+
+  (testing "distinct keeps the first occurrence of each element"
+    (is (= (list 1 2 3) (seq (sequence (distinct) (list 1 2 1 3 2))))))
+
+  (testing "cat passes on the elements of each input"
+    (is (= (list 1 2 3 4) (seq (sequence cat (list (list 1 2) (list) (list 3 4))))))))
+
+(deftest transduce-test
+  (testing "reduces with the transformed reducing function"
+    (is (= 14 (transduce (map inc) + 0 (list 1 2 3 4)))))
+
+  (testing "init defaults to calling f with no arguments"
+    (is (= 6 (transduce (filter even?) + (list 1 2 3 4)))))
+
+  (testing "calls the completion arity of f on the result"
+    (is (= 10 (transduce (map inc) (completing + #(* 2 %)) 0 (list 1 2))))))
+
+(deftest into-xform-test
+  (testing "conjoins the transformed elements"
+    (let [v (into (vector) (comp (map inc) (take 3)) (list 1 2 3 4))]
+      (is (= 3 (count v)))
+      (is (= 4 (nth v 2)))))
+
+  (testing "works on collections that are not editable"
+    (is (= (list 3 2) (into (list) (map inc) (list 1 2))))))
+
+(deftest sequence-test
+  (testing "returns an empty seq for an empty collection"
+    (is (nil? (seq (sequence (list)))))
+    (is (nil? (seq (sequence (map inc) (vector))))))
+
+  (testing "transforms chunked sources a chunk at a time"
+    (let [s (sequence (map inc) (apply vector (range 100)))]
+      (is (chunked-seq? (seq s)))
+      (is (= 100 (count s)))
+      (is (= 100 (last s)))))
+
+  (testing "keeps every element of an expanding transformation"
+    (let [s (sequence (comp (map #(list % %)) cat) (apply vector (range 50)))]
+      (is (= 100 (count s)))
+      (is (= 49 (last s))))))
+
+(deftest eduction-test
+  (testing "is reducible"
+    (is (= 30 (reduce + 0 (eduction (map inc) (remove odd?) (list 0 1 2 3 4 5 6 7 8 9))))))
+
+  (testing "is seqable"
+    (is (= (list 2 3) (seq (eduction (map inc) (list 1 2)))))))
+
+(deftest volatile-test
+  (testing "vreset! and vswap! set the value"
+    (let [v (volatile! 1)]
+      (is (volatile? v))
+      (is (= 2 (vreset! v 2)))
+      (is (= 5 (vswap! v + 3)))
+      (is (= 5 (deref v))))))
+
+(deftest comp-test
+  (testing "applies functions right to left"
+    (is (= 5 ((comp inc #(* 2 %)) 2)))
+    (is (= 3 ((comp inc inc inc) 0)))
+    (is (= 1 ((comp) 1)))))
@@ -179,6 +179,31 @@
           res (into meta-coll (vector 4 5 6))]
       (is (= {:so :meta} (meta res))))))
 
+(deftest merge-test
+  (testing "a key takes its value from the last map that has it"
+    (is (= (hash-map :a 1 :b 3 :c 4) (merge (hash-map :a 1 :b 2) (hash-map :b 3) (hash-map :c 4)))))
+
+  (testing "nil maps are skipped"
+    (is (= (hash-map :a 1) (merge nil (hash-map :a 1) nil)))
+    (is (nil? (merge nil nil)))
+    (is (nil? (merge)))))
+
+(deftest merge-with-test
+  (testing "combines the values of a key in more than one map"
+    (is (= (hash-map :a 1 :b 5 :c 4)
+           (merge-with + (hash-map :a 1 :b 2) (hash-map :b 3) (hash-map :c 4)))))
+
+  (testing "nil maps are skipped"
+    (is (= (hash-map :a 1) (merge-with + nil (hash-map :a 1))))))
+
+(deftest fold-test
+  (testing "collections that cannot be split are reduced sequentially"
+    (is (= 6 (fold + '(1 2 3))))
+    (is (= (vector 1 2 3) (fold (fn ([] (vector)) ([a b] (into a b))) conj '(1 2 3)))))
+
+  (testing "an empty collection folds to (combinef)"
+    (is (= 0 (fold + '())))))
+
 (deftest time-test
   (testing "displaying time elapsed with evaluating an expression in milliseconds"
     (let [out-str (with-out-str (time (+ 1 1)))]
@@ -0,0 +1,47 @@
+(ns clojure.lang.capability-test
+  (:refer-clojure :only [defprotocol deftype extend-type fn])
+  (:require [clojure.test            :refer :all]
+            [clojure.next            :refer :all]
+            [clojure.lang.capability :refer [satisfies?]]))
+
+(defprotocol ICapable
+  (-capable [this]))
+
+(deftype Inline []
+  ICapable
+  (-capable [this] :inline))
+
+(deftype Extended [])
+
+(deftype Later [])
+
+(extend-type Extended
+  ICapable
+  (-capable [this] :extended))
+
+(deftest satisfies?-test
+  (testing "returns true for a type that implements the protocol inline"
+    (is (satisfies? ICapable (Inline.))))
+
+  (testing "returns true for an extended type"
+    (is (satisfies? ICapable (Extended.)))
+    (is (satisfies? ICapable (Extended.))))
+
+  (testing "returns false otherwise"
+    (is (not (satisfies? ICapable (Object.))))
+    (is (not (satisfies? ICapable (Object.))))
+    (is (not (satisfies? ICapable nil)))))
+
+(deftest satisfies?-after-extend-test
+  (testing "answers again once the protocol is extended"
+    (is (not (satisfies? ICapable (Later.))))
+    (is (not (satisfies? ICapable "later")))
+    (extend-type Later
+      ICapable
+      (-capable [this] :later))
+    (extend-type CharSequence
+      ICapable
+      (-capable [this] :char-sequence))
+    (is (satisfies? ICapable (Later.)))
+    (is (satisfies? ICapable "later"))
+    (is (= :later (-capable (Later.))))))
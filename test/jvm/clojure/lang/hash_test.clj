@@ -0,0 +1,24 @@
+(ns clojure.lang.hash-test
+  (:refer-clojure :only [let])
+  (:require [clojure.test      :refer :all]
+            [clojure.next      :refer :all]
+            [clojure.lang.hash :refer [hash-combine hash-string
+                                       hash-ordered-step hash-unordered-step mix-collection-hash]])
+  (:import  [clojure.lang.platform Murmur3]))
+
+(deftest murmur3-test
+  (testing "matches the Murmur3 hashes of Clojure's hasheq"
+    (is (= (clojure.lang.Murmur3/hashInt 42) (Murmur3/hashInt 42)))
+    (is (= (clojure.lang.Murmur3/hashLong -7) (Murmur3/hashLong -7)))
+    (is (= (clojure.lang.Murmur3/hashLong 1234567890123) (Murmur3/hashLong 1234567890123)))
+    (is (= (clojure.lang.Murmur3/hashUnencodedChars "hello") (hash-string "hello")))
+    (is (= (clojure.lang.Murmur3/hashUnencodedChars "even") (hash-string "even")))
+    (is (= (clojure.lang.Murmur3/mixCollHash 12345 3) (mix-collection-hash 12345 3))))
+
+  (testing "the collection steps wrap around instead of overflowing"
+    (is (= 2147483617 (hash-ordered-step 0x7fffffff 0)))
+    (is (= -2147483648 (hash-unordered-step 0x7fffffff 1))))
+
+  (testing "hash-combine depends on both hashes and their order"
+    (is (not= (hash-combine 1 2) (hash-combine 2 1)))
+    (is (not= (hash-combine 1 2) (hash-combine 1 3)))))
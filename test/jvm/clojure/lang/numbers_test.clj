@@ -1,9 +1,10 @@
 (ns clojure.lang.numbers-test
   (:refer-clojure :only [defmacro let loop doseq defn- deftype if-let if-not when])
-  (:require [clojure.test            :refer [deftest is testing]]
-            [clojure.lang.numbers    :refer [make-ratio]]
-            [clojure.next            :refer :all])
-  (:import  [clojure.lang.platform BigInt FallBackNumber]))
+  (:require [clojure.test                         :refer [deftest is testing]]
+            [clojure.lang.numbers                 :refer [make-ratio]]
+            [clojure.support.exception-assertions :refer [arithmetic-exception-is-thrown?]]
+            [clojure.next                         :refer :all])
+  (:import  [clojure.lang.platform BigInt FallBackNumber Ratio]))
 
 (defmacro all-pairs-equal [equal-var vals]
   `(let [equal-var# ~equal-var
@@ -430,6 +431,35 @@
 (deftest integer-precision-upper-overflow-addition-test
   (is (= (BigInt/fromBigInteger (BigInteger. "9223372036854775808")) (+' Long/MAX_VALUE 1))))
 
+(defn- long-add [^long x ^long y] (+ x y))
+(defn- long-subtract [^long x ^long y] (- x y))
+(defn- long-multiply [^long x ^long y] (* x y))
+(defn- long-double-add [^long x ^double y] (+ x y))
+(defn- hinted-add [x y] (+ ^long x ^long y))
+
+(deftest primitive-arithmetic-test
+  (testing "hinted longs add, subtract and multiply to longs"
+    (is (= 3 (long-add 1 2)))
+    (is (= Long (type (long-add 1 2))))
+    (is (= -1 (long-subtract 1 2)))
+    (is (= 6 (long-multiply 2 3)))
+    (is (= 7 (hinted-add 3 4))))
+
+  (testing "a hinted long and double are added as doubles"
+    (is (= 3.5 (long-double-add 1 2.5)))
+    (is (= Double (type (long-double-add 1 2.5)))))
+
+  (testing "hinted long arithmetic still checks for overflow"
+    (arithmetic-exception-is-thrown? #"integer overflow" (long-add Long/MAX_VALUE 1))
+    (arithmetic-exception-is-thrown? #"integer overflow" (long-subtract Long/MIN_VALUE 1))
+    (arithmetic-exception-is-thrown? #"integer overflow" (long-multiply Long/MAX_VALUE 2)))
+
+  (testing "literals and primitive locals are compared without boxing"
+    (is (< 1 2))
+    (is (<= 2 2))
+    (is (== 1 1.0))
+    (is (= 4 (loop [i 0] (if (< i 4) (recur (inc i)) i))))))
+
 (deftest integer-increment-test
   (testing "increment an int"
     (is (= -1 (inc (int -2))))
@@ -634,6 +664,45 @@
 (deftest integer-precision-lower-overflow-multiplication-test
   (is (= (BigInt/fromBigInteger (BigInteger. "-9223372036854775810")) (*' -4611686018427387905 2))))
 
+;; Edges either side of the small value cache and of 64 bits
+(def ^:private big-int-edges
+  ["0" "1" "-1" "7" "-128" "-129" "1024" "1025"
+   "9223372036854775807" "-9223372036854775808" "9223372036854775806"
+   "9223372036854775808" "-9223372036854775809" "18446744073709551621"
+   "-1180591620717411303424"])
+
+(deftest big-int-arithmetic-test
+  (testing "matches BigInteger on both sides of the long boundary"
+    (doseq [x-str big-int-edges
+            y-str big-int-edges]
+      (let [x (BigInteger. x-str)
+            y (BigInteger. y-str)
+            bx (BigInt/fromBigInteger x)
+            by (BigInt/fromBigInteger y)]
+        (is (.equals (.add x y) (.toBigInteger (.add bx by))))
+        (is (.equals (.subtract x y) (.toBigInteger (.subtract bx by))))
+        (is (.equals (.multiply x y) (.toBigInteger (.multiply bx by))))
+        (is (.equals (.gcd x y) (.toBigInteger (.gcd bx by))))
+        (is (= (.compareTo x y) (.compareTo bx by)))
+        (is (= (neg? (.compareTo x y)) (.lt bx by)))
+        (when-not (zero? (.signum y))
+          (is (.equals (.divide x y) (.toBigInteger (.quotient bx by))))
+          (is (.equals (.remainder x y) (.toBigInteger (.remainder bx by))))))))
+
+  (testing "negates past the long boundary"
+    (doseq [x-str big-int-edges]
+      (let [x (BigInteger. x-str)]
+        (is (.equals (.negate x) (.toBigInteger (.negate (BigInt/fromBigInteger x))))))))
+
+  (testing "results that fit in a long come back in the long part"
+    (is (nil? (.getBipart (.subtract (BigInt/fromBigInteger (BigInteger. "9223372036854775808"))
+                                     BigInt/ONE)))))
+
+  (testing "small values are shared"
+    (is (identical? (BigInt/valueOf 1024) (BigInt/valueOf 1024)))
+    (is (identical? (BigInt/valueOf -128) (.add (BigInt/valueOf -64) (BigInt/valueOf -64))))
+    (is (identical? BigInt/ZERO (BigInt/fromLong 0)))))
+
 (deftest integer-subtraction-test
   (op-test {Long [[int long] [number int long]]
             clojure.lang.platform.BigInt [[bigint biginteger] [number int long bigint biginteger]]}
@@ -1111,3 +1180,49 @@
   (testing "denominator of a ratio"
     (let [ratio (make-ratio 1 2)]
       (is (= 2 (denominator ratio))))))
+
+(defn- big-ratio [n d]
+  (Ratio. (BigInteger. n) (BigInteger. d)))
+
+(deftest ratio-arithmetic-test
+  (testing "small ratios add, multiply and divide to reduced ratios"
+    (is (= (make-ratio 1 2) (+ (make-ratio 1 3) (make-ratio 1 6))))
+    (is (= (make-ratio 1 9) (* (make-ratio 1 3) (make-ratio 1 3))))
+    (is (= (make-ratio -3 2) (/ (make-ratio 1 2) (make-ratio -1 3)))))
+
+  (testing "whole results are bigints"
+    (is (= (bigint 1) (+ (make-ratio 1 2) (make-ratio 1 2))))
+    (is (= clojure.lang.platform.BigInt (type (* (make-ratio 2 3) (make-ratio 3 2))))))
+
+  (testing "results that overflow a long are exact"
+    (let [r (big-ratio "1" "9223372036854775807")]
+      (is (= (big-ratio "2" "9223372036854775807") (+ r r)))
+      (is (= (big-ratio "1" "85070591730234615847396907784232501249") (* r r)))
+      (is (= (big-ratio "9223372036854775807" "2")
+             (/ (make-ratio 1 2) r)))))
+
+  (testing "ratios compare across the long boundary"
+    (is (< (big-ratio "1" "9223372036854775807") (make-ratio 1 2)))
+    (is (< (make-ratio -1 2) (big-ratio "-1" "9223372036854775807")))
+    (is (<= (make-ratio 1 3) (make-ratio 1 3)))
+    (is (== (make-ratio 2 4) (big-ratio "1" "2")))))
+
+(deftest ratio-double-value-test
+  (testing "converts exactly when it can"
+    (is (= 0.5 (.doubleValue (make-ratio 1 2))))
+    (is (= -0.25 (.doubleValue (make-ratio -1 4)))))
+
+  (testing "rounds to the nearest double, ties to even"
+    (is (= (/ 1.0 3.0) (.doubleValue (make-ratio 1 3))))
+    (is (= 0.1 (.doubleValue (big-ratio "1" "10"))))
+    (is (= 1.0 (.doubleValue (big-ratio "9007199254740993" "9007199254740992"))))
+    (is (= 1.0000000000000004 (.doubleValue (big-ratio "9007199254740995" "9007199254740992")))))
+
+  (testing "rounds past the 53 bits of a double"
+    (is (= 1.0 (.doubleValue (big-ratio "18014398509481985" "18014398509481984"))))
+    (is (= 3.0 (.doubleValue (big-ratio "27670116110564327425" "9223372036854775808")))))
+
+  (testing "handles magnitudes beyond a long"
+    (is (= 4.9E-324 (.doubleValue (big-ratio "1" (str (.shiftLeft BigInteger/ONE 1074))))))
+    (is (= 0.0 (.doubleValue (big-ratio "1" (str (.shiftLeft BigInteger/ONE 1076))))))
+    (is (= Double/POSITIVE_INFINITY (.doubleValue (big-ratio (str (.shiftLeft BigInteger/ONE 1100)) "3"))))))
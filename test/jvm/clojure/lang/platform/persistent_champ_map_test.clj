@@ -0,0 +1,66 @@
+(ns clojure.lang.platform.persistent-champ-map-test
+  (:refer-clojure :only [defn- deftype loop let])
+  (:require [clojure.test                              :refer :all]
+            [clojure.lang.platform.persistent-map-test :refer [platform-map-test]]
+            [clojure.next                              :refer :all]))
+
+(deftest champ-hash-map-platform-test
+  (platform-map-test champ-hash-map))
+
+(deftype CollidingKey [k]
+  Object
+  (hashCode [this] 42)
+  (equals [this other]
+    (and (instance? CollidingKey other)
+         (= k (.-k ^CollidingKey other)))))
+
+(defn- iterator-count [^Iterable coll]
+  (let [iter (.iterator coll)]
+    (loop [n 0]
+      (if (.hasNext iter)
+        (do
+          (.next iter)
+          (recur (inc n)))
+        n))))
+
+(deftest champ-hash-map-iterator-test
+  (let [size 5000
+        m (loop [i 0 m (champ-hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i (* 2 i))) m))]
+    (testing "walks every entry"
+      (is (= size (iterator-count m)))
+      (is (= size (iterator-count (keys m))))
+      (is (= size (iterator-count (vals m)))))
+
+    (testing "hasNext can be called repeatedly"
+      (let [iter (.iterator ^Iterable (champ-hash-map :a 1))]
+        (is (.hasNext iter))
+        (is (.hasNext iter))
+        (is (= :a (key (.next iter))))
+        (is (not (.hasNext iter)))))))
+
+(deftest champ-hash-map-collision-test
+  (let [m (champ-hash-map (CollidingKey. 1) :a (CollidingKey. 2) :b (CollidingKey. 3) :c :d 4)]
+    (testing "keys with equal hashes share a collision node"
+      (is (= 4 (count m)))
+      (is (= :b (get m (CollidingKey. 2))))
+      (is (= 4 (iterator-count m)))
+      (is (= 4 (count (seq m)))))
+
+    (testing "collision nodes compare as sets"
+      (is (= m (champ-hash-map :d 4 (CollidingKey. 3) :c (CollidingKey. 1) :a (CollidingKey. 2) :b)))
+      (is (not (= m (assoc m (CollidingKey. 2) :x)))))
+
+    (testing "dissoc down to one colliding key"
+      (let [m (dissoc (dissoc m (CollidingKey. 1)) (CollidingKey. 3))]
+        (is (= 2 (count m)))
+        (is (= :b (get m (CollidingKey. 2))))
+        (is (= m (champ-hash-map :d 4 (CollidingKey. 2) :b)))))
+
+    (testing "dissoc! on a transient"
+      (let [t (transient m)]
+        (dissoc! t (CollidingKey. 1))
+        (dissoc! t (CollidingKey. 2))
+        (let [p (persistent! t)]
+          (is (= 2 (count p)))
+          (is (= p (champ-hash-map :d 4 (CollidingKey. 3) :c))))))))
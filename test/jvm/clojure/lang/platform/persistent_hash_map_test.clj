@@ -1,8 +1,60 @@
 (ns clojure.lang.platform.persistent-hash-map-test
-  (:refer-clojure :only [])
+  (:refer-clojure :only [defn- deftype loop let when])
   (:require [clojure.test                              :refer :all]
             [clojure.lang.platform.persistent-map-test :refer [platform-map-test]]
             [clojure.next                              :refer :all]))
 
 (deftest hash-map-platform-test
   (platform-map-test hash-map))
+
+(deftype CollidingKey [k]
+  Object
+  (hashCode [this] 42)
+  (equals [this other]
+    (and (instance? CollidingKey other)
+         (= k (.-k ^CollidingKey other)))))
+
+(defn- iterator-count [^Iterable coll]
+  (let [iter (.iterator coll)]
+    (loop [n 0]
+      (if (.hasNext iter)
+        (do
+          (.next iter)
+          (recur (inc n)))
+        n))))
+
+(deftest hash-map-iterator-test
+  (let [size 5000
+        m (loop [i 0 m (hash-map)]
+            (if (< i size) (recur (inc i) (assoc m i (* 2 i))) m))]
+    (testing "walks every entry of a map with array and bitmap nodes"
+      (is (= size (iterator-count m)))
+      (let [iter (.iterator ^Iterable m)]
+        (loop [sum 0]
+          (if (.hasNext iter)
+            (let [e (.next iter)]
+              (is (= (* 2 (key e)) (val e)))
+              (recur (+ sum (key e))))
+            (is (= 12497500 sum))))))
+
+    (testing "hasNext can be called repeatedly"
+      (let [iter (.iterator ^Iterable (hash-map :a 1))]
+        (is (.hasNext iter))
+        (is (.hasNext iter))
+        (is (= :a (key (.next iter))))
+        (is (not (.hasNext iter))))))
+
+  (testing "gives the entry for a nil key first"
+    (let [iter (.iterator ^Iterable (assoc (hash-map :a 1) nil 2))
+          e (.next iter)]
+      (is (nil? (key e)))
+      (is (= 2 (val e)))
+      (is (= :a (key (.next iter))))
+      (is (not (.hasNext iter)))))
+
+  (testing "walks the entries of a hash collision node"
+    (let [m (hash-map (CollidingKey. 1) :a (CollidingKey. 2) :b (CollidingKey. 3) :c)
+          m (dissoc m (CollidingKey. 2))]
+      (is (= 2 (iterator-count m)))
+      (is (= 2 (iterator-count (keys m))))
+      (is (= 2 (iterator-count (vals m)))))))
@@ -0,0 +1,23 @@
+(ns clojure.lang.platform.threading-test
+  (:refer-clojure :only [defn- fn let reify])
+  (:require [clojure.test :refer :all]
+            [clojure.next :refer :all])
+  (:import [clojure.lang.platform Threading]
+           [java.util.concurrent Callable ExecutorService]
+           [java.util.concurrent.atomic AtomicLong]))
+
+(defn- has-virtual-threads? []
+  (clojure.core/some #(= "ofVirtual" (.getName ^java.lang.reflect.Method %)) (.getMethods Thread)))
+
+(deftest create-virtual-thread-per-task-executor-test
+  (let [executor (Threading/createVirtualThreadPerTaskExecutor "test-virtual-%d" (AtomicLong. 7))]
+    (if (has-virtual-threads?)
+      (testing "runs each task on a virtual thread named by the format"
+        (let [thread-of (reify Callable
+                          (call [_] (Thread/currentThread)))
+              thread (.get (.submit ^ExecutorService executor ^Callable thread-of))]
+          (is (= "test-virtual-7" (.getName ^Thread thread)))
+          (is (.isVirtual ^Thread thread))
+          (.shutdown ^ExecutorService executor)))
+      (testing "returns nil without virtual threads"
+        (is (nil? executor))))))